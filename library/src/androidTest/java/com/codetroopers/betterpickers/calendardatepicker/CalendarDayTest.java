@@ -0,0 +1,114 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import android.os.Parcel;
+import android.text.format.Time;
+
+import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * Checks the packed {@link CalendarDay} against {@link Calendar} and {@link Time}.
+ */
+public class CalendarDayTest extends TestCase {
+
+    public void testCarriesMonthsAndDays() {
+        assertDay(2016, Calendar.JANUARY, 1, new CalendarDay(2015, 12, 1));
+        assertDay(2017, Calendar.FEBRUARY, 3, new CalendarDay(2015, 25, 3));
+        assertDay(2015, Calendar.DECEMBER, 15, new CalendarDay(2016, -1, 15));
+        assertDay(2014, Calendar.DECEMBER, 1, new CalendarDay(2016, -13, 1));
+        assertDay(2015, Calendar.DECEMBER, 31, new CalendarDay(2016, Calendar.JANUARY, 0));
+        assertDay(2015, Calendar.MARCH, 1, new CalendarDay(2015, Calendar.FEBRUARY, 29));
+        assertDay(2016, Calendar.FEBRUARY, 29, new CalendarDay(2016, Calendar.FEBRUARY, 29));
+        assertDay(2016, Calendar.APRIL, 1, new CalendarDay(2016, Calendar.MARCH, 32));
+        assertDay(2016, Calendar.FEBRUARY, 28, new CalendarDay(2016, Calendar.FEBRUARY, 28));
+    }
+
+    public void testCarriesLikeCalendar() {
+        for (int month = -30; month <= 30; month += 7) {
+            for (int day = -40; day <= 70; day += 11) {
+                Calendar calendar = new GregorianCalendar(2016, month, day);
+                assertEquals(new CalendarDay(calendar), new CalendarDay(2016, month, day));
+            }
+        }
+    }
+
+    public void testCompareToAcrossYears() {
+        CalendarDay lastOf2015 = new CalendarDay(2015, Calendar.DECEMBER, 31);
+        CalendarDay firstOf2016 = new CalendarDay(2016, Calendar.JANUARY, 1);
+        assertTrue(lastOf2015.compareTo(firstOf2016) < 0);
+        assertTrue(firstOf2016.compareTo(lastOf2015) > 0);
+        assertEquals(0, firstOf2016.compareTo(new CalendarDay(2015, 12, 1)));
+
+        List<CalendarDay> days = new ArrayList<>();
+        days.add(new CalendarDay(2016, Calendar.MARCH, 1));
+        days.add(new CalendarDay(1999, Calendar.DECEMBER, 31));
+        days.add(firstOf2016);
+        days.add(new CalendarDay(2015, Calendar.NOVEMBER, 30));
+        days.add(lastOf2015);
+        Collections.sort(days);
+        for (int i = 1; i < days.size(); i++) {
+            assertTrue(days.get(i - 1).getDateInMillis() < days.get(i).getDateInMillis());
+        }
+    }
+
+    public void testParcelRoundTrip() {
+        CalendarDay day = new CalendarDay(2016, Calendar.FEBRUARY, 29);
+        Parcel parcel = Parcel.obtain();
+        try {
+            day.writeToParcel(parcel, 0);
+            assertEquals(4, parcel.dataSize());
+            parcel.setDataPosition(0);
+            CalendarDay read = CalendarDay.CREATOR.createFromParcel(parcel);
+            assertEquals(day, read);
+            assertDay(2016, Calendar.FEBRUARY, 29, read);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    public void testDateInMillisFollowsSet() {
+        CalendarDay day = new CalendarDay(2015, Calendar.JUNE, 10);
+        assertEquals(new GregorianCalendar(2015, Calendar.JUNE, 10).getTimeInMillis(), day.getDateInMillis());
+
+        day.set(new CalendarDay(2016, Calendar.FEBRUARY, 29));
+        assertEquals(new GregorianCalendar(2016, Calendar.FEBRUARY, 29).getTimeInMillis(), day.getDateInMillis());
+
+        day.setDay(2016, 12, 1);
+        assertEquals(new GregorianCalendar(2017, Calendar.JANUARY, 1).getTimeInMillis(), day.getDateInMillis());
+    }
+
+    public void testTimeInMillisIsADayInTheDefaultZone() {
+        Calendar calendar = new GregorianCalendar(2016, Calendar.MARCH, 27);
+        assertDay(2016, Calendar.MARCH, 27, new CalendarDay(calendar.getTimeInMillis()));
+        calendar.set(Calendar.HOUR_OF_DAY, 23);
+        calendar.set(Calendar.MINUTE, 59);
+        assertDay(2016, Calendar.MARCH, 27, new CalendarDay(calendar.getTimeInMillis()));
+        assertEquals(new CalendarDay(calendar), new CalendarDay(calendar.getTimeInMillis()));
+    }
+
+    public void testJulianDayMatchesTime() {
+        Time time = new Time(Time.TIMEZONE_UTC);
+        CalendarDay day = new CalendarDay();
+        for (int year = 1900; year <= 2100; year += 7) {
+            for (int month = 0; month < 12; month++) {
+                time.set(month + 1, month, year);
+                long millis = time.normalize(true);
+                day.setJulianDay(Time.getJulianDay(millis, time.gmtoff));
+                assertDay(time.year, time.month, time.monthDay, day);
+            }
+        }
+    }
+
+    private static void assertDay(int year, int month, int monthDay, CalendarDay day) {
+        assertEquals(year, day.getYear());
+        assertEquals(month, day.getMonth());
+        assertEquals(monthDay, day.getDay());
+    }
+}
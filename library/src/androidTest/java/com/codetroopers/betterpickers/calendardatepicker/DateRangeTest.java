@@ -0,0 +1,135 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import android.os.Parcel;
+
+import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
+
+import junit.framework.TestCase;
+
+import java.util.Calendar;
+
+/**
+ * Checks how taps build a {@link DateRange}, and its packed form.
+ */
+public class DateRangeTest extends TestCase {
+
+    private static final int JAN_10 = day(2016, Calendar.JANUARY, 10);
+    private static final int JAN_15 = day(2016, Calendar.JANUARY, 15);
+    private static final int FEB_2 = day(2016, Calendar.FEBRUARY, 2);
+
+    public void testSelect() {
+        DateRange range = new DateRange();
+        assertTrue(range.isEmpty());
+
+        range.select(JAN_10);
+        assertFalse(range.isComplete());
+        assertEquals(JAN_10, range.getPackedStart());
+        assertEquals(JAN_10, range.getPackedEnd());
+
+        range.select(FEB_2);
+        assertTrue(range.isComplete());
+        assertEquals(JAN_10, range.getPackedStart());
+        assertEquals(FEB_2, range.getPackedEnd());
+
+        // a complete range starts again
+        range.select(JAN_15);
+        assertFalse(range.isComplete());
+        assertEquals(JAN_15, range.getPackedStart());
+
+        // and so does a day before the start
+        range.select(JAN_10);
+        assertFalse(range.isComplete());
+        assertEquals(JAN_10, range.getPackedStart());
+
+        // the start again picks a single day
+        range.select(JAN_10);
+        assertTrue(range.isComplete());
+        assertEquals(0, range.getDayCount());
+    }
+
+    public void testSelectDoesNotEndAcrossDisabledDays() {
+        DisabledDaySet disabledDays = new DisabledDaySet().add(2016, Calendar.JANUARY, 20);
+        DateRange range = new DateRange();
+
+        range.select(JAN_10, disabledDays).select(FEB_2, disabledDays);
+        assertFalse(range.isComplete());
+        assertEquals(FEB_2, range.getPackedStart());
+
+        range.clear().select(JAN_10, disabledDays).select(JAN_15, disabledDays);
+        assertTrue(range.isComplete());
+
+        // the disabled day is an end
+        range.clear().select(JAN_15, disabledDays).select(day(2016, Calendar.JANUARY, 20), disabledDays);
+        assertFalse(range.isComplete());
+    }
+
+    public void testSetSwapsTheEnds() {
+        DateRange range = new DateRange(new CalendarDay(2016, Calendar.FEBRUARY, 2),
+                new CalendarDay(2016, Calendar.JANUARY, 10));
+        assertEquals(JAN_10, range.getPackedStart());
+        assertEquals(FEB_2, range.getPackedEnd());
+        assertEquals(new CalendarDay(2016, Calendar.JANUARY, 10), range.getStart());
+        assertEquals(new CalendarDay(2016, Calendar.FEBRUARY, 2), range.getEnd());
+
+        range.set(new CalendarDay(2016, Calendar.JANUARY, 15), null);
+        assertFalse(range.isComplete());
+        assertEquals(range.getStart(), range.getEnd());
+
+        try {
+            range.set(null, new CalendarDay(2016, Calendar.JANUARY, 15));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testContains() {
+        DateRange range = new DateRange();
+        assertFalse(range.contains(JAN_10));
+
+        range.select(JAN_10);
+        assertTrue(range.contains(JAN_10));
+        assertFalse(range.contains(JAN_15));
+
+        range.select(FEB_2);
+        assertTrue(range.contains(JAN_10));
+        assertTrue(range.contains(day(2016, Calendar.JANUARY, 31)));
+        assertTrue(range.contains(FEB_2));
+        assertFalse(range.contains(day(2016, Calendar.JANUARY, 9)));
+        assertFalse(range.contains(day(2016, Calendar.FEBRUARY, 3)));
+        assertTrue(range.contains(new CalendarDay(2016, Calendar.JANUARY, 20)));
+    }
+
+    public void testDayCount() {
+        assertEquals(0, new DateRange().getDayCount());
+        assertEquals(23, new DateRange().setPacked(JAN_10, FEB_2).getDayCount());
+        assertEquals(2, new DateRange().setPacked(day(2015, Calendar.DECEMBER, 31), day(2016, Calendar.JANUARY, 2))
+                .getDayCount());
+        assertEquals(366, new DateRange().setPacked(day(2016, Calendar.JANUARY, 1), day(2017, Calendar.JANUARY, 1))
+                .getDayCount());
+    }
+
+    public void testParcelRoundTrip() {
+        assertEquals(new DateRange(), parcel(new DateRange()));
+        DateRange started = new DateRange().select(JAN_10);
+        assertEquals(started, parcel(started));
+        DateRange complete = new DateRange().setPacked(JAN_10, FEB_2);
+        DateRange read = parcel(complete);
+        assertEquals(complete, read);
+        assertEquals(23, read.getDayCount());
+    }
+
+    private static DateRange parcel(DateRange range) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            range.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return DateRange.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static int day(int year, int month, int day) {
+        return new CalendarDay(year, month, day).getPackedDate();
+    }
+}
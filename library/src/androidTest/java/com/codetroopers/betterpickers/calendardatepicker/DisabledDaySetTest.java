@@ -0,0 +1,178 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.SparseArray;
+
+import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
+
+import junit.framework.TestCase;
+
+import java.util.Calendar;
+
+/**
+ * Checks the month masks of {@link DisabledDaySet}, their cache, and the parcelled form.
+ */
+public class DisabledDaySetTest extends TestCase {
+
+    public void testMasksFollowChanges() {
+        DisabledDaySet set = new DisabledDaySet();
+        assertEquals(0, set.getMonthMask(2016, Calendar.JANUARY));
+
+        set.add(2016, Calendar.JANUARY, 5);
+        assertEquals(1 << 4, set.getMonthMask(2016, Calendar.JANUARY));
+
+        // 2016-01-03 is a Sunday; the mask of the month is now cached
+        set.addWeekDays(Calendar.SUNDAY);
+        assertTrue(set.contains(2016, Calendar.JANUARY, 3));
+        assertTrue(set.contains(2016, Calendar.JANUARY, 5));
+
+        set.add(2016, Calendar.JANUARY, 6);
+        assertTrue(set.contains(2016, Calendar.JANUARY, 6));
+        set.remove(2016, Calendar.JANUARY, 5);
+        assertFalse(set.contains(2016, Calendar.JANUARY, 5));
+
+        set.addWeekDays(Calendar.MONDAY);
+        assertTrue(set.contains(2016, Calendar.JANUARY, 4));
+
+        set.addRule(new DayOfMonthRule(13));
+        assertTrue(set.contains(2016, Calendar.JANUARY, 13));
+        assertTrue(set.contains(2016, Calendar.FEBRUARY, 13));
+        assertFalse(set.contains(2016, Calendar.JANUARY, 14));
+    }
+
+    public void testInvalidateAsksRulesAgain() {
+        DayOfMonthRule rule = new DayOfMonthRule(13);
+        DisabledDaySet set = new DisabledDaySet().addRule(rule);
+        assertTrue(set.contains(2016, Calendar.JANUARY, 13));
+
+        rule.mDay = 14;
+        assertTrue(set.contains(2016, Calendar.JANUARY, 13));
+        set.invalidate();
+        assertFalse(set.contains(2016, Calendar.JANUARY, 13));
+        assertTrue(set.contains(2016, Calendar.JANUARY, 14));
+    }
+
+    public void testDay31() {
+        DisabledDaySet set = new DisabledDaySet().add(2016, Calendar.JANUARY, 31);
+        assertEquals(1 << 30, set.getMonthMask(2016, Calendar.JANUARY));
+        assertTrue(set.contains(2016, Calendar.JANUARY, 31));
+        assertFalse(set.contains(2016, Calendar.JANUARY, 32));
+        assertFalse(set.contains(2016, Calendar.FEBRUARY, 31));
+
+        // 2016-01-31 is a Sunday
+        set.remove(2016, Calendar.JANUARY, 31).addWeekDays(Calendar.SUNDAY);
+        assertTrue(set.contains(2016, Calendar.JANUARY, 31));
+        assertFalse(set.contains(2016, Calendar.MARCH, 31));
+
+        try {
+            set.add(2016, Calendar.JANUARY, 32);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testContainsAnyBetween() {
+        DisabledDaySet set = new DisabledDaySet().add(2016, Calendar.JANUARY, 31).add(2016, Calendar.MARCH, 1);
+        int jan30 = new CalendarDay(2016, Calendar.JANUARY, 30).getPackedDate();
+        int jan31 = new CalendarDay(2016, Calendar.JANUARY, 31).getPackedDate();
+        int feb1 = new CalendarDay(2016, Calendar.FEBRUARY, 1).getPackedDate();
+        int feb29 = new CalendarDay(2016, Calendar.FEBRUARY, 29).getPackedDate();
+        int mar1 = new CalendarDay(2016, Calendar.MARCH, 1).getPackedDate();
+        assertFalse(set.containsAny(jan30, jan30));
+        assertTrue(set.containsAny(jan30, jan31));
+        assertTrue(set.containsAny(jan31, feb1));
+        assertFalse(set.containsAny(feb1, feb29));
+        assertTrue(set.containsAny(feb1, mar1));
+        assertTrue(set.containsAny(new CalendarDay(2015, Calendar.DECEMBER, 1).getPackedDate(), jan31));
+    }
+
+    public void testSparseArrayRoundTrip() {
+        DisabledDaySet set = new DisabledDaySet()
+                .add(2015, Calendar.DECEMBER, 31)
+                .add(2016, Calendar.JANUARY, 1)
+                .add(2016, Calendar.FEBRUARY, 29);
+        SparseArray<CalendarDay> days = set.toSparseArray();
+        assertEquals(3, days.size());
+        assertEquals(new CalendarDay(2016, Calendar.FEBRUARY, 29), days.get(20160129));
+
+        DisabledDaySet copy = DisabledDaySet.fromSparseArray(days);
+        assertEquals(set.getMonthMask(2015, Calendar.DECEMBER), copy.getMonthMask(2015, Calendar.DECEMBER));
+        assertEquals(set.getMonthMask(2016, Calendar.JANUARY), copy.getMonthMask(2016, Calendar.JANUARY));
+        assertEquals(set.getMonthMask(2016, Calendar.FEBRUARY), copy.getMonthMask(2016, Calendar.FEBRUARY));
+    }
+
+    public void testParcelRoundTrip() {
+        DisabledDaySet set = new DisabledDaySet()
+                .add(2016, Calendar.JANUARY, 5)
+                .addWeekDays(Calendar.SATURDAY)
+                .addRule(new DayOfMonthRule(13))
+                .addRule(new DisabledDaySet.Rule() {
+                    @Override
+                    public boolean isDisabled(int year, int month, int day) {
+                        return day == 20;
+                    }
+                });
+        assertFalse(set.hasMissingRules());
+
+        DisabledDaySet restored = parcel(set);
+        assertTrue(restored.hasMissingRules());
+        assertTrue(restored.contains(2016, Calendar.JANUARY, 5));
+        // a Saturday
+        assertTrue(restored.contains(2016, Calendar.JANUARY, 2));
+        assertTrue(restored.contains(2016, Calendar.JANUARY, 13));
+        assertFalse(restored.contains(2016, Calendar.JANUARY, 20));
+
+        // still missing until asked for again
+        assertTrue(parcel(restored).hasMissingRules());
+        restored.clearMissingRules();
+        assertFalse(parcel(restored).hasMissingRules());
+    }
+
+    private static DisabledDaySet parcel(DisabledDaySet set) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            set.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return DisabledDaySet.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    public static class DayOfMonthRule implements DisabledDaySet.Rule, Parcelable {
+
+        int mDay;
+
+        DayOfMonthRule(int day) {
+            mDay = day;
+        }
+
+        @Override
+        public boolean isDisabled(int year, int month, int day) {
+            return day == mDay;
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeInt(mDay);
+        }
+
+        public static final Creator<DayOfMonthRule> CREATOR = new Creator<DayOfMonthRule>() {
+            @Override
+            public DayOfMonthRule createFromParcel(Parcel in) {
+                return new DayOfMonthRule(in.readInt());
+            }
+
+            @Override
+            public DayOfMonthRule[] newArray(int size) {
+                return new DayOfMonthRule[size];
+            }
+        };
+    }
+}
@@ -0,0 +1,200 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Differential test of the single-pass {@link EventRecurrence#parse(CharSequence)} against the split-based parser it
+ * replaces.
+ */
+public class EventRecurrenceParseTest extends TestCase {
+
+    static final String[] RULES = {
+            "FREQ=DAILY",
+            "FREQ=WEEKLY;BYDAY=MO,WE,FR",
+            "FREQ=WEEKLY;INTERVAL=2;WKST=SU;BYDAY=TU,TH",
+            "FREQ=MONTHLY;INTERVAL=2;COUNT=10;BYDAY=1SU,-1SU",
+            "FREQ=MONTHLY;BYDAY=+3TU",
+            "FREQ=MONTHLY;BYMONTHDAY=-1",
+            "FREQ=YEARLY;INTERVAL=4;BYMONTH=11;BYDAY=TU;BYMONTHDAY=2,3,4,5,6,7,8",
+            "FREQ=YEARLY;BYYEARDAY=1,100,200,-366;BYWEEKNO=20,-53;BYSETPOS=-1",
+            "FREQ=HOURLY;BYHOUR=0,23;BYMINUTE=0,30;BYSECOND=0,59",
+            "FREQ=DAILY;UNTIL=20270303T000000Z",
+            "FREQ=DAILY;UNTIL=20270303T000000Z;COUNT=3",
+            "freq=weekly;byday=mo,tu;until=20270303t000000z",
+            "FREQ=DAILY;;INTERVAL=3;",
+            ";FREQ=DAILY",
+            "FREQ=DAILY;X-NAME=value;x-other=1",
+            "FREQ=DAILY;COUNT=-5",
+            "FREQ=DAILY;INTERVAL=0",
+            "FREQ=DAILY;COUNT=+-5",
+            "FREQ=DAILY;COUNT=2147483647",
+            "FREQ=DAILY;COUNT=2147483648",
+            "FREQ=DAILY;BYSETPOS=-2147483648",
+            "FREQ=DAILY;BYSETPOS=-2147483649",
+            "FREQ=DAILY;BYMONTH=1,2,",
+            "FREQ=DAILY;BYMONTH=1,2,,,",
+            "FREQ=DAILY;BYMONTH=,",
+            "FREQ=DAILY;BYMONTH=13",
+            "FREQ=DAILY;BYMONTH=0",
+            "FREQ=DAILY;BYMONTHDAY=32",
+            "FREQ=DAILY;BYDAY=MO,",
+            "FREQ=DAILY;BYDAY=,",
+            "FREQ=DAILY;BYDAY=MO,,TU",
+            "FREQ=DAILY;BYDAY=0MO",
+            "FREQ=DAILY;BYDAY=54MO",
+            "FREQ=DAILY;BYDAY=M",
+            "FREQ=DAILY;BYDAY=XX",
+            "FREQ=DAILY;WKST=XX",
+            "FREQ=FORTNIGHTLY",
+            "FREQ=DAILY=WEEKLY",
+            "FREQ=DAILY;FREQ=WEEKLY",
+            "FREQ=DAILY;COUNT=1;COUNT=2",
+            "FREQ=DAILY;COUNT",
+            "FREQ=DAILY;COUNT=",
+            "FREQ=DAILY;=1",
+            "FREQ=DAILY;FOO=1",
+            "INTERVAL=2",
+            "",
+            ";",
+    };
+
+    private static final String ALPHABET = "FREQ=DAILYWEKBNTHOSU;,-0123456789x";
+
+    public void testMatchesLegacyParser() {
+        EventRecurrence reused = new EventRecurrence();
+        for (String rule : RULES) {
+            assertSameResult(rule, reused);
+        }
+    }
+
+    public void testMatchesLegacyParserOnMutations() {
+        Random random = new Random(42);
+        EventRecurrence reused = new EventRecurrence();
+        for (int n = 0; n < 20000; n++) {
+            StringBuilder rule = new StringBuilder(RULES[random.nextInt(RULES.length)]);
+            int edits = 1 + random.nextInt(3);
+            for (int e = 0; e < edits; e++) {
+                int at = rule.length() == 0 ? 0 : random.nextInt(rule.length());
+                switch (random.nextInt(3)) {
+                    case 0:
+                        rule.insert(at, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                        break;
+                    case 1:
+                        if (rule.length() > 0) {
+                            rule.deleteCharAt(at);
+                        }
+                        break;
+                    default:
+                        if (rule.length() > 0) {
+                            rule.setCharAt(at, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                        }
+                        break;
+                }
+            }
+            assertSameResult(rule.toString(), reused);
+        }
+    }
+
+    public void testReusesArrays() {
+        EventRecurrence er = new EventRecurrence();
+        er.parse("FREQ=WEEKLY;BYDAY=MO,TU,WE,TH,FR;BYMONTH=1,2,3");
+        int[] byday = er.byday;
+        int[] bymonth = er.bymonth;
+
+        er.parse("FREQ=MONTHLY;BYDAY=2TU;BYMONTH=6");
+        assertSame(byday, er.byday);
+        assertSame(bymonth, er.bymonth);
+        assertEquals(1, er.bydayCount);
+        assertEquals(2, er.bydayNum[0]);
+        assertEquals(EventRecurrence.TU, er.byday[0]);
+        assertEquals(6, er.bymonth[0]);
+    }
+
+    public void testParsesSubSequence() {
+        StringBuilder line = new StringBuilder("RRULE:FREQ=WEEKLY;BYDAY=SA\r\n");
+        EventRecurrence er = new EventRecurrence();
+        er.parse(line, 6, line.length() - 2);
+
+        EventRecurrence expected = new EventRecurrence();
+        LegacyEventRecurrenceParser.parse("FREQ=WEEKLY;BYDAY=SA", expected);
+        assertEquals(expected, er);
+    }
+
+    public void testValidateMatchesParse() {
+        for (String rule : RULES) {
+            int result = EventRecurrence.validate(rule);
+            boolean parsed = true;
+            try {
+                new EventRecurrence().parse(rule);
+            } catch (EventRecurrence.InvalidFormatException e) {
+                parsed = false;
+            }
+            assertEquals("validation mismatch for \"" + rule + "\"", parsed, result == EventRecurrence.VALID);
+        }
+
+        int result = EventRecurrence.validate("FREQ=WEEKLY;BYDAY=MO,XX");
+        assertEquals(EventRecurrence.INVALID_WEEKDAY, EventRecurrence.getValidationStatus(result));
+        assertEquals(21, EventRecurrence.getValidationIndex(result));
+
+        result = EventRecurrence.validate("FREQ=DAILY;COUNT=1;COUNT=2");
+        assertEquals(EventRecurrence.INVALID_DUPLICATE_PART, EventRecurrence.getValidationStatus(result));
+        assertEquals(19, EventRecurrence.getValidationIndex(result));
+    }
+
+    public void testValidateAllMatchesValidate() throws InterruptedException {
+        CharSequence[] rules = new CharSequence[5000];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = RULES[i % RULES.length];
+        }
+        rules[17] = null;
+
+        int[] results = EventRecurrenceValidator.validateAll(rules);
+        assertEquals(rules.length, results.length);
+        for (int i = 0; i < rules.length; i++) {
+            int expected = EventRecurrence.validate(rules[i] != null ? rules[i] : "");
+            assertEquals("result mismatch at " + i, expected, results[i]);
+        }
+    }
+
+    public void testCanonicalSpellingsShareInstance() {
+        EventRecurrenceCache cache = new EventRecurrenceCache(16);
+        ImmutableEventRecurrence recurrence = cache.get("FREQ=WEEKLY;BYDAY=MO,WE,FR");
+
+        assertSame(recurrence, cache.get("FREQ=WEEKLY;BYDAY=MO,WE,FR"));
+        assertSame(recurrence, cache.get("byday=mo,we,fr;freq=weekly"));
+        assertSame(recurrence, cache.get("FREQ=WEEKLY;WKST=MO;INTERVAL=1;BYDAY=MO,WE,FR"));
+        assertNotSame(recurrence, cache.get("FREQ=WEEKLY;WKST=SU;BYDAY=MO,WE,FR"));
+        assertEquals("FREQ=WEEKLY;BYDAY=MO,WE,FR", cache.canonicalize("freq=weekly;byday=mo,we,fr"));
+
+        EventRecurrence parsed = new EventRecurrence();
+        parsed.parse("FREQ=WEEKLY;BYDAY=MO,WE,FR");
+        assertEquals(parsed, recurrence.toEventRecurrence());
+        assertEquals(parsed.hashCode(), recurrence.toEventRecurrence().hashCode());
+    }
+
+    private static void assertSameResult(String rule, EventRecurrence reused) {
+        EventRecurrence legacy = new EventRecurrence();
+        boolean legacyFailed = false;
+        try {
+            LegacyEventRecurrenceParser.parse(rule, legacy);
+        } catch (RuntimeException e) {
+            // the legacy parser leaks StringIndexOutOfBoundsException for empty list entries
+            legacyFailed = true;
+        }
+
+        boolean scannerFailed = false;
+        try {
+            reused.parse(rule);
+        } catch (EventRecurrence.InvalidFormatException e) {
+            scannerFailed = true;
+        }
+
+        assertEquals("failure mismatch for \"" + rule + "\"", legacyFailed, scannerFailed);
+        if (!legacyFailed) {
+            assertEquals("result mismatch for \"" + rule + "\"", legacy, reused);
+            assertEquals(legacy.wkst, reused.wkst);
+        }
+    }
+}
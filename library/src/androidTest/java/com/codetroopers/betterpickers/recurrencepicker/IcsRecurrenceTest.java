@@ -0,0 +1,136 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+/**
+ * Reads .ics text with {@link IcsRecurrenceReader} and writes it back with {@link IcsRecurrenceWriter}.
+ */
+public class IcsRecurrenceTest extends TestCase {
+
+    public void testReadsAndWrites() throws IOException {
+        String ics = "BEGIN:VCALENDAR\r\n"
+                + "BEGIN:VTIMEZONE\r\n"
+                + "TZID:Europe/Paris\r\n"
+                + "BEGIN:DAYLIGHT\r\n"
+                + "RRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=-1SU\r\n"
+                + "END:DAYLIGHT\r\n"
+                + "END:VTIMEZONE\r\n"
+                + "BEGIN:VEVENT\r\n"
+                + "SUMMARY:Weekly meeting\\, with a description that is long enough to be\r\n"
+                + "  folded\r\n"
+                + "DTSTART;TZID=Europe/Paris:20260329T023000\r\n"
+                + "RRULE:FREQ=WEEKLY;BY\r\n"
+                + " DAY=MO,WE\r\n"
+                + "EXDATE;TZID=\"Europe/Paris\":20261025T023000,20261026T120000\r\n"
+                + "RDATE;VALUE=DATE:20260401,20260402\r\n"
+                + "RRULE:FREQ=FORTNIGHTLY\r\n"
+                + "END:VEVENT\r\n"
+                + "BEGIN:VEVENT\n"
+                + "RRULE:FREQ=MONTHLY;BYMONTHDAY=-1;UNTIL=20271231T000000Z\n"
+                + "END:VEVENT\n"
+                + "END:VCALENDAR\r\n";
+        StringBuilder log = new StringBuilder();
+        assertEquals(2, new IcsRecurrenceReader(new StringReader(ics)).read(new IcsLog(log)));
+        String expected = "{DTSTART " + Date.UTC(126, 2, 29, 1, 30, 0) // the gap moves the time forward
+                + " RRULE FREQ=WEEKLY;WKST=MO;BYDAY=MO,WE"
+                + " EXDATE " + Date.UTC(126, 9, 25, 0, 30, 0) + "," + Date.UTC(126, 9, 26, 11, 0, 0)
+                + " RDATE* " + Date.UTC(126, 3, 1, 0, 0, 0) + "," + Date.UTC(126, 3, 2, 0, 0, 0)
+                + "}{RRULE FREQ=MONTHLY;UNTIL=20271231T000000Z;WKST=MO;BYMONTHDAY=-1}";
+        assertEquals(expected, log.toString());
+
+        log.setLength(0);
+        new IcsRecurrenceReader(ByteBuffer.wrap(ics.getBytes("UTF-8"))).read(new IcsLog(log));
+        assertEquals(expected, log.toString());
+
+        final StringWriter out = new StringWriter();
+        final IcsRecurrenceWriter writer = new IcsRecurrenceWriter(out);
+        final IcsRecurrenceReader reader = new IcsRecurrenceReader(new StringReader(ics));
+        reader.read(new IcsRecurrenceReader.OnEventListener() {
+            @Override
+            public void onEventStart() {
+                write(null, 0, null, 0, false);
+            }
+
+            @Override
+            public void onRecurrenceRule(EventRecurrence rule) {
+                write(rule, 0, null, 0, false);
+            }
+
+            @Override
+            public void onDates(int property, long[] instants, int count, boolean allDay) {
+                write(null, property, instants, count, allDay);
+            }
+
+            @Override
+            public void onEventEnd() {
+                write(null, -1, null, 0, false);
+            }
+
+            private void write(EventRecurrence rule, int property, long[] instants, int count, boolean allDay) {
+                try {
+                    if (rule != null) {
+                        writer.writeRecurrenceRule(rule);
+                    } else if (property > 0) {
+                        writer.writeDates(property, instants, count, allDay, reader.getTimeZoneId());
+                    } else if (property == 0) {
+                        writer.writeEventStart();
+                    } else {
+                        writer.writeEventEnd();
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        for (String line : out.toString().split("\r\n")) {
+            assertTrue(line, line.length() <= 75);
+        }
+        // zoned dates keep their zone, so that the rule still follows its DST changes
+        assertTrue(out.toString(), out.toString().contains("DTSTART;TZID=Europe/Paris:20260329T033000\r\n"));
+        assertTrue(out.toString(), out.toString().contains("EXDATE;TZID=Europe/Paris:20261025T023000,20261026T120000"));
+        log.setLength(0);
+        new IcsRecurrenceReader(new StringReader(out.toString())).read(new IcsLog(log));
+        assertEquals(expected, log.toString());
+    }
+
+    private static class IcsLog implements IcsRecurrenceReader.OnEventListener {
+
+        private static final String[] NAMES = {null, "DTSTART", "RDATE", "EXDATE"};
+
+        private final StringBuilder mLog;
+
+        IcsLog(StringBuilder log) {
+            mLog = log;
+        }
+
+        @Override
+        public void onEventStart() {
+            mLog.append('{');
+        }
+
+        @Override
+        public void onRecurrenceRule(EventRecurrence rule) {
+            mLog.append(mLog.charAt(mLog.length() - 1) == '{' ? "" : " ").append("RRULE ").append(rule);
+        }
+
+        @Override
+        public void onDates(int property, long[] instants, int count, boolean allDay) {
+            mLog.append(mLog.charAt(mLog.length() - 1) == '{' ? "" : " ").append(NAMES[property]);
+            mLog.append(allDay ? "* " : " ");
+            for (int i = 0; i < count; i++) {
+                mLog.append(i > 0 ? "," : "").append(instants[i]);
+            }
+        }
+
+        @Override
+        public void onEventEnd() {
+            mLog.append('}');
+        }
+    }
+}
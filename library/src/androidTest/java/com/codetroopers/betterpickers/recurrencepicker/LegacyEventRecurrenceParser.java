@@ -0,0 +1,567 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import android.text.TextUtils;
+import android.text.format.Time;
+import android.util.Log;
+import android.util.TimeFormatException;
+
+import java.util.HashMap;
+
+/**
+ * The original split-based RRULE parser, which {@link EventRecurrence#parse(CharSequence, int, int)} replaced.  It
+ * is kept as the reference implementation the scanner is tested against.
+ */
+final class LegacyEventRecurrenceParser {
+
+    private static final String TAG = "EventRecur";
+
+    /**
+     * maps a part string to a parser object
+     */
+    private static HashMap<String, PartParser> sParsePartMap;
+
+    static {
+        sParsePartMap = new HashMap<String, PartParser>();
+        sParsePartMap.put("FREQ", new ParseFreq());
+        sParsePartMap.put("UNTIL", new ParseUntil());
+        sParsePartMap.put("COUNT", new ParseCount());
+        sParsePartMap.put("INTERVAL", new ParseInterval());
+        sParsePartMap.put("BYSECOND", new ParseBySecond());
+        sParsePartMap.put("BYMINUTE", new ParseByMinute());
+        sParsePartMap.put("BYHOUR", new ParseByHour());
+        sParsePartMap.put("BYDAY", new ParseByDay());
+        sParsePartMap.put("BYMONTHDAY", new ParseByMonthDay());
+        sParsePartMap.put("BYYEARDAY", new ParseByYearDay());
+        sParsePartMap.put("BYWEEKNO", new ParseByWeekNo());
+        sParsePartMap.put("BYMONTH", new ParseByMonth());
+        sParsePartMap.put("BYSETPOS", new ParseBySetPos());
+        sParsePartMap.put("WKST", new ParseWkst());
+    }
+
+    /* values for bit vector that keeps track of what we have already seen */
+    private static final int PARSED_FREQ = 1 << 0;
+    private static final int PARSED_UNTIL = 1 << 1;
+    private static final int PARSED_COUNT = 1 << 2;
+    private static final int PARSED_INTERVAL = 1 << 3;
+    private static final int PARSED_BYSECOND = 1 << 4;
+    private static final int PARSED_BYMINUTE = 1 << 5;
+    private static final int PARSED_BYHOUR = 1 << 6;
+    private static final int PARSED_BYDAY = 1 << 7;
+    private static final int PARSED_BYMONTHDAY = 1 << 8;
+    private static final int PARSED_BYYEARDAY = 1 << 9;
+    private static final int PARSED_BYWEEKNO = 1 << 10;
+    private static final int PARSED_BYMONTH = 1 << 11;
+    private static final int PARSED_BYSETPOS = 1 << 12;
+    private static final int PARSED_WKST = 1 << 13;
+
+    /**
+     * maps a FREQ value to an integer constant
+     */
+    private static final HashMap<String, Integer> sParseFreqMap = new HashMap<String, Integer>();
+
+    static {
+        sParseFreqMap.put("SECONDLY", EventRecurrence.SECONDLY);
+        sParseFreqMap.put("MINUTELY", EventRecurrence.MINUTELY);
+        sParseFreqMap.put("HOURLY", EventRecurrence.HOURLY);
+        sParseFreqMap.put("DAILY", EventRecurrence.DAILY);
+        sParseFreqMap.put("WEEKLY", EventRecurrence.WEEKLY);
+        sParseFreqMap.put("MONTHLY", EventRecurrence.MONTHLY);
+        sParseFreqMap.put("YEARLY", EventRecurrence.YEARLY);
+    }
+
+    /**
+     * maps a two-character weekday string to an integer constant
+     */
+    private static final HashMap<String, Integer> sParseWeekdayMap = new HashMap<String, Integer>();
+
+    static {
+        sParseWeekdayMap.put("SU", EventRecurrence.SU);
+        sParseWeekdayMap.put("MO", EventRecurrence.MO);
+        sParseWeekdayMap.put("TU", EventRecurrence.TU);
+        sParseWeekdayMap.put("WE", EventRecurrence.WE);
+        sParseWeekdayMap.put("TH", EventRecurrence.TH);
+        sParseWeekdayMap.put("FR", EventRecurrence.FR);
+        sParseWeekdayMap.put("SA", EventRecurrence.SA);
+    }
+
+    /**
+     * If set, allow lower-case recurrence rule strings.  Minor performance impact.
+     */
+    private static final boolean ALLOW_LOWER_CASE = true;
+
+    /**
+     * If set, validate the value of UNTIL parts.  Minor performance impact.
+     */
+    private static final boolean VALIDATE_UNTIL = false;
+
+    /**
+     * If set, require that only one of {UNTIL,COUNT} is present.  Breaks compat w/ old parser.
+     */
+    private static final boolean ONLY_ONE_UNTIL_COUNT = false;
+
+    private LegacyEventRecurrenceParser() {
+    }
+
+    /**
+     * Parses an rfc2445 recurrence rule string into its component pieces.
+     *
+     * @param recur The recurrence rule to parse (in un-folded form).
+     * @param er The EventRecurrence into which the result is stored.
+     */
+    static void parse(String recur, EventRecurrence er) {
+        /*
+         * From RFC 2445 section 4.3.10:
+         *
+         * recur = "FREQ"=freq *(
+         *       ; either UNTIL or COUNT may appear in a 'recur',
+         *       ; but UNTIL and COUNT MUST NOT occur in the same 'recur'
+         *
+         *       ( ";" "UNTIL" "=" enddate ) /
+         *       ( ";" "COUNT" "=" 1*DIGIT ) /
+         *
+         *       ; the rest of these keywords are optional,
+         *       ; but MUST NOT occur more than once
+         *
+         *       ( ";" "INTERVAL" "=" 1*DIGIT )          /
+         *       ( ";" "BYSECOND" "=" byseclist )        /
+         *       ( ";" "BYMINUTE" "=" byminlist )        /
+         *       ( ";" "BYHOUR" "=" byhrlist )           /
+         *       ( ";" "BYDAY" "=" bywdaylist )          /
+         *       ( ";" "BYMONTHDAY" "=" bymodaylist )    /
+         *       ( ";" "BYYEARDAY" "=" byyrdaylist )     /
+         *       ( ";" "BYWEEKNO" "=" bywknolist )       /
+         *       ( ";" "BYMONTH" "=" bymolist )          /
+         *       ( ";" "BYSETPOS" "=" bysplist )         /
+         *       ( ";" "WKST" "=" weekday )              /
+         *       ( ";" x-name "=" text )
+         *       )
+         *
+         *  The rule parts are not ordered in any particular sequence.
+         *
+         * Examples:
+         *   FREQ=MONTHLY;INTERVAL=2;COUNT=10;BYDAY=1SU,-1SU
+         *   FREQ=YEARLY;INTERVAL=4;BYMONTH=11;BYDAY=TU;BYMONTHDAY=2,3,4,5,6,7,8
+         *
+         * Strategy:
+         * (1) Split the string at ';' boundaries to get an array of rule "parts".
+         * (2) For each part, find substrings for left/right sides of '=' (name/value).
+         * (3) Call a <name>-specific parsing function to parse the <value> into an
+         *     output field.
+         *
+         * By keeping track of which names we've seen in a bit vector, we can verify the
+         * constraints indicated above (FREQ appears first, none of them appear more than once --
+         * though x-[name] would require special treatment), and we have either UNTIL or COUNT
+         * but not both.
+         *
+         * In general, RFC 2445 property names (e.g. "FREQ") and enumerations ("TU") must
+         * be handled in a case-insensitive fashion, but case may be significant for other
+         * properties.  We don't have any case-sensitive values in RRULE, except possibly
+         * for the custom "X-" properties, but we ignore those anyway.  Thus, we can trivially
+         * convert the entire string to upper case and then use simple comparisons.
+         *
+         * Differences from previous version:
+         * - allows lower-case property and enumeration values [optional]
+         * - enforces that FREQ appears first
+         * - enforces that only one of UNTIL and COUNT may be specified
+         * - allows (but ignores) X-* parts
+         * - improved validation on various values (e.g. UNTIL timestamps)
+         * - error messages are more specific
+         *
+         * TODO: enforce additional constraints listed in RFC 5545, notably the "N/A" entries
+         * in section 3.3.10.  For example, if FREQ=WEEKLY, we should reject a rule that
+         * includes a BYMONTHDAY part.
+         */
+
+        /* TODO: replace with "if (freq != 0) throw" if nothing requires this */
+        er.until = null;
+        er.freq = er.count = er.interval = er.bysecondCount = er.byminuteCount = er.byhourCount =
+                er.bydayCount = er.bymonthdayCount = er.byyeardayCount = er.byweeknoCount = er.bymonthCount =
+                        er.bysetposCount = 0;
+
+        int parseFlags = 0;
+        String[] parts;
+        if (ALLOW_LOWER_CASE) {
+            parts = recur.toUpperCase().split(";");
+        } else {
+            parts = recur.split(";");
+        }
+        for (String part : parts) {
+            // allow empty part (e.g., double semicolon ";;")
+            if (TextUtils.isEmpty(part)) {
+                continue;
+            }
+            int equalIndex = part.indexOf('=');
+            if (equalIndex <= 0) {
+                /* no '=' or no LHS */
+                throw new EventRecurrence.InvalidFormatException("Missing LHS in " + part);
+            }
+
+            String lhs = part.substring(0, equalIndex);
+            String rhs = part.substring(equalIndex + 1);
+            if (rhs.length() == 0) {
+                throw new EventRecurrence.InvalidFormatException("Missing RHS in " + part);
+            }
+
+            /*
+             * In lieu of a "switch" statement that allows string arguments, we use a
+             * map from strings to parsing functions.
+             */
+            PartParser parser = sParsePartMap.get(lhs);
+            if (parser == null) {
+                if (lhs.startsWith("X-")) {
+                    //Log.d(TAG, "Ignoring custom part " + lhs);
+                    continue;
+                }
+                throw new EventRecurrence.InvalidFormatException("Couldn't find parser for " + lhs);
+            } else {
+                int flag = parser.parsePart(rhs, er);
+                if ((parseFlags & flag) != 0) {
+                    throw new EventRecurrence.InvalidFormatException("Part " + lhs + " was specified twice");
+                }
+                parseFlags |= flag;
+            }
+        }
+
+        // If not specified, week starts on Monday.
+        if ((parseFlags & PARSED_WKST) == 0) {
+            er.wkst = EventRecurrence.MO;
+        }
+
+        // FREQ is mandatory.
+        if ((parseFlags & PARSED_FREQ) == 0) {
+            throw new EventRecurrence.InvalidFormatException("Must specify a FREQ value");
+        }
+
+        // Can't have both UNTIL and COUNT.
+        if ((parseFlags & (PARSED_UNTIL | PARSED_COUNT)) == (PARSED_UNTIL | PARSED_COUNT)) {
+            if (ONLY_ONE_UNTIL_COUNT) {
+                throw new EventRecurrence.InvalidFormatException("Must not specify both UNTIL and COUNT: " + recur);
+            } else {
+                Log.w(TAG, "Warning: rrule has both UNTIL and COUNT: " + recur);
+            }
+        }
+    }
+
+    /**
+     * Base class for the RRULE part parsers.
+     */
+    abstract static class PartParser {
+
+        /**
+         * Parses a single part.
+         *
+         * @param value The right-hand-side of the part.
+         * @param er The EventRecurrence into which the result is stored.
+         * @return A bit value indicating which part was parsed.
+         */
+        public abstract int parsePart(String value, EventRecurrence er);
+
+        /**
+         * Parses an integer, with range-checking.
+         *
+         * @param str The string to parse.
+         * @param minVal Minimum allowed value.
+         * @param maxVal Maximum allowed value.
+         * @param allowZero Is 0 allowed?
+         * @return The parsed value.
+         */
+        public static int parseIntRange(String str, int minVal, int maxVal, boolean allowZero) {
+            try {
+                if (str.charAt(0) == '+') {
+                    // Integer.parseInt does not allow a leading '+', so skip it manually.
+                    str = str.substring(1);
+                }
+                int val = Integer.parseInt(str);
+                if (val < minVal || val > maxVal || (val == 0 && !allowZero)) {
+                    throw new EventRecurrence.InvalidFormatException("Integer value out of range: " + str);
+                }
+                return val;
+            } catch (NumberFormatException nfe) {
+                throw new EventRecurrence.InvalidFormatException("Invalid integer value: " + str);
+            }
+        }
+
+        /**
+         * Parses a comma-separated list of integers, with range-checking.
+         *
+         * @param listStr The string to parse.
+         * @param minVal Minimum allowed value.
+         * @param maxVal Maximum allowed value.
+         * @param allowZero Is 0 allowed?
+         * @return A new array with values, sized to hold the exact number of elements.
+         */
+        public static int[] parseNumberList(String listStr, int minVal, int maxVal,
+                boolean allowZero) {
+            int[] values;
+
+            if (listStr.indexOf(",") < 0) {
+                // Common case: only one entry, skip split() overhead.
+                values = new int[1];
+                values[0] = parseIntRange(listStr, minVal, maxVal, allowZero);
+            } else {
+                String[] valueStrs = listStr.split(",");
+                int len = valueStrs.length;
+                values = new int[len];
+                for (int i = 0; i < len; i++) {
+                    values[i] = parseIntRange(valueStrs[i], minVal, maxVal, allowZero);
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * parses FREQ={SECONDLY,MINUTELY,...}
+     */
+    private static class ParseFreq extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            Integer freq = sParseFreqMap.get(value);
+            if (freq == null) {
+                throw new EventRecurrence.InvalidFormatException("Invalid FREQ value: " + value);
+            }
+            er.freq = freq;
+            return PARSED_FREQ;
+        }
+    }
+
+    /**
+     * parses UNTIL=enddate, e.g. "19970829T021400"
+     */
+    private static class ParseUntil extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            if (VALIDATE_UNTIL) {
+                try {
+                    // Parse the time to validate it.  The result isn't retained.
+                    Time until = new Time();
+                    until.parse(value);
+                } catch (TimeFormatException tfe) {
+                    throw new EventRecurrence.InvalidFormatException("Invalid UNTIL value: " + value);
+                }
+            }
+            er.until = value;
+            return PARSED_UNTIL;
+        }
+    }
+
+    /**
+     * parses COUNT=[non-negative-integer]
+     */
+    private static class ParseCount extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            er.count = parseIntRange(value, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+            if (er.count < 0) {
+                Log.d(TAG, "Invalid Count. Forcing COUNT to 1 from " + value);
+                er.count = 1; // invalid count. assume one time recurrence.
+            }
+            return PARSED_COUNT;
+        }
+    }
+
+    /**
+     * parses INTERVAL=[non-negative-integer]
+     */
+    private static class ParseInterval extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            er.interval = parseIntRange(value, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+            if (er.interval < 1) {
+                Log.d(TAG, "Invalid Interval. Forcing INTERVAL to 1 from " + value);
+                er.interval = 1;
+            }
+            return PARSED_INTERVAL;
+        }
+    }
+
+    /**
+     * parses BYSECOND=byseclist
+     */
+    private static class ParseBySecond extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] bysecond = parseNumberList(value, 0, 59, true);
+            er.bysecond = bysecond;
+            er.bysecondCount = bysecond.length;
+            return PARSED_BYSECOND;
+        }
+    }
+
+    /**
+     * parses BYMINUTE=byminlist
+     */
+    private static class ParseByMinute extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] byminute = parseNumberList(value, 0, 59, true);
+            er.byminute = byminute;
+            er.byminuteCount = byminute.length;
+            return PARSED_BYMINUTE;
+        }
+    }
+
+    /**
+     * parses BYHOUR=byhrlist
+     */
+    private static class ParseByHour extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] byhour = parseNumberList(value, 0, 23, true);
+            er.byhour = byhour;
+            er.byhourCount = byhour.length;
+            return PARSED_BYHOUR;
+        }
+    }
+
+    /**
+     * parses BYDAY=bywdaylist, e.g. "1SU,-1SU"
+     */
+    private static class ParseByDay extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] byday;
+            int[] bydayNum;
+            int bydayCount;
+
+            if (value.indexOf(",") < 0) {
+                /* only one entry, skip split() overhead */
+                bydayCount = 1;
+                byday = new int[1];
+                bydayNum = new int[1];
+                parseWday(value, byday, bydayNum, 0);
+            } else {
+                String[] wdays = value.split(",");
+                int len = wdays.length;
+                bydayCount = len;
+                byday = new int[len];
+                bydayNum = new int[len];
+                for (int i = 0; i < len; i++) {
+                    parseWday(wdays[i], byday, bydayNum, i);
+                }
+            }
+            er.byday = byday;
+            er.bydayNum = bydayNum;
+            er.bydayCount = bydayCount;
+            return PARSED_BYDAY;
+        }
+
+        /**
+         * parses [int]weekday, putting the pieces into parallel array entries
+         */
+        private static void parseWday(String str, int[] byday, int[] bydayNum, int index) {
+            int wdayStrStart = str.length() - 2;
+            String wdayStr;
+
+            if (wdayStrStart > 0) {
+                /* number is included; parse it out and advance to weekday */
+                String numPart = str.substring(0, wdayStrStart);
+                int num = parseIntRange(numPart, -53, 53, false);
+                bydayNum[index] = num;
+                wdayStr = str.substring(wdayStrStart);
+            } else {
+                /* just the weekday string */
+                wdayStr = str;
+            }
+            Integer wday = sParseWeekdayMap.get(wdayStr);
+            if (wday == null) {
+                throw new EventRecurrence.InvalidFormatException("Invalid BYDAY value: " + str);
+            }
+            byday[index] = wday;
+        }
+    }
+
+    /**
+     * parses BYMONTHDAY=bymodaylist
+     */
+    private static class ParseByMonthDay extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] bymonthday = parseNumberList(value, -31, 31, false);
+            er.bymonthday = bymonthday;
+            er.bymonthdayCount = bymonthday.length;
+            return PARSED_BYMONTHDAY;
+        }
+    }
+
+    /**
+     * parses BYYEARDAY=byyrdaylist
+     */
+    private static class ParseByYearDay extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] byyearday = parseNumberList(value, -366, 366, false);
+            er.byyearday = byyearday;
+            er.byyeardayCount = byyearday.length;
+            return PARSED_BYYEARDAY;
+        }
+    }
+
+    /**
+     * parses BYWEEKNO=bywknolist
+     */
+    private static class ParseByWeekNo extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] byweekno = parseNumberList(value, -53, 53, false);
+            er.byweekno = byweekno;
+            er.byweeknoCount = byweekno.length;
+            return PARSED_BYWEEKNO;
+        }
+    }
+
+    /**
+     * parses BYMONTH=bymolist
+     */
+    private static class ParseByMonth extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] bymonth = parseNumberList(value, 1, 12, false);
+            er.bymonth = bymonth;
+            er.bymonthCount = bymonth.length;
+            return PARSED_BYMONTH;
+        }
+    }
+
+    /**
+     * parses BYSETPOS=bysplist
+     */
+    private static class ParseBySetPos extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            int[] bysetpos = parseNumberList(value, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+            er.bysetpos = bysetpos;
+            er.bysetposCount = bysetpos.length;
+            return PARSED_BYSETPOS;
+        }
+    }
+
+    /**
+     * parses WKST={SU,MO,...}
+     */
+    private static class ParseWkst extends PartParser {
+
+        @Override
+        public int parsePart(String value, EventRecurrence er) {
+            Integer wkst = sParseWeekdayMap.get(value);
+            if (wkst == null) {
+                throw new EventRecurrence.InvalidFormatException("Invalid WKST value: " + value);
+            }
+            er.wkst = wkst;
+            return PARSED_WKST;
+        }
+    }
+}
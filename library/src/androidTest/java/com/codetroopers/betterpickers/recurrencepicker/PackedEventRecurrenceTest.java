@@ -0,0 +1,68 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Checks the binary codec of {@link PackedEventRecurrence} and its canonical form.
+ */
+public class PackedEventRecurrenceTest extends TestCase {
+
+    public void testRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        EventRecurrence recurrence = new EventRecurrence();
+        for (String rule : EventRecurrenceParseTest.RULES) {
+            try {
+                recurrence.parse(rule);
+            } catch (EventRecurrence.InvalidFormatException e) {
+                continue;
+            }
+            PackedEventRecurrence packed;
+            try {
+                packed = new PackedEventRecurrence(recurrence);
+            } catch (IllegalArgumentException e) {
+                // parse() keeps values outside of the RFC 5545 ranges
+                continue;
+            }
+            buffer.clear();
+            packed.writeTo(buffer);
+            assertEquals(rule, packed.getEncodedSize(), buffer.position());
+            buffer.flip();
+            assertEquals(rule, packed, PackedEventRecurrence.readFrom(buffer));
+            assertFalse(rule, buffer.hasRemaining());
+
+            EventRecurrence unpacked = packed.toEventRecurrence();
+            assertEquals(rule, packed, new PackedEventRecurrence(unpacked));
+            assertEquals(rule, recurrence.until, unpacked.until);
+            assertEquals(rule, recurrence.count, unpacked.count);
+            assertEquals(rule, recurrence.bydayCount, unpacked.bydayCount);
+        }
+    }
+
+    public void testIgnoresListOrder() {
+        EventRecurrence recurrence = new EventRecurrence();
+        recurrence.parse("FREQ=YEARLY;BYMONTH=11,3;BYDAY=FR,-1SU,MO;BYMONTHDAY=-1,13;BYSETPOS=2,-1");
+        PackedEventRecurrence packed = new PackedEventRecurrence(recurrence);
+        recurrence.parse("BYSETPOS=-1,2;BYMONTHDAY=13,-1,13;BYDAY=MO,-1SU,FR;BYMONTH=3,11;FREQ=YEARLY;INTERVAL=1");
+        assertEquals(packed, new PackedEventRecurrence(recurrence));
+        assertEquals(packed.hashCode(), new PackedEventRecurrence(recurrence).hashCode());
+        assertEquals("FREQ=YEARLY;WKST=MO;BYDAY=MO,FR,-1SU;BYMONTHDAY=-1,13;BYMONTH=3,11;BYSETPOS=-1,2",
+                packed.toString());
+
+        recurrence.parse("FREQ=YEARLY;BYMONTH=3,11;BYDAY=MO,-1SU,FR;BYMONTHDAY=13,-1;BYSETPOS=-1,3");
+        assertFalse(packed.equals(new PackedEventRecurrence(recurrence)));
+    }
+
+    public void testRejectsUnknownVersion() {
+        EventRecurrence recurrence = new EventRecurrence();
+        recurrence.parse("FREQ=DAILY");
+        byte[] bytes = new PackedEventRecurrence(recurrence).toByteArray();
+        bytes[0]++;
+        try {
+            PackedEventRecurrence.readFrom(ByteBuffer.wrap(bytes));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import android.text.format.Time;
+
+import junit.framework.TestCase;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Checks {@link RecurrenceExpander} against occurrences computed by hand.
+ */
+public class RecurrenceExpanderTest extends TestCase {
+
+    private static final String TIMEZONE = "America/New_York";
+
+    public void testWeeklyWithCount() {
+        EventRecurrence er = parse("FREQ=WEEKLY;BYDAY=MO,WE,FR;COUNT=10", 2015, Calendar.JANUARY, 5);
+        RecurrenceExpander expander = new RecurrenceExpander(er);
+
+        assertEquals(at(2015, Calendar.JANUARY, 5), expander.nextAfter(at(2014, Calendar.DECEMBER, 1)));
+        assertEquals(at(2015, Calendar.JANUARY, 7), expander.nextAfter(at(2015, Calendar.JANUARY, 5)));
+        assertEquals(at(2015, Calendar.JANUARY, 26), expander.previousBefore(at(2020, Calendar.JANUARY, 1)));
+        assertEquals(RecurrenceExpander.NO_OCCURRENCE, expander.nextAfter(at(2015, Calendar.JANUARY, 26)));
+        assertEquals(3, expander.countBefore(at(2015, Calendar.JANUARY, 12)));
+        assertEquals(10, expander.countBefore(Long.MAX_VALUE));
+    }
+
+    public void testMonthlyLastDayAcrossDst() {
+        EventRecurrence er = parse("FREQ=MONTHLY;INTERVAL=2;BYMONTHDAY=-1", 2016, Calendar.JANUARY, 31);
+        RecurrenceExpander expander = new RecurrenceExpander(er);
+
+        assertEquals(at(2016, Calendar.MARCH, 31), expander.nextAfter(at(2016, Calendar.JANUARY, 31)));
+        assertEquals(at(2016, Calendar.NOVEMBER, 30), expander.previousBefore(at(2017, Calendar.JANUARY, 1)));
+        // 6 occurrences a year for 400 years
+        assertEquals(2400, expander.countBefore(at(2416, Calendar.JANUARY, 1)));
+    }
+
+    public void testYearlyLeapDayWithUntil() {
+        EventRecurrence er = parse("FREQ=YEARLY;UNTIL=20240229", 2000, Calendar.FEBRUARY, 29);
+        RecurrenceExpander expander = new RecurrenceExpander(er);
+
+        assertEquals(at(2004, Calendar.FEBRUARY, 29), expander.nextAfter(at(2000, Calendar.MARCH, 1)));
+        assertEquals(at(2024, Calendar.FEBRUARY, 29), expander.previousBefore(Long.MAX_VALUE));
+        assertEquals(7, expander.countBefore(Long.MAX_VALUE));
+    }
+
+    public void testLastOccurrenceOfCountRule() {
+        EventRecurrence weekly = parse("FREQ=WEEKLY;BYDAY=MO,WE,FR;COUNT=10", 2015, Calendar.JANUARY, 5);
+        assertEquals(at(2015, Calendar.JANUARY, 26), weekly.getLastOccurrence());
+
+        EventRecurrence monthly = parse("FREQ=MONTHLY;BYDAY=-1FR;COUNT=1000", 2015, Calendar.JANUARY, 5);
+        RecurrenceExpander expander = new RecurrenceExpander(monthly);
+        long occurrence = expander.nextAfter(Long.MIN_VALUE);
+        for (int i = 1; i < 1000; i++) {
+            occurrence = expander.nextAfter(occurrence);
+        }
+        assertEquals(occurrence, expander.getLastOccurrence());
+        assertEquals(RecurrenceExpander.NO_OCCURRENCE, expander.nextAfter(occurrence));
+
+        EventRecurrence endless = parse("FREQ=DAILY", 2015, Calendar.JANUARY, 5);
+        assertEquals(RecurrenceExpander.NO_OCCURRENCE, endless.getLastOccurrence());
+    }
+
+    public void testQueriesFollowChangesToTheRule() {
+        EventRecurrence er = parse("FREQ=WEEKLY;BYDAY=MO,WE,FR;COUNT=10", 2015, Calendar.JANUARY, 5);
+        assertEquals(at(2015, Calendar.JANUARY, 26), er.getLastOccurrence());
+        assertSame(er.getExpander(), er.getExpander());
+
+        er.count = 4;
+        assertEquals(at(2015, Calendar.JANUARY, 12), er.getLastOccurrence());
+        er.byday[2] = EventRecurrence.TH;
+        assertEquals(at(2015, Calendar.JANUARY, 8), er.nextAfter(at(2015, Calendar.JANUARY, 7)));
+        er.startDate.monthDay = 12;
+        er.startDate.normalize(false);
+        assertEquals(at(2015, Calendar.JANUARY, 12), er.nextAfter(Long.MIN_VALUE));
+        er.parse("FREQ=DAILY;COUNT=2");
+        assertEquals(at(2015, Calendar.JANUARY, 13), er.getLastOccurrence());
+    }
+
+    public void testSetPositionsAndWeekNumbers() {
+        // last work day of the month
+        EventRecurrence monthly = parse("FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1", 2015, Calendar.JANUARY, 1);
+        assertEquals(at(2015, Calendar.JANUARY, 30), monthly.nextAfter(Long.MIN_VALUE));
+        assertEquals(at(2015, Calendar.FEBRUARY, 27), monthly.nextAfter(at(2015, Calendar.JANUARY, 30)));
+        assertEquals(at(2015, Calendar.MAY, 29), monthly.nextAfter(at(2015, Calendar.MAY, 1)));
+
+        // Monday of week 20, from the RFC 5545 examples
+        EventRecurrence weekNo = parse("FREQ=YEARLY;BYWEEKNO=20;BYDAY=MO", 1997, Calendar.MAY, 12);
+        assertEquals(at(1997, Calendar.MAY, 12), weekNo.nextAfter(Long.MIN_VALUE));
+        assertEquals(at(1998, Calendar.MAY, 11), weekNo.nextAfter(at(1997, Calendar.MAY, 12)));
+        assertEquals(at(1999, Calendar.MAY, 17), weekNo.nextAfter(at(1998, Calendar.MAY, 11)));
+
+        // 100th and last day of the year, then the second of each set
+        EventRecurrence yearDays = parse("FREQ=YEARLY;BYYEARDAY=100,-1;BYSETPOS=2", 2016, Calendar.JANUARY, 1);
+        assertEquals(at(2016, Calendar.DECEMBER, 31), yearDays.nextAfter(Long.MIN_VALUE));
+        assertEquals(at(2017, Calendar.DECEMBER, 31), yearDays.nextAfter(at(2016, Calendar.DECEMBER, 31)));
+    }
+
+    public void testAgendaMergesInOrder() throws InterruptedException {
+        String[] rules = {
+                "FREQ=DAILY;INTERVAL=3",
+                "FREQ=WEEKLY;BYDAY=TU,TH;COUNT=20",
+                "FREQ=MONTHLY;BYDAY=2TU",
+                "FREQ=SECONDLY",
+        };
+        EventRecurrence[] recurrences = new EventRecurrence[300];
+        for (int i = 0; i < recurrences.length; i++) {
+            recurrences[i] = parse(rules[i % rules.length], 2015, Calendar.JANUARY, 1 + i % 28);
+        }
+        long windowStart = at(2015, Calendar.MARCH, 1);
+        long windowEnd = at(2015, Calendar.JUNE, 1);
+
+        RecurrenceAgenda agenda = new RecurrenceAgenda(recurrences, windowStart, windowEnd);
+        long[] next = new long[recurrences.length];
+        int expected = 0;
+        for (int i = 0; i < recurrences.length; i++) {
+            assertEquals(i % rules.length != 3, agenda.isExpanded(i));
+            if (agenda.isExpanded(i)) {
+                next[i] = recurrences[i].nextAfter(windowStart - 1);
+                expected += recurrences[i].countBefore(windowEnd) - recurrences[i].countBefore(windowStart);
+            }
+        }
+
+        int count = 0;
+        long previous = Long.MIN_VALUE;
+        while (agenda.moveToNext()) {
+            int event = agenda.getEventIndex();
+            long instant = agenda.getInstant();
+            assertTrue(instant >= previous && instant >= windowStart && instant < windowEnd);
+            assertEquals(next[event], instant);
+            next[event] = recurrences[event].nextAfter(instant);
+            previous = instant;
+            count++;
+        }
+        assertEquals(expected, count);
+    }
+
+    public void testConflictsMatchPairwiseComparison() throws InterruptedException {
+        EventRecurrence[] recurrences = {
+                parse("FREQ=DAILY", 2015, Calendar.JANUARY, 1),
+                parse("FREQ=WEEKLY;BYDAY=MO,WE", 2015, Calendar.JANUARY, 5),
+                parse("FREQ=MONTHLY;BYMONTHDAY=-1", 2015, Calendar.JANUARY, 31),
+                parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=FR", 2015, Calendar.JANUARY, 2),
+        };
+        long hour = 60 * 60 * 1000L;
+        long[] durations = {hour, 2 * hour, 30 * hour, 0};
+        // the daily event starts 30 minutes later
+        recurrences[0].startDate.minute = 0;
+        recurrences[0].startDate.hour = 10;
+        final long windowStart = at(2015, Calendar.FEBRUARY, 1);
+        final long windowEnd = at(2015, Calendar.MAY, 1);
+
+        int expected = 0;
+        for (int i = 0; i < recurrences.length; i++) {
+            for (int j = i + 1; j < recurrences.length; j++) {
+                for (long a = recurrences[i].nextAfter(windowStart - 30 * hour); a != RecurrenceExpander.NO_OCCURRENCE
+                        && a < windowEnd; a = recurrences[i].nextAfter(a)) {
+                    for (long b = recurrences[j].nextAfter(windowStart - 30 * hour);
+                            b != RecurrenceExpander.NO_OCCURRENCE && b < windowEnd; b = recurrences[j].nextAfter(b)) {
+                        long start = Math.max(a, b);
+                        long end = Math.min(a + durations[i], b + durations[j]);
+                        if (start < end && end > windowStart) {
+                            expected++;
+                        }
+                    }
+                }
+            }
+        }
+
+        RecurrenceConflictDetector detector = new RecurrenceConflictDetector(recurrences, durations);
+        final long[] last = {Long.MIN_VALUE};
+        int conflicts = detector.findConflicts(windowStart, windowEnd,
+                new RecurrenceConflictDetector.OnConflictListener() {
+                    @Override
+                    public boolean onConflict(int eventIndex, long start, int otherEventIndex, long otherStart) {
+                        assertTrue(eventIndex != otherEventIndex && start <= otherStart && otherStart >= last[0]);
+                        last[0] = otherStart;
+                        return true;
+                    }
+                });
+        assertTrue(expected > 0);
+        assertEquals(expected, conflicts);
+        assertTrue(detector.hasConflict(windowStart, windowEnd));
+    }
+
+    public void testRecurrenceSetMergesDates() {
+        EventRecurrence er = parse("FREQ=WEEKLY;BYDAY=MO,WE,FR;COUNT=10", 2015, Calendar.JANUARY, 5);
+        RecurrenceSet set = new RecurrenceSet(er);
+        set.setRDates(new long[]{at(2015, Calendar.JANUARY, 10), at(2015, Calendar.JANUARY, 7),
+                at(2015, Calendar.JANUARY, 10)}, 3);
+        set.setExDates(new long[]{at(2015, Calendar.JANUARY, 9), at(2015, Calendar.JANUARY, 8)}, 2);
+        assertTrue(set.addExDate(at(2015, Calendar.JANUARY, 12)));
+        assertFalse(set.addExDate(at(2015, Calendar.JANUARY, 12)));
+        assertTrue(set.addRDate(at(2015, Calendar.FEBRUARY, 1)));
+
+        long[] expected = {
+                at(2015, Calendar.JANUARY, 5), at(2015, Calendar.JANUARY, 7), at(2015, Calendar.JANUARY, 10),
+                at(2015, Calendar.JANUARY, 14), at(2015, Calendar.JANUARY, 16), at(2015, Calendar.JANUARY, 19),
+                at(2015, Calendar.JANUARY, 21), at(2015, Calendar.JANUARY, 23), at(2015, Calendar.JANUARY, 26),
+                at(2015, Calendar.FEBRUARY, 1)};
+        long[] instants = new long[20];
+        int count = set.getOccurrences(Long.MIN_VALUE, Long.MAX_VALUE, instants);
+        assertEquals(expected.length, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], instants[i]);
+        }
+
+        assertEquals(at(2015, Calendar.JANUARY, 14), set.nextAfter(at(2015, Calendar.JANUARY, 10)));
+        assertEquals(2, set.getOccurrences(at(2015, Calendar.JANUARY, 8), at(2015, Calendar.JANUARY, 15), instants));
+        assertTrue(set.removeExDate(at(2015, Calendar.JANUARY, 12)));
+        assertEquals(at(2015, Calendar.JANUARY, 12), set.nextAfter(at(2015, Calendar.JANUARY, 10)));
+        assertEquals(RecurrenceExpander.NO_OCCURRENCE, set.nextAfter(at(2015, Calendar.FEBRUARY, 1)));
+    }
+
+    public void testWallClockTimesAcrossDst() {
+        EventRecurrence hourly = parse("FREQ=HOURLY", 2015, Calendar.JANUARY, 1);
+        RecurrenceExpander expander = new RecurrenceExpander(hourly);
+        assertEquals(365 * 24, expander.countBefore(at(2016, Calendar.JANUARY, 1)));
+        // 02:30 doesn't exist on March 8th and moves to 03:30 EDT; 01:30 happens twice on November 1st, in EDT first
+        assertEquals(utc(2015, Calendar.MARCH, 8, 7, 30), expander.nextAfter(utc(2015, Calendar.MARCH, 8, 6, 30)));
+        assertEquals(utc(2015, Calendar.NOVEMBER, 1, 5, 30),
+                expander.nextAfter(utc(2015, Calendar.NOVEMBER, 1, 4, 30)));
+        assertEquals(utc(2015, Calendar.NOVEMBER, 1, 7, 30),
+                expander.nextAfter(utc(2015, Calendar.NOVEMBER, 1, 5, 30)));
+
+        EventRecurrence daily = parse("FREQ=DAILY;BYHOUR=9,17;BYMINUTE=0;COUNT=400", 2015, Calendar.JANUARY, 5);
+        expander = new RecurrenceExpander(daily);
+        TimeZone zone = TimeZone.getTimeZone(TIMEZONE);
+        long occurrence = Long.MIN_VALUE;
+        for (int i = 0; i < 400; i++) {
+            occurrence = expander.nextAfter(occurrence);
+            long millisOfDay = (occurrence + zone.getOffset(occurrence)) % (24 * 60 * 60 * 1000L);
+            // the first day starts at 09:30, after its 09:00 occurrence
+            assertEquals((i % 2 == 0 ? 17 : 9) * 60 * 60 * 1000L, millisOfDay);
+        }
+        assertEquals(RecurrenceExpander.NO_OCCURRENCE, expander.nextAfter(occurrence));
+    }
+
+    public void testZoneTransitionsMatchTimeZone() {
+        java.util.Random random = new java.util.Random(7);
+        for (String id : new String[]{TIMEZONE, "Europe/Paris", "Australia/Lord_Howe", "Asia/Kolkata", "UTC"}) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            ZoneTransitions transitions = ZoneTransitions.get(id);
+            assertSame(transitions, ZoneTransitions.get(zone));
+            for (int i = 0; i < 10000; i++) {
+                long instant = utc(1900, Calendar.JANUARY, 1, 0, 0)
+                        + (long) (random.nextDouble() * 200 * 365.25 * 24 * 60 * 60 * 1000L);
+                assertEquals(id + " at " + instant, zone.getOffset(instant), transitions.getOffset(instant));
+                long local = instant + zone.getOffset(instant);
+                long converted = transitions.toInstant(local);
+                assertEquals(local, converted + zone.getOffset(converted));
+                assertTrue(converted <= instant);
+            }
+        }
+    }
+
+    public void testUnsupportedRule() {
+        EventRecurrence er = parse("FREQ=HOURLY;INTERVAL=5", 2015, Calendar.JANUARY, 5);
+        assertFalse(RecurrenceExpander.isSupported(er));
+        try {
+            new RecurrenceExpander(er);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    private static EventRecurrence parse(String rule, int year, int month, int monthDay) {
+        EventRecurrence er = new EventRecurrence();
+        er.parse(rule);
+        Time start = new Time(TIMEZONE);
+        start.set(0, 30, 9, monthDay, month, year);
+        er.setStartDate(start);
+        return er;
+    }
+
+    private static long utc(int year, int month, int monthDay, int hour, int minute) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, monthDay, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long at(int year, int month, int monthDay) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone(TIMEZONE));
+        calendar.clear();
+        calendar.set(year, month, monthDay, 9, 30);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,115 @@
+package com.codetroopers.betterpickers;
+
+import android.text.format.Time;
+
+/**
+ * Proleptic Gregorian calendar arithmetic on epoch days (days since Jan 1, 1970), without Time or Calendar objects.
+ * <p> Months are 0-based like {@link java.util.Calendar#JANUARY} and week days follow {@link Time#SUNDAY}. Packed dates
+ * use the yyyyMMdd layout of {@link Utils#formatDisabledDayForKey(int, int, int)}, with a 0-based month.
+ */
+public final class EpochDays {
+
+    /**
+     * Days in one 400 year Gregorian cycle, after which dates and week days repeat.
+     */
+    public static final int DAYS_PER_CYCLE = 146097;
+
+    /**
+     * Days from 0000-03-01, where the cycle computations start, to 1970-01-01.
+     */
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    private EpochDays() {
+    }
+
+    /**
+     * @param month 0-based month
+     * @return The epoch day of the given date.
+     */
+    public static int of(int year, int month, int monthDay) {
+        // Years start in March so that the leap day is the last day of the year.
+        int m = month + 1;
+        int y = m <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + monthDay - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_CYCLE + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * @return The date of an epoch day, packed as year * 10000 + month * 100 + monthDay, with a 0-based month.
+     */
+    public static int toPackedDate(int epochDay) {
+        int z = epochDay + DAYS_0000_TO_1970;
+        int era = (z >= 0 ? z : z - DAYS_PER_CYCLE + 1) / DAYS_PER_CYCLE;
+        int dayOfEra = z - era * DAYS_PER_CYCLE;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int monthDay = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 2 : mp - 10;
+        int year = yearOfEra + era * 400 + (month <= 1 ? 1 : 0);
+        return year * 10000 + month * 100 + monthDay;
+    }
+
+    /**
+     * @param packedDate A date packed by {@link #toPackedDate(int)}.
+     */
+    public static int fromPackedDate(int packedDate) {
+        return of(getPackedYear(packedDate), getPackedMonth(packedDate), getPackedMonthDay(packedDate));
+    }
+
+    public static int getPackedYear(int packedDate) {
+        return packedDate / 10000;
+    }
+
+    /**
+     * @return The 0-based month of a packed date.
+     */
+    public static int getPackedMonth(int packedDate) {
+        return packedDate / 100 % 100;
+    }
+
+    public static int getPackedMonthDay(int packedDate) {
+        return packedDate % 100;
+    }
+
+    /**
+     * @return The week day of an epoch day, from {@link Time#SUNDAY} to {@link Time#SATURDAY}.
+     */
+    public static int getWeekDay(int epochDay) {
+        // Jan 1, 1970 was a Thursday.
+        return floorMod(epochDay + Time.THURSDAY, 7);
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * @param month 0-based month
+     */
+    public static int getDaysInMonth(int year, int month) {
+        if (month == 1) {
+            return isLeapYear(year) ? 29 : 28;
+        }
+        // 31 for Jan, Mar, May, Jul, Aug, Oct, Dec
+        return 30 + ((0xAD5 >> month) & 1);
+    }
+
+    public static int floorDiv(int a, int b) {
+        int q = a / b;
+        return (a % b != 0 && (a ^ b) < 0) ? q - 1 : q;
+    }
+
+    public static int floorMod(int a, int b) {
+        int m = a % b;
+        return (m != 0 && (m ^ b) < 0) ? m + b : m;
+    }
+
+    public static long floorDiv(long a, long b) {
+        long q = a / b;
+        return (a % b != 0 && (a ^ b) < 0) ? q - 1 : q;
+    }
+}
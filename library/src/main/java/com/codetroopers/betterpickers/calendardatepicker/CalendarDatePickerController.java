@@ -16,8 +16,6 @@
 
 package com.codetroopers.betterpickers.calendardatepicker;
 
-import android.util.SparseArray;
-
 import com.codetroopers.betterpickers.calendardatepicker.CalendarDatePickerDialogFragment.OnDateChangedListener;
 import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
 
@@ -42,7 +40,12 @@ interface CalendarDatePickerController {
 
     CalendarDay getMaxDate();
 
-    SparseArray<CalendarDay> getDisabledDays();
+    DisabledDaySet getDisabledDaySet();
+
+    /**
+     * @return The days selected in range mode, or null if the picker selects single days.
+     */
+    DateRange getSelectedRange();
 
     void tryVibrate();
 }
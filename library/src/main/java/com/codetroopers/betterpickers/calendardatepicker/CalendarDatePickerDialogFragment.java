@@ -25,6 +25,7 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.DialogFragment;
+import android.support.v4.app.Fragment;
 import android.support.v4.content.ContextCompat;
 import android.text.format.DateUtils;
 import android.util.Log;
@@ -41,6 +42,7 @@ import android.widget.Button;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.codetroopers.betterpickers.EpochDays;
 import com.codetroopers.betterpickers.HapticFeedbackController;
 import com.codetroopers.betterpickers.R;
 import com.codetroopers.betterpickers.Utils;
@@ -75,6 +77,8 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
     protected static final String KEY_LIST_POSITION_OFFSET = "list_position_offset";
     protected static final String KEY_THEME = "theme";
     protected static final String KEY_DISABLED_DAYS = "disabled_days";
+    protected static final String KEY_RECYCLER_DAY_PICKER = "recycler_day_picker";
+    protected static final String KEY_SELECTED_RANGE = "selected_range";
 
     protected static final CalendarDay DEFAULT_START_DATE = new CalendarDay(1900, Calendar.JANUARY, 1);
     protected static final CalendarDay DEFAULT_END_DATE = new CalendarDay(2100, Calendar.DECEMBER, 31);
@@ -87,6 +91,7 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
 
     protected final Calendar mCalendar = Calendar.getInstance();
     protected OnDateSetListener mCallBack;
+    protected OnDateRangeSetListener mRangeCallBack;
     protected OnDialogDismissListener mDimissCallback;
 
     protected HashSet<OnDateChangedListener> mListeners = new HashSet<>();
@@ -98,7 +103,10 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
     protected TextView mSelectedMonthTextView;
     protected TextView mSelectedDayTextView;
     protected TextView mYearView;
+    // The ListView month list, null when setUseRecyclerDayPicker(true) shows a RecyclerDayPickerView instead
     protected DayPickerView mDayPickerView;
+    // The month list shown, mDayPickerView or the RecyclerDayPickerView
+    protected DayPicker mDayPicker;
     protected YearPickerView mYearPickerView;
 
     protected int mCurrentView = UNINITIALIZED;
@@ -111,7 +119,9 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
     private OnClickListener mNeutralButtonListener;
     private String mNeutralButtonText;
 
-    protected SparseArray<CalendarDay> mDisabledDays;
+    protected DisabledDaySet mDisabledDaySet;
+    // The days selected in range mode, null in single day mode
+    protected DateRange mSelectedRange;
 
     protected HapticFeedbackController mHapticFeedbackController;
 
@@ -128,6 +138,7 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
     protected int mSelectedColor;
     protected int mUnselectedColor;
     protected boolean mHighlightToday = true;
+    protected boolean mUseRecyclerDayPicker;
 
     /**
      * The callback used to indicate the user is done filling in the date.
@@ -143,6 +154,18 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
         void onDateSet(CalendarDatePickerDialogFragment dialog, int year, int monthOfYear, int dayOfMonth);
     }
 
+    /**
+     * The callback used to indicate the user is done picking a range, see {@link #setRangeSelectionEnabled(boolean)}.
+     */
+    public interface OnDateRangeSetListener {
+
+        /**
+         * @param dialog The view associated with this listener.
+         * @param range  The selected days, never empty.  Its end is its start if the user picked a single day.
+         */
+        void onDateRangeSet(CalendarDatePickerDialogFragment dialog, DateRange range);
+    }
+
     /**
      * The callback used to notify other date picker components of a change in selected date.
      */
@@ -151,6 +174,21 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
         void onDateChanged();
     }
 
+    /**
+     * Implemented by the activity or the target fragment of the dialog to add back the rules that a restored {@link
+     * DisabledDaySet} lost, because they were not {@link android.os.Parcelable}.
+     */
+    public interface OnDisabledDaysRestoredListener {
+
+        /**
+         * Called when the dialog is recreated, before its days are drawn.
+         *
+         * @param disabledDays The restored set, see {@link DisabledDaySet#hasMissingRules()}: add the missing rules to
+         * it with {@link DisabledDaySet#addRule(DisabledDaySet.Rule)}.
+         */
+        void onDisabledDaysRestored(CalendarDatePickerDialogFragment dialog, DisabledDaySet disabledDays);
+    }
+
     public interface OnDialogDismissListener {
 
         void onDialogDismiss(DialogInterface dialoginterface);
@@ -249,6 +287,49 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
         return this;
     }
 
+    /**
+     * Shows the months in a {@link RecyclerDayPickerView} instead of a {@link SimpleDayPickerView}, for long date
+     * ranges.  Subclasses then find it in {@code mDayPicker}, and {@code mDayPickerView} stays null.
+     */
+    public CalendarDatePickerDialogFragment setUseRecyclerDayPicker(boolean useRecyclerDayPicker) {
+        mUseRecyclerDayPicker = useRecyclerDayPicker;
+        return this;
+    }
+
+    /**
+     * Lets the user pick a start and an end day, e.g. for a stay, instead of a single day.  A tap starts the range,
+     * and the next tap on the same or a later day ends it; a tap on an earlier day, or past a disabled day, starts it
+     * again.  The range is given to the {@link OnDateRangeSetListener}, the {@link OnDateSetListener} still gets the
+     * last tapped day.
+     */
+    public CalendarDatePickerDialogFragment setRangeSelectionEnabled(boolean rangeSelectionEnabled) {
+        if (!rangeSelectionEnabled) {
+            mSelectedRange = null;
+        } else if (mSelectedRange == null) {
+            mSelectedRange = new DateRange();
+        }
+        return this;
+    }
+
+    public boolean isRangeSelectionEnabled() {
+        return mSelectedRange != null;
+    }
+
+    /**
+     * Enables range selection, see {@link #setRangeSelectionEnabled(boolean)}, with a range already picked.  The
+     * picker opens on the month of its start.  The range is kept as given, even if it contains disabled days.
+     *
+     * @param end The last day, or null to only pick the start.
+     * @throws IllegalArgumentException if the range is not within {@link #setDateRange(CalendarDay, CalendarDay)}.
+     */
+    public CalendarDatePickerDialogFragment setPreselectedRange(CalendarDay start, CalendarDay end) {
+        DateRange range = new DateRange(start, end);
+        checkSelectedRange(range, mMinDate, mMaxDate);
+        mSelectedRange = range;
+        CalendarDay first = mSelectedRange.getStart();
+        return setPreselectedDate(first.getYear(), first.getMonth(), first.getDay());
+    }
+
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -275,13 +356,15 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
         outState.putInt(KEY_THEME, mStyleResId);
         int listPosition = -1;
         if (mCurrentView == MONTH_AND_DAY_VIEW) {
-            listPosition = mDayPickerView.getMostVisiblePosition();
+            listPosition = mDayPicker.getMostVisiblePosition();
         } else if (mCurrentView == YEAR_VIEW) {
             listPosition = mYearPickerView.getFirstVisiblePosition();
             outState.putInt(KEY_LIST_POSITION_OFFSET, mYearPickerView.getFirstPositionOffset());
         }
         outState.putInt(KEY_LIST_POSITION, listPosition);
-        outState.putSparseParcelableArray(KEY_DISABLED_DAYS, mDisabledDays);
+        outState.putParcelable(KEY_DISABLED_DAYS, mDisabledDaySet);
+        outState.putBoolean(KEY_RECYCLER_DAY_PICKER, mUseRecyclerDayPicker);
+        outState.putParcelable(KEY_SELECTED_RANGE, mSelectedRange);
     }
 
     @Override
@@ -313,20 +396,36 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
             listPosition = savedInstanceState.getInt(KEY_LIST_POSITION);
             listPositionOffset = savedInstanceState.getInt(KEY_LIST_POSITION_OFFSET);
             mStyleResId = savedInstanceState.getInt(KEY_THEME);
-            mDisabledDays = savedInstanceState.getSparseParcelableArray(KEY_DISABLED_DAYS);
+            mDisabledDaySet = savedInstanceState.getParcelable(KEY_DISABLED_DAYS);
+            mUseRecyclerDayPicker = savedInstanceState.getBoolean(KEY_RECYCLER_DAY_PICKER);
+            mSelectedRange = savedInstanceState.getParcelable(KEY_SELECTED_RANGE);
+            if (mDisabledDaySet != null && mDisabledDaySet.hasMissingRules()) {
+                restoreDisabledDayRules();
+            }
         }
 
         final Activity activity = getActivity();
-        mDayPickerView = new SimpleDayPickerView(activity, this, mHighlightToday, mRegularTypeface);
+        View dayPickerView;
+        if (mUseRecyclerDayPicker) {
+            RecyclerDayPickerView recyclerDayPickerView = new RecyclerDayPickerView(activity, this, mHighlightToday,
+                    mRegularTypeface);
+            mDayPickerView = null;
+            mDayPicker = recyclerDayPickerView;
+            dayPickerView = recyclerDayPickerView;
+        } else {
+            mDayPickerView = new SimpleDayPickerView(activity, this, mHighlightToday, mRegularTypeface);
+            mDayPicker = mDayPickerView;
+            dayPickerView = mDayPickerView;
+        }
         mYearPickerView = new YearPickerView(activity, this);
         if (mRegularTypeface != null) {
-            mDayPickerView.setRegularTypeface(mRegularTypeface);
+            mDayPicker.setRegularTypeface(mRegularTypeface);
             mYearPickerView.setTypeface(mRegularTypeface);
         } else if (mBoldTypeface != null) {
             mYearPickerView.setTypeface(mBoldTypeface);
         }
         if (mBoldTypeface != null) {
-            mDayPickerView.setBoldTypeface(mBoldTypeface);
+            mDayPicker.setBoldTypeface(mBoldTypeface);
         }
 
         Resources res = getResources();
@@ -339,7 +438,7 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
         mUnselectedColor = themeColors.getColor(R.styleable.BetterPickersDialog_bpMainTextColor, ContextCompat.getColor(getContext(), R.color.numbers_text_color));
 
         mAnimator = (AccessibleDateAnimator) view.findViewById(R.id.animator);
-        mAnimator.addView(mDayPickerView);
+        mAnimator.addView(dayPickerView);
         mAnimator.addView(mYearPickerView);
         mAnimator.setDateMillis(mCalendar.getTimeInMillis());
         // TODO: Replace with animation decided upon by the design team.
@@ -365,6 +464,9 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
                     mCallBack.onDateSet(CalendarDatePickerDialogFragment.this, mCalendar.get(Calendar.YEAR),
                             mCalendar.get(Calendar.MONTH), mCalendar.get(Calendar.DAY_OF_MONTH));
                 }
+                if (mRangeCallBack != null && mSelectedRange != null && !mSelectedRange.isEmpty()) {
+                    mRangeCallBack.onDateRangeSet(CalendarDatePickerDialogFragment.this, mSelectedRange);
+                }
                 dismiss();
             }
         });
@@ -403,7 +505,7 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
 
         if (listPosition != -1) {
             if (currentView == MONTH_AND_DAY_VIEW) {
-                mDayPickerView.postSetSelection(listPosition);
+                mDayPicker.postSetSelection(listPosition);
             } else if (currentView == YEAR_VIEW) {
                 mYearPickerView.postSetSelectionFromTop(listPosition, listPositionOffset);
             }
@@ -415,7 +517,7 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
         int mainColor2 = themeColors.getColor(R.styleable.BetterPickersDialog_bpMainColor2, ContextCompat.getColor(getContext(), R.color.circle_background));
         int backgroundColor = themeColors.getColor(R.styleable.BetterPickersDialog_bpLineColor, ContextCompat.getColor(getContext(), R.color.bpWhite));
 
-        mDayPickerView.setTheme(themeColors);
+        mDayPicker.setTheme(themeColors);
         mYearPickerView.setTheme(themeColors);
 
         mSelectedDateLayout.setBackgroundColor(mainColor1);
@@ -427,7 +529,7 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
             mDayOfWeekView.setBackgroundColor(backgroundColor);
         }
         mYearPickerView.setBackgroundColor(mainColor2);
-        mDayPickerView.setBackgroundColor(mainColor2);
+        dayPickerView.setBackgroundColor(mainColor2);
 
         return view;
     }
@@ -454,7 +556,7 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
                     pulseAnimator.setStartDelay(ANIMATION_DELAY);
                     mDelayAnimation = false;
                 }
-                mDayPickerView.onDateChanged();
+                mDayPicker.onDateChanged();
                 if (mCurrentView != viewIndex) {
                     mMonthAndDayView.setSelected(true);
                     mYearView.setSelected(false);
@@ -526,8 +628,8 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
             throw new IllegalArgumentException("Value must be between Calendar.SUNDAY and Calendar.SATURDAY");
         }
         mWeekStart = startOfWeek;
-        if (mDayPickerView != null) {
-            mDayPickerView.onChange();
+        if (mDayPicker != null) {
+            mDayPicker.onChange();
         }
         return this;
     }
@@ -538,49 +640,96 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
      *
      * @param startDate The start date of the range (inclusive)
      * @param endDate   The end date of the range (inclusive)
-     * @throws IllegalArgumentException in case the end date is smaller than the start date
+     * @throws IllegalArgumentException in case the end date is smaller than the start date, or a range given to {@link
+     * #setPreselectedRange(CalendarDay, CalendarDay)} is not within the dates
      */
     public CalendarDatePickerDialogFragment setDateRange(@Nullable CalendarDay startDate, @Nullable CalendarDay endDate) {
-        if (startDate == null) {
-            mMinDate = DEFAULT_START_DATE;
-        } else {
-            mMinDate = startDate;
-        }
-        if (endDate == null) {
-            mMaxDate = DEFAULT_END_DATE;
-        } else {
-            mMaxDate = endDate;
-        }
-        if (mMaxDate.compareTo(mMinDate) < 0) {
+        CalendarDay minDate = startDate != null ? startDate : DEFAULT_START_DATE;
+        CalendarDay maxDate = endDate != null ? endDate : DEFAULT_END_DATE;
+        if (maxDate.compareTo(minDate) < 0) {
             throw new IllegalArgumentException("End date must be larger than start date");
         }
-        if (mDayPickerView != null) {
-            mDayPickerView.onChange();
+        checkSelectedRange(mSelectedRange, minDate, maxDate);
+        mMinDate = minDate;
+        mMaxDate = maxDate;
+        if (mDayPicker != null) {
+            mDayPicker.onChange();
         }
         return this;
     }
 
+    private static void checkSelectedRange(DateRange range, CalendarDay minDate, CalendarDay maxDate) {
+        if (range != null && !range.isEmpty() && (range.getPackedStart() < minDate.getPackedDate()
+                || range.getPackedEnd() > maxDate.getPackedDate())) {
+            throw new IllegalArgumentException("The selected range " + range + " must be within "
+                    + minDate.getPackedDate() + " and " + maxDate.getPackedDate());
+        }
+    }
+
     /**
      * Sets a map of disabled days to declare as unselectable by the user. These days can be styled
      * in a different way than the currently selected day
      *
      * @param disabledDays sparse array of key date int (yyyyMMdd) to a calendar day object
-     * @throws IllegalArgumentException in case the end date is smaller than the start date
+     * @deprecated Use {@link #setDisabledDays(DisabledDaySet)}, which also disables days of the week or days matching
+     * a rule without listing them.
      */
+    @Deprecated
     public CalendarDatePickerDialogFragment setDisabledDays(@NonNull SparseArray<CalendarDay> disabledDays) {
-        mDisabledDays = disabledDays;
+        return setDisabledDays(DisabledDaySet.fromSparseArray(disabledDays));
+    }
 
-        if (mDayPickerView != null) {
-            mDayPickerView.onChange();
-        }
+    /**
+     * Sets the days to declare as unselectable by the user. These days can be styled in a different way than the
+     * currently selected day. <p> The set is saved with the state of the dialog, but its {@link DisabledDaySet.Rule}s
+     * only if they implement {@link android.os.Parcelable}: when the dialog is recreated, e.g. after a rotation, the
+     * activity or the target fragment must implement {@link OnDisabledDaysRestoredListener} to add the other ones
+     * back, or the days they disabled can be picked.
+     *
+     * @param disabledDays the disabled days, kept by the dialog: call {@link #refreshDisabledDays()} after changing it
+     */
+    public CalendarDatePickerDialogFragment setDisabledDays(@NonNull DisabledDaySet disabledDays) {
+        mDisabledDaySet = disabledDays;
+        refreshDisabledDays();
         return this;
     }
 
+    /**
+     * Draws the disabled days again, after the set given to {@link #setDisabledDays(DisabledDaySet)} changed.
+     */
+    public void refreshDisabledDays() {
+        if (mDayPicker != null) {
+            mDayPicker.onChange();
+        }
+    }
+
+    private void restoreDisabledDayRules() {
+        final Activity activity = getActivity();
+        final Fragment fragment = getTargetFragment();
+        OnDisabledDaysRestoredListener listener = null;
+        if (activity instanceof OnDisabledDaysRestoredListener) {
+            listener = (OnDisabledDaysRestoredListener) activity;
+        } else if (fragment instanceof OnDisabledDaysRestoredListener) {
+            listener = (OnDisabledDaysRestoredListener) fragment;
+        }
+        if (listener != null) {
+            mDisabledDaySet.clearMissingRules();
+            listener.onDisabledDaysRestored(this, mDisabledDaySet);
+        } else {
+            Log.w(TAG, "Disabled day rules were lost, implement OnDisabledDaysRestoredListener to add them back");
+        }
+    }
+
     public CalendarDatePickerDialogFragment setOnDateSetListener(OnDateSetListener listener) {
         mCallBack = listener;
         return this;
     }
 
+    public CalendarDatePickerDialogFragment setOnDateRangeSetListener(OnDateRangeSetListener listener) {
+        mRangeCallBack = listener;
+        return this;
+    }
+
     public CalendarDatePickerDialogFragment setOnDismissListener(OnDialogDismissListener ondialogdismisslistener) {
         mDimissCallback = ondialogdismisslistener;
         return this;
@@ -630,6 +779,9 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
         mCalendar.set(Calendar.YEAR, year);
         mCalendar.set(Calendar.MONTH, month);
         mCalendar.set(Calendar.DAY_OF_MONTH, day);
+        if (mSelectedRange != null) {
+            mSelectedRange.select(EpochDays.toPackedDate(EpochDays.of(year, month, day)), mDisabledDaySet);
+        }
         updatePickers();
         updateDisplay(true);
     }
@@ -663,9 +815,26 @@ public class CalendarDatePickerDialogFragment extends DialogFragment implements
         return mMaxDate;
     }
 
-    @Override
+    /**
+     * @return The days disabled one by one, see {@link DisabledDaySet#toSparseArray()}.
+     * @deprecated Use {@link #getDisabledDaySet()}.
+     */
+    @Deprecated
     public SparseArray<CalendarDay> getDisabledDays() {
-        return mDisabledDays;
+        return mDisabledDaySet != null ? mDisabledDaySet.toSparseArray() : null;
+    }
+
+    @Override
+    public DisabledDaySet getDisabledDaySet() {
+        return mDisabledDaySet;
+    }
+
+    /**
+     * @return The days selected in range mode, or null if the picker selects single days.
+     */
+    @Override
+    public DateRange getSelectedRange() {
+        return mSelectedRange;
     }
 
     @Override
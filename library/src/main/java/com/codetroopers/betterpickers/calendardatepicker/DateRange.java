@@ -0,0 +1,213 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.codetroopers.betterpickers.EpochDays;
+import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
+
+/**
+ * The days selected by a {@link CalendarDatePickerDialogFragment} in range mode, from a start day to an end day, both
+ * included. <p> Both ends are kept packed as {@link CalendarDay#getPackedDate()} does, whose order is the order of the
+ * days, so checking a day is two int compares, and a range parcels into two ints. <p> A range is empty, started (the
+ * end not picked yet, it covers its start day alone), or complete.
+ */
+public final class DateRange implements Parcelable {
+
+    /**
+     * Value of an unset end.
+     */
+    public static final int NO_DAY = -1;
+
+    private int mStart = NO_DAY;
+    private int mEnd = NO_DAY;
+
+    public DateRange() {
+    }
+
+    /**
+     * @param end The last day, or null to only start the range.
+     */
+    public DateRange(CalendarDay start, CalendarDay end) {
+        set(start, end);
+    }
+
+    /**
+     * @param end The last day, or null to only start the range.  The ends are swapped if it is before the start.
+     */
+    public DateRange set(CalendarDay start, CalendarDay end) {
+        if (start == null) {
+            throw new IllegalArgumentException("The start of a range must not be null");
+        }
+        return setPacked(start.getPackedDate(), end != null ? end.getPackedDate() : NO_DAY);
+    }
+
+    /**
+     * @param start A packed day, see {@link CalendarDay#getPackedDate()}, or {@link #NO_DAY} to clear the range.
+     * @param end A packed day, or {@link #NO_DAY} to only start the range.
+     */
+    DateRange setPacked(int start, int end) {
+        if (start == NO_DAY) {
+            end = NO_DAY;
+        } else if (end != NO_DAY && end < start) {
+            int day = start;
+            start = end;
+            end = day;
+        }
+        mStart = start;
+        mEnd = end;
+        return this;
+    }
+
+    public DateRange clear() {
+        mStart = NO_DAY;
+        mEnd = NO_DAY;
+        return this;
+    }
+
+    /**
+     * Applies a tap on a day: starts a new range if the range is empty or complete, or if the day is before the start,
+     * and otherwise ends the range on the day.
+     *
+     * @param packedDate see {@link CalendarDay#getPackedDate()}.
+     */
+    public DateRange select(int packedDate) {
+        return select(packedDate, null);
+    }
+
+    /**
+     * Applies a tap on a day as {@link #select(int)} does, except that a range can't end across a disabled day: the tap
+     * then starts a new range on the day, e.g. so that a stay never includes a night that can't be booked.
+     *
+     * @param packedDate see {@link CalendarDay#getPackedDate()}.
+     * @param disabledDays The days the range must not contain, or null.
+     */
+    public DateRange select(int packedDate, DisabledDaySet disabledDays) {
+        if (mStart == NO_DAY || mEnd != NO_DAY || packedDate < mStart
+                || disabledDays != null && disabledDays.containsAny(mStart, packedDate)) {
+            mStart = packedDate;
+            mEnd = NO_DAY;
+        } else {
+            mEnd = packedDate;
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return mStart == NO_DAY;
+    }
+
+    /**
+     * @return Whether both ends are picked.
+     */
+    public boolean isComplete() {
+        return mEnd != NO_DAY;
+    }
+
+    /**
+     * @param packedDate see {@link CalendarDay#getPackedDate()}.
+     */
+    public boolean contains(int packedDate) {
+        return mStart != NO_DAY && packedDate >= mStart && packedDate <= getPackedEnd();
+    }
+
+    public boolean contains(CalendarDay day) {
+        return contains(day.getPackedDate());
+    }
+
+    /**
+     * @return The packed first day, or {@link #NO_DAY} if the range is empty.
+     */
+    public int getPackedStart() {
+        return mStart;
+    }
+
+    /**
+     * @return The packed last day, the start until the end is picked, or {@link #NO_DAY} if the range is empty.
+     */
+    public int getPackedEnd() {
+        return mEnd != NO_DAY ? mEnd : mStart;
+    }
+
+    /**
+     * @return The first day, or null if the range is empty.
+     */
+    public CalendarDay getStart() {
+        return mStart != NO_DAY ? toCalendarDay(mStart) : null;
+    }
+
+    /**
+     * @return The last day, the start until the end is picked, or null if the range is empty.
+     */
+    public CalendarDay getEnd() {
+        return mStart != NO_DAY ? toCalendarDay(getPackedEnd()) : null;
+    }
+
+    /**
+     * @return The number of days from the start to the end, e.g. the nights of a stay, or 0 if the range is empty.
+     */
+    public int getDayCount() {
+        if (mStart == NO_DAY) {
+            return 0;
+        }
+        return EpochDays.fromPackedDate(getPackedEnd()) - EpochDays.fromPackedDate(mStart);
+    }
+
+    private static CalendarDay toCalendarDay(int packedDate) {
+        return new CalendarDay(EpochDays.getPackedYear(packedDate), EpochDays.getPackedMonth(packedDate),
+                EpochDays.getPackedMonthDay(packedDate));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DateRange)) {
+            return false;
+        }
+        DateRange range = (DateRange) o;
+        return mStart == range.mStart && mEnd == range.mEnd;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mStart + mEnd;
+    }
+
+    @Override
+    public String toString() {
+        return "DateRange{" + mStart + ".." + mEnd + "}";
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    /**
+     * Writes the two packed ends.
+     */
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(mStart);
+        dest.writeInt(mEnd);
+    }
+
+    private DateRange(Parcel in) {
+        mStart = in.readInt();
+        mEnd = in.readInt();
+    }
+
+    public static final Creator<DateRange> CREATOR = new Creator<DateRange>() {
+        @Override
+        public DateRange createFromParcel(Parcel in) {
+            return new DateRange(in);
+        }
+
+        @Override
+        public DateRange[] newArray(int size) {
+            return new DateRange[size];
+        }
+    };
+}
@@ -0,0 +1,35 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import android.content.res.TypedArray;
+import android.graphics.Typeface;
+
+import com.codetroopers.betterpickers.calendardatepicker.CalendarDatePickerDialogFragment.OnDateChangedListener;
+
+/**
+ * The scrolling list of months of a {@link CalendarDatePickerDialogFragment}, bound to its {@link
+ * CalendarDatePickerController}.  Implemented by views: {@link DayPickerView} on a ListView and {@link
+ * RecyclerDayPickerView} on a RecyclerView.  Positions are months from the one of the minimum date.
+ */
+public interface DayPicker extends OnDateChangedListener {
+
+    /**
+     * Binds the months again after the range, the disabled days or the first day of the week changed.
+     */
+    void onChange();
+
+    /**
+     * @return The position of the month that takes the most room on screen.
+     */
+    int getMostVisiblePosition();
+
+    /**
+     * Shows the month at this position at the top, without animation.
+     */
+    void postSetSelection(int position);
+
+    void setRegularTypeface(Typeface regularTypeface);
+
+    void setBoldTypeface(Typeface boldTypeface);
+
+    void setTheme(TypedArray themeColors);
+}
@@ -34,7 +34,6 @@ import android.widget.AbsListView.OnScrollListener;
 import android.widget.ListView;
 
 import com.codetroopers.betterpickers.Utils;
-import com.codetroopers.betterpickers.calendardatepicker.CalendarDatePickerDialogFragment.OnDateChangedListener;
 import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
 
 import java.text.SimpleDateFormat;
@@ -44,7 +43,7 @@ import java.util.Locale;
 /**
  * This displays a list of months in a calendar format with selectable days.
  */
-public abstract class DayPickerView extends ListView implements OnScrollListener, OnDateChangedListener {
+public abstract class DayPickerView extends ListView implements OnScrollListener, DayPicker {
 
     private static final String TAG = "MonthFragment";
 
@@ -215,8 +214,8 @@ public abstract class DayPickerView extends ListView implements OnScrollListener
         }
 
         mTempDay.set(day);
-        final int position = (day.year - mController.getMinDate().year) * SimpleMonthAdapter.MONTHS_IN_YEAR
-                + (day.month - mController.getMinDate().month);
+        final int position = (day.getYear() - mController.getMinDate().getYear()) * SimpleMonthAdapter.MONTHS_IN_YEAR
+                + (day.getMonth() - mController.getMinDate().getMonth());
         View child;
         int i = 0;
         int top = 0;
@@ -299,7 +298,7 @@ public abstract class DayPickerView extends ListView implements OnScrollListener
      * changed.
      */
     protected void setMonthDisplayed(CalendarDay date) {
-        mCurrentMonthDisplayed = date.month;
+        mCurrentMonthDisplayed = date.getMonth();
         invalidateViews();
     }
 
@@ -473,7 +472,7 @@ public abstract class DayPickerView extends ListView implements OnScrollListener
 
     private String getMonthAndYearString(CalendarDay day) {
         Calendar cal = Calendar.getInstance();
-        cal.set(day.year, day.month, day.day);
+        cal.set(day.getYear(), day.getMonth(), day.getDay());
 
         StringBuffer sbuf = new StringBuffer();
         sbuf.append(cal.getDisplayName(Calendar.MONTH, Calendar.LONG, Locale.getDefault()));
@@ -506,16 +505,12 @@ public abstract class DayPickerView extends ListView implements OnScrollListener
         // Figure out what month is showing.
         int firstVisiblePosition = getFirstVisiblePosition();
         int month = firstVisiblePosition % 12;
-        int year = firstVisiblePosition / 12 + mController.getMinDate().year;
+        int year = firstVisiblePosition / 12 + mController.getMinDate().getYear();
         CalendarDay day = new CalendarDay(year, month, 1);
 
         // Scroll either forward or backward one month.
         if (action == AccessibilityNodeInfo.ACTION_SCROLL_FORWARD) {
-            day.month++;
-            if (day.month == 12) {
-                day.month = 0;
-                day.year++;
-            }
+            day.setDay(year, month + 1, 1);
         } else if (action == AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD) {
             View firstVisibleView = getChildAt(0);
             // If the view is fully visible, jump one month back. Otherwise, we'll just jump
@@ -523,11 +518,7 @@ public abstract class DayPickerView extends ListView implements OnScrollListener
             if (firstVisibleView != null && firstVisibleView.getTop() >= -1) {
                 // There's an off-by-one somewhere, so the top of the first visible item will
                 // actually be -1 when it's at the exact top.
-                day.month--;
-                if (day.month == -1) {
-                    day.month = 11;
-                    day.year--;
-                }
+                day.setDay(year, month - 1, 1);
             }
         }
 
@@ -0,0 +1,321 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import com.codetroopers.betterpickers.EpochDays;
+import com.codetroopers.betterpickers.Utils;
+import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+
+/**
+ * The days a {@link CalendarDatePickerDialogFragment} doesn't let the user pick. <p> Days are kept as one bit per day
+ * in an {@code int} per month, so a month is checked with a single lookup, and disabling every weekend of a few years
+ * costs a few hundred ints instead of thousands of {@link CalendarDay}s.  Besides single days, whole days of the week
+ * and {@link Rule}s can be disabled: they are evaluated for a month the first time it is looked up, and the result is
+ * kept with the month. <p> Instances are meant to be used from the UI thread.
+ */
+public final class DisabledDaySet implements Parcelable {
+
+    private static final String TAG = "DisabledDaySet";
+
+    /**
+     * Decides whether a day is disabled.  Rules are asked about each day of a month once, when the month is first
+     * looked up, so they should not change their answers; call {@link #invalidate()} if they do. <p> Rules that also
+     * implement {@link Parcelable} are kept when the set is parcelled.  Others are dropped, and the restored set
+     * reports them with {@link #hasMissingRules()} so that they can be added again.
+     */
+    public interface Rule {
+
+        /**
+         * @param month [0-11]
+         */
+        boolean isDisabled(int year, int month, int day);
+    }
+
+    // by year * 12 + month, bit (day - 1) set for the days added one by one
+    private final SparseIntArray mDays = new SparseIntArray();
+    // bit (Calendar.SUNDAY .. Calendar.SATURDAY) set for the disabled days of the week
+    private int mWeekDays;
+    private final ArrayList<Rule> mRules = new ArrayList<>();
+    // by year * 12 + month, every disabled day of the months looked up so far
+    private final SparseIntArray mMonthMasks = new SparseIntArray();
+    // rules dropped when this set was parcelled, and not added back since
+    private int mMissingRuleCount;
+
+    public DisabledDaySet() {
+    }
+
+    /**
+     * @param disabledDays sparse array of key date int (yyyyMMdd) to a calendar day object, as given to the
+     * deprecated {@link CalendarDatePickerDialogFragment#setDisabledDays(SparseArray)}.
+     */
+    public static DisabledDaySet fromSparseArray(SparseArray<CalendarDay> disabledDays) {
+        DisabledDaySet set = new DisabledDaySet();
+        for (int i = 0; i < disabledDays.size(); i++) {
+            int key = disabledDays.keyAt(i);
+            set.add(EpochDays.getPackedYear(key), EpochDays.getPackedMonth(key), EpochDays.getPackedMonthDay(key));
+        }
+        return set;
+    }
+
+    /**
+     * @param month [0-11]
+     * @param day [1-31]
+     */
+    public DisabledDaySet add(int year, int month, int day) {
+        checkDay(day);
+        int key = getMonthKey(year, month);
+        mDays.put(key, mDays.get(key) | 1 << (day - 1));
+        mMonthMasks.delete(key);
+        return this;
+    }
+
+    public DisabledDaySet add(CalendarDay day) {
+        return add(day.getYear(), day.getMonth(), day.getDay());
+    }
+
+    /**
+     * Enables a day added with {@link #add(int, int, int)} again.  It stays disabled if its day of the week or a rule
+     * disables it.
+     */
+    public DisabledDaySet remove(int year, int month, int day) {
+        checkDay(day);
+        int key = getMonthKey(year, month);
+        int mask = mDays.get(key) & ~(1 << (day - 1));
+        if (mask == 0) {
+            mDays.delete(key);
+        } else {
+            mDays.put(key, mask);
+        }
+        mMonthMasks.delete(key);
+        return this;
+    }
+
+    /**
+     * @param weekDays {@link Calendar#SUNDAY} through {@link Calendar#SATURDAY}.
+     */
+    public DisabledDaySet addWeekDays(int... weekDays) {
+        for (int weekDay : weekDays) {
+            if (weekDay < Calendar.SUNDAY || weekDay > Calendar.SATURDAY) {
+                throw new IllegalArgumentException("Not a day of the week: " + weekDay);
+            }
+            mWeekDays |= 1 << weekDay;
+        }
+        mMonthMasks.clear();
+        return this;
+    }
+
+    public DisabledDaySet addRule(Rule rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule must not be null");
+        }
+        mRules.add(rule);
+        mMonthMasks.clear();
+        return this;
+    }
+
+    /**
+     * Forgets what the rules answered, for rules whose answers changed.
+     */
+    public DisabledDaySet invalidate() {
+        mMonthMasks.clear();
+        return this;
+    }
+
+    /**
+     * @return Whether this set was restored from a parcel without some of its rules, the ones that were not {@link
+     * Parcelable}: the days they disabled can be picked until the rules are added again with {@link #addRule(Rule)},
+     * see {@link CalendarDatePickerDialogFragment.OnDisabledDaysRestoredListener}.
+     */
+    public boolean hasMissingRules() {
+        return mMissingRuleCount > 0;
+    }
+
+    /**
+     * Called once the rules missing from a restored set were asked for again.
+     */
+    void clearMissingRules() {
+        mMissingRuleCount = 0;
+    }
+
+    public boolean isEmpty() {
+        return mDays.size() == 0 && mWeekDays == 0 && mRules.isEmpty();
+    }
+
+    /**
+     * @param month [0-11]
+     */
+    public boolean contains(int year, int month, int day) {
+        return day >= 1 && day <= 31 && (getMonthMask(year, month) & 1 << (day - 1)) != 0;
+    }
+
+    public boolean contains(CalendarDay day) {
+        return contains(day.getYear(), day.getMonth(), day.getDay());
+    }
+
+    /**
+     * @param month [0-11]
+     * @return The disabled days of the month, bit (day - 1) set for each.
+     */
+    public int getMonthMask(int year, int month) {
+        int key = getMonthKey(year, month);
+        if (mWeekDays == 0 && mRules.isEmpty()) {
+            return mDays.get(key);
+        }
+        int index = mMonthMasks.indexOfKey(key);
+        if (index >= 0) {
+            return mMonthMasks.valueAt(index);
+        }
+        int mask = mDays.get(key) | evaluateRules(year, month);
+        mMonthMasks.put(key, mask);
+        return mask;
+    }
+
+    /**
+     * @param packedStart A packed day, see {@link CalendarDay#getPackedDate()}.
+     * @param packedEnd A packed day, not before the start.
+     * @return Whether a day from the start to the end, both included, is disabled, checked a month mask at a time.
+     */
+    public boolean containsAny(int packedStart, int packedEnd) {
+        int firstKey = getMonthKey(EpochDays.getPackedYear(packedStart), EpochDays.getPackedMonth(packedStart));
+        int lastKey = getMonthKey(EpochDays.getPackedYear(packedEnd), EpochDays.getPackedMonth(packedEnd));
+        for (int key = firstKey; key <= lastKey; key++) {
+            int mask = getMonthMask(EpochDays.floorDiv(key, 12), EpochDays.floorMod(key, 12));
+            if (key == firstKey) {
+                mask &= -1 << (EpochDays.getPackedMonthDay(packedStart) - 1);
+            }
+            if (key == lastKey) {
+                // (1 << 31) - 1 wraps to the 31 days of a whole month
+                mask &= (1 << EpochDays.getPackedMonthDay(packedEnd)) - 1;
+            }
+            if (mask != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The days added one by one, keyed by {@link Utils#formatDisabledDayForKey(int, int, int)}.  Days of the week
+     * and rules are not expanded.
+     */
+    public SparseArray<CalendarDay> toSparseArray() {
+        SparseArray<CalendarDay> days = new SparseArray<>();
+        for (int i = 0; i < mDays.size(); i++) {
+            int key = mDays.keyAt(i);
+            int year = EpochDays.floorDiv(key, 12);
+            int month = EpochDays.floorMod(key, 12);
+            int mask = mDays.valueAt(i);
+            for (int day = 1; mask != 0; day++, mask >>>= 1) {
+                if ((mask & 1) != 0) {
+                    days.put(Utils.formatDisabledDayForKey(year, month, day), new CalendarDay(year, month, day));
+                }
+            }
+        }
+        return days;
+    }
+
+    private int evaluateRules(int year, int month) {
+        int dayCount = EpochDays.getDaysInMonth(year, month);
+        // Time week days start at 0, Calendar ones at 1
+        int weekDay = EpochDays.getWeekDay(EpochDays.of(year, month, 1)) + 1;
+        int mask = 0;
+        for (int day = 1; day <= dayCount; day++) {
+            if ((mWeekDays & 1 << weekDay) != 0 || isDisabledByRule(year, month, day)) {
+                mask |= 1 << (day - 1);
+            }
+            weekDay = weekDay == Calendar.SATURDAY ? Calendar.SUNDAY : weekDay + 1;
+        }
+        return mask;
+    }
+
+    private boolean isDisabledByRule(int year, int month, int day) {
+        for (int i = 0; i < mRules.size(); i++) {
+            if (mRules.get(i).isDisabled(year, month, day)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int getMonthKey(int year, int month) {
+        if (month < 0 || month > 11) {
+            throw new IllegalArgumentException("Month must be in [0-11]: " + month);
+        }
+        return year * 12 + month;
+    }
+
+    private static void checkDay(int day) {
+        if (day < 1 || day > 31) {
+            throw new IllegalArgumentException("Day must be in [1-31]: " + day);
+        }
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    /**
+     * Writes the months as pairs of ints, then the days of the week, the rules that can be parcelled, and how many
+     * could not be.
+     */
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        int count = mDays.size();
+        dest.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            dest.writeInt(mDays.keyAt(i));
+            dest.writeInt(mDays.valueAt(i));
+        }
+        dest.writeInt(mWeekDays);
+        int parcelableRules = 0;
+        for (Rule rule : mRules) {
+            if (rule instanceof Parcelable) {
+                parcelableRules++;
+            } else {
+                Log.w(TAG, "Rule " + rule + " is not Parcelable, it won't be restored");
+            }
+        }
+        dest.writeInt(parcelableRules);
+        for (Rule rule : mRules) {
+            if (rule instanceof Parcelable) {
+                dest.writeParcelable((Parcelable) rule, flags);
+            }
+        }
+        dest.writeInt(mMissingRuleCount + mRules.size() - parcelableRules);
+    }
+
+    private DisabledDaySet(Parcel in) {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            // written in key order, so each put is an append
+            int key = in.readInt();
+            mDays.append(key, in.readInt());
+        }
+        mWeekDays = in.readInt();
+        int ruleCount = in.readInt();
+        for (int i = 0; i < ruleCount; i++) {
+            mRules.add((Rule) in.readParcelable(DisabledDaySet.class.getClassLoader()));
+        }
+        mMissingRuleCount = in.readInt();
+    }
+
+    public static final Creator<DisabledDaySet> CREATOR = new Creator<DisabledDaySet>() {
+        @Override
+        public DisabledDaySet createFromParcel(Parcel in) {
+            return new DisabledDaySet(in);
+        }
+
+        @Override
+        public DisabledDaySet[] newArray(int size) {
+            return new DisabledDaySet[size];
+        }
+    };
+}
@@ -29,12 +29,12 @@ import android.view.ViewGroup;
 import android.widget.AbsListView.LayoutParams;
 import android.widget.BaseAdapter;
 
-import com.codetroopers.betterpickers.Utils;
+import com.codetroopers.betterpickers.EpochDays;
 import com.codetroopers.betterpickers.calendardatepicker.MonthView.OnDayClickListener;
 
 import java.lang.reflect.Type;
 import java.util.Calendar;
-import java.util.HashMap;
+import java.util.TimeZone;
 
 /**
  * An adapter for a list of {@link MonthView} items.
@@ -55,6 +55,7 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
     private Typeface mRegularTypeface;
     private Typeface mBoldTypeface;
     private boolean mHighlightToday;
+    private final MonthBindSpec mBindSpec = new MonthBindSpec();
 
     public void setThemeDark(TypedArray mThemeColors) {
         this.mThemeColors = mThemeColors;
@@ -65,17 +66,18 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
     }
 
     /**
-     * A convenience class to represent a specific date.
+     * A convenience class to represent a specific date. <p> The date is packed in a single int, year * 10000 + month *
+     * 100 + day with a 0-based month, so comparing days is an int compare; a {@link Calendar} is only built when the
+     * date is asked for in milliseconds.  Years must not be negative.
      */
     public static class CalendarDay implements Comparable<CalendarDay>, Parcelable {
 
+        private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000L;
+
+        private int packedDate;
+        // built on the first call to getDateInMillis(), then set again when the date changed since
         private Calendar calendar;
-        private long calendarTimeInMillis;
-        private Time time;
-        private long timeInMillis;
-        int year;
-        int month;
-        int day;
+        private int calendarDate;
 
         public CalendarDay() {
             setTime(System.currentTimeMillis());
@@ -86,77 +88,98 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
         }
 
         public CalendarDay(Calendar calendar) {
-            year = calendar.get(Calendar.YEAR);
-            month = calendar.get(Calendar.MONTH);
-            day = calendar.get(Calendar.DAY_OF_MONTH);
+            setDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
         }
 
+        /**
+         * Months and days out of range are carried over, e.g. month 12 is January of the next year.
+         */
         public CalendarDay(int year, int month, int day) {
             setDay(year, month, day);
         }
 
         public CalendarDay(Parcel in) {
-            this.calendarTimeInMillis = in.readLong();
-            this.calendar = Calendar.getInstance();
-            this.calendar.setTimeInMillis(this.calendarTimeInMillis);
-            this.timeInMillis = in.readLong();
-            this.time = new Time();
-            this.time.set(this.timeInMillis);
-            this.year = in.readInt();
-            this.month = in.readInt();
-            this.day = in.readInt();
+            packedDate = in.readInt();
         }
 
         public void set(CalendarDay date) {
-            year = date.year;
-            month = date.month;
-            day = date.day;
+            packedDate = date.packedDate;
         }
 
+        /**
+         * Months and days out of range are carried over, e.g. month 12 is January of the next year.
+         */
         public void setDay(int year, int month, int day) {
-            calendar = Calendar.getInstance();
-            calendar.set(year, month, day, 0, 0, 0);
-            this.year = calendar.get(Calendar.YEAR);
-            this.month = calendar.get(Calendar.MONTH);
-            this.day = calendar.get(Calendar.DAY_OF_MONTH);
+            if (month < 0 || month > 11 || day < 1 || day > 28) {
+                year += EpochDays.floorDiv(month, 12);
+                month = EpochDays.floorMod(month, 12);
+                packedDate = EpochDays.toPackedDate(EpochDays.of(year, month, day));
+            } else {
+                packedDate = year * 10000 + month * 100 + day;
+            }
+        }
+
+        public int getYear() {
+            return EpochDays.getPackedYear(packedDate);
+        }
+
+        /**
+         * @return [0-11]
+         */
+        public int getMonth() {
+            return EpochDays.getPackedMonth(packedDate);
         }
 
+        public int getDay() {
+            return EpochDays.getPackedMonthDay(packedDate);
+        }
+
+        /**
+         * @return The date packed as {@link EpochDays#toPackedDate(int)} does, also the key of {@link
+         * com.codetroopers.betterpickers.Utils#formatDisabledDayForKey(int, int, int)}.
+         */
+        public int getPackedDate() {
+            return packedDate;
+        }
+
+        /**
+         * @return The start of the day in the default time zone.
+         */
         public long getDateInMillis() {
             if (calendar == null) {
                 calendar = Calendar.getInstance();
-                calendar.set(year, month, day, 0, 0, 0);
+                calendarDate = 0;
+            }
+            if (calendarDate != packedDate) {
+                calendar.clear();
+                calendar.set(getYear(), getMonth(), getDay());
+                calendarDate = packedDate;
             }
             return calendar.getTimeInMillis();
         }
 
-        public synchronized void setJulianDay(int julianDay) {
-            if (time == null) {
-                time = new Time();
-            }
-            time.setJulianDay(julianDay);
-            setTime(time.toMillis(false));
+        public void setJulianDay(int julianDay) {
+            packedDate = EpochDays.toPackedDate(julianDay - Time.EPOCH_JULIAN_DAY);
         }
 
         private void setTime(long timeInMillis) {
-            if (calendar == null) {
-                calendar = Calendar.getInstance();
-            }
-            calendar.setTimeInMillis(timeInMillis);
-            month = calendar.get(Calendar.MONTH);
-            year = calendar.get(Calendar.YEAR);
-            day = calendar.get(Calendar.DAY_OF_MONTH);
+            long localMillis = timeInMillis + TimeZone.getDefault().getOffset(timeInMillis);
+            packedDate = EpochDays.toPackedDate((int) EpochDays.floorDiv(localMillis, DAY_IN_MILLIS));
         }
 
         @Override
         public int compareTo(@NonNull CalendarDay another) {
-            if (year < another.year || (year == another.year && month < another.month)
-                    || (year == another.year && month == another.month && day < another.day)) {
-                return -1;
-            }
-            if ((year == another.year && month == another.month && day == another.day)) {
-                return 0;
-            }
-            return 1;
+            return packedDate < another.packedDate ? -1 : (packedDate == another.packedDate ? 0 : 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CalendarDay && ((CalendarDay) o).packedDate == packedDate;
+        }
+
+        @Override
+        public int hashCode() {
+            return packedDate;
         }
 
         @Override
@@ -166,17 +189,7 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
-            if (calendar != null) {
-                calendarTimeInMillis = calendar.getTimeInMillis();
-            }
-            dest.writeLong(calendarTimeInMillis);
-            if (time != null) {
-                timeInMillis = time.toMillis(false);
-            }
-
-            dest.writeInt(year);
-            dest.writeInt(month);
-            dest.writeInt(day);
+            dest.writeInt(packedDate);
         }
 
         public static final Parcelable.Creator<CalendarDay> CREATOR
@@ -228,8 +241,8 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
 
     @Override
     public int getCount() {
-        return (((mController.getMaxDate().year - mController.getMinDate().year) + 1) * MONTHS_IN_YEAR) -
-                (MONTHS_IN_YEAR - 1 - mController.getMaxDate().month) - mController.getMinDate().month;
+        return (((mController.getMaxDate().getYear() - mController.getMinDate().getYear()) + 1) * MONTHS_IN_YEAR) -
+                (MONTHS_IN_YEAR - 1 - mController.getMaxDate().getMonth()) - mController.getMinDate().getMonth();
     }
 
     @Override
@@ -248,54 +261,70 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
     }
 
     @SuppressLint("NewApi")
-    @SuppressWarnings("unchecked")
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
         MonthView v;
-        HashMap<String, Integer> drawingParams = null;
         if (convertView != null) {
             v = (MonthView) convertView;
-            // We store the drawing parameters in the view so it can be recycled
-            drawingParams = (HashMap<String, Integer>) v.getTag();
         } else {
-            v = createMonthView(mContext, mRegularTypeface, mBoldTypeface);
-            v.setTheme(mThemeColors);
-            v.shouldHighlightToday(mHighlightToday);
-            // Set up the new view
-            LayoutParams params = new LayoutParams(
-                    LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-            v.setLayoutParams(params);
-            v.setClickable(true);
-            v.setOnDayClickListener(this);
-        }
-        if (drawingParams == null) {
-            drawingParams = new HashMap<>();
-        }
-        drawingParams.clear();
-
-        final int month = (position + mController.getMinDate().month) % MONTHS_IN_YEAR;
-        final int year = (position + mController.getMinDate().month)/ MONTHS_IN_YEAR + mController.getMinDate().year;
+            v = newMonthView(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        }
+        bindMonthView(v, position);
+        return v;
+    }
+
+    /**
+     * Creates a month view set up for this adapter, for {@link #getView(int, View, ViewGroup)} and the adapter of
+     * {@link RecyclerDayPickerView}.
+     */
+    MonthView newMonthView(ViewGroup.LayoutParams params) {
+        MonthView v = createMonthView(mContext, mRegularTypeface, mBoldTypeface);
+        v.setTheme(mThemeColors);
+        v.shouldHighlightToday(mHighlightToday);
+        // Set up the new view
+        v.setLayoutParams(params);
+        v.setClickable(true);
+        v.setOnDayClickListener(this);
+        return v;
+    }
+
+    /**
+     * @return The month of a position, as year * 12 + month.
+     */
+    int getMonthIndex(int position) {
+        return mController.getMinDate().getYear() * MONTHS_IN_YEAR + mController.getMinDate().getMonth() + position;
+    }
+
+    /**
+     * Binds a view created by {@link #newMonthView(ViewGroup.LayoutParams)} to the month of a position.
+     */
+    void bindMonthView(MonthView v, int position) {
+        final int month = (position + mController.getMinDate().getMonth()) % MONTHS_IN_YEAR;
+        final int year = (position + mController.getMinDate().getMonth()) / MONTHS_IN_YEAR
+                + mController.getMinDate().getYear();
+        // In range mode the ends of the range are drawn as selected instead
+        final DateRange selectedRange = mController.getSelectedRange();
         int selectedDay = -1;
-        if (isSelectedDayInMonth(year, month)) {
-            selectedDay = mSelectedDay.day;
+        if (selectedRange == null && isSelectedDayInMonth(year, month)) {
+            selectedDay = mSelectedDay.getDay();
         }
 
         int rangeMin = -1;
         if (isRangeMinInMonth(year, month)) {
-            rangeMin = mController.getMinDate().day;
+            rangeMin = mController.getMinDate().getDay();
         }
 
         int rangeMax = -1;
         if (isRangeMaxInMonth(year, month)) {
-            rangeMax = mController.getMaxDate().day;
+            rangeMax = mController.getMaxDate().getDay();
         }
         // Invokes requestLayout() to ensure that the recycled view is set with the appropriate
         // height/number of weeks before being displayed.
         v.reuse();
 
         // Set disabled days if they exist
-        if (mController.getDisabledDays() != null) {
-            v.setDisabledDays(mController.getDisabledDays());
+        if (mController.getDisabledDaySet() != null) {
+            v.setDisabledDays(mController.getDisabledDaySet());
         }
 
         if (mRegularTypeface != null) {
@@ -306,15 +335,17 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
             v.setBoldTypeface(mBoldTypeface);
         }
 
-        drawingParams.put(MonthView.VIEW_PARAMS_SELECTED_DAY, selectedDay);
-        drawingParams.put(MonthView.VIEW_PARAMS_YEAR, year);
-        drawingParams.put(MonthView.VIEW_PARAMS_MONTH, month);
-        drawingParams.put(MonthView.VIEW_PARAMS_WEEK_START, mController.getFirstDayOfWeek());
-        drawingParams.put(MonthView.VIEW_PARAMS_RANGE_MIN, rangeMin);
-        drawingParams.put(MonthView.VIEW_PARAMS_RANGE_MAX, rangeMax);
-        v.setMonthParams(drawingParams);
+        // The view copies the values, so one spec serves every bind
+        mBindSpec.clear()
+                .setMonth(year, month)
+                .setWeekStart(mController.getFirstDayOfWeek())
+                .setSelectedDay(selectedDay)
+                .setRange(rangeMin, rangeMax);
+        if (selectedRange != null && !selectedRange.isEmpty()) {
+            mBindSpec.setSelection(selectedRange.getPackedStart(), selectedRange.getPackedEnd());
+        }
+        v.setMonthParams(mBindSpec);
         v.invalidate();
-        return v;
     }
 
     public void setBoldTypeface(Typeface boldTypeface) {
@@ -334,15 +365,15 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
     public abstract MonthView createMonthView(Context context, Typeface regularTypeface, Typeface boldTypeface);
 
     private boolean isSelectedDayInMonth(int year, int month) {
-        return mSelectedDay.year == year && mSelectedDay.month == month;
+        return mSelectedDay.getYear() == year && mSelectedDay.getMonth() == month;
     }
 
     private boolean isRangeMinInMonth(int year, int month) {
-        return mController.getMinDate().year == year && mController.getMinDate().month == month;
+        return mController.getMinDate().getYear() == year && mController.getMinDate().getMonth() == month;
     }
 
     private boolean isRangeMaxInMonth(int year, int month) {
-        return mController.getMaxDate().year == year && mController.getMaxDate().month == month;
+        return mController.getMaxDate().getYear() == year && mController.getMaxDate().getMonth() == month;
     }
 
     @Override
@@ -357,7 +388,8 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
     }
 
     private boolean isDayDisabled(CalendarDay day) {
-        return mController.getDisabledDays() != null && mController.getDisabledDays().indexOfKey(Utils.formatDisabledDayForKey(day.year, day.month, day.day)) >= 0;
+        DisabledDaySet disabledDays = mController.getDisabledDaySet();
+        return disabledDays != null && disabledDays.contains(day);
     }
 
     /**
@@ -367,7 +399,7 @@ public abstract class MonthAdapter extends BaseAdapter implements OnDayClickList
      */
     protected void onDayTapped(CalendarDay day) {
         mController.tryVibrate();
-        mController.onDayOfMonthSelected(day.year, day.month, day.day);
+        mController.onDayOfMonthSelected(day.getYear(), day.getMonth(), day.getDay());
         setSelectedDay(day);
     }
 }
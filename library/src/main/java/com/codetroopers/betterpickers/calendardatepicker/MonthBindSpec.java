@@ -0,0 +1,138 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+/**
+ * The values a {@link MonthView} is bound to, see {@link MonthView#setMonthParams(MonthBindSpec)}. <p> Values are
+ * kept as primitives and the view copies them, so a single instance can be filled again for every bind and binding a
+ * recycled view allocates nothing, unlike the map of the deprecated {@link MonthView#setMonthParams(java.util.HashMap)}.
+ */
+public final class MonthBindSpec {
+
+    /**
+     * Value of an unset field: the year and month must be set, the week start defaults to the first day of the week of
+     * the default locale, and the row height to the current one of the view.
+     */
+    public static final int NO_VALUE = -1;
+
+    int year;
+    int month;
+    int weekStart;
+    int selectedDay;
+    int rangeMin;
+    int rangeMax;
+    int selectionStart;
+    int selectionEnd;
+    int rowHeight;
+
+    public MonthBindSpec() {
+        clear();
+    }
+
+    /**
+     * Unsets every field, and selects no day, no range and no selected range.
+     */
+    public MonthBindSpec clear() {
+        year = NO_VALUE;
+        month = NO_VALUE;
+        weekStart = NO_VALUE;
+        selectedDay = NO_VALUE;
+        rangeMin = NO_VALUE;
+        rangeMax = NO_VALUE;
+        selectionStart = NO_VALUE;
+        selectionEnd = NO_VALUE;
+        rowHeight = NO_VALUE;
+        return this;
+    }
+
+    /**
+     * @param month [0-11]
+     */
+    public MonthBindSpec setMonth(int year, int month) {
+        this.year = year;
+        this.month = month;
+        return this;
+    }
+
+    /**
+     * @param weekStart {@link java.util.Calendar#SUNDAY} through {@link java.util.Calendar#SATURDAY}.
+     */
+    public MonthBindSpec setWeekStart(int weekStart) {
+        this.weekStart = weekStart;
+        return this;
+    }
+
+    /**
+     * @param selectedDay The selected day of the month, or {@link #NO_VALUE}.
+     */
+    public MonthBindSpec setSelectedDay(int selectedDay) {
+        this.selectedDay = selectedDay;
+        return this;
+    }
+
+    /**
+     * @param rangeMin The first selectable day of the month, or {@link #NO_VALUE} if the range starts before it.
+     * @param rangeMax The last selectable day of the month, or {@link #NO_VALUE} if the range ends after it.
+     */
+    public MonthBindSpec setRange(int rangeMin, int rangeMax) {
+        this.rangeMin = rangeMin;
+        this.rangeMax = rangeMax;
+        return this;
+    }
+
+    /**
+     * The days selected in range mode, which may start or end in other months.  Unlike the range of {@link
+     * #setRange(int, int)}, it isn't a bound on the selectable days.
+     *
+     * @param selectionStart The packed first day, see {@link MonthAdapter.CalendarDay#getPackedDate()}, or {@link
+     * #NO_VALUE}.
+     * @param selectionEnd The packed last day, the first one if only the start is picked, or {@link #NO_VALUE}.
+     */
+    public MonthBindSpec setSelection(int selectionStart, int selectionEnd) {
+        this.selectionStart = selectionStart;
+        this.selectionEnd = selectionEnd;
+        return this;
+    }
+
+    /**
+     * @param rowHeight The height of a week in pixels, or {@link #NO_VALUE}.
+     */
+    public MonthBindSpec setRowHeight(int rowHeight) {
+        this.rowHeight = rowHeight;
+        return this;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public int getWeekStart() {
+        return weekStart;
+    }
+
+    public int getSelectedDay() {
+        return selectedDay;
+    }
+
+    public int getRangeMin() {
+        return rangeMin;
+    }
+
+    public int getRangeMax() {
+        return rangeMax;
+    }
+
+    public int getSelectionStart() {
+        return selectionStart;
+    }
+
+    public int getSelectionEnd() {
+        return selectionEnd;
+    }
+
+    public int getRowHeight() {
+        return rowHeight;
+    }
+}
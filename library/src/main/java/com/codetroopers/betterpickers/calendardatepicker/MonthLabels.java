@@ -0,0 +1,118 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+import android.text.format.Time;
+import android.util.SparseArray;
+
+import java.util.Calendar;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * The texts a {@link MonthView} draws for the default locale: month titles, kept in a bounded cache, the seven
+ * weekday labels of each first day of the week, and the day numbers in the digits of the locale. <p> Views look them
+ * up when a month is bound, so drawing a month formats nothing.  The labels are built again when the default locale
+ * changes.
+ */
+final class MonthLabels {
+
+    /**
+     * Number of month titles kept, a few years around the visible months.
+     */
+    private static final int TITLE_CACHE_SIZE = 48;
+
+    private static final int MAX_DAYS_IN_MONTH = 31;
+
+    private static MonthLabels sLabels;
+
+    private final Locale mLocale;
+    // by Calendar day of week, 0 unused
+    private final String[] mWeekDayNames = new String[8];
+    // by first day of the week
+    private final String[][] mWeekDayLabels = new String[8][];
+    // by day of the month, 0 unused
+    private final String[] mDayNumbers = new String[MAX_DAYS_IN_MONTH + 1];
+    // by year * 12 + month
+    private final SparseArray<String> mTitles = new SparseArray<>();
+    private final StringBuilder mStringBuilder = new StringBuilder(50);
+    private final Formatter mFormatter;
+    private final Calendar mCalendar = Calendar.getInstance();
+
+    private MonthLabels(Locale locale) {
+        mLocale = locale;
+        mFormatter = new Formatter(mStringBuilder, locale);
+        Calendar calendar = Calendar.getInstance();
+        for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++) {
+            calendar.set(Calendar.DAY_OF_WEEK, day);
+            mWeekDayNames[day] = calendar.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.SHORT, locale)
+                    .toUpperCase(locale);
+        }
+        for (int day = 1; day <= MAX_DAYS_IN_MONTH; day++) {
+            // formatted rather than Integer.toString() for the native digits of e.g. Arabic
+            mDayNumbers[day] = String.format(locale, "%d", day);
+        }
+    }
+
+    /**
+     * @return The labels of the default locale.
+     */
+    static synchronized MonthLabels get() {
+        Locale locale = Locale.getDefault();
+        if (sLabels == null || !sLabels.mLocale.equals(locale)) {
+            sLabels = new MonthLabels(locale);
+        }
+        return sLabels;
+    }
+
+    /**
+     * @param month [0-11]
+     * @return e.g. "September 2016".
+     */
+    synchronized String getTitle(Context context, int year, int month) {
+        int key = year * 12 + month;
+        String title = mTitles.get(key);
+        if (title == null) {
+            if (mTitles.size() >= TITLE_CACHE_SIZE) {
+                mTitles.clear();
+            }
+            title = formatTitle(context, year, month);
+            mTitles.put(key, title);
+        }
+        return title;
+    }
+
+    /**
+     * @param weekStart {@link Calendar#SUNDAY} through {@link Calendar#SATURDAY}.
+     * @return The short names of the days of the week in column order.  The array is shared: don't modify it.
+     */
+    synchronized String[] getWeekDayLabels(int weekStart) {
+        String[] labels = mWeekDayLabels[weekStart];
+        if (labels == null) {
+            labels = new String[MonthLayout.DAYS_IN_WEEK];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = mWeekDayNames[(weekStart - 1 + i) % MonthLayout.DAYS_IN_WEEK + 1];
+            }
+            mWeekDayLabels[weekStart] = labels;
+        }
+        return labels;
+    }
+
+    /**
+     * @return The numbers of the days of the month, by day of the month.  The array is shared: don't modify it.
+     */
+    String[] getDayNumbers() {
+        return mDayNumbers;
+    }
+
+    private String formatTitle(Context context, int year, int month) {
+        int flags = DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_YEAR | DateUtils.FORMAT_NO_MONTH_DAY;
+        // the middle of the month, so that the month can't change with the time zone
+        mCalendar.set(year, month, 15, 12, 0, 0);
+        long millis = mCalendar.getTimeInMillis();
+        mStringBuilder.setLength(0);
+        String monthTitle = DateUtils.formatDateRange(context, mFormatter, millis, millis, flags,
+                Time.getCurrentTimezone()).toString();
+        return monthTitle.substring(0, 1).toUpperCase() + monthTitle.substring(1).toLowerCase();
+    }
+}
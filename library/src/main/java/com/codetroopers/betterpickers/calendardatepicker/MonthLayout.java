@@ -0,0 +1,115 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import com.codetroopers.betterpickers.EpochDays;
+
+/**
+ * Where the days of a month fall in the grid of a {@link MonthView}, for one first day of the week. <p> Layouts are
+ * immutable and shared by all the views through a small LRU cache, so binding a month and finding the day under a
+ * touch are table lookups instead of Calendar computations.
+ */
+final class MonthLayout {
+
+    static final int DAYS_IN_WEEK = 7;
+    static final int MAX_ROWS = 6;
+
+    /**
+     * Enough for the months around the visible ones in every open picker.
+     */
+    private static final int CACHE_SIZE = 24;
+
+    // the cache is a few parallel arrays, scanned linearly: it stays small, and a lookup allocates nothing
+    private static final int[] sKeys = new int[CACHE_SIZE];
+    private static final MonthLayout[] sLayouts = new MonthLayout[CACHE_SIZE];
+    private static final long[] sLastUse = new long[CACHE_SIZE];
+    private static long sUseCount;
+
+    final int year;
+    final int month;
+    final int weekStart;
+    /**
+     * Column of the first day of the month, from 0 to 6.
+     */
+    final int dayOffset;
+    final int dayCount;
+    final int rowCount;
+
+    // indexed by day - 1
+    private final byte[] mRows;
+    private final byte[] mColumns;
+    // indexed by row * DAYS_IN_WEEK + column, 0 for the cells before or after the month
+    private final byte[] mDays = new byte[MAX_ROWS * DAYS_IN_WEEK];
+
+    /**
+     * @param month [0-11]
+     * @param weekStart {@link java.util.Calendar#SUNDAY} through {@link java.util.Calendar#SATURDAY}.
+     */
+    private MonthLayout(int year, int month, int weekStart) {
+        this.year = year;
+        this.month = month;
+        this.weekStart = weekStart;
+        // Time week days start at 0, Calendar ones at 1
+        int firstWeekDay = EpochDays.getWeekDay(EpochDays.of(year, month, 1)) + 1;
+        dayOffset = EpochDays.floorMod(firstWeekDay - weekStart, DAYS_IN_WEEK);
+        dayCount = EpochDays.getDaysInMonth(year, month);
+        rowCount = (dayOffset + dayCount + DAYS_IN_WEEK - 1) / DAYS_IN_WEEK;
+
+        mRows = new byte[dayCount];
+        mColumns = new byte[dayCount];
+        for (int day = 1; day <= dayCount; day++) {
+            int cell = dayOffset + day - 1;
+            mRows[day - 1] = (byte) (cell / DAYS_IN_WEEK);
+            mColumns[day - 1] = (byte) (cell % DAYS_IN_WEEK);
+            mDays[cell] = (byte) day;
+        }
+    }
+
+    /**
+     * @return The shared layout of the month, built on first use.
+     */
+    static MonthLayout get(int year, int month, int weekStart) {
+        int key = (year * 12 + month) * 8 + weekStart;
+        synchronized (sKeys) {
+            int oldest = 0;
+            for (int i = 0; i < CACHE_SIZE; i++) {
+                MonthLayout layout = sLayouts[i];
+                if (layout != null && sKeys[i] == key) {
+                    sLastUse[i] = ++sUseCount;
+                    return layout;
+                }
+                if (sLastUse[i] < sLastUse[oldest]) {
+                    oldest = i;
+                }
+            }
+            MonthLayout layout = new MonthLayout(year, month, weekStart);
+            sKeys[oldest] = key;
+            sLayouts[oldest] = layout;
+            sLastUse[oldest] = ++sUseCount;
+            return layout;
+        }
+    }
+
+    /**
+     * @param day [1-dayCount]
+     */
+    int getRow(int day) {
+        return mRows[day - 1];
+    }
+
+    /**
+     * @param day [1-dayCount]
+     */
+    int getColumn(int day) {
+        return mColumns[day - 1];
+    }
+
+    /**
+     * @return The day of the month in this cell, or -1 if the cell is before or after the month.
+     */
+    int getDay(int row, int column) {
+        if (row < 0 || row >= rowCount || column < 0 || column >= DAYS_IN_WEEK) {
+            return -1;
+        }
+        int day = mDays[row * DAYS_IN_WEEK + column];
+        return day > 0 ? day : -1;
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.codetroopers.betterpickers.calendardatepicker;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
@@ -23,7 +24,10 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Paint.Style;
+import android.graphics.Picture;
 import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Region;
 import android.graphics.Typeface;
 import android.os.Build;
 import android.os.Bundle;
@@ -33,7 +37,6 @@ import android.support.v4.view.ViewCompat;
 import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
 import android.support.v4.widget.ExploreByTouchHelper;
 import android.text.format.DateFormat;
-import android.text.format.DateUtils;
 import android.text.format.Time;
 import android.util.SparseArray;
 import android.view.MotionEvent;
@@ -47,10 +50,8 @@ import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDa
 
 import java.security.InvalidParameterException;
 import java.util.Calendar;
-import java.util.Formatter;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * A calendar-like view displaying a specified month and the appropriate selectable day numbers within the specified
@@ -143,13 +144,11 @@ public abstract class MonthView extends View {
     protected Paint mMonthTitlePaint;
     protected Paint mMonthTitleBGPaint;
     protected Paint mSelectedCirclePaint;
+    protected Paint mSelectedRangePaint;
     protected Paint mDisabledDaySquarePaint;
     protected Paint mMonthDayLabelPaint;
     protected int mSelectionCircleAlpha;
 
-    private final Formatter mFormatter;
-    private final StringBuilder mStringBuilder;
-
     // The Julian day of the first day displayed by this item
     protected int mFirstJulianDay = -1;
     // The month of the first day in this week
@@ -171,7 +170,9 @@ public abstract class MonthView extends View {
     // Which day is selected [0-6] or -1 if no day is selected
     protected int mSelectedDay = -1;
     // Which days are disabled in the view so that they are unselectable
-    protected SparseArray<CalendarDay> mDisabledDays;
+    protected DisabledDaySet mDisabledDays;
+    // The disabled days of the bound month, bit (day - 1) set for each
+    protected int mDisabledDayMask;
     // Which day is today [0-6] or -1 if no day is today
     protected int mToday = DEFAULT_SELECTED_DAY;
     // Which day of the week to start on [0-6]
@@ -188,9 +189,35 @@ public abstract class MonthView extends View {
     protected int mRangeMin = -1;
     // The maximum day that fits into the provided range and is enabled.
     protected int mRangeMax = -1;
+    // The packed first and last days selected in range mode, or -1, see MonthBindSpec#setSelection(int, int)
+    protected int mSelectionStart = -1;
+    protected int mSelectionEnd = -1;
+    private final RectF mSelectedRangeRect = new RectF();
     private final Calendar mCalendar;
-    private final Calendar mDayLabelCalendar;
+    // Texts of the bound month, looked up once per bind
+    MonthLabels mLabels;
+    private String mMonthTitle;
+    private String[] mWeekDayLabels;
+    // The grid of the bound month, shared with the other views showing it
+    private MonthLayout mLayout;
+    // Today, valid until mTodayEnd, or before mTodayStart if the clock was set back
+    private final Time mTodayTime = new Time();
+    private int mTodayYear;
+    private int mTodayMonth;
+    private int mTodayMonthDay;
+    private long mTodayStart = Long.MAX_VALUE;
+    private long mTodayEnd;
     private final MonthViewTouchHelper mTouchHelper;
+    // What drawStaticLayer() draws, recorded for mStaticLayerVersion; see onDraw()
+    private Picture mStaticLayer;
+    private int mStaticLayerVersion;
+    // Changed whenever what drawStaticLayer() draws changes
+    private int mContentVersion = 1;
+    // The selected days drawn by drawOverlay(), bit (day - 1) set for each, whose cells the static layer is clipped out of
+    private int mOverlayDayMask;
+    // Set while the static layer is drawn without being recorded, see isDayInOverlay()
+    private boolean mSkipOverlayDays;
+    private final Rect mDayCell = new Rect();
 
     private int mNumRows = DEFAULT_NUM_ROWS;
 
@@ -215,7 +242,6 @@ public abstract class MonthView extends View {
         super(context);
         Resources res = context.getResources();
 
-        mDayLabelCalendar = Calendar.getInstance();
         mCalendar = Calendar.getInstance();
 
         if (regularTypeface != null) {
@@ -236,9 +262,6 @@ public abstract class MonthView extends View {
         mMonthTitleColor = res.getColor(R.color.date_picker_text_normal);
         mMonthTitleBGColor = res.getColor(R.color.circle_background);
 
-        mStringBuilder = new StringBuilder(50);
-        mFormatter = new Formatter(mStringBuilder, Locale.getDefault());
-
         MINI_DAY_NUMBER_TEXT_SIZE = res.getDimensionPixelSize(R.dimen.day_number_size);
         MONTH_LABEL_TEXT_SIZE = res.getDimensionPixelSize(R.dimen.month_label_size);
         MONTH_DAY_LABEL_TEXT_SIZE = res.getDimensionPixelSize(R.dimen.month_day_label_text_size);
@@ -272,7 +295,30 @@ public abstract class MonthView extends View {
     }
 
     public void shouldHighlightToday(boolean highlightToday) {
-        mHighlightToday = highlightToday;
+        if (highlightToday != mHighlightToday) {
+            mHighlightToday = highlightToday;
+            mContentVersion++;
+        }
+    }
+
+    /**
+     * Whether {@link #drawMonthDay} draws every day the same whatever the selection, today included, and {@link
+     * #drawMonthDayOverlay} draws the selected days over it.  The days are then recorded into a cached layer that a
+     * selection change doesn't invalidate: it is drawn with the cells of the selected days clipped out, and each of
+     * them costs one circle and one text draw.  False by default, for the subclasses that draw the selection in {@link
+     * #drawMonthDay}.
+     */
+    protected boolean hasSelectionOverlay() {
+        return false;
+    }
+
+    /**
+     * Draws the cached layer again on the next draw, for subclasses whose {@link #drawMonthDay} changed its output
+     * without a new bind, theme or size.
+     */
+    protected void invalidateStaticLayer() {
+        mContentVersion++;
+        invalidate();
     }
 
     @Override
@@ -339,6 +385,12 @@ public abstract class MonthView extends View {
         mSelectedCirclePaint.setStyle(Style.FILL);
         mSelectedCirclePaint.setAlpha(mSelectionCircleAlpha);
 
+        mSelectedRangePaint = new Paint();
+        mSelectedRangePaint.setAntiAlias(true);
+        mSelectedRangePaint.setColor(mTodayNumberColor);
+        mSelectedRangePaint.setStyle(Style.FILL);
+        mSelectedRangePaint.setAlpha(mSelectionCircleAlpha);
+
         mDisabledDaySquarePaint = new Paint();
         mDisabledDaySquarePaint.setFakeBoldText(true);
         mDisabledDaySquarePaint.setAntiAlias(true);
@@ -363,16 +415,266 @@ public abstract class MonthView extends View {
         mMonthNumPaint.setStyle(Style.FILL);
         mMonthNumPaint.setTextAlign(Align.CENTER);
         mMonthNumPaint.setFakeBoldText(false);
+
+        mContentVersion++;
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
+        // Under the day numbers, and redrawn with the overlay as the selection changes
+        drawSelectedRange(canvas);
+        if (!hasSelectionOverlay()) {
+            drawStaticLayer(canvas);
+            return;
+        }
+        if (canDrawPicture(canvas)) {
+            if (mStaticLayerVersion != mContentVersion) {
+                if (mStaticLayer == null) {
+                    mStaticLayer = new Picture();
+                }
+                drawStaticLayer(mStaticLayer.beginRecording(getWidth(), getHeight()));
+                mStaticLayer.endRecording();
+                mStaticLayerVersion = mContentVersion;
+            }
+            canvas.save();
+            for (int mask = mOverlayDayMask, day = 1; mask != 0; mask >>>= 1, day++) {
+                if ((mask & 1) != 0) {
+                    getDayCell(day, mDayCell);
+                    canvas.clipRect(mDayCell, Region.Op.DIFFERENCE);
+                }
+            }
+            canvas.drawPicture(mStaticLayer);
+            canvas.restore();
+        } else {
+            // Not cached, so the selected days are simply left out, also where clipping them out isn't supported
+            mSkipOverlayDays = true;
+            drawStaticLayer(canvas);
+            mSkipOverlayDays = false;
+        }
+        drawOverlay(canvas);
+    }
+
+    /**
+     * Hardware accelerated canvases draw Pictures from Marshmallow on; before, they keep the drawing commands of the
+     * view themselves, and the static layer is drawn directly.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static boolean canDrawPicture(Canvas canvas) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB
+                || !canvas.isHardwareAccelerated();
+    }
+
+    private void drawStaticLayer(Canvas canvas) {
         drawMonthTitle(canvas);
         drawMonthDayLabels(canvas);
         drawMonthNums(canvas);
     }
 
-    private int mDayOfWeekStart = 0;
+    /**
+     * Draws the selected day and the ends of the selected range over the static layer, see {@link
+     * #hasSelectionOverlay()}.
+     */
+    private void drawOverlay(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+        for (int mask = mOverlayDayMask, day = 1; mask != 0; mask >>>= 1, day++) {
+            if ((mask & 1) != 0) {
+                drawDayOverlay(canvas, day);
+            }
+        }
+    }
+
+    /**
+     * Finds the days drawn by the overlay again.  The static layer doesn't depend on them.
+     */
+    private void updateOverlayDays() {
+        int mask = 0;
+        if (mLayout != null) {
+            mask |= getDayBit(mSelectedDay);
+            mask |= getDayBit(getDayOfMonth(mSelectionStart));
+            mask |= getDayBit(getDayOfMonth(mSelectionEnd));
+        }
+        mOverlayDayMask = mask;
+    }
+
+    private int getDayBit(int day) {
+        return day >= 1 && day <= mNumCells ? 1 << (day - 1) : 0;
+    }
+
+    /**
+     * @return Whether {@link #drawMonthDay} should leave the cell of the day empty, because the static layer is being
+     * drawn directly rather than recorded and {@link #drawMonthDayOverlay} draws the day on top, see {@link
+     * #hasSelectionOverlay()}.  Recorded layers keep every day, and the overlay clips them out instead.
+     */
+    protected boolean isDayInOverlay(int day) {
+        return mSkipOverlayDays && (mOverlayDayMask & getDayBit(day)) != 0;
+    }
+
+    /**
+     * @return Whether the day is today and today is highlighted.
+     */
+    protected boolean isDayToday(int day) {
+        return mHighlightToday && mHasToday && day == mToday;
+    }
+
+    private void drawDayOverlay(Canvas canvas, int day) {
+        Rect cell = getDayCell(day, mDayCell);
+        drawMonthDayOverlay(canvas, mYear, mMonth, day, cell.centerX(), getDayY(mLayout.getRow(day)), cell.left,
+                cell.right, cell.top, cell.bottom, isDayEnabled(day));
+    }
+
+    /**
+     * @return {@code cell}, set to the bounds drawMonthNums() gives the day.
+     */
+    private Rect getDayCell(int day, Rect cell) {
+        int dayWidthHalf = (mWidth - mPadding * 2) / (mNumDays * 2);
+        int x = getDayX(mLayout.getColumn(day));
+        int startY = getDayY(mLayout.getRow(day)) - ((mRowHeight + MINI_DAY_NUMBER_TEXT_SIZE) / 2
+                - DAY_SEPARATOR_WIDTH);
+        cell.set(x - dayWidthHalf, startY, x + dayWidthHalf, startY + mRowHeight);
+        return cell;
+    }
+
+    /**
+     * Draws the days of the selected range in this month as one rounded rect per week, behind their numbers.  A range
+     * of a single day is left to the selection circle.
+     */
+    private void drawSelectedRange(Canvas canvas) {
+        if (mLayout == null || mSelectionStart == -1 || mSelectionStart == mSelectionEnd) {
+            return;
+        }
+        // packed days sort as the days do, so the range is clipped to the month with int compares
+        int monthStart = getPackedDate(0);
+        int first = Math.max(mSelectionStart - monthStart, 1);
+        int last = Math.min(mSelectionEnd - monthStart, mNumCells);
+        if (first > last) {
+            return;
+        }
+        int firstRow = mLayout.getRow(first);
+        int lastRow = mLayout.getRow(last);
+        for (int row = firstRow; row <= lastRow; row++) {
+            // the rows between the first and the last one are full weeks
+            int startColumn = row == firstRow ? mLayout.getColumn(first) : 0;
+            int endColumn = row == lastRow ? mLayout.getColumn(last) : mNumDays - 1;
+            int centerY = getDayY(row) - MINI_DAY_NUMBER_TEXT_SIZE / 3;
+            mSelectedRangeRect.set(getDayX(startColumn) - DAY_SELECTED_CIRCLE_SIZE,
+                    centerY - DAY_SELECTED_CIRCLE_SIZE, getDayX(endColumn) + DAY_SELECTED_CIRCLE_SIZE,
+                    centerY + DAY_SELECTED_CIRCLE_SIZE);
+            canvas.drawRoundRect(mSelectedRangeRect, DAY_SELECTED_CIRCLE_SIZE, DAY_SELECTED_CIRCLE_SIZE,
+                    mSelectedRangePaint);
+        }
+    }
+
+    /**
+     * @return The x of the center of the days in a column.
+     */
+    private int getDayX(int column) {
+        int dayWidthHalf = (mWidth - mPadding * 2) / (mNumDays * 2);
+        return (2 * column + 1) * dayWidthHalf + mPadding;
+    }
+
+    /**
+     * @return The baseline of the day numbers in a row.
+     */
+    private int getDayY(int row) {
+        return (((mRowHeight + MINI_DAY_NUMBER_TEXT_SIZE) / 2) - DAY_SEPARATOR_WIDTH) + MONTH_HEADER_SIZE
+                + row * mRowHeight;
+    }
+
+    /**
+     * @return A day of the bound month packed as {@link CalendarDay#getPackedDate()} does.
+     */
+    private int getPackedDate(int day) {
+        return mYear * 10000 + mMonth * 100 + day;
+    }
+
+    /**
+     * @return The day of the bound month of a packed day, or -1 if it's in another month.
+     */
+    private int getDayOfMonth(int packedDate) {
+        int day = packedDate - getPackedDate(0);
+        return packedDate != -1 && day >= 1 && day <= mNumCells ? day : -1;
+    }
+
+    /**
+     * @return Whether the day is the selected day or an end of the selected range.
+     */
+    protected boolean isDaySelected(int day) {
+        if (day == mSelectedDay) {
+            return true;
+        }
+        int packedDate = getPackedDate(day);
+        return packedDate == mSelectionStart || packedDate == mSelectionEnd;
+    }
+
+    /**
+     * @return Whether the day is in the selected range, ends included.
+     */
+    protected boolean isDayInSelectedRange(int day) {
+        int packedDate = getPackedDate(day);
+        return mSelectionStart != -1 && packedDate >= mSelectionStart && packedDate <= mSelectionEnd;
+    }
+
+    /**
+     * Sets all the parameters for displaying this month.  The values are copied, so the spec can be filled again for
+     * the next bind.
+     *
+     * @param spec The month and year are required, see {@link MonthBindSpec} for the defaults of the other values.
+     */
+    public void setMonthParams(MonthBindSpec spec) {
+        if (spec.month == MonthBindSpec.NO_VALUE || spec.year == MonthBindSpec.NO_VALUE) {
+            throw new InvalidParameterException("You must specify month and year for this view");
+        }
+        MonthLayout oldLayout = mLayout;
+        int oldRowHeight = mRowHeight;
+        int oldRangeMin = mRangeMin;
+        int oldRangeMax = mRangeMax;
+        int oldDisabledDayMask = mDisabledDayMask;
+        MonthLabels oldLabels = mLabels;
+
+        if (spec.rowHeight != MonthBindSpec.NO_VALUE) {
+            mRowHeight = Math.max(spec.rowHeight, MIN_HEIGHT);
+        }
+        mSelectedDay = spec.selectedDay;
+        mRangeMin = spec.rangeMin;
+        mRangeMax = spec.rangeMax;
+        // The band of the selected range is drawn under the static layer, only its ends are left out of it
+        mSelectionStart = spec.selectionStart;
+        mSelectionEnd = spec.selectionEnd != MonthBindSpec.NO_VALUE ? spec.selectionEnd : spec.selectionStart;
+        mMonth = spec.month;
+        mYear = spec.year;
+
+        if (spec.weekStart != MonthBindSpec.NO_VALUE) {
+            mWeekStart = spec.weekStart;
+        } else {
+            mWeekStart = mCalendar.getFirstDayOfWeek();
+        }
+
+        mLayout = MonthLayout.get(mYear, mMonth, mWeekStart);
+        mNumCells = mLayout.dayCount;
+        mNumRows = mLayout.rowCount;
+        mDisabledDayMask = mDisabledDays != null ? mDisabledDays.getMonthMask(mYear, mMonth) : 0;
+
+        mLabels = MonthLabels.get();
+        mMonthTitle = mLabels.getTitle(getContext(), mYear, mMonth);
+        mWeekDayLabels = mLabels.getWeekDayLabels(mWeekStart);
+
+        int oldToday = mToday;
+        updateToday();
+        mHasToday = mYear == mTodayYear && mMonth == mTodayMonth;
+        mToday = mHasToday ? mTodayMonthDay : -1;
+
+        // the selection only changes the overlay
+        updateOverlayDays();
+        if (mLayout != oldLayout || mRowHeight != oldRowHeight || mRangeMin != oldRangeMin || mRangeMax != oldRangeMax
+                || mDisabledDayMask != oldDisabledDayMask || mLabels != oldLabels || mToday != oldToday) {
+            mContentVersion++;
+        }
+
+        // Invalidate cached accessibility information.
+        mTouchHelper.invalidateRoot();
+    }
 
     /**
      * Sets all the parameters for displaying this week. The only required parameter is the week number. Other
@@ -381,66 +683,62 @@ public abstract class MonthView extends View {
      * parameters.
      *
      * @param params A map of the new parameters, see {@link #VIEW_PARAMS_HEIGHT}
+     * @deprecated Boxes every value on each bind, use {@link #setMonthParams(MonthBindSpec)}.
      */
+    @Deprecated
     public void setMonthParams(HashMap<String, Integer> params) {
         if (!params.containsKey(VIEW_PARAMS_MONTH) && !params.containsKey(VIEW_PARAMS_YEAR)) {
             throw new InvalidParameterException("You must specify month and year for this view");
         }
         setTag(params);
         // We keep the current value for any params not present
+        MonthBindSpec spec = new MonthBindSpec()
+                .setMonth(params.get(VIEW_PARAMS_YEAR), params.get(VIEW_PARAMS_MONTH))
+                .setSelectedDay(mSelectedDay)
+                .setRange(mRangeMin, mRangeMax)
+                .setSelection(mSelectionStart, mSelectionEnd);
         if (params.containsKey(VIEW_PARAMS_HEIGHT)) {
-            mRowHeight = params.get(VIEW_PARAMS_HEIGHT);
-            if (mRowHeight < MIN_HEIGHT) {
-                mRowHeight = MIN_HEIGHT;
-            }
+            spec.setRowHeight(params.get(VIEW_PARAMS_HEIGHT));
         }
         if (params.containsKey(VIEW_PARAMS_SELECTED_DAY)) {
-            mSelectedDay = params.get(VIEW_PARAMS_SELECTED_DAY);
+            spec.setSelectedDay(params.get(VIEW_PARAMS_SELECTED_DAY));
         }
         if (params.containsKey(VIEW_PARAMS_RANGE_MIN)) {
-            mRangeMin = params.get(VIEW_PARAMS_RANGE_MIN);
+            spec.rangeMin = params.get(VIEW_PARAMS_RANGE_MIN);
         }
         if (params.containsKey(VIEW_PARAMS_RANGE_MAX)) {
-            mRangeMax = params.get(VIEW_PARAMS_RANGE_MAX);
+            spec.rangeMax = params.get(VIEW_PARAMS_RANGE_MAX);
         }
-
-        // Allocate space for caching the day numbers and focus values
-        mMonth = params.get(VIEW_PARAMS_MONTH);
-        mYear = params.get(VIEW_PARAMS_YEAR);
-
-        // Figure out what day today is
-        final Time today = new Time(Time.getCurrentTimezone());
-        today.setToNow();
-        mHasToday = false;
-        mToday = -1;
-
-        mCalendar.set(Calendar.MONTH, mMonth);
-        mCalendar.set(Calendar.YEAR, mYear);
-        mCalendar.set(Calendar.DAY_OF_MONTH, 1);
-        mDayOfWeekStart = mCalendar.get(Calendar.DAY_OF_WEEK);
-
         if (params.containsKey(VIEW_PARAMS_WEEK_START)) {
-            mWeekStart = params.get(VIEW_PARAMS_WEEK_START);
-        } else {
-            mWeekStart = mCalendar.getFirstDayOfWeek();
-        }
-
-        mNumCells = Utils.getDaysInMonth(mMonth, mYear);
-        for (int i = 0; i < mNumCells; i++) {
-            final int day = i + 1;
-            if (sameDay(day, today)) {
-                mHasToday = true;
-                mToday = day;
-            }
+            spec.setWeekStart(params.get(VIEW_PARAMS_WEEK_START));
         }
-        mNumRows = calculateNumRows();
-
-        // Invalidate cached accessibility information.
-        mTouchHelper.invalidateRoot();
+        setMonthParams(spec);
     }
 
+    /**
+     * @deprecated Use {@link #setDisabledDays(DisabledDaySet)}.
+     */
+    @Deprecated
     public void setDisabledDays(@NonNull SparseArray<CalendarDay> disabledDays) {
+        setDisabledDays(DisabledDaySet.fromSparseArray(disabledDays));
+    }
+
+    public void setDisabledDays(@NonNull DisabledDaySet disabledDays) {
+        int mask = mLayout != null ? disabledDays.getMonthMask(mYear, mMonth) : 0;
+        // a first set also enables the range check of drawMonthNums()
+        if (disabledDays != mDisabledDays || mask != mDisabledDayMask) {
+            mContentVersion++;
+        }
         mDisabledDays = disabledDays;
+        mDisabledDayMask = mask;
+    }
+
+    /**
+     * @param day [1-31]
+     * @return Whether the day of the bound month is one of the disabled days.
+     */
+    protected boolean isDayDisabled(int day) {
+        return (mDisabledDayMask & 1 << (day - 1)) != 0;
     }
 
     public void reuse() {
@@ -448,17 +746,22 @@ public abstract class MonthView extends View {
         requestLayout();
     }
 
-    private int calculateNumRows() {
-        int offset = findDayOffset();
-        int dividend = (offset + mNumCells) / mNumDays;
-        int remainder = (offset + mNumCells) % mNumDays;
-        return (dividend + (remainder > 0 ? 1 : 0));
-    }
-
-    private boolean sameDay(int day, Time today) {
-        return mYear == today.year &&
-                mMonth == today.month &&
-                day == today.monthDay;
+    /**
+     * Finds today's date again once the day it was computed on is over.
+     */
+    private void updateToday() {
+        long now = System.currentTimeMillis();
+        if (now >= mTodayStart && now < mTodayEnd) {
+            return;
+        }
+        mTodayTime.clear(Time.getCurrentTimezone());
+        mTodayTime.set(now);
+        mTodayYear = mTodayTime.year;
+        mTodayMonth = mTodayTime.month;
+        mTodayMonthDay = mTodayTime.monthDay;
+        mTodayTime.set(0, 0, 0, mTodayMonthDay + 1, mTodayMonth, mTodayYear);
+        mTodayStart = now;
+        mTodayEnd = mTodayTime.normalize(true);
     }
 
     @Override
@@ -470,23 +773,18 @@ public abstract class MonthView extends View {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         mWidth = w;
+        mContentVersion++;
 
         // Invalidate cached accessibility information.
         mTouchHelper.invalidateRoot();
     }
 
-    private String getMonthAndYearString() {
-        int flags = DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_YEAR | DateUtils.FORMAT_NO_MONTH_DAY;
-        mStringBuilder.setLength(0);
-        long millis = mCalendar.getTimeInMillis();
-        String monthTitle = DateUtils.formatDateRange(getContext(), mFormatter, millis, millis, flags, Time.getCurrentTimezone()).toString();
-        return monthTitle.substring(0, 1).toUpperCase() + monthTitle.substring(1).toLowerCase();
-    }
-
     private void drawMonthTitle(Canvas canvas) {
         int x = (mWidth + 2 * mPadding) / 2;
         int y = (MONTH_HEADER_SIZE - MONTH_DAY_LABEL_TEXT_SIZE) / 2 + (MONTH_LABEL_TEXT_SIZE / 3);
-        canvas.drawText(getMonthAndYearString(), x, y, mMonthTitlePaint);
+        if (mMonthTitle != null) {
+            canvas.drawText(mMonthTitle, x, y, mMonthTitlePaint);
+        }
     }
 
     public void setRegularTypeface(Typeface regularTypeface) {
@@ -502,16 +800,15 @@ public abstract class MonthView extends View {
     }
 
     private void drawMonthDayLabels(Canvas canvas) {
+        if (mWeekDayLabels == null) {
+            return;
+        }
         int y = MONTH_HEADER_SIZE - (MONTH_DAY_LABEL_TEXT_SIZE / 2);
         int dayWidthHalf = (mWidth - mPadding * 2) / (mNumDays * 2);
 
         for (int i = 0; i < mNumDays; i++) {
-            int calendarDay = (i + mWeekStart) % mNumDays;
             int x = (2 * i + 1) * dayWidthHalf + mPadding;
-            mDayLabelCalendar.set(Calendar.DAY_OF_WEEK, calendarDay);
-            canvas.drawText(mDayLabelCalendar.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.SHORT,
-                    Locale.getDefault()).toUpperCase(Locale.getDefault()), x, y,
-                    mMonthDayLabelPaint);
+            canvas.drawText(mWeekDayLabels[i], x, y, mMonthDayLabelPaint);
         }
     }
 
@@ -521,6 +818,10 @@ public abstract class MonthView extends View {
      * @param canvas The canvas to draw on
      */
     protected void drawMonthNums(Canvas canvas) {
+        if (mLayout == null) {
+            // not bound yet
+            return;
+        }
         int y = (((mRowHeight + MINI_DAY_NUMBER_TEXT_SIZE) / 2) - DAY_SEPARATOR_WIDTH)
                 + MONTH_HEADER_SIZE;
         int dayWidthHalf = (mWidth - mPadding * 2) / (mNumDays * 2);
@@ -535,13 +836,8 @@ public abstract class MonthView extends View {
             int startY = y - yRelativeToDay;
             int stopY = startY + mRowHeight;
 
-            int disabledDayKey = Utils.formatDisabledDayForKey(mYear, mMonth, dayNumber);
-            // A day is enabled if it is in range and is not explicitly set as disabled
-            boolean dayIsEnabled = true;
-            if (mDisabledDays != null) {
-                dayIsEnabled = isDayInRange(dayNumber) && mDisabledDays.indexOfKey(disabledDayKey) < 0;
-            }
-            drawMonthDay(canvas, mYear, mMonth, dayNumber, x, y, startX, stopX, startY, stopY, dayIsEnabled);
+            drawMonthDay(canvas, mYear, mMonth, dayNumber, x, y, startX, stopX, startY, stopY,
+                    isDayEnabled(dayNumber));
 
             j++;
             if (j == mNumDays) {
@@ -551,6 +847,13 @@ public abstract class MonthView extends View {
         }
     }
 
+    /**
+     * A day is enabled if it is in range and is not explicitly set as disabled
+     */
+    private boolean isDayEnabled(int day) {
+        return mDisabledDays == null || (isDayInRange(day) && !isDayDisabled(day));
+    }
+
     private boolean isDayInRange(int day) {
         return !(mRangeMax >= 0 && day > mRangeMax) && !(mRangeMin >= 0 && day < mRangeMin);
     }
@@ -574,9 +877,28 @@ public abstract class MonthView extends View {
     public abstract void drawMonthDay(Canvas canvas, int year, int month, int day, int x, int y, int startX,
                                       int stopX, int startY, int stopY, boolean isEnabled);
 
+    /**
+     * Draws a selected day in its cell, which the static layer was clipped out of, when {@link
+     * #hasSelectionOverlay()}.  Called on every draw, for the selected days only.
+     *
+     * @param canvas    The canvas to draw on
+     * @param year      The year of this month day
+     * @param month     The month of this month day
+     * @param day       The day number of this month day
+     * @param x         The default x position to draw the day number
+     * @param y         The default y position to draw the day number
+     * @param startX    The left boundary of the day number rect
+     * @param stopX     The right boundary of the day number rect
+     * @param startY    The top boundary of the day number rect
+     * @param stopY     The bottom boundary of the day number rect
+     * @param isEnabled The flag to show if the day should look enabled or not
+     */
+    protected void drawMonthDayOverlay(Canvas canvas, int year, int month, int day, int x, int y, int startX,
+            int stopX, int startY, int stopY, boolean isEnabled) {
+    }
+
     private int findDayOffset() {
-        return (mDayOfWeekStart < mWeekStart ? (mDayOfWeekStart + mNumDays) : mDayOfWeekStart)
-                - mWeekStart;
+        return mLayout != null ? mLayout.dayOffset : 0;
     }
 
 
@@ -592,16 +914,13 @@ public abstract class MonthView extends View {
         if (x < dayStart || x > mWidth - mPadding) {
             return -1;
         }
+        if (mLayout == null) {
+            return -1;
+        }
         // Selection is (x - start) / (pixels/day) == (x -s) * day / pixels
         int row = (int) (y - MONTH_HEADER_SIZE) / mRowHeight;
         int column = (int) ((x - dayStart) * mNumDays / (mWidth - dayStart - mPadding));
-
-        int day = column - findDayOffset() + 1;
-        day += row * mNumDays;
-        if (day < 1 || day > mNumCells) {
-            return -1;
-        }
-        return day;
+        return mLayout.getDay(row, column);
     }
 
     /**
@@ -643,10 +962,10 @@ public abstract class MonthView extends View {
      * @return {@code false} if the date is not valid for this month view, or {@code true} if the date received focus
      */
     public boolean restoreAccessibilityFocus(CalendarDay day) {
-        if ((day.year != mYear) || (day.month != mMonth) || (day.day > mNumCells)) {
+        if ((day.getYear() != mYear) || (day.getMonth() != mMonth) || (day.getDay() > mNumCells)) {
             return false;
         }
-        mTouchHelper.setFocusedVirtualView(day.day);
+        mTouchHelper.setFocusedVirtualView(day.getDay());
         return true;
     }
 
@@ -709,7 +1028,7 @@ public abstract class MonthView extends View {
             node.setBoundsInParent(mTempRect);
             node.addAction(AccessibilityNodeInfo.ACTION_CLICK);
 
-            if (virtualViewId == mSelectedDay) {
+            if (isDaySelected(virtualViewId)) {
                 node.setSelected(true);
             }
 
@@ -734,13 +1053,16 @@ public abstract class MonthView extends View {
          * @param rect The rectangle in which to store the bounds
          */
         private void getItemBounds(int day, Rect rect) {
+            if (mLayout == null) {
+                rect.setEmpty();
+                return;
+            }
             final int offsetX = mPadding;
             final int offsetY = MONTH_HEADER_SIZE;
             final int cellHeight = mRowHeight;
             final int cellWidth = ((mWidth - (2 * mPadding)) / mNumDays);
-            final int index = ((day - 1) + findDayOffset());
-            final int row = (index / mNumDays);
-            final int column = (index % mNumDays);
+            final int row = mLayout.getRow(day);
+            final int column = mLayout.getColumn(day);
             final int x = (offsetX + (column * cellWidth));
             final int y = (offsetY + (row * cellHeight));
 
@@ -759,7 +1081,7 @@ public abstract class MonthView extends View {
             final CharSequence date = DateFormat.format(DATE_FORMAT,
                     mTempCalendar.getTimeInMillis());
 
-            if (day == mSelectedDay) {
+            if (isDaySelected(day)) {
                 return getContext().getString(R.string.item_is_selected, date);
             }
 
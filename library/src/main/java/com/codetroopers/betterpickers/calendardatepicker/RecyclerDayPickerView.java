@@ -0,0 +1,365 @@
+package com.codetroopers.betterpickers.calendardatepicker;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.database.DataSetObserver;
+import android.graphics.PointF;
+import android.graphics.Typeface;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.LinearSmoothScroller;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
+
+/**
+ * A {@link DayPicker} on a RecyclerView, for long date ranges. <p> Months have stable ids, their index from year 0,
+ * so a change of the selection rebinds the views in place.  Once scrolling stops and the main thread is idle, the
+ * month after the visible one in the direction of the last scroll is laid out ahead, so that it is bound before it
+ * scrolls into view rather than during the frame it appears in.  A scroll that ends between two months settles on
+ * the top of the one that shows the most. <p> Months are created and bound by the {@link MonthAdapter} of {@link
+ * #createMonthAdapter(Context, CalendarDatePickerController)}, as in {@link DayPickerView}.
+ */
+public class RecyclerDayPickerView extends RecyclerView implements DayPicker {
+
+    // highlighted time
+    protected CalendarDay mSelectedDay = new CalendarDay();
+    protected MonthAdapter mAdapter;
+
+    private CalendarDatePickerController mController;
+    private MonthLayoutManager mLayoutManager;
+    private Typeface mRegularTypeface;
+    private Typeface mBoldTypeface;
+    private boolean mHighlightToday;
+    // whether the layout goes a month past the visible ones, see schedulePrefetch()
+    private boolean mPrefetch;
+    private boolean mPrefetchQueued;
+    // whether the current scroll was started by snapToMonth(), which must not snap again when it ends
+    private boolean mSnapping;
+
+    public RecyclerDayPickerView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        setUpRecyclerView(context);
+    }
+
+    public RecyclerDayPickerView(Context context, CalendarDatePickerController controller) {
+        this(context, controller, false, null);
+    }
+
+    public RecyclerDayPickerView(Context context, CalendarDatePickerController controller, boolean highlightToday,
+            Typeface typeface) {
+        super(context);
+        if (typeface != null) {
+            mRegularTypeface = typeface;
+        }
+        mHighlightToday = highlightToday;
+        setUpRecyclerView(context);
+        setController(controller);
+    }
+
+    public void setController(CalendarDatePickerController controller) {
+        mController = controller;
+        mController.registerOnDateChangedListener(this);
+        refreshAdapter();
+        onDateChanged();
+    }
+
+    protected void setUpRecyclerView(Context context) {
+        setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        mLayoutManager = new MonthLayoutManager(context);
+        setLayoutManager(mLayoutManager);
+        // The size of the list doesn't depend on the months it shows
+        setHasFixedSize(true);
+        setVerticalScrollBarEnabled(false);
+        setFadingEdgeLength(0);
+        addOnScrollListener(new OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == SCROLL_STATE_DRAGGING) {
+                    // the user took over
+                    mSnapping = false;
+                }
+                if (newState != SCROLL_STATE_IDLE) {
+                    mPrefetch = false;
+                } else if (!snapToMonth()) {
+                    schedulePrefetch();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onChange() {
+        refreshAdapter();
+    }
+
+    /**
+     * Creates a new adapter if necessary and sets up its parameters. Override this method to provide a custom
+     * adapter.
+     */
+    protected void refreshAdapter() {
+        if (mAdapter == null) {
+            mAdapter = createMonthAdapter(getContext(), mController);
+            mAdapter.shouldHighlightToday(mHighlightToday);
+            if (mRegularTypeface != null) {
+                mAdapter.setRegularTypeface(mRegularTypeface);
+            }
+            if (mBoldTypeface != null) {
+                mAdapter.setBoldTypeface(mBoldTypeface);
+            }
+            setAdapter(new MonthPagerAdapter(mAdapter));
+        } else {
+            // notifies the pager adapter, which binds the months again
+            mAdapter.setSelectedDay(mSelectedDay);
+        }
+    }
+
+    public MonthAdapter createMonthAdapter(Context context, CalendarDatePickerController controller) {
+        return new SimpleMonthAdapter(context, controller);
+    }
+
+    @Override
+    public void setRegularTypeface(Typeface regularTypeface) {
+        if (regularTypeface != null) {
+            mRegularTypeface = regularTypeface;
+            // applied by refreshAdapter() once the adapter exists
+            if (mAdapter != null) {
+                mAdapter.setRegularTypeface(regularTypeface);
+            }
+        }
+    }
+
+    @Override
+    public void setBoldTypeface(Typeface boldTypeface) {
+        if (boldTypeface != null) {
+            mBoldTypeface = boldTypeface;
+            // applied by refreshAdapter() once the adapter exists
+            if (mAdapter != null) {
+                mAdapter.setBoldTypeface(boldTypeface);
+            }
+        }
+    }
+
+    @Override
+    public void setTheme(TypedArray themeColors) {
+        if (mAdapter != null) {
+            mAdapter.setThemeDark(themeColors);
+        }
+    }
+
+    /**
+     * Moves to the month of {@code day}, see {@link DayPickerView#goTo(CalendarDay, boolean, boolean, boolean)}.
+     *
+     * @return Whether or not the view animated to the new location
+     */
+    public boolean goTo(CalendarDay day, boolean animate, boolean setSelected, boolean forceScroll) {
+        if (setSelected) {
+            mSelectedDay.set(day);
+            mAdapter.setSelectedDay(mSelectedDay);
+        }
+
+        final int position = (day.getYear() - mController.getMinDate().getYear()) * MonthAdapter.MONTHS_IN_YEAR
+                + (day.getMonth() - mController.getMinDate().getMonth());
+        int visiblePosition = mLayoutManager.findFirstCompletelyVisibleItemPosition();
+        if (visiblePosition == NO_POSITION) {
+            visiblePosition = mLayoutManager.findFirstVisibleItemPosition();
+        }
+        if (position != visiblePosition || forceScroll) {
+            if (animate) {
+                smoothScrollToPosition(position);
+                return true;
+            }
+            postSetSelection(position);
+        }
+        return false;
+    }
+
+    @Override
+    public void postSetSelection(int position) {
+        stopScroll();
+        // applied on the next layout pass
+        mLayoutManager.scrollToPositionWithOffset(position, 0);
+        schedulePrefetch();
+    }
+
+    @Override
+    public int getMostVisiblePosition() {
+        final int height = getHeight();
+        int maxDisplayedHeight = 0;
+        int mostVisiblePosition = 0;
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            int displayedHeight = Math.min(child.getBottom(), height) - Math.max(0, child.getTop());
+            if (displayedHeight > maxDisplayedHeight) {
+                int position = getChildAdapterPosition(child);
+                if (position != NO_POSITION) {
+                    mostVisiblePosition = position;
+                    maxDisplayedHeight = displayedHeight;
+                }
+            }
+        }
+        return mostVisiblePosition;
+    }
+
+    @Override
+    public void onDateChanged() {
+        goTo(mController.getSelectedDay(), false, true, true);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        schedulePrefetch();
+    }
+
+    /**
+     * Scrolls the first visible month to the top if it shows most, or else off the top, like {@link DayPickerView}
+     * does when a scroll ends.
+     *
+     * @return Whether a scroll was started.
+     */
+    private boolean snapToMonth() {
+        if (mSnapping) {
+            mSnapping = false;
+            return false;
+        }
+        View child = null;
+        for (int i = 0; i < getChildCount(); i++) {
+            // months laid out ahead above the top are skipped
+            child = getChildAt(i);
+            if (child.getBottom() > 0) {
+                break;
+            }
+        }
+        if (child == null || child.getTop() >= 0 || child.getBottom() <= 0) {
+            return false;
+        }
+        if (child.getBottom() > getHeight() / 2) {
+            mSnapping = true;
+            smoothScrollBy(0, child.getTop());
+        } else if (ViewCompat.canScrollVertically(this, 1)) {
+            mSnapping = true;
+            smoothScrollBy(0, child.getBottom());
+        }
+        return mSnapping;
+    }
+
+    /**
+     * Lays the months out again with a month more in the direction of the last scroll, once the main thread has
+     * nothing else to do.
+     */
+    private void schedulePrefetch() {
+        if (!mPrefetchQueued) {
+            mPrefetchQueued = true;
+            Looper.myQueue().addIdleHandler(mPrefetchHandler);
+        }
+    }
+
+    private final MessageQueue.IdleHandler mPrefetchHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            mPrefetchQueued = false;
+            if (getScrollState() == SCROLL_STATE_IDLE && getWindowToken() != null) {
+                mPrefetch = true;
+                requestLayout();
+            }
+            // once
+            return false;
+        }
+    };
+
+    private class MonthLayoutManager extends LinearLayoutManager {
+
+        MonthLayoutManager(Context context) {
+            super(context, VERTICAL, false);
+        }
+
+        @Override
+        protected int getExtraLayoutSpace(State state) {
+            int extra = super.getExtraLayoutSpace(state);
+            // a month is never taller than the list
+            return mPrefetch ? Math.max(extra, getHeight()) : extra;
+        }
+
+        /**
+         * Scrolls until the month is at the top, as {@link DayPickerView} does.
+         */
+        @Override
+        public void smoothScrollToPosition(RecyclerView recyclerView, State state, int position) {
+            LinearSmoothScroller scroller = new LinearSmoothScroller(recyclerView.getContext()) {
+                @Override
+                public PointF computeScrollVectorForPosition(int targetPosition) {
+                    return MonthLayoutManager.this.computeScrollVectorForPosition(targetPosition);
+                }
+
+                @Override
+                protected int getVerticalSnapPreference() {
+                    return SNAP_TO_START;
+                }
+            };
+            scroller.setTargetPosition(position);
+            startSmoothScroll(scroller);
+        }
+    }
+
+    /**
+     * Shows the months of a {@link MonthAdapter} in a RecyclerView, with the views and binding of that adapter.
+     */
+    private static class MonthPagerAdapter extends Adapter<MonthViewHolder> {
+
+        private final MonthAdapter mMonthAdapter;
+
+        MonthPagerAdapter(MonthAdapter monthAdapter) {
+            mMonthAdapter = monthAdapter;
+            setHasStableIds(true);
+            monthAdapter.registerDataSetObserver(new DataSetObserver() {
+                @Override
+                public void onChanged() {
+                    notifyDataSetChanged();
+                }
+
+                @Override
+                public void onInvalidated() {
+                    notifyDataSetChanged();
+                }
+            });
+        }
+
+        @Override
+        public MonthViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new MonthViewHolder(mMonthAdapter.newMonthView(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT)));
+        }
+
+        @Override
+        public void onBindViewHolder(MonthViewHolder holder, int position) {
+            mMonthAdapter.bindMonthView(holder.mMonthView, position);
+        }
+
+        @Override
+        public int getItemCount() {
+            return mMonthAdapter.getCount();
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mMonthAdapter.getMonthIndex(position);
+        }
+    }
+
+    private static class MonthViewHolder extends ViewHolder {
+
+        final MonthView mMonthView;
+
+        MonthViewHolder(MonthView monthView) {
+            super(monthView);
+            mMonthView = monthView;
+        }
+    }
+}
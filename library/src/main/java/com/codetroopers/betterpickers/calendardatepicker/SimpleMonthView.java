@@ -18,16 +18,19 @@ package com.codetroopers.betterpickers.calendardatepicker;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Paint.Align;
 import android.graphics.Typeface;
 
-import com.codetroopers.betterpickers.Utils;
-
 /**
  * A calendar-like view displaying a specified month and the appropriate selectable day numbers within the specified
  * month.
  */
 public class SimpleMonthView extends MonthView {
 
+    // Day numbers of the bound month's locale, and their widths with mMonthNumPaint
+    private String[] mDayNumbers;
+    private final float[] mDayNumberWidths = new float[32];
+
     public SimpleMonthView(Context context) {
         super(context);
     }
@@ -36,32 +39,65 @@ public class SimpleMonthView extends MonthView {
         super(context, regularTypeface, boldTypeface);
     }
 
+    @Override
+    protected void initView() {
+        super.initView();
+        // Day numbers are centered with their measured widths, see drawDayNumber()
+        mMonthNumPaint.setTextAlign(Align.LEFT);
+        mDayNumbers = null;
+    }
+
+    /**
+     * Today is drawn with the other days, and the selection circle and the selected days by {@link
+     * #drawMonthDayOverlay}.
+     */
+    @Override
+    protected boolean hasSelectionOverlay() {
+        return true;
+    }
+
     @Override
     public void drawMonthDay(Canvas canvas, int year, int month, int day,
             int x, int y, int startX, int stopX, int startY, int stopY, boolean isEnabled) {
 
-        boolean isSelected = (mSelectedDay == day);
-
-        if (isSelected) {
-            canvas.drawCircle(x, y - (MINI_DAY_NUMBER_TEXT_SIZE / 3), DAY_SELECTED_CIRCLE_SIZE,
-                    mSelectedCirclePaint);
+        // The overlay draws the selected days over their circles
+        if (isDayInOverlay(day)) {
+            return;
         }
-        int disabledDayKey = Utils.formatDisabledDayForKey(year, month, day);
+
         // If this day is disabled, color the background
-        if (mDisabledDays != null
-                && mDisabledDays.indexOfKey(disabledDayKey) > 0) {
+        if (isDayDisabled(day)) {
             canvas.drawRect(startX, startY, stopX, stopY, mDisabledDaySquarePaint);
         }
-
-        if (isSelected) {
-            mMonthNumPaint.setColor(mSelectedTextColor);
-        } else if (mHighlightToday && mHasToday && mToday == day) {
+        if (isDayToday(day)) {
             mMonthNumPaint.setColor(mTodayNumberColor);
-        } else if (isEnabled) {
-            mMonthNumPaint.setColor(mDayTextColorEnabled);
         } else {
-            mMonthNumPaint.setColor(mDayTextColorDisabled);
+            mMonthNumPaint.setColor(isEnabled ? mDayTextColorEnabled : mDayTextColorDisabled);
+        }
+        drawDayNumber(canvas, day, x, y);
+    }
+
+    @Override
+    protected void drawMonthDayOverlay(Canvas canvas, int year, int month, int day, int x, int y, int startX,
+            int stopX, int startY, int stopY, boolean isEnabled) {
+        // the cell is empty: a selected disabled day gets its square back
+        if (isDayDisabled(day)) {
+            canvas.drawRect(startX, startY, stopX, stopY, mDisabledDaySquarePaint);
+        }
+        canvas.drawCircle(x, y - (MINI_DAY_NUMBER_TEXT_SIZE / 3), DAY_SELECTED_CIRCLE_SIZE, mSelectedCirclePaint);
+        mMonthNumPaint.setColor(mSelectedTextColor);
+        drawDayNumber(canvas, day, x, y);
+    }
+
+    private void drawDayNumber(Canvas canvas, int day, int x, int y) {
+        String[] dayNumbers = mLabels.getDayNumbers();
+        if (dayNumbers != mDayNumbers) {
+            // First draw with this paint or locale: the widths don't depend on the color
+            for (int i = 1; i < dayNumbers.length; i++) {
+                mDayNumberWidths[i] = mMonthNumPaint.measureText(dayNumbers[i]);
+            }
+            mDayNumbers = dayNumbers;
         }
-        canvas.drawText(String.format("%d", day), x, y, mMonthNumPaint);
+        canvas.drawText(dayNumbers[day], x - mDayNumberWidths[day] / 2, y, mMonthNumPaint);
     }
 }
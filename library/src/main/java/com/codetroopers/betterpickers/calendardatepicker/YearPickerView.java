@@ -94,7 +94,7 @@ public class YearPickerView extends ListView implements OnItemClickListener, OnD
 
     private void init(Context context) {
         ArrayList<String> years = new ArrayList<String>();
-        for (int year = mController.getMinDate().year; year <= mController.getMaxDate().year; year++) {
+        for (int year = mController.getMinDate().getYear(); year <= mController.getMaxDate().getYear(); year++) {
             years.add(String.format("%d", year));
         }
         mAdapter = new YearAdapter(context, R.layout.calendar_year_label_text_view, years);
@@ -147,7 +147,7 @@ public class YearPickerView extends ListView implements OnItemClickListener, OnD
             v.setCircleAlpha(mSelectionAlpha);
             v.setSelectedTextColor(mSelectedTextColor);
             v.setTypeface(mTypeface);
-            boolean selected = mController.getSelectedDay().year == year;
+            boolean selected = mController.getSelectedDay().getYear() == year;
             v.drawIndicator(selected);
             if (selected) {
                 mSelectedView = v;
@@ -182,7 +182,7 @@ public class YearPickerView extends ListView implements OnItemClickListener, OnD
     @Override
     public void onDateChanged() {
         mAdapter.notifyDataSetChanged();
-        postSetSelectionCentered(mController.getSelectedDay().year - mController.getMinDate().year);
+        postSetSelectionCentered(mController.getSelectedDay().getYear() - mController.getMinDate().getYear());
     }
 
     @Override
@@ -19,10 +19,9 @@ package com.codetroopers.betterpickers.recurrencepicker;
 import android.text.TextUtils;
 import android.text.format.Time;
 import android.util.Log;
-import android.util.TimeFormatException;
 
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.HashMap;
 
 /**
  * Event recurrence utility functions.
@@ -76,28 +75,9 @@ public class EventRecurrence {
     public int[] bysetpos;
     public int bysetposCount;
 
-    /**
-     * maps a part string to a parser object
-     */
-    private static HashMap<String, PartParser> sParsePartMap;
-
-    static {
-        sParsePartMap = new HashMap<String, PartParser>();
-        sParsePartMap.put("FREQ", new ParseFreq());
-        sParsePartMap.put("UNTIL", new ParseUntil());
-        sParsePartMap.put("COUNT", new ParseCount());
-        sParsePartMap.put("INTERVAL", new ParseInterval());
-        sParsePartMap.put("BYSECOND", new ParseBySecond());
-        sParsePartMap.put("BYMINUTE", new ParseByMinute());
-        sParsePartMap.put("BYHOUR", new ParseByHour());
-        sParsePartMap.put("BYDAY", new ParseByDay());
-        sParsePartMap.put("BYMONTHDAY", new ParseByMonthDay());
-        sParsePartMap.put("BYYEARDAY", new ParseByYearDay());
-        sParsePartMap.put("BYWEEKNO", new ParseByWeekNo());
-        sParsePartMap.put("BYMONTH", new ParseByMonth());
-        sParsePartMap.put("BYSETPOS", new ParseBySetPos());
-        sParsePartMap.put("WKST", new ParseWkst());
-    }
+    // The expander of the rule and a copy of the rule it was built from, see getExpander()
+    private RecurrenceExpander mExpander;
+    private EventRecurrence mExpandedRule;
 
     /* values for bit vector that keeps track of what we have already seen */
     private static final int PARSED_FREQ = 1 << 0;
@@ -115,65 +95,119 @@ public class EventRecurrence {
     private static final int PARSED_BYSETPOS = 1 << 12;
     private static final int PARSED_WKST = 1 << 13;
 
+
     /**
-     * maps a FREQ value to an integer constant
+     * Thrown when a recurrence string provided can not be parsed according to RFC2445.
      */
-    private static final HashMap<String, Integer> sParseFreqMap = new HashMap<String, Integer>();
+    public static class InvalidFormatException extends RuntimeException {
 
-    static {
-        sParseFreqMap.put("SECONDLY", SECONDLY);
-        sParseFreqMap.put("MINUTELY", MINUTELY);
-        sParseFreqMap.put("HOURLY", HOURLY);
-        sParseFreqMap.put("DAILY", DAILY);
-        sParseFreqMap.put("WEEKLY", WEEKLY);
-        sParseFreqMap.put("MONTHLY", MONTHLY);
-        sParseFreqMap.put("YEARLY", YEARLY);
+        InvalidFormatException(String s) {
+            super(s);
+        }
     }
 
-    /**
-     * maps a two-character weekday string to an integer constant
-     */
-    private static final HashMap<String, Integer> sParseWeekdayMap = new HashMap<String, Integer>();
 
-    static {
-        sParseWeekdayMap.put("SU", SU);
-        sParseWeekdayMap.put("MO", MO);
-        sParseWeekdayMap.put("TU", TU);
-        sParseWeekdayMap.put("WE", WE);
-        sParseWeekdayMap.put("TH", TH);
-        sParseWeekdayMap.put("FR", FR);
-        sParseWeekdayMap.put("SA", SA);
+    public void setStartDate(Time date) {
+        startDate = date;
+        mExpander = null;
     }
 
     /**
-     * If set, allow lower-case recurrence rule strings.  Minor performance impact.
+     * The occurrence queries below share an expander built on first use, and kept as long as the rule and its start
+     * date are unchanged, so a query after the first one doesn't build the expander's tables again.  The public fields
+     * can be changed directly, so each query compares the rule with a copy taken when the expander was built. <p> Like
+     * the rest of this class the queries are not thread-safe: code expanding many rules, or one rule from several
+     * threads, should keep its own {@link RecurrenceExpander} per rule and thread.
+     *
+     * @throws IllegalArgumentException if the start date is not set, or UNTIL can't be read.
+     * @throws UnsupportedOperationException if the rule is not supported by {@link RecurrenceExpander}.
      */
-    private static final boolean ALLOW_LOWER_CASE = true;
+    RecurrenceExpander getExpander() {
+        if (mExpander == null || !isExpandedRule()) {
+            mExpander = null;
+            RecurrenceExpander expander = new RecurrenceExpander(this);
+            if (mExpandedRule == null) {
+                mExpandedRule = new EventRecurrence();
+            }
+            copyRuleTo(mExpandedRule);
+            mExpander = expander;
+        }
+        return mExpander;
+    }
+
+    private boolean isExpandedRule() {
+        EventRecurrence rule = mExpandedRule;
+        // Time.compare() in equals() compares instants, the zone and all day flag change the occurrences too
+        return startDate != null && rule.startDate != null && startDate.allDay == rule.startDate.allDay
+                && TextUtils.equals(startDate.timezone, rule.startDate.timezone) && rule.equals(this);
+    }
+
+    private void copyRuleTo(EventRecurrence er) {
+        er.startDate = startDate != null ? new Time(startDate) : null;
+        er.freq = freq;
+        er.until = until;
+        er.count = count;
+        er.interval = interval;
+        er.wkst = wkst;
+        er.bysecond = copyOf(bysecond, bysecondCount);
+        er.bysecondCount = bysecondCount;
+        er.byminute = copyOf(byminute, byminuteCount);
+        er.byminuteCount = byminuteCount;
+        er.byhour = copyOf(byhour, byhourCount);
+        er.byhourCount = byhourCount;
+        er.byday = copyOf(byday, bydayCount);
+        er.bydayNum = copyOf(bydayNum, bydayCount);
+        er.bydayCount = bydayCount;
+        er.bymonthday = copyOf(bymonthday, bymonthdayCount);
+        er.bymonthdayCount = bymonthdayCount;
+        er.byyearday = copyOf(byyearday, byyeardayCount);
+        er.byyeardayCount = byyeardayCount;
+        er.byweekno = copyOf(byweekno, byweeknoCount);
+        er.byweeknoCount = byweeknoCount;
+        er.bymonth = copyOf(bymonth, bymonthCount);
+        er.bymonthCount = bymonthCount;
+        er.bysetpos = copyOf(bysetpos, bysetposCount);
+        er.bysetposCount = bysetposCount;
+    }
+
+    private static int[] copyOf(int[] values, int count) {
+        return count > 0 ? Arrays.copyOf(values, count) : null;
+    }
 
     /**
-     * If set, validate the value of UNTIL parts.  Minor performance impact.
+     * @return The first occurrence of this rule strictly after {@code instant}, or {@link
+     * RecurrenceExpander#NO_OCCURRENCE}.  The start date must be set.
+     * @throws UnsupportedOperationException if the rule is not supported by {@link RecurrenceExpander}.
      */
-    private static final boolean VALIDATE_UNTIL = false;
+    public long nextAfter(long instant) {
+        return getExpander().nextAfter(instant);
+    }
 
     /**
-     * If set, require that only one of {UNTIL,COUNT} is present.  Breaks compat w/ old parser.
+     * @return The last occurrence of this rule strictly before {@code instant}, or {@link
+     * RecurrenceExpander#NO_OCCURRENCE}.  The start date must be set.
+     * @throws UnsupportedOperationException if the rule is not supported by {@link RecurrenceExpander}.
      */
-    private static final boolean ONLY_ONE_UNTIL_COUNT = false;
-
+    public long previousBefore(long instant) {
+        return getExpander().previousBefore(instant);
+    }
 
     /**
-     * Thrown when a recurrence string provided can not be parsed according to RFC2445.
+     * @return The number of occurrences of this rule strictly before {@code instant}, bounded by COUNT and UNTIL.  The
+     * start date must be set.
+     * @throws UnsupportedOperationException if the rule is not supported by {@link RecurrenceExpander}.
      */
-    public static class InvalidFormatException extends RuntimeException {
-
-        InvalidFormatException(String s) {
-            super(s);
-        }
+    public long countBefore(long instant) {
+        return getExpander().countBefore(instant);
     }
 
-
-    public void setStartDate(Time date) {
-        startDate = date;
+    /**
+     * @return The last occurrence of this rule when it ends by COUNT or UNTIL, or {@link
+     * RecurrenceExpander#NO_OCCURRENCE}.  The start date must be set.
+     * @throws UnsupportedOperationException if the rule is not supported by {@link RecurrenceExpander}.
+     */
+    public long getLastOccurrence() {
+        return getExpander().getLastOccurrence();
     }
 
     /**
@@ -321,7 +355,14 @@ public class EventRecurrence {
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder();
+        appendTo(s);
+        return s.toString();
+    }
 
+    /**
+     * Appends the rule as returned by {@link #toString()}, e.g. to write many rules through one reused builder.
+     */
+    public void appendTo(StringBuilder s) {
         s.append("FREQ=");
         switch (this.freq) {
             case SECONDLY:
@@ -388,8 +429,6 @@ public class EventRecurrence {
         appendNumbers(s, ";BYWEEKNO=", this.byweeknoCount, this.byweekno);
         appendNumbers(s, ";BYMONTH=", this.bymonthCount, this.bymonth);
         appendNumbers(s, ";BYSETPOS=", this.bysetposCount, this.bysetpos);
-
-        return s.toString();
     }
 
     public boolean repeatsOnEveryWeekDay() {
@@ -487,10 +526,33 @@ public class EventRecurrence {
                 arraysEqual(bysetpos, bysetposCount, er.bysetpos, er.bysetposCount);
     }
 
+    private static int arrayHashCode(int[] array, int count) {
+        int result = count;
+        for (int i = 0; i < count; i++) {
+            result = 31 * result + array[i];
+        }
+        return result;
+    }
+
     @Override
     public int hashCode() {
-        // We overrode equals, so we must override hashCode().  Nobody seems to need this though.
-        throw new UnsupportedOperationException();
+        // startDate is left out: Time has no hashCode() matching Time.compare(), used by equals().
+        int result = freq;
+        result = 31 * result + (until != null ? until.hashCode() : 0);
+        result = 31 * result + count;
+        result = 31 * result + interval;
+        result = 31 * result + wkst;
+        result = 31 * result + arrayHashCode(bysecond, bysecondCount);
+        result = 31 * result + arrayHashCode(byminute, byminuteCount);
+        result = 31 * result + arrayHashCode(byhour, byhourCount);
+        result = 31 * result + arrayHashCode(byday, bydayCount);
+        result = 31 * result + arrayHashCode(bydayNum, bydayCount);
+        result = 31 * result + arrayHashCode(bymonthday, bymonthdayCount);
+        result = 31 * result + arrayHashCode(byyearday, byyeardayCount);
+        result = 31 * result + arrayHashCode(byweekno, byweeknoCount);
+        result = 31 * result + arrayHashCode(bymonth, bymonthCount);
+        result = 31 * result + arrayHashCode(bysetpos, bysetposCount);
+        return result;
     }
 
     /**
@@ -501,6 +563,7 @@ public class EventRecurrence {
      * ignored or overwritten.  The "startDate" field is not set by the parser, so we ignore it here.
      */
     private void resetFields() {
+        mExpander = null;
         until = null;
         freq = count = interval = bysecondCount = byminuteCount = byhourCount =
                 bydayCount = bymonthdayCount = byyeardayCount = byweeknoCount = bymonthCount =
@@ -514,456 +577,680 @@ public class EventRecurrence {
      * @param recur The recurrence rule to parse (in un-folded form).
      */
     public void parse(String recur) {
-        /*
-         * From RFC 2445 section 4.3.10:
-         *
-         * recur = "FREQ"=freq *(
-         *       ; either UNTIL or COUNT may appear in a 'recur',
-         *       ; but UNTIL and COUNT MUST NOT occur in the same 'recur'
-         *
-         *       ( ";" "UNTIL" "=" enddate ) /
-         *       ( ";" "COUNT" "=" 1*DIGIT ) /
-         *
-         *       ; the rest of these keywords are optional,
-         *       ; but MUST NOT occur more than once
-         *
-         *       ( ";" "INTERVAL" "=" 1*DIGIT )          /
-         *       ( ";" "BYSECOND" "=" byseclist )        /
-         *       ( ";" "BYMINUTE" "=" byminlist )        /
-         *       ( ";" "BYHOUR" "=" byhrlist )           /
-         *       ( ";" "BYDAY" "=" bywdaylist )          /
-         *       ( ";" "BYMONTHDAY" "=" bymodaylist )    /
-         *       ( ";" "BYYEARDAY" "=" byyrdaylist )     /
-         *       ( ";" "BYWEEKNO" "=" bywknolist )       /
-         *       ( ";" "BYMONTH" "=" bymolist )          /
-         *       ( ";" "BYSETPOS" "=" bysplist )         /
-         *       ( ";" "WKST" "=" weekday )              /
-         *       ( ";" x-name "=" text )
-         *       )
-         *
-         *  The rule parts are not ordered in any particular sequence.
-         *
-         * Examples:
-         *   FREQ=MONTHLY;INTERVAL=2;COUNT=10;BYDAY=1SU,-1SU
-         *   FREQ=YEARLY;INTERVAL=4;BYMONTH=11;BYDAY=TU;BYMONTHDAY=2,3,4,5,6,7,8
-         *
-         * Strategy:
-         * (1) Split the string at ';' boundaries to get an array of rule "parts".
-         * (2) For each part, find substrings for left/right sides of '=' (name/value).
-         * (3) Call a <name>-specific parsing function to parse the <value> into an
-         *     output field.
-         *
-         * By keeping track of which names we've seen in a bit vector, we can verify the
-         * constraints indicated above (FREQ appears first, none of them appear more than once --
-         * though x-[name] would require special treatment), and we have either UNTIL or COUNT
-         * but not both.
-         *
-         * In general, RFC 2445 property names (e.g. "FREQ") and enumerations ("TU") must
-         * be handled in a case-insensitive fashion, but case may be significant for other
-         * properties.  We don't have any case-sensitive values in RRULE, except possibly
-         * for the custom "X-" properties, but we ignore those anyway.  Thus, we can trivially
-         * convert the entire string to upper case and then use simple comparisons.
-         *
-         * Differences from previous version:
-         * - allows lower-case property and enumeration values [optional]
-         * - enforces that FREQ appears first
-         * - enforces that only one of UNTIL and COUNT may be specified
-         * - allows (but ignores) X-* parts
-         * - improved validation on various values (e.g. UNTIL timestamps)
-         * - error messages are more specific
-         *
-         * TODO: enforce additional constraints listed in RFC 5545, notably the "N/A" entries
-         * in section 3.3.10.  For example, if FREQ=WEEKLY, we should reject a rule that
-         * includes a BYMONTHDAY part.
-         */
-
-        /* TODO: replace with "if (freq != 0) throw" if nothing requires this */
-        resetFields();
+        parse(recur, 0, recur.length());
+    }
 
-        int parseFlags = 0;
-        String[] parts;
-        if (ALLOW_LOWER_CASE) {
-            parts = recur.toUpperCase().split(";");
-        } else {
-            parts = recur.split(";");
+    /**
+     * Parses an rfc2445 recurrence rule into its component pieces.  Attempting to parse malformed input will result
+     * in an EventRecurrence.InvalidFormatException.
+     *
+     * @param recur The recurrence rule to parse (in un-folded form).
+     */
+    public void parse(CharSequence recur) {
+        parse(recur, 0, recur.length());
+    }
+
+    /**
+     * Parses the rfc2445 recurrence rule found between {@code start} and {@code end} of {@code recur}. <p> This is a
+     * single pass over the characters: no upper-cased copy, no split() and no substrings are created (except for the
+     * UNTIL value, which is kept as a String and reused when unchanged).  Rule part names are dispatched with a switch
+     * and the BYxxx lists are written into this instance's arrays when they are large enough. <p> The result is the
+     * same as the split-based parser, except that an empty entry in a number list (e.g. "BYMONTH=1,,2") is reported
+     * as an InvalidFormatException instead of escaping as a StringIndexOutOfBoundsException.
+     *
+     * @param recur The recurrence rule to parse (in un-folded form).
+     * @param start Index of the first character of the rule.
+     * @param end Index after the last character of the rule.
+     */
+    public void parse(CharSequence recur, int start, int end) {
+        int result = scan(this, recur, start, end);
+        if (result != VALID) {
+            throw new InvalidFormatException(describeValidation(result, recur, start, end));
         }
-        for (String part : parts) {
+    }
+
+    /*
+     * Status codes reported by validate().  The result packs the status with the index of the offending rule part or
+     * value as (index << 8) | status; see getValidationStatus() and getValidationIndex().
+     */
+    public static final int VALID = 0;
+    public static final int INVALID_MISSING_LHS = 1;
+    public static final int INVALID_MISSING_RHS = 2;
+    public static final int INVALID_UNKNOWN_PART = 3;
+    public static final int INVALID_DUPLICATE_PART = 4;
+    public static final int INVALID_INTEGER = 5;
+    public static final int INVALID_INTEGER_RANGE = 6;
+    public static final int INVALID_FREQ = 7;
+    public static final int INVALID_WEEKDAY = 8;
+    public static final int INVALID_MISSING_FREQ = 9;
+
+    /**
+     * Checks whether a recurrence rule would be accepted by {@link #parse(CharSequence)}, without throwing and without
+     * allocating.  Nothing is stored and nothing is logged.
+     *
+     * @param recur The recurrence rule to check (in un-folded form).
+     * @return {@link #VALID}, or an INVALID_* status packed with the index where the error was found.
+     */
+    public static int validate(CharSequence recur) {
+        return scan(null, recur, 0, recur.length());
+    }
+
+    /**
+     * Same as {@link #validate(CharSequence)} for the rule found between {@code start} and {@code end}.  The reported
+     * index is relative to {@code start}.
+     */
+    public static int validate(CharSequence recur, int start, int end) {
+        return scan(null, recur, start, end);
+    }
+
+    /**
+     * @param result A value returned by validate().
+     * @return {@link #VALID} or one of the INVALID_* status codes.
+     */
+    public static int getValidationStatus(int result) {
+        return result & 0xff;
+    }
+
+    /**
+     * @param result A value returned by validate().
+     * @return The index in the rule of the part or value that failed, or 0 if the rule is valid.
+     */
+    public static int getValidationIndex(int result) {
+        return result >>> 8;
+    }
+
+    private static int invalid(int status, int index) {
+        return (index << 8) | status;
+    }
+
+    private static String describeValidation(int result, CharSequence recur, int start, int end) {
+        String reason;
+        switch (getValidationStatus(result)) {
+            case INVALID_MISSING_LHS:
+                reason = "Missing LHS";
+                break;
+            case INVALID_MISSING_RHS:
+                reason = "Missing RHS";
+                break;
+            case INVALID_UNKNOWN_PART:
+                reason = "Couldn't find parser";
+                break;
+            case INVALID_DUPLICATE_PART:
+                reason = "Part was specified twice";
+                break;
+            case INVALID_INTEGER:
+                reason = "Invalid integer value";
+                break;
+            case INVALID_INTEGER_RANGE:
+                reason = "Integer value out of range";
+                break;
+            case INVALID_FREQ:
+                reason = "Invalid FREQ value";
+                break;
+            case INVALID_WEEKDAY:
+                reason = "Invalid weekday value";
+                break;
+            case INVALID_MISSING_FREQ:
+                reason = "Must specify a FREQ value";
+                break;
+            default:
+                reason = "Invalid rule";
+                break;
+        }
+        return reason + " at index " + getValidationIndex(result) + " in " + recur.subSequence(start, end);
+    }
+
+    /**
+     * Single-pass parser behind {@link #parse(CharSequence, int, int)} and {@link #validate(CharSequence)}.
+     *
+     * @param out The instance receiving the parsed rule, or null to only validate.
+     * @return VALID, or an INVALID_* status packed with the index (relative to start) where it was found.
+     */
+    private static int scan(EventRecurrence out, CharSequence s, int start, int end) {
+        String previousUntil = null;
+        if (out != null) {
+            previousUntil = out.until;
+            out.resetFields();
+        }
+
+        int parseFlags = 0;
+        int partStart = start;
+        while (partStart < end) {
+            int partEnd = indexOf(s, ';', partStart, end);
             // allow empty part (e.g., double semicolon ";;")
-            if (TextUtils.isEmpty(part)) {
+            if (partEnd == partStart) {
+                partStart = partEnd + 1;
                 continue;
             }
-            int equalIndex = part.indexOf('=');
-            if (equalIndex <= 0) {
+
+            int equalIndex = indexOf(s, '=', partStart, partEnd);
+            if (equalIndex == partEnd || equalIndex == partStart) {
                 /* no '=' or no LHS */
-                throw new InvalidFormatException("Missing LHS in " + part);
+                return invalid(INVALID_MISSING_LHS, partStart - start);
             }
-
-            String lhs = part.substring(0, equalIndex);
-            String rhs = part.substring(equalIndex + 1);
-            if (rhs.length() == 0) {
-                throw new InvalidFormatException("Missing RHS in " + part);
+            int valueStart = equalIndex + 1;
+            if (valueStart == partEnd) {
+                return invalid(INVALID_MISSING_RHS, partStart - start);
             }
 
-            /*
-             * In lieu of a "switch" statement that allows string arguments, we use a
-             * map from strings to parsing functions.
-             */
-            PartParser parser = sParsePartMap.get(lhs);
-            if (parser == null) {
-                if (lhs.startsWith("X-")) {
-                    //Log.d(TAG, "Ignoring custom part " + lhs);
+            int flag = scanPartName(s, partStart, equalIndex);
+            if (flag == 0) {
+                if (equalIndex - partStart >= 2 && Character.toUpperCase(s.charAt(partStart)) == 'X'
+                        && s.charAt(partStart + 1) == '-') {
+                    partStart = partEnd + 1;
                     continue;
                 }
-                throw new InvalidFormatException("Couldn't find parser for " + lhs);
-            } else {
-                int flag = parser.parsePart(rhs, this);
-                if ((parseFlags & flag) != 0) {
-                    throw new InvalidFormatException("Part " + lhs + " was specified twice");
-                }
-                parseFlags |= flag;
+                return invalid(INVALID_UNKNOWN_PART, partStart - start);
+            }
+
+            int result = scanPartValue(out, flag, s, valueStart, partEnd, previousUntil);
+            if (result != VALID) {
+                return invalid(getValidationStatus(result), getValidationIndex(result) - start);
             }
+            if ((parseFlags & flag) != 0) {
+                return invalid(INVALID_DUPLICATE_PART, partStart - start);
+            }
+            parseFlags |= flag;
+            partStart = partEnd + 1;
         }
 
         // If not specified, week starts on Monday.
-        if ((parseFlags & PARSED_WKST) == 0) {
-            wkst = MO;
+        if (out != null && (parseFlags & PARSED_WKST) == 0) {
+            out.wkst = MO;
         }
 
         // FREQ is mandatory.
         if ((parseFlags & PARSED_FREQ) == 0) {
-            throw new InvalidFormatException("Must specify a FREQ value");
+            return invalid(INVALID_MISSING_FREQ, 0);
         }
 
         // Can't have both UNTIL and COUNT.
-        if ((parseFlags & (PARSED_UNTIL | PARSED_COUNT)) == (PARSED_UNTIL | PARSED_COUNT)) {
-            if (ONLY_ONE_UNTIL_COUNT) {
-                throw new InvalidFormatException("Must not specify both UNTIL and COUNT: " + recur);
-            } else {
-                Log.w(TAG, "Warning: rrule has both UNTIL and COUNT: " + recur);
-            }
+        if (out != null && (parseFlags & (PARSED_UNTIL | PARSED_COUNT)) == (PARSED_UNTIL | PARSED_COUNT)) {
+            Log.w(TAG, "Warning: rrule has both UNTIL and COUNT: " + s.subSequence(start, end));
         }
+        return VALID;
     }
 
-    /**
-     * Base class for the RRULE part parsers.
-     */
-    abstract static class PartParser {
-
-        /**
-         * Parses a single part.
-         *
-         * @param value The right-hand-side of the part.
-         * @param er The EventRecurrence into which the result is stored.
-         * @return A bit value indicating which part was parsed.
-         */
-        public abstract int parsePart(String value, EventRecurrence er);
-
-        /**
-         * Parses an integer, with range-checking.
-         *
-         * @param str The string to parse.
-         * @param minVal Minimum allowed value.
-         * @param maxVal Maximum allowed value.
-         * @param allowZero Is 0 allowed?
-         * @return The parsed value.
-         */
-        public static int parseIntRange(String str, int minVal, int maxVal, boolean allowZero) {
-            try {
-                if (str.charAt(0) == '+') {
-                    // Integer.parseInt does not allow a leading '+', so skip it manually.
-                    str = str.substring(1);
-                }
-                int val = Integer.parseInt(str);
-                if (val < minVal || val > maxVal || (val == 0 && !allowZero)) {
-                    throw new InvalidFormatException("Integer value out of range: " + str);
-                }
-                return val;
-            } catch (NumberFormatException nfe) {
-                throw new InvalidFormatException("Invalid integer value: " + str);
+    private static int indexOf(CharSequence s, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
             }
         }
+        return end;
+    }
 
-        /**
-         * Parses a comma-separated list of integers, with range-checking.
-         *
-         * @param listStr The string to parse.
-         * @param minVal Minimum allowed value.
-         * @param maxVal Maximum allowed value.
-         * @param allowZero Is 0 allowed?
-         * @return A new array with values, sized to hold the exact number of elements.
-         */
-        public static int[] parseNumberList(String listStr, int minVal, int maxVal,
-                boolean allowZero) {
-            int[] values;
-
-            if (listStr.indexOf(",") < 0) {
-                // Common case: only one entry, skip split() overhead.
-                values = new int[1];
-                values[0] = parseIntRange(listStr, minVal, maxVal, allowZero);
-            } else {
-                String[] valueStrs = listStr.split(",");
-                int len = valueStrs.length;
-                values = new int[len];
-                for (int i = 0; i < len; i++) {
-                    values[i] = parseIntRange(valueStrs[i], minVal, maxVal, allowZero);
-                }
+    private static boolean regionEquals(CharSequence s, int start, int end, String str) {
+        int length = str.length();
+        if (end - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(start + i) != str.charAt(i)) {
+                return false;
             }
-            return values;
         }
+        return true;
     }
 
     /**
-     * parses FREQ={SECONDLY,MINUTELY,...}
+     * Case-insensitive comparison of s[start, end) against an upper-case keyword.
      */
-    private static class ParseFreq extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            Integer freq = sParseFreqMap.get(value);
-            if (freq == null) {
-                throw new InvalidFormatException("Invalid FREQ value: " + value);
+    private static boolean regionMatches(CharSequence s, int start, int end, String keyword) {
+        int length = keyword.length();
+        if (end - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toUpperCase(s.charAt(start + i)) != keyword.charAt(i)) {
+                return false;
             }
-            er.freq = freq;
-            return PARSED_FREQ;
         }
+        return true;
     }
 
     /**
-     * parses UNTIL=enddate, e.g. "19970829T021400"
+     * Maps a part name to its PARSED_* flag, or 0 if it is not a known part.
      */
-    private static class ParseUntil extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            if (VALIDATE_UNTIL) {
-                try {
-                    // Parse the time to validate it.  The result isn't retained.
-                    Time until = new Time();
-                    until.parse(value);
-                } catch (TimeFormatException tfe) {
-                    throw new InvalidFormatException("Invalid UNTIL value: " + value);
+    private static int scanPartName(CharSequence s, int start, int end) {
+        switch (end - start) {
+            case 4:
+                if (regionMatches(s, start, end, "FREQ")) {
+                    return PARSED_FREQ;
+                } else if (regionMatches(s, start, end, "WKST")) {
+                    return PARSED_WKST;
                 }
-            }
-            er.until = value;
-            return PARSED_UNTIL;
+                break;
+            case 5:
+                if (regionMatches(s, start, end, "BYDAY")) {
+                    return PARSED_BYDAY;
+                } else if (regionMatches(s, start, end, "COUNT")) {
+                    return PARSED_COUNT;
+                } else if (regionMatches(s, start, end, "UNTIL")) {
+                    return PARSED_UNTIL;
+                }
+                break;
+            case 6:
+                if (regionMatches(s, start, end, "BYHOUR")) {
+                    return PARSED_BYHOUR;
+                }
+                break;
+            case 7:
+                if (regionMatches(s, start, end, "BYMONTH")) {
+                    return PARSED_BYMONTH;
+                }
+                break;
+            case 8:
+                switch (Character.toUpperCase(s.charAt(start + 2))) {
+                    case 'T':
+                        return regionMatches(s, start, end, "INTERVAL") ? PARSED_INTERVAL : 0;
+                    case 'S':
+                        if (regionMatches(s, start, end, "BYSECOND")) {
+                            return PARSED_BYSECOND;
+                        }
+                        return regionMatches(s, start, end, "BYSETPOS") ? PARSED_BYSETPOS : 0;
+                    case 'M':
+                        return regionMatches(s, start, end, "BYMINUTE") ? PARSED_BYMINUTE : 0;
+                    case 'W':
+                        return regionMatches(s, start, end, "BYWEEKNO") ? PARSED_BYWEEKNO : 0;
+                }
+                break;
+            case 9:
+                if (regionMatches(s, start, end, "BYYEARDAY")) {
+                    return PARSED_BYYEARDAY;
+                }
+                break;
+            case 10:
+                if (regionMatches(s, start, end, "BYMONTHDAY")) {
+                    return PARSED_BYMONTHDAY;
+                }
+                break;
         }
+        return 0;
     }
 
     /**
-     * parses COUNT=[non-negative-integer]
+     * Parses the value of a single part into out, or only checks it when out is null.
+     *
+     * @return VALID, or an INVALID_* status packed with the absolute index of the offending value.
      */
-    private static class ParseCount extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            er.count = parseIntRange(value, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
-            if (er.count < 0) {
-                Log.d(TAG, "Invalid Count. Forcing COUNT to 1 from " + value);
-                er.count = 1; // invalid count. assume one time recurrence.
-            }
-            return PARSED_COUNT;
+    private static int scanPartValue(EventRecurrence out, int flag, CharSequence s, int start, int end,
+            String previousUntil) {
+        int value;
+        long longValue;
+        switch (flag) {
+            case PARSED_FREQ:
+                value = scanFreq(s, start, end);
+                if (value == 0) {
+                    return invalid(INVALID_FREQ, start);
+                }
+                if (out != null) {
+                    out.freq = value;
+                }
+                return VALID;
+            case PARSED_UNTIL:
+                if (out != null) {
+                    if (previousUntil != null && regionEquals(s, start, end, previousUntil)) {
+                        out.until = previousUntil;
+                    } else {
+                        out.until = s.subSequence(start, end).toString().toUpperCase();
+                    }
+                }
+                return VALID;
+            case PARSED_COUNT:
+                longValue = scanInt(s, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+                if (longValue < Integer.MIN_VALUE) {
+                    return invalid((int) (longValue & 0xff), start);
+                }
+                if (out != null) {
+                    out.count = (int) longValue;
+                    if (out.count < 0) {
+                        Log.d(TAG, "Invalid Count. Forcing COUNT to 1 from " + s.subSequence(start, end));
+                        out.count = 1; // invalid count. assume one time recurrence.
+                    }
+                }
+                return VALID;
+            case PARSED_INTERVAL:
+                longValue = scanInt(s, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+                if (longValue < Integer.MIN_VALUE) {
+                    return invalid((int) (longValue & 0xff), start);
+                }
+                if (out != null) {
+                    out.interval = (int) longValue;
+                    if (out.interval < 1) {
+                        Log.d(TAG, "Invalid Interval. Forcing INTERVAL to 1 from " + s.subSequence(start, end));
+                        out.interval = 1;
+                    }
+                }
+                return VALID;
+            case PARSED_WKST:
+                value = scanWeekday(s, start, end);
+                if (value == 0) {
+                    return invalid(INVALID_WEEKDAY, start);
+                }
+                if (out != null) {
+                    out.wkst = value;
+                }
+                return VALID;
+            case PARSED_BYDAY:
+                return scanByDay(out, s, start, end);
+            default:
+                return scanNumberList(out, flag, s, start, end);
         }
     }
 
     /**
-     * parses INTERVAL=[non-negative-integer]
+     * Parses one of the FREQ enumerations, returning 0 if it is not recognized.
      */
-    private static class ParseInterval extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            er.interval = parseIntRange(value, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
-            if (er.interval < 1) {
-                Log.d(TAG, "Invalid Interval. Forcing INTERVAL to 1 from " + value);
-                er.interval = 1;
-            }
-            return PARSED_INTERVAL;
+    private static int scanFreq(CharSequence s, int start, int end) {
+        if (start == end) {
+            return 0;
         }
-    }
-
-    /**
-     * parses BYSECOND=byseclist
-     */
-    private static class ParseBySecond extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] bysecond = parseNumberList(value, 0, 59, true);
-            er.bysecond = bysecond;
-            er.bysecondCount = bysecond.length;
-            return PARSED_BYSECOND;
+        switch (Character.toUpperCase(s.charAt(start))) {
+            case 'S':
+                return regionMatches(s, start, end, "SECONDLY") ? SECONDLY : 0;
+            case 'M':
+                if (regionMatches(s, start, end, "MINUTELY")) {
+                    return MINUTELY;
+                }
+                return regionMatches(s, start, end, "MONTHLY") ? MONTHLY : 0;
+            case 'H':
+                return regionMatches(s, start, end, "HOURLY") ? HOURLY : 0;
+            case 'D':
+                return regionMatches(s, start, end, "DAILY") ? DAILY : 0;
+            case 'W':
+                return regionMatches(s, start, end, "WEEKLY") ? WEEKLY : 0;
+            case 'Y':
+                return regionMatches(s, start, end, "YEARLY") ? YEARLY : 0;
         }
+        return 0;
     }
 
     /**
-     * parses BYMINUTE=byminlist
+     * Parses a two-letter weekday, returning one of SU, MO, etc. or 0 if it is not recognized.
      */
-    private static class ParseByMinute extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] byminute = parseNumberList(value, 0, 59, true);
-            er.byminute = byminute;
-            er.byminuteCount = byminute.length;
-            return PARSED_BYMINUTE;
+    private static int scanWeekday(CharSequence s, int start, int end) {
+        if (end - start != 2) {
+            return 0;
         }
-    }
-
-    /**
-     * parses BYHOUR=byhrlist
-     */
-    private static class ParseByHour extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] byhour = parseNumberList(value, 0, 23, true);
-            er.byhour = byhour;
-            er.byhourCount = byhour.length;
-            return PARSED_BYHOUR;
+        char second = Character.toUpperCase(s.charAt(start + 1));
+        switch (Character.toUpperCase(s.charAt(start))) {
+            case 'S':
+                return second == 'U' ? SU : second == 'A' ? SA : 0;
+            case 'M':
+                return second == 'O' ? MO : 0;
+            case 'T':
+                return second == 'U' ? TU : second == 'H' ? TH : 0;
+            case 'W':
+                return second == 'E' ? WE : 0;
+            case 'F':
+                return second == 'R' ? FR : 0;
         }
+        return 0;
     }
 
+    /* returned by scanInt() in place of a value; the low bits hold the INVALID_* status */
+    private static final long SCAN_INT_FAILED = Long.MIN_VALUE;
+
     /**
-     * parses BYDAY=bywdaylist, e.g. "1SU,-1SU"
+     * Parses an integer with range-checking: an optional leading '+' followed by what Integer.parseInt() accepts.
+     *
+     * @return The parsed value, or SCAN_INT_FAILED | INVALID_* status.
      */
-    private static class ParseByDay extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] byday;
-            int[] bydayNum;
-            int bydayCount;
-
-            if (value.indexOf(",") < 0) {
-                /* only one entry, skip split() overhead */
-                bydayCount = 1;
-                byday = new int[1];
-                bydayNum = new int[1];
-                parseWday(value, byday, bydayNum, 0);
-            } else {
-                String[] wdays = value.split(",");
-                int len = wdays.length;
-                bydayCount = len;
-                byday = new int[len];
-                bydayNum = new int[len];
-                for (int i = 0; i < len; i++) {
-                    parseWday(wdays[i], byday, bydayNum, i);
-                }
+    private static long scanInt(CharSequence s, int start, int end, int minVal, int maxVal, boolean allowZero) {
+        int i = start;
+        if (i < end && s.charAt(i) == '+') {
+            // Integer.parseInt does not allow a leading '+', so skip it manually.
+            i++;
+        }
+        boolean negative = false;
+        if (i < end) {
+            char sign = s.charAt(i);
+            if (sign == '-' || sign == '+') {
+                negative = sign == '-';
+                i++;
             }
-            er.byday = byday;
-            er.bydayNum = bydayNum;
-            er.bydayCount = bydayCount;
-            return PARSED_BYDAY;
         }
-
-        /**
-         * parses [int]weekday, putting the pieces into parallel array entries
-         */
-        private static void parseWday(String str, int[] byday, int[] bydayNum, int index) {
-            int wdayStrStart = str.length() - 2;
-            String wdayStr;
-
-            if (wdayStrStart > 0) {
-                /* number is included; parse it out and advance to weekday */
-                String numPart = str.substring(0, wdayStrStart);
-                int num = parseIntRange(numPart, -53, 53, false);
-                bydayNum[index] = num;
-                wdayStr = str.substring(wdayStrStart);
-            } else {
-                /* just the weekday string */
-                wdayStr = str;
+        if (i == end) {
+            return SCAN_INT_FAILED | INVALID_INTEGER;
+        }
+        // accumulate negatively, as Integer.parseInt does, so that MIN_VALUE fits
+        long val = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0) {
+                return SCAN_INT_FAILED | INVALID_INTEGER;
+            }
+            val = val * 10 - digit;
+            if (val < Integer.MIN_VALUE) {
+                return SCAN_INT_FAILED | INVALID_INTEGER;
             }
-            Integer wday = sParseWeekdayMap.get(wdayStr);
-            if (wday == null) {
-                throw new InvalidFormatException("Invalid BYDAY value: " + str);
+        }
+        if (!negative) {
+            val = -val;
+            if (val > Integer.MAX_VALUE) {
+                return SCAN_INT_FAILED | INVALID_INTEGER;
             }
-            byday[index] = wday;
         }
+        if (val < minVal || val > maxVal || (val == 0 && !allowZero)) {
+            return SCAN_INT_FAILED | INVALID_INTEGER_RANGE;
+        }
+        return val;
     }
 
     /**
-     * parses BYMONTHDAY=bymodaylist
+     * Returns the end of a comma-separated list once trailing commas are dropped, matching String.split(",").
      */
-    private static class ParseByMonthDay extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] bymonthday = parseNumberList(value, -31, 31, false);
-            er.bymonthday = bymonthday;
-            er.bymonthdayCount = bymonthday.length;
-            return PARSED_BYMONTHDAY;
+    private static int trimTrailingCommas(CharSequence s, int start, int end) {
+        if (indexOf(s, ',', start, end) == end) {
+            // Common case: only one entry, which is never dropped.
+            return end;
+        }
+        while (end > start && s.charAt(end - 1) == ',') {
+            end--;
         }
+        return end;
     }
 
-    /**
-     * parses BYYEARDAY=byyrdaylist
-     */
-    private static class ParseByYearDay extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] byyearday = parseNumberList(value, -366, 366, false);
-            er.byyearday = byyearday;
-            er.byyeardayCount = byyearday.length;
-            return PARSED_BYYEARDAY;
+    private static int countListEntries(CharSequence s, int start, int end) {
+        if (start == end) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == ',') {
+                count++;
+            }
         }
+        return count;
     }
 
     /**
-     * parses BYWEEKNO=bywknolist
+     * Parses a comma-separated list of integers into the array of the BYxxx part identified by flag, reusing the
+     * existing array when it has enough capacity.  When out is null the values are only checked.
      */
-    private static class ParseByWeekNo extends PartParser {
+    private static int scanNumberList(EventRecurrence out, int flag, CharSequence s, int start, int end) {
+        int minVal;
+        int maxVal;
+        boolean allowZero;
+        switch (flag) {
+            case PARSED_BYSECOND:
+            case PARSED_BYMINUTE:
+                minVal = 0;
+                maxVal = 59;
+                allowZero = true;
+                break;
+            case PARSED_BYHOUR:
+                minVal = 0;
+                maxVal = 23;
+                allowZero = true;
+                break;
+            case PARSED_BYMONTHDAY:
+                minVal = -31;
+                maxVal = 31;
+                allowZero = false;
+                break;
+            case PARSED_BYYEARDAY:
+                minVal = -366;
+                maxVal = 366;
+                allowZero = false;
+                break;
+            case PARSED_BYWEEKNO:
+                minVal = -53;
+                maxVal = 53;
+                allowZero = false;
+                break;
+            case PARSED_BYMONTH:
+                minVal = 1;
+                maxVal = 12;
+                allowZero = false;
+                break;
+            case PARSED_BYSETPOS:
+                minVal = Integer.MIN_VALUE;
+                maxVal = Integer.MAX_VALUE;
+                allowZero = true;
+                break;
+            default:
+                throw new IllegalArgumentException("not a number list part: " + flag);
+        }
 
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] byweekno = parseNumberList(value, -53, 53, false);
-            er.byweekno = byweekno;
-            er.byweeknoCount = byweekno.length;
-            return PARSED_BYWEEKNO;
+        end = trimTrailingCommas(s, start, end);
+        int count = countListEntries(s, start, end);
+        int[] values = null;
+        if (out != null) {
+            values = out.getNumberList(flag);
+            if (values == null || values.length < count) {
+                values = new int[count];
+            }
+        }
+        int entryStart = start;
+        for (int i = 0; i < count; i++) {
+            int entryEnd = indexOf(s, ',', entryStart, end);
+            long value = scanInt(s, entryStart, entryEnd, minVal, maxVal, allowZero);
+            if (value < Integer.MIN_VALUE) {
+                return invalid((int) (value & 0xff), entryStart);
+            }
+            if (values != null) {
+                values[i] = (int) value;
+            }
+            entryStart = entryEnd + 1;
         }
+        if (out != null) {
+            out.setNumberList(flag, values, count);
+        }
+        return VALID;
     }
 
-    /**
-     * parses BYMONTH=bymolist
-     */
-    private static class ParseByMonth extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] bymonth = parseNumberList(value, 1, 12, false);
-            er.bymonth = bymonth;
-            er.bymonthCount = bymonth.length;
-            return PARSED_BYMONTH;
+    private int[] getNumberList(int flag) {
+        switch (flag) {
+            case PARSED_BYSECOND:
+                return bysecond;
+            case PARSED_BYMINUTE:
+                return byminute;
+            case PARSED_BYHOUR:
+                return byhour;
+            case PARSED_BYMONTHDAY:
+                return bymonthday;
+            case PARSED_BYYEARDAY:
+                return byyearday;
+            case PARSED_BYWEEKNO:
+                return byweekno;
+            case PARSED_BYMONTH:
+                return bymonth;
+            case PARSED_BYSETPOS:
+                return bysetpos;
+            default:
+                throw new IllegalArgumentException("not a number list part: " + flag);
         }
     }
 
-    /**
-     * parses BYSETPOS=bysplist
-     */
-    private static class ParseBySetPos extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            int[] bysetpos = parseNumberList(value, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
-            er.bysetpos = bysetpos;
-            er.bysetposCount = bysetpos.length;
-            return PARSED_BYSETPOS;
+    private void setNumberList(int flag, int[] values, int count) {
+        switch (flag) {
+            case PARSED_BYSECOND:
+                bysecond = values;
+                bysecondCount = count;
+                break;
+            case PARSED_BYMINUTE:
+                byminute = values;
+                byminuteCount = count;
+                break;
+            case PARSED_BYHOUR:
+                byhour = values;
+                byhourCount = count;
+                break;
+            case PARSED_BYMONTHDAY:
+                bymonthday = values;
+                bymonthdayCount = count;
+                break;
+            case PARSED_BYYEARDAY:
+                byyearday = values;
+                byyeardayCount = count;
+                break;
+            case PARSED_BYWEEKNO:
+                byweekno = values;
+                byweeknoCount = count;
+                break;
+            case PARSED_BYMONTH:
+                bymonth = values;
+                bymonthCount = count;
+                break;
+            case PARSED_BYSETPOS:
+                bysetpos = values;
+                bysetposCount = count;
+                break;
+            default:
+                throw new IllegalArgumentException("not a number list part: " + flag);
         }
     }
 
     /**
-     * parses WKST={SU,MO,...}
+     * Parses BYDAY=bywdaylist, e.g. "1SU,-1SU", reusing the existing arrays when they have enough capacity.  When out
+     * is null the entries are only checked.
      */
-    private static class ParseWkst extends PartParser {
-
-        @Override
-        public int parsePart(String value, EventRecurrence er) {
-            Integer wkst = sParseWeekdayMap.get(value);
-            if (wkst == null) {
-                throw new InvalidFormatException("Invalid WKST value: " + value);
+    private static int scanByDay(EventRecurrence out, CharSequence s, int start, int end) {
+        end = trimTrailingCommas(s, start, end);
+        int count = countListEntries(s, start, end);
+        int[] days = null;
+        int[] nums = null;
+        if (out != null) {
+            days = out.byday;
+            nums = out.bydayNum;
+            if (days == null || nums == null || days.length < count || nums.length < count) {
+                days = new int[count];
+                nums = new int[count];
+            }
+        }
+        int entryStart = start;
+        for (int i = 0; i < count; i++) {
+            int entryEnd = indexOf(s, ',', entryStart, end);
+            int wdayStart = entryEnd - 2;
+            int num = 0;
+            if (wdayStart > entryStart) {
+                /* number is included; parse it out and advance to weekday */
+                long value = scanInt(s, entryStart, wdayStart, -53, 53, false);
+                if (value < Integer.MIN_VALUE) {
+                    return invalid((int) (value & 0xff), entryStart);
+                }
+                num = (int) value;
+            } else {
+                /* just the weekday string */
+                wdayStart = entryStart;
             }
-            er.wkst = wkst;
-            return PARSED_WKST;
+            int wday = scanWeekday(s, wdayStart, entryEnd);
+            if (wday == 0) {
+                return invalid(INVALID_WEEKDAY, entryStart);
+            }
+            if (days != null) {
+                days[i] = wday;
+                nums[i] = num;
+            }
+            entryStart = entryEnd + 1;
+        }
+        if (out != null) {
+            out.byday = days;
+            out.bydayNum = nums;
+            out.bydayCount = count;
         }
+        return VALID;
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import android.support.v4.util.LruCache;
+
+/**
+ * Bounded, thread-safe cache of parsed recurrence rules. <p> Lists usually show the same few rules over and over:
+ * looking up a rule string that was seen before returns the shared {@link ImmutableEventRecurrence} without parsing or
+ * allocating. Rules are also interned by their canonical form, so different spellings of the same rule (case, part
+ * order, default WKST or INTERVAL) share one instance.
+ */
+public class EventRecurrenceCache {
+
+    private static final int DEFAULT_MAX_SIZE = 256;
+
+    private static EventRecurrenceCache sDefault;
+
+    private final LruCache<String, ImmutableEventRecurrence> mByRule;
+    private final LruCache<String, ImmutableEventRecurrence> mByCanonical;
+
+    /**
+     * @param maxSize Maximum number of rule strings, and of distinct canonical rules, to keep.
+     */
+    public EventRecurrenceCache(int maxSize) {
+        mByRule = new LruCache<String, ImmutableEventRecurrence>(maxSize);
+        mByCanonical = new LruCache<String, ImmutableEventRecurrence>(maxSize);
+    }
+
+    /**
+     * @return The process-wide cache.
+     */
+    public static synchronized EventRecurrenceCache getDefault() {
+        if (sDefault == null) {
+            sDefault = new EventRecurrenceCache(DEFAULT_MAX_SIZE);
+        }
+        return sDefault;
+    }
+
+    /**
+     * Returns the parsed form of a rule, parsing it only if it is not cached yet.  Invalid rules are not cached.
+     *
+     * @param rule The recurrence rule (in un-folded form).
+     * @throws EventRecurrence.InvalidFormatException if the rule can't be parsed.
+     */
+    public ImmutableEventRecurrence get(String rule) {
+        ImmutableEventRecurrence recurrence = mByRule.get(rule);
+        if (recurrence != null) {
+            return recurrence;
+        }
+
+        EventRecurrence er = new EventRecurrence();
+        er.parse(rule);
+        recurrence = intern(new ImmutableEventRecurrence(er));
+        mByRule.put(rule, recurrence);
+        return recurrence;
+    }
+
+    /**
+     * Returns the shared instance equal to {@code recurrence}, adding it if there is none yet.
+     */
+    public ImmutableEventRecurrence intern(ImmutableEventRecurrence recurrence) {
+        String canonical = recurrence.toString();
+        synchronized (mByCanonical) {
+            ImmutableEventRecurrence shared = mByCanonical.get(canonical);
+            if (shared != null) {
+                return shared;
+            }
+            mByCanonical.put(canonical, recurrence);
+            return recurrence;
+        }
+    }
+
+    /**
+     * Converts a rule to its canonical spelling, e.g. "freq=weekly;wkst=mo;byday=mo" and "FREQ=WEEKLY;BYDAY=MO"
+     * both give "FREQ=WEEKLY;BYDAY=MO".
+     *
+     * @throws EventRecurrence.InvalidFormatException if the rule can't be parsed.
+     */
+    public String canonicalize(String rule) {
+        return get(rule).toString();
+    }
+
+    public void evictAll() {
+        mByRule.evictAll();
+        synchronized (mByCanonical) {
+            mByCanonical.evictAll();
+        }
+    }
+}
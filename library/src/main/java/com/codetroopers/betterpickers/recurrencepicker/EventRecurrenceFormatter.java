@@ -18,20 +18,159 @@ package com.codetroopers.betterpickers.recurrencepicker;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
 import android.text.format.DateUtils;
 import android.text.format.Time;
+import android.util.Log;
 import android.util.TimeFormatException;
 
 import com.codetroopers.betterpickers.R;
 
-import java.util.Calendar;
+import java.util.Locale;
 
 public class EventRecurrenceFormatter {
 
-    private static int[] mMonthRepeatByDayOfWeekIds;
-    private static String[][] mMonthRepeatByDayOfWeekStrs;
+    private static final String TAG = "RecurrenceFormatter";
+
+    /**
+     * Number of canonical rules whose repeat strings are kept per locale.
+     */
+    private static final int REPEAT_STRING_CACHE_SIZE = 128;
+
+    /**
+     * Number of locales for which repeat strings are kept.
+     */
+    private static final int LOCALE_CACHE_SIZE = 4;
+
+    private static final LruCache<Locale, RepeatStringCache> sRepeatStringCaches =
+            new LruCache<Locale, RepeatStringCache>(LOCALE_CACHE_SIZE);
+
+    /**
+     * Called on the main thread with the result of {@link #formatAll}.
+     */
+    public interface OnRepeatStringsFormattedListener {
+
+        /**
+         * @param rules The rules that were formatted.
+         * @param repeatStrings The repeat string of each rule, or null for a rule that is invalid or can't be
+         * described.
+         */
+        void onRepeatStringsFormatted(String[] rules, String[] repeatStrings);
+    }
+
+    /**
+     * Repeat strings of one locale, keyed by canonical rule.
+     */
+    private static class RepeatStringCache {
+
+        final LruCache<String, String> withEnd = new LruCache<String, String>(REPEAT_STRING_CACHE_SIZE);
+        final LruCache<String, String> withoutEnd = new LruCache<String, String>(REPEAT_STRING_CACHE_SIZE);
+    }
+
+    /**
+     * Same as {@link #getRepeatString(Context, Resources, EventRecurrence, boolean)} for a rule string.  The rule is
+     * parsed through {@link EventRecurrenceCache} and the result is cached, so formatting a rule again is a lookup.
+     *
+     * @return The repeat string, or null if the rule is invalid or can't be described.
+     */
+    public static String getRepeatString(Context context, Resources r, String rule, boolean includeEndString) {
+        ImmutableEventRecurrence recurrence;
+        try {
+            recurrence = EventRecurrenceCache.getDefault().get(rule);
+        } catch (EventRecurrence.InvalidFormatException e) {
+            return null;
+        }
+        return getRepeatString(context, r, recurrence, includeEndString);
+    }
+
+    /**
+     * Same as {@link #getRepeatString(Context, Resources, EventRecurrence, boolean)}, memoized per locale by the
+     * canonical form of the rule.  Weekly rules without BYDAY depend on the start date, which an
+     * ImmutableEventRecurrence does not have: they give null.
+     */
+    public static String getRepeatString(Context context, Resources r, ImmutableEventRecurrence recurrence,
+            boolean includeEndString) {
+        RepeatStringCache localeCache = getRepeatStringCache(r.getConfiguration().locale);
+        LruCache<String, String> cache = includeEndString ? localeCache.withEnd : localeCache.withoutEnd;
+        String key = recurrence.toString();
+        String repeatString = cache.get(key);
+        if (repeatString == null) {
+            repeatString = getRepeatString(context, r, recurrence.toEventRecurrence(), includeEndString);
+            if (repeatString != null) {
+                cache.put(key, repeatString);
+            }
+        }
+        return repeatString;
+    }
+
+    /**
+     * Formats many rules on a background thread, e.g. to fill the rows of a list at once.  Results are cached like
+     * {@link #getRepeatString(Context, Resources, String, boolean)}.  A rule that fails to format gets a null repeat
+     * string, and doesn't stop the others.
+     *
+     * @param listener Receives the results on the main thread.
+     */
+    public static void formatAll(Context context, final String[] rules, final boolean includeEndString,
+            final OnRepeatStringsFormattedListener listener) {
+        final Context appContext = context.getApplicationContext();
+        final Handler handler = new Handler(Looper.getMainLooper());
+        ParallelBatch.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                Resources r = appContext.getResources();
+                final String[] repeatStrings = new String[rules.length];
+                for (int i = 0; i < rules.length; i++) {
+                    if (rules[i] == null) {
+                        continue;
+                    }
+                    try {
+                        repeatStrings[i] = getRepeatString(appContext, r, rules[i], includeEndString);
+                    } catch (RuntimeException e) {
+                        Log.w(TAG, "Can't format " + rules[i], e);
+                    }
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onRepeatStringsFormatted(rules, repeatStrings);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops every cached repeat string, e.g. after the user changed the date format.
+     */
+    public static void clearCache() {
+        sRepeatStringCaches.evictAll();
+    }
+
+    private static RepeatStringCache getRepeatStringCache(Locale locale) {
+        synchronized (sRepeatStringCaches) {
+            RepeatStringCache cache = sRepeatStringCaches.get(locale);
+            if (cache == null) {
+                cache = new RepeatStringCache();
+                sRepeatStringCaches.put(locale, cache);
+            }
+            return cache;
+        }
+    }
 
     public static String getRepeatString(Context context, Resources r, EventRecurrence recurrence, boolean includeEndString) {
+        return getRepeatString(context, r, recurrence, includeEndString, false);
+    }
+
+    /**
+     * @param includeLastDate With {@code includeEndString}, also gives the date of the last event of a rule that ends
+     * by COUNT.  That expands the rule, and the first rule expanded in a time zone builds the transition table of the
+     * zone: for large counts, call this off the main thread.
+     */
+    public static String getRepeatString(Context context, Resources r, EventRecurrence recurrence,
+            boolean includeEndString, boolean includeLastDate) {
+        RecurrenceSymbols symbols = RecurrenceSymbols.get(r);
         String endString = "";
         if (includeEndString) {
             StringBuilder sb = new StringBuilder();
@@ -46,8 +185,14 @@ public class EventRecurrenceFormatter {
             }
 
             if (recurrence.count > 0) {
-                sb.append(r.getQuantityString(R.plurals.endByCount, recurrence.count,
+                sb.append(symbols.getQuantityString(R.plurals.endByCount, recurrence.count,
                         recurrence.count));
+                if (includeLastDate && recurrence.until == null) {
+                    String dateStr = getLastOccurrenceString(context, recurrence);
+                    if (dateStr != null) {
+                        sb.append(r.getString(R.string.endByDate, dateStr));
+                    }
+                }
             }
             endString = sb.toString();
         }
@@ -56,12 +201,12 @@ public class EventRecurrenceFormatter {
         int interval = recurrence.interval <= 1 ? 1 : recurrence.interval;
         switch (recurrence.freq) {
             case EventRecurrence.HOURLY:
-                return r.getQuantityString(R.plurals.hourly, interval, interval) + endString;
+                return symbols.getQuantityString(R.plurals.hourly, interval, interval) + endString;
             case EventRecurrence.DAILY:
-                return r.getQuantityString(R.plurals.daily, interval, interval) + endString;
+                return symbols.getQuantityString(R.plurals.daily, interval, interval) + endString;
             case EventRecurrence.WEEKLY: {
                 if (recurrence.repeatsOnEveryWeekDay()) {
-                    return r.getString(R.string.every_weekday) + endString;
+                    return symbols.getEveryWeekday() + endString;
                 } else {
                     String string;
 
@@ -78,10 +223,10 @@ public class EventRecurrenceFormatter {
                     if (recurrence.bydayCount > 0) {
                         int count = recurrence.bydayCount - 1;
                         for (int i = 0; i < count; i++) {
-                            days.append(dayToString(recurrence.byday[i], dayOfWeekLength));
+                            days.append(dayToString(symbols, recurrence.byday[i], dayOfWeekLength));
                             days.append(", ");
                         }
-                        days.append(dayToString(recurrence.byday[count], dayOfWeekLength));
+                        days.append(dayToString(symbols, recurrence.byday[count], dayOfWeekLength));
 
                         string = days.toString();
                     } else {
@@ -93,51 +238,56 @@ public class EventRecurrenceFormatter {
                             return null;
                         }
 
-                        int day = EventRecurrence.timeDay2Day(recurrence.startDate.weekDay);
-                        string = dayToString(day, DateUtils.LENGTH_LONG);
+                        string = symbols.getWeekdayName(recurrence.startDate.weekDay, DateUtils.LENGTH_LONG);
                     }
-                    return r.getQuantityString(R.plurals.weekly, interval, interval, string) + endString;
+                    return symbols.getQuantityString(R.plurals.weekly, interval, interval, string) + endString;
                 }
             }
             case EventRecurrence.MONTHLY: {
                 String details = "";
                 if (recurrence.byday != null) {
-                    int weekday = EventRecurrence.day2CalendarDay(recurrence.byday[0]) - 1;
-                    // Cache this stuff so we won't have to redo work again later.
-                    cacheMonthRepeatStrings(r, weekday);
-
-                    int dayNumber = recurrence.bydayNum[0];
-                    if(dayNumber == RecurrencePickerDialogFragment.LAST_NTH_DAY_OF_WEEK){
-                        dayNumber = 5;
+                    int weekday = EventRecurrence.day2TimeDay(recurrence.byday[0]);
+                    details = symbols.getNthDayOfWeek(weekday, recurrence.bydayNum[0]);
+                    if (details == null) {
+                        // e.g. every Monday of the month, which the strings can't say
+                        return null;
                     }
-                    details = mMonthRepeatByDayOfWeekStrs[weekday][dayNumber - 1];
                 }
-                return r.getQuantityString(R.plurals.monthly, interval, interval, details) + endString;
+                return symbols.getQuantityString(R.plurals.monthly, interval, interval, details) + endString;
             }
             case EventRecurrence.YEARLY:
-                return r.getQuantityString(R.plurals.yearly_plain, interval, interval, "") + endString;
+                return symbols.getQuantityString(R.plurals.yearly_plain, interval, interval, "") + endString;
         }
 
         return null;
     }
 
-    private static void cacheMonthRepeatStrings(Resources r, int weekday) {
-        if (mMonthRepeatByDayOfWeekIds == null) {
-            mMonthRepeatByDayOfWeekIds = new int[7];
-            mMonthRepeatByDayOfWeekIds[0] = R.array.repeat_by_nth_sun;
-            mMonthRepeatByDayOfWeekIds[1] = R.array.repeat_by_nth_mon;
-            mMonthRepeatByDayOfWeekIds[2] = R.array.repeat_by_nth_tues;
-            mMonthRepeatByDayOfWeekIds[3] = R.array.repeat_by_nth_wed;
-            mMonthRepeatByDayOfWeekIds[4] = R.array.repeat_by_nth_thurs;
-            mMonthRepeatByDayOfWeekIds[5] = R.array.repeat_by_nth_fri;
-            mMonthRepeatByDayOfWeekIds[6] = R.array.repeat_by_nth_sat;
+    /**
+     * Formats the date of the last occurrence of a rule that ends by COUNT, see {@link
+     * RecurrenceExpander#getLastOccurrence()}.  The expander is the one kept by {@code recurrence}, so asking again for
+     * an unchanged rule is cheap.
+     *
+     * @return The numeric date, or null if the rule has no start date or can't be expanded.
+     */
+    static String getLastOccurrenceString(Context context, EventRecurrence recurrence) {
+        if (recurrence.startDate == null || !RecurrenceExpander.isSupported(recurrence)) {
+            return null;
+        }
+        long last;
+        try {
+            last = recurrence.getLastOccurrence();
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-        if (mMonthRepeatByDayOfWeekStrs == null) {
-            mMonthRepeatByDayOfWeekStrs = new String[7][];
+        if (last == RecurrenceExpander.NO_OCCURRENCE) {
+            return null;
         }
-        if (mMonthRepeatByDayOfWeekStrs[weekday] == null) {
-            mMonthRepeatByDayOfWeekStrs[weekday] = r.getStringArray(mMonthRepeatByDayOfWeekIds[weekday]);
+        int flags = DateUtils.FORMAT_NUMERIC_DATE;
+        if (recurrence.startDate.allDay) {
+            // all-day dates are at midnight UTC
+            flags |= DateUtils.FORMAT_UTC;
         }
+        return DateUtils.formatDateTime(context, last, flags);
     }
 
     /**
@@ -146,34 +296,7 @@ public class EventRecurrenceFormatter {
      * @param day a EventRecurrence constant
      * @return day of week as a string
      */
-    private static String dayToString(int day, int dayOfWeekLength) {
-        return DateUtils.getDayOfWeekString(dayToUtilDay(day), dayOfWeekLength);
-    }
-
-    /**
-     * Converts EventRecurrence's day of week to DateUtil's day of week.
-     *
-     * @param day of week as an EventRecurrence value
-     * @return day of week as a DateUtil value.
-     */
-    private static int dayToUtilDay(int day) {
-        switch (day) {
-            case EventRecurrence.SU:
-                return Calendar.SUNDAY;
-            case EventRecurrence.MO:
-                return Calendar.MONDAY;
-            case EventRecurrence.TU:
-                return Calendar.TUESDAY;
-            case EventRecurrence.WE:
-                return Calendar.WEDNESDAY;
-            case EventRecurrence.TH:
-                return Calendar.THURSDAY;
-            case EventRecurrence.FR:
-                return Calendar.FRIDAY;
-            case EventRecurrence.SA:
-                return Calendar.SATURDAY;
-            default:
-                throw new IllegalArgumentException("bad day argument: " + day);
-        }
+    private static String dayToString(RecurrenceSymbols symbols, int day, int dayOfWeekLength) {
+        return symbols.getWeekdayName(EventRecurrence.day2TimeDay(day), dayOfWeekLength);
     }
 }
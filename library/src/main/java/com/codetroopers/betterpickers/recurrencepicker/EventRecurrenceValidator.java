@@ -0,0 +1,67 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Validates large batches of recurrence rules, e.g. when importing a calendar, without throwing and without parsing
+ * them into EventRecurrence objects.  Each result is the value {@link EventRecurrence#validate(CharSequence)} returns
+ * for the rule at the same index; decode it with {@link EventRecurrence#getValidationStatus(int)} and
+ * {@link EventRecurrence#getValidationIndex(int)}.
+ */
+public class EventRecurrenceValidator {
+
+    /**
+     * Batches smaller than this are validated on the calling thread, and larger ones are never split into chunks
+     * smaller than this.
+     */
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    private EventRecurrenceValidator() {
+    }
+
+    /**
+     * Validates all rules, spreading the work across the available cores.  A null rule is reported like an empty one.
+     *
+     * @param rules The recurrence rules to check (in un-folded form).
+     * @return One packed validation result per rule.
+     */
+    public static int[] validateAll(CharSequence[] rules) throws InterruptedException {
+        return validateAll(rules, ParallelBatch.getExecutor());
+    }
+
+    /**
+     * Same as {@link #validateAll(CharSequence[])}, running the chunks on the given executor.  The calling thread
+     * validates the first chunk itself.
+     */
+    public static int[] validateAll(final CharSequence[] rules, ExecutorService executor)
+            throws InterruptedException {
+        final int[] results = new int[rules.length];
+        ParallelBatch.run(rules.length, MIN_CHUNK_SIZE, executor, new ParallelBatch.Chunk() {
+            @Override
+            public void run(int start, int end) {
+                validateRange(rules, results, start, end);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * @return The number of VALID entries in a result array returned by validateAll().
+     */
+    public static int countValid(int[] results) {
+        int valid = 0;
+        for (int result : results) {
+            if (result == EventRecurrence.VALID) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    private static void validateRange(CharSequence[] rules, int[] results, int start, int end) {
+        for (int i = start; i < end; i++) {
+            CharSequence rule = rules[i];
+            results[i] = EventRecurrence.validate(rule != null ? rule : "");
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import android.util.Log;
+
+import com.codetroopers.betterpickers.EpochDays;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * Reads the recurrences of the events of an iCalendar (.ics) stream, e.g. to import a calendar export with tens of
+ * thousands of VEVENTs. <p> Content lines are unfolded as they are read, and only the properties of interest (BEGIN,
+ * END, DTSTART, RRULE, RDATE and EXDATE) are kept: the characters of any other property are skipped without being
+ * stored.  RRULE values are parsed in place into one reused {@link EventRecurrence}, and dates into one reused long
+ * array, so memory use depends on the longest line of interest, not on the size of the file. <p> Properties are only
+ * reported inside a VEVENT; the rules of VTIMEZONE and of nested components are ignored.  A property with a malformed
+ * value is logged and skipped. <p> A ByteBuffer is read as single-byte characters: that is exact for the ASCII
+ * properties read here, whatever the encoding of the text of the other ones.  Instances are not thread-safe.
+ */
+public class IcsRecurrenceReader {
+
+    private static final String TAG = "IcsRecurrenceReader";
+
+    public static final int DTSTART = 1;
+    public static final int RDATE = 2;
+    public static final int EXDATE = 3;
+
+    private static final long SECOND = 1000L;
+    private static final long DAY = 86400L * SECOND;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String[] NAMES = {"BEGIN", "END", "RRULE", "RDATE", "EXDATE", "DTSTART"};
+
+    public interface OnEventListener {
+
+        void onEventStart();
+
+        /**
+         * Called for each RRULE of the current event.
+         *
+         * @param rule Reused for every rule of the stream: copy it to keep it past this call.
+         */
+        void onRecurrenceRule(EventRecurrence rule);
+
+        /**
+         * Called for each DTSTART, RDATE and EXDATE property of the current event.
+         *
+         * @param property {@link #DTSTART}, {@link #RDATE} or {@link #EXDATE}.
+         * @param instants The dates, in milliseconds since the epoch, in the order of the property.  A date without a
+         * time is midnight UTC of that date, like the start of an all-day event.  Reused for every property of the
+         * stream.
+         * @param allDay true when the values are dates without a time.
+         */
+        void onDates(int property, long[] instants, int count, boolean allDay);
+
+        void onEventEnd();
+    }
+
+    private final Reader mReader;
+    private final ByteBuffer mBytes;
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+    private int mPosition;
+    private int mLimit;
+
+    /* the current unfolded line, only filled for the properties of interest */
+    private final StringBuilder mLine = new StringBuilder(128);
+    private int mLineNumber;
+
+    private final EventRecurrence mRule = new EventRecurrence();
+    private long[] mInstants = new long[16];
+
+    private ZoneTransitions mDefaultZone = ZoneTransitions.get(TimeZone.getDefault());
+    private String mZoneId;
+    private ZoneTransitions mZone;
+    private String mDatesZoneId;
+
+    private int mDepth;
+    private int mEventDepth = -1;
+
+    public IcsRecurrenceReader(Reader reader) {
+        mReader = reader;
+        mBytes = null;
+    }
+
+    /**
+     * Reads the bytes from the position to the limit of {@code bytes}.
+     */
+    public IcsRecurrenceReader(ByteBuffer bytes) {
+        mReader = null;
+        mBytes = bytes;
+    }
+
+    /**
+     * Sets the zone of date-times that are neither in UTC nor have a TZID.  Defaults to the default zone.
+     */
+    public void setDefaultTimeZone(TimeZone zone) {
+        mDefaultZone = ZoneTransitions.get(zone);
+    }
+
+    /**
+     * Called from {@link OnEventListener#onDates}, e.g. to write the dates back with {@link
+     * IcsRecurrenceWriter#writeDates(int, long[], int, boolean, String)} in the zone they were read in.
+     *
+     * @return The TZID of the date-times being reported, without the "/" prefix of globally unique ids, or null for
+     * dates, UTC date-times and date-times read in the default zone.
+     */
+    public String getTimeZoneId() {
+        return mDatesZoneId;
+    }
+
+    /**
+     * Reads the stream up to its end.  The reader is not closed.
+     *
+     * @return The number of VEVENTs read.
+     */
+    public int read(OnEventListener listener) throws IOException {
+        int events = 0;
+        while (readLine()) {
+            if (handleLine(listener)) {
+                events++;
+            }
+        }
+        return events;
+    }
+
+    private int nextChar() throws IOException {
+        if (mPosition == mLimit && !fill()) {
+            return -1;
+        }
+        return mBuffer[mPosition++];
+    }
+
+    private int peekChar() throws IOException {
+        if (mPosition == mLimit && !fill()) {
+            return -1;
+        }
+        return mBuffer[mPosition];
+    }
+
+    private boolean fill() throws IOException {
+        mPosition = 0;
+        if (mReader != null) {
+            mLimit = Math.max(mReader.read(mBuffer, 0, BUFFER_SIZE), 0);
+        } else {
+            mLimit = Math.min(mBytes.remaining(), BUFFER_SIZE);
+            for (int i = 0; i < mLimit; i++) {
+                mBuffer[i] = (char) (mBytes.get() & 0xff);
+            }
+        }
+        return mLimit > 0;
+    }
+
+    /**
+     * Reads the next unfolded content line into mLine.  Once the name of the property is known, the rest of the line
+     * is only stored if the property is one of interest.
+     *
+     * @return false at the end of the stream.
+     */
+    private boolean readLine() throws IOException {
+        mLine.setLength(0);
+        boolean nameDone = false;
+        boolean keep = true;
+        int c = nextChar();
+        if (c == -1) {
+            return false;
+        }
+        mLineNumber++;
+        while (c != -1) {
+            if (c == '\n') {
+                int next = peekChar();
+                if (next != ' ' && next != '\t') {
+                    break;
+                }
+                // folded line: drop the line break and the white space that follows
+                mPosition++;
+                mLineNumber++;
+            } else if (c != '\r') {
+                if (!nameDone && (c == ';' || c == ':')) {
+                    nameDone = true;
+                    keep = isPropertyOfInterest();
+                }
+                if (keep) {
+                    mLine.append((char) c);
+                }
+            }
+            c = nextChar();
+        }
+        return true;
+    }
+
+    private boolean isPropertyOfInterest() {
+        return getName(mLine.length()) != null;
+    }
+
+    private boolean regionMatches(int start, String s) {
+        if (start + s.length() > mLine.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.toUpperCase(mLine.charAt(start + i)) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true at the end of a VEVENT.
+     */
+    private boolean handleLine(OnEventListener listener) {
+        int length = mLine.length();
+        int nameEnd = 0;
+        while (nameEnd < length && mLine.charAt(nameEnd) != ';' && mLine.charAt(nameEnd) != ':') {
+            nameEnd++;
+        }
+        if (nameEnd == length) {
+            return false;
+        }
+
+        // parameters, up to the first colon outside of a quoted parameter value
+        boolean allDay = false;
+        int zoneStart = -1;
+        int zoneEnd = -1;
+        int index = nameEnd;
+        while (index < length && mLine.charAt(index) == ';') {
+            int paramStart = index + 1;
+            index = paramStart;
+            boolean quoted = false;
+            while (index < length) {
+                char c = mLine.charAt(index);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (!quoted && (c == ';' || c == ':')) {
+                    break;
+                }
+                index++;
+            }
+            if (regionMatches(paramStart, "VALUE=DATE") && paramStart + 10 == index) {
+                allDay = true;
+            } else if (regionMatches(paramStart, "TZID=")) {
+                zoneStart = paramStart + 5;
+                zoneEnd = index;
+                if (zoneEnd - zoneStart >= 2 && mLine.charAt(zoneStart) == '"') {
+                    zoneStart++;
+                    zoneEnd--;
+                }
+            }
+        }
+        if (index == length) {
+            Log.w(TAG, "Missing value at line " + mLineNumber);
+            return false;
+        }
+        int valueStart = index + 1;
+
+        String name = getName(nameEnd);
+        if (name == null) {
+            return false;
+        }
+        switch (name) {
+            case "BEGIN":
+                mDepth++;
+                if (mEventDepth < 0 && isValue(valueStart, "VEVENT")) {
+                    mEventDepth = mDepth;
+                    listener.onEventStart();
+                }
+                return false;
+            case "END":
+                boolean eventEnd = mDepth == mEventDepth;
+                if (eventEnd) {
+                    mEventDepth = -1;
+                    listener.onEventEnd();
+                }
+                mDepth = Math.max(mDepth - 1, 0);
+                return eventEnd;
+        }
+        if (mDepth != mEventDepth) {
+            return false;
+        }
+        if ("RRULE".equals(name)) {
+            try {
+                mRule.parse(mLine, valueStart, length);
+            } catch (EventRecurrence.InvalidFormatException e) {
+                Log.w(TAG, "Skipping invalid RRULE at line " + mLineNumber + ": " + e.getMessage());
+                return false;
+            }
+            listener.onRecurrenceRule(mRule);
+        } else {
+            int property = "DTSTART".equals(name) ? DTSTART : "RDATE".equals(name) ? RDATE : EXDATE;
+            ZoneTransitions zone = zoneStart >= 0 ? getZone(zoneStart, zoneEnd) : mDefaultZone;
+            int count = parseDates(valueStart, length, allDay, zone);
+            if (count < 0) {
+                Log.w(TAG, "Skipping invalid " + name + " at line " + mLineNumber);
+                return false;
+            }
+            mDatesZoneId = zoneStart >= 0 && !allDay ? mZoneId : null;
+            listener.onDates(property, mInstants, count, allDay);
+        }
+        return false;
+    }
+
+    /**
+     * @return The canonical name of the property of the current line, without allocating.
+     */
+    private String getName(int nameEnd) {
+        for (String name : NAMES) {
+            if (nameEnd == name.length() && regionMatches(0, name)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private boolean isValue(int start, String value) {
+        return mLine.length() - start == value.length() && regionMatches(start, value);
+    }
+
+    private ZoneTransitions getZone(int start, int end) {
+        // "/" prefixes globally unique zone ids
+        if (start < end && mLine.charAt(start) == '/') {
+            start++;
+        }
+        if (!isZoneId(start, end)) {
+            mZoneId = mLine.substring(start, end);
+            mZone = ZoneTransitions.get(mZoneId);
+        }
+        return mZone;
+    }
+
+    private boolean isZoneId(int start, int end) {
+        if (mZoneId == null || mZoneId.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (mLine.charAt(i) != mZoneId.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the comma separated dates of [start, end) into mInstants.  For PERIOD values, only the start is kept.
+     *
+     * @return The number of dates, or -1 if a value is malformed.
+     */
+    private int parseDates(int start, int end, boolean allDay, ZoneTransitions zone) {
+        int count = 0;
+        int index = start;
+        while (index < end) {
+            int valueEnd = index;
+            while (valueEnd < end && mLine.charAt(valueEnd) != ',') {
+                valueEnd++;
+            }
+            int dateEnd = index;
+            while (dateEnd < valueEnd && mLine.charAt(dateEnd) != '/') {
+                dateEnd++;
+            }
+            long instant = parseDate(index, dateEnd, allDay, zone);
+            if (instant == Long.MIN_VALUE) {
+                return -1;
+            }
+            if (count == mInstants.length) {
+                mInstants = Arrays.copyOf(mInstants, count * 2);
+            }
+            mInstants[count++] = instant;
+            index = valueEnd + 1;
+        }
+        return count;
+    }
+
+    /**
+     * @return The instant of a DATE or DATE-TIME value, or Long.MIN_VALUE if it is malformed.
+     */
+    private long parseDate(int start, int end, boolean allDay, ZoneTransitions zone) {
+        int length = end - start;
+        boolean utc = length == 16 && mLine.charAt(end - 1) == 'Z';
+        if (allDay ? length != 8 : (length != 15 && !utc) || mLine.charAt(start + 8) != 'T') {
+            return Long.MIN_VALUE;
+        }
+        int year = parseDigits(start, 4);
+        int month = parseDigits(start + 4, 2);
+        int monthDay = parseDigits(start + 6, 2);
+        if (year < 0 || month < 1 || month > 12 || monthDay < 1
+                || monthDay > EpochDays.getDaysInMonth(year, month - 1)) {
+            return Long.MIN_VALUE;
+        }
+        long day = EpochDays.of(year, month - 1, monthDay) * DAY;
+        if (allDay) {
+            return day;
+        }
+        int hour = parseDigits(start + 9, 2);
+        int minute = parseDigits(start + 11, 2);
+        int second = parseDigits(start + 13, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return Long.MIN_VALUE;
+        }
+        long local = day + ((hour * 60 + minute) * 60 + second) * SECOND;
+        if (utc) {
+            return local;
+        }
+        // a time repeated by a backward transition is the first of the two, and one skipped by a forward transition
+        // moves forward by the length of the gap, as in RFC 5545
+        return zone.toInstant(local);
+    }
+
+    /**
+     * @return The value of {@code digits} decimal digits, or -1.
+     */
+    private int parseDigits(int start, int digits) {
+        int value = 0;
+        for (int i = start; i < start + digits; i++) {
+            int digit = mLine.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,190 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import com.codetroopers.betterpickers.EpochDays;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes recurrences as iCalendar (.ics) content lines, the counterpart of {@link IcsRecurrenceReader}. <p> Each line
+ * is built in one reused builder, with {@link EventRecurrence#appendTo(StringBuilder)} for rules, then folded at 75
+ * characters and written with CRLF line breaks straight from a reused char array: no String is created per line.
+ * Other properties of the events can be written to the same Writer between calls. <p> Date-times are written in
+ * UTC unless a zone is given to {@link #writeDates(int, long[], int, boolean, String)}: pass the TZID the dates were
+ * read with, see {@link IcsRecurrenceReader#getTimeZoneId()}, since the RRULE of an event expands in the zone of its
+ * DTSTART, and a start converted to UTC no longer follows the daylight saving time changes of its zone.  The
+ * VTIMEZONE of the zone is left to the caller.  Instances are not thread-safe.
+ */
+public class IcsRecurrenceWriter {
+
+    private static final int MAX_LINE_LENGTH = 75;
+    private static final char[] LINE_BREAK = {'\r', '\n'};
+    private static final char[] FOLD = {'\r', '\n', ' '};
+
+    private static final long SECOND = 1000L;
+    private static final long DAY = 86400L * SECOND;
+
+    private final Writer mWriter;
+    private final StringBuilder mLine = new StringBuilder(128);
+    private char[] mChars = new char[128];
+
+    private String mZoneId;
+    private ZoneTransitions mZone;
+
+    /**
+     * @param writer Receives the lines; wrap it in a BufferedWriter when it writes to a file or a socket.
+     */
+    public IcsRecurrenceWriter(Writer writer) {
+        mWriter = writer;
+    }
+
+    public void writeEventStart() throws IOException {
+        mLine.setLength(0);
+        mLine.append("BEGIN:VEVENT");
+        writeLine();
+    }
+
+    public void writeEventEnd() throws IOException {
+        mLine.setLength(0);
+        mLine.append("END:VEVENT");
+        writeLine();
+    }
+
+    public void writeRecurrenceRule(EventRecurrence rule) throws IOException {
+        mLine.setLength(0);
+        mLine.append("RRULE:");
+        rule.appendTo(mLine);
+        writeLine();
+    }
+
+    /**
+     * Writes a DTSTART, RDATE or EXDATE property, as UTC date-times or as dates.
+     *
+     * @see #writeDates(int, long[], int, boolean, String)
+     */
+    public void writeDates(int property, long[] instants, int count, boolean allDay) throws IOException {
+        writeDates(property, instants, count, allDay, null);
+    }
+
+    /**
+     * Writes a DTSTART, RDATE or EXDATE property, as dates, or as date-times in the given zone.
+     *
+     * @param property {@link IcsRecurrenceReader#DTSTART}, {@link IcsRecurrenceReader#RDATE} or {@link
+     * IcsRecurrenceReader#EXDATE}.
+     * @param instants Milliseconds since the epoch.  With {@code allDay}, the UTC date of each instant is written.
+     * @param timeZoneId The TZID to write the local times of the instants with, or null to write them in UTC.  Ignored
+     * with {@code allDay}.
+     */
+    public void writeDates(int property, long[] instants, int count, boolean allDay, String timeZoneId)
+            throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        mLine.setLength(0);
+        switch (property) {
+            case IcsRecurrenceReader.DTSTART:
+                mLine.append("DTSTART");
+                break;
+            case IcsRecurrenceReader.RDATE:
+                mLine.append("RDATE");
+                break;
+            case IcsRecurrenceReader.EXDATE:
+                mLine.append("EXDATE");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown property: " + property);
+        }
+        ZoneTransitions zone = null;
+        if (allDay) {
+            mLine.append(";VALUE=DATE");
+        } else if (timeZoneId != null) {
+            zone = getZone(timeZoneId);
+            mLine.append(";TZID=");
+            appendParameterValue(timeZoneId);
+        }
+        mLine.append(':');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                mLine.append(',');
+            }
+            appendDate(instants[i], allDay, zone);
+        }
+        writeLine();
+    }
+
+    public void flush() throws IOException {
+        mWriter.flush();
+    }
+
+    private ZoneTransitions getZone(String id) {
+        if (!id.equals(mZoneId)) {
+            mZone = ZoneTransitions.get(id);
+            mZoneId = id;
+        }
+        return mZone;
+    }
+
+    private void appendParameterValue(String value) {
+        boolean quoted = value.indexOf(':') >= 0 || value.indexOf(';') >= 0 || value.indexOf(',') >= 0;
+        if (quoted) {
+            mLine.append('"');
+        }
+        mLine.append(value);
+        if (quoted) {
+            mLine.append('"');
+        }
+    }
+
+    /**
+     * @param zone The zone to write the local time of the instant in, or null for UTC.
+     */
+    private void appendDate(long instant, boolean allDay, ZoneTransitions zone) {
+        if (zone != null) {
+            instant = zone.toLocal(instant);
+        }
+        long day = EpochDays.floorDiv(instant, DAY);
+        int date = EpochDays.toPackedDate((int) day);
+        appendDigits(EpochDays.getPackedYear(date), 4);
+        appendDigits(EpochDays.getPackedMonth(date) + 1, 2);
+        appendDigits(EpochDays.getPackedMonthDay(date), 2);
+        if (!allDay) {
+            int seconds = (int) ((instant - day * DAY) / SECOND);
+            mLine.append('T');
+            appendDigits(seconds / 3600, 2);
+            appendDigits(seconds / 60 % 60, 2);
+            appendDigits(seconds % 60, 2);
+            if (zone == null) {
+                mLine.append('Z');
+            }
+        }
+    }
+
+    private void appendDigits(int value, int digits) {
+        for (int divisor = digits == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            mLine.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Writes mLine, folded so that no line is longer than 75 characters.
+     */
+    private void writeLine() throws IOException {
+        int length = mLine.length();
+        if (mChars.length < length) {
+            mChars = new char[Math.max(length, mChars.length * 2)];
+        }
+        mLine.getChars(0, length, mChars, 0);
+
+        int start = 0;
+        int lineLength = MAX_LINE_LENGTH;
+        while (length - start > lineLength) {
+            mWriter.write(mChars, start, lineLength);
+            mWriter.write(FOLD);
+            start += lineLength;
+            // the space of a folded line counts in its length
+            lineLength = MAX_LINE_LENGTH - 1;
+        }
+        mWriter.write(mChars, start, length - start);
+        mWriter.write(LINE_BREAK);
+    }
+}
@@ -0,0 +1,252 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import java.util.Arrays;
+
+/**
+ * Read-only, thread-safe form of a parsed recurrence rule that can be shared between any number of events, see
+ * {@link EventRecurrenceCache}. <p> Only the rule itself is kept: the start date of {@link EventRecurrence} is not part
+ * of it. Values are stored canonically, so rules that only differ in spelling are equal: an INTERVAL of 1 is stored as
+ * 0 (the default) and the week start defaults to Monday.
+ */
+public final class ImmutableEventRecurrence {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final int mFreq;
+    private final String mUntil;
+    private final int mCount;
+    private final int mInterval;
+    private final int mWkst;
+
+    private final int[] mBySecond;
+    private final int[] mByMinute;
+    private final int[] mByHour;
+    private final int[] mByDay;
+    private final int[] mByDayNum;
+    private final int[] mByMonthDay;
+    private final int[] mByYearDay;
+    private final int[] mByWeekNo;
+    private final int[] mByMonth;
+    private final int[] mBySetPos;
+
+    private final String mCanonical;
+
+    /**
+     * Takes a snapshot of the rule held by {@code er}; later changes to {@code er} are not reflected.
+     */
+    public ImmutableEventRecurrence(EventRecurrence er) {
+        mFreq = er.freq;
+        mUntil = er.until != null && er.until.length() > 0 ? er.until : null;
+        mCount = er.count;
+        mInterval = er.interval <= 1 ? 0 : er.interval;
+        mWkst = er.wkst != 0 ? er.wkst : EventRecurrence.MO;
+
+        mBySecond = copyOf(er.bysecond, er.bysecondCount);
+        mByMinute = copyOf(er.byminute, er.byminuteCount);
+        mByHour = copyOf(er.byhour, er.byhourCount);
+        mByDay = copyOf(er.byday, er.bydayCount);
+        mByDayNum = copyOf(er.bydayNum, er.bydayCount);
+        mByMonthDay = copyOf(er.bymonthday, er.bymonthdayCount);
+        mByYearDay = copyOf(er.byyearday, er.byyeardayCount);
+        mByWeekNo = copyOf(er.byweekno, er.byweeknoCount);
+        mByMonth = copyOf(er.bymonth, er.bymonthCount);
+        mBySetPos = copyOf(er.bysetpos, er.bysetposCount);
+
+        mCanonical = buildCanonical();
+    }
+
+    private static int[] copyOf(int[] values, int count) {
+        return count > 0 ? Arrays.copyOf(values, count) : EMPTY;
+    }
+
+    /**
+     * The canonical rule is the output of EventRecurrence.toString(), which writes the parts upper-case in a fixed
+     * order, without the default WKST=MO and INTERVAL=1.
+     */
+    private String buildCanonical() {
+        EventRecurrence er = new EventRecurrence();
+        copyTo(er);
+        if (er.wkst == EventRecurrence.MO) {
+            er.wkst = 0;
+        }
+        return er.toString();
+    }
+
+    /**
+     * Copies this rule into {@code er}, reusing its arrays when they are large enough.  The start date of {@code er}
+     * is left untouched.
+     */
+    public void copyTo(EventRecurrence er) {
+        er.freq = mFreq;
+        er.until = mUntil;
+        er.count = mCount;
+        er.interval = mInterval;
+        er.wkst = mWkst;
+
+        er.bysecond = copyInto(er.bysecond, mBySecond);
+        er.bysecondCount = mBySecond.length;
+        er.byminute = copyInto(er.byminute, mByMinute);
+        er.byminuteCount = mByMinute.length;
+        er.byhour = copyInto(er.byhour, mByHour);
+        er.byhourCount = mByHour.length;
+        er.byday = copyInto(er.byday, mByDay);
+        er.bydayNum = copyInto(er.bydayNum, mByDayNum);
+        er.bydayCount = mByDay.length;
+        er.bymonthday = copyInto(er.bymonthday, mByMonthDay);
+        er.bymonthdayCount = mByMonthDay.length;
+        er.byyearday = copyInto(er.byyearday, mByYearDay);
+        er.byyeardayCount = mByYearDay.length;
+        er.byweekno = copyInto(er.byweekno, mByWeekNo);
+        er.byweeknoCount = mByWeekNo.length;
+        er.bymonth = copyInto(er.bymonth, mByMonth);
+        er.bymonthCount = mByMonth.length;
+        er.bysetpos = copyInto(er.bysetpos, mBySetPos);
+        er.bysetposCount = mBySetPos.length;
+    }
+
+    private static int[] copyInto(int[] target, int[] values) {
+        if (values.length == 0) {
+            return target;
+        }
+        if (target == null || target.length < values.length) {
+            target = new int[values.length];
+        }
+        System.arraycopy(values, 0, target, 0, values.length);
+        return target;
+    }
+
+    /**
+     * @return A new, mutable EventRecurrence holding this rule.
+     */
+    public EventRecurrence toEventRecurrence() {
+        EventRecurrence er = new EventRecurrence();
+        copyTo(er);
+        return er;
+    }
+
+    public int getFreq() {
+        return mFreq;
+    }
+
+    public String getUntil() {
+        return mUntil;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return The interval, or 0 when the rule repeats every period.
+     */
+    public int getInterval() {
+        return mInterval;
+    }
+
+    public int getWkst() {
+        return mWkst;
+    }
+
+    public int getBySecondCount() {
+        return mBySecond.length;
+    }
+
+    public int getBySecond(int index) {
+        return mBySecond[index];
+    }
+
+    public int getByMinuteCount() {
+        return mByMinute.length;
+    }
+
+    public int getByMinute(int index) {
+        return mByMinute[index];
+    }
+
+    public int getByHourCount() {
+        return mByHour.length;
+    }
+
+    public int getByHour(int index) {
+        return mByHour[index];
+    }
+
+    public int getByDayCount() {
+        return mByDay.length;
+    }
+
+    /**
+     * @return One of EventRecurrence.SU, MO, etc.
+     */
+    public int getByDay(int index) {
+        return mByDay[index];
+    }
+
+    /**
+     * @return The ordinal of the BYDAY entry (e.g. -1 for "-1SU"), or 0 for every such weekday.
+     */
+    public int getByDayNum(int index) {
+        return mByDayNum[index];
+    }
+
+    public int getByMonthDayCount() {
+        return mByMonthDay.length;
+    }
+
+    public int getByMonthDay(int index) {
+        return mByMonthDay[index];
+    }
+
+    public int getByYearDayCount() {
+        return mByYearDay.length;
+    }
+
+    public int getByYearDay(int index) {
+        return mByYearDay[index];
+    }
+
+    public int getByWeekNoCount() {
+        return mByWeekNo.length;
+    }
+
+    public int getByWeekNo(int index) {
+        return mByWeekNo[index];
+    }
+
+    public int getByMonthCount() {
+        return mByMonth.length;
+    }
+
+    public int getByMonth(int index) {
+        return mByMonth[index];
+    }
+
+    public int getBySetPosCount() {
+        return mBySetPos.length;
+    }
+
+    public int getBySetPos(int index) {
+        return mBySetPos[index];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof ImmutableEventRecurrence && mCanonical.equals(((ImmutableEventRecurrence) obj).mCanonical);
+    }
+
+    @Override
+    public int hashCode() {
+        return mCanonical.hashCode();
+    }
+
+    /**
+     * @return The canonical rule string; equivalent spellings of a rule give the same string.
+     */
+    @Override
+    public String toString() {
+        return mCanonical;
+    }
+}
@@ -0,0 +1,648 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.TextUtils;
+
+import com.codetroopers.betterpickers.EpochDays;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compact, immutable form of a recurrence rule, e.g. to keep the rules of a large event store in memory. <p> Each
+ * BYxxx part is a bit mask instead of an int array: week days take 7 bits, months 12, month days 62 (1..31 and
+ * -1..-31), hours, minutes and seconds one bit per value, and week numbers 106.  Only BYDAY entries with an ordinal,
+ * BYYEARDAY and BYSETPOS stay lists, of packed shorts.  UNTIL is kept as seconds since the epoch.  Most rules fit in a
+ * handful of longs, and comparing two rules compares those longs. <p> Like {@link ImmutableEventRecurrence}, values
+ * are canonical: the order and duplicates of list entries are dropped, an INTERVAL of 1 is stored as 0 and the week
+ * start defaults to Monday. <p> {@link #writeTo(ByteBuffer)} and {@link #readFrom(ByteBuffer)} implement a versioned
+ * binary format, which is also the Parcel form.
+ */
+public final class PackedEventRecurrence implements Parcelable {
+
+    private static final byte VERSION = 1;
+
+    private static final int UNTIL_NONE = 0;
+    private static final int UNTIL_DATE = 1;
+    private static final int UNTIL_LOCAL = 2;
+    private static final int UNTIL_UTC = 3;
+
+    /* layout of mHeader */
+    private static final int FREQ_SHIFT = 0;
+    private static final int WKST_SHIFT = 3;
+    private static final int WEEKDAYS_SHIFT = 6;
+    private static final int MONTHS_SHIFT = 13;
+    private static final int INTERVAL_SHIFT = 25;
+    private static final int UNTIL_KIND_SHIFT = 41;
+    private static final int MAX_INTERVAL = 0xffff;
+
+    /* sections present in the binary form */
+    private static final int HAS_UNTIL = 1;
+    private static final int HAS_COUNT = 1 << 1;
+    private static final int HAS_TIME = 1 << 2;
+    private static final int HAS_MONTH_DAYS = 1 << 3;
+    private static final int HAS_WEEK_NOS = 1 << 4;
+    private static final int HAS_NTH_DAYS = 1 << 5;
+    private static final int HAS_YEAR_DAYS = 1 << 6;
+    private static final int HAS_SET_POS = 1 << 7;
+
+    private static final short[] EMPTY = new short[0];
+
+    private final long mHeader;
+    private final long mUntil;
+    private final int mCount;
+    private final int mHours;
+    private final long mMinutes;
+    private final long mSeconds;
+    /* bit d - 1 for d, bit 30 - d for -d */
+    private final long mMonthDays;
+    /* bit n - 1 for n, 53 - n for -n, over two longs */
+    private final long mWeekNos;
+    private final long mWeekNosHigh;
+    /* ordinal << 3 | Time.SUNDAY..Time.SATURDAY, sorted */
+    private final short[] mNthDays;
+    private final short[] mYearDays;
+    private final short[] mSetPos;
+
+    /**
+     * Packs the rule held by {@code er}.  The start date is not part of it.
+     *
+     * @throws IllegalArgumentException if a value is out of the RFC 5545 range, or UNTIL is not a date or a date-time.
+     */
+    public PackedEventRecurrence(EventRecurrence er) {
+        int interval = er.interval <= 1 ? 0 : er.interval;
+        if (interval > MAX_INTERVAL) {
+            throw new IllegalArgumentException("INTERVAL is too large: " + er.interval);
+        }
+        if (er.freq < 0 || er.freq > EventRecurrence.YEARLY) {
+            throw new IllegalArgumentException("Bad FREQ: " + er.freq);
+        }
+        int wkst = EventRecurrence.day2TimeDay(er.wkst != 0 ? er.wkst : EventRecurrence.MO);
+
+        int weekDays = 0;
+        int nthCount = 0;
+        short[] nthDays = new short[er.bydayCount];
+        for (int i = 0; i < er.bydayCount; i++) {
+            int weekDay = EventRecurrence.day2TimeDay(er.byday[i]);
+            int n = er.bydayNum[i];
+            if (n == 0) {
+                weekDays |= 1 << weekDay;
+            } else {
+                checkRange("BYDAY", n, -53, 53);
+                nthDays[nthCount++] = (short) (n << 3 | weekDay);
+            }
+        }
+        mNthDays = sortDistinct(nthDays, nthCount);
+
+        long months = 0;
+        for (int i = 0; i < er.bymonthCount; i++) {
+            months |= 1L << (checkRange("BYMONTH", er.bymonth[i], 1, 12) - 1);
+        }
+
+        int untilKind = UNTIL_NONE;
+        if (!TextUtils.isEmpty(er.until)) {
+            untilKind = getUntilKind(er.until);
+            mUntil = parseUntil(er.until);
+        } else {
+            mUntil = 0;
+        }
+
+        mHeader = (long) er.freq << FREQ_SHIFT | (long) wkst << WKST_SHIFT | (long) weekDays << WEEKDAYS_SHIFT
+                | months << MONTHS_SHIFT | (long) interval << INTERVAL_SHIFT | (long) untilKind << UNTIL_KIND_SHIFT;
+        mCount = er.count;
+
+        int hours = 0;
+        for (int i = 0; i < er.byhourCount; i++) {
+            hours |= 1 << checkRange("BYHOUR", er.byhour[i], 0, 23);
+        }
+        mHours = hours;
+        long minutes = 0;
+        for (int i = 0; i < er.byminuteCount; i++) {
+            minutes |= 1L << checkRange("BYMINUTE", er.byminute[i], 0, 59);
+        }
+        mMinutes = minutes;
+        long seconds = 0;
+        for (int i = 0; i < er.bysecondCount; i++) {
+            seconds |= 1L << checkRange("BYSECOND", er.bysecond[i], 0, 60);
+        }
+        mSeconds = seconds;
+
+        long monthDays = 0;
+        for (int i = 0; i < er.bymonthdayCount; i++) {
+            int value = checkRange("BYMONTHDAY", er.bymonthday[i], -31, 31);
+            if (value == 0) {
+                throw new IllegalArgumentException("BYMONTHDAY can't be 0");
+            }
+            monthDays |= 1L << (value > 0 ? value - 1 : 30 - value);
+        }
+        mMonthDays = monthDays;
+
+        long weekNos = 0;
+        long weekNosHigh = 0;
+        for (int i = 0; i < er.byweeknoCount; i++) {
+            int value = checkRange("BYWEEKNO", er.byweekno[i], -53, 53);
+            if (value == 0) {
+                throw new IllegalArgumentException("BYWEEKNO can't be 0");
+            }
+            int bit = value > 0 ? value - 1 : 52 - value;
+            if (bit < 64) {
+                weekNos |= 1L << bit;
+            } else {
+                weekNosHigh |= 1L << (bit - 64);
+            }
+        }
+        mWeekNos = weekNos;
+        mWeekNosHigh = weekNosHigh;
+
+        mYearDays = toSortedShorts("BYYEARDAY", er.byyearday, er.byyeardayCount, 366);
+        mSetPos = toSortedShorts("BYSETPOS", er.bysetpos, er.bysetposCount, 366);
+    }
+
+    private PackedEventRecurrence(ByteBuffer in) {
+        int sections = in.get() & 0xff;
+        mHeader = in.getLong();
+        mUntil = (sections & HAS_UNTIL) != 0 ? in.getLong() : 0;
+        mCount = (sections & HAS_COUNT) != 0 ? in.getInt() : 0;
+        if ((sections & HAS_TIME) != 0) {
+            mHours = in.getInt();
+            mMinutes = in.getLong();
+            mSeconds = in.getLong();
+        } else {
+            mHours = 0;
+            mMinutes = 0;
+            mSeconds = 0;
+        }
+        mMonthDays = (sections & HAS_MONTH_DAYS) != 0 ? in.getLong() : 0;
+        if ((sections & HAS_WEEK_NOS) != 0) {
+            mWeekNos = in.getLong();
+            mWeekNosHigh = in.getLong();
+        } else {
+            mWeekNos = 0;
+            mWeekNosHigh = 0;
+        }
+        mNthDays = (sections & HAS_NTH_DAYS) != 0 ? readShorts(in) : EMPTY;
+        mYearDays = (sections & HAS_YEAR_DAYS) != 0 ? readShorts(in) : EMPTY;
+        mSetPos = (sections & HAS_SET_POS) != 0 ? readShorts(in) : EMPTY;
+    }
+
+    private static int checkRange(String part, int value, int min, int max) {
+        if (value < min || value > max) {
+            throw new IllegalArgumentException(part + " value out of range: " + value);
+        }
+        return value;
+    }
+
+    private static short[] toSortedShorts(String part, int[] values, int count, int max) {
+        short[] shorts = new short[count];
+        for (int i = 0; i < count; i++) {
+            int value = checkRange(part, values[i], -max, max);
+            if (value == 0) {
+                throw new IllegalArgumentException(part + " can't be 0");
+            }
+            shorts[i] = (short) value;
+        }
+        return sortDistinct(shorts, count);
+    }
+
+    private static short[] sortDistinct(short[] values, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(values, 0, count);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (values[i] != values[distinct - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return distinct == values.length ? values : Arrays.copyOf(values, distinct);
+    }
+
+    private static int getUntilKind(String until) {
+        int length = until.length();
+        if (length == 8) {
+            return UNTIL_DATE;
+        }
+        if (length == 15 && until.charAt(8) == 'T') {
+            return UNTIL_LOCAL;
+        }
+        if (length == 16 && until.charAt(8) == 'T' && until.charAt(15) == 'Z') {
+            return UNTIL_UTC;
+        }
+        throw new IllegalArgumentException("Invalid UNTIL value: " + until);
+    }
+
+    /**
+     * @return The date-time of UNTIL as seconds since the epoch, reading its wall clock as if it was UTC.
+     */
+    private static long parseUntil(String until) {
+        int year = parseDigits(until, 0, 4);
+        int month = parseDigits(until, 4, 6);
+        int monthDay = parseDigits(until, 6, 8);
+        if (month < 1 || month > 12 || monthDay < 1 || monthDay > EpochDays.getDaysInMonth(year, month - 1)) {
+            throw new IllegalArgumentException("Invalid UNTIL value: " + until);
+        }
+        long seconds = EpochDays.of(year, month - 1, monthDay) * 86400L;
+        if (until.length() > 8) {
+            int hour = parseDigits(until, 9, 11);
+            int minute = parseDigits(until, 11, 13);
+            int second = parseDigits(until, 13, 15);
+            if (hour > 23 || minute > 59 || second > 60) {
+                throw new IllegalArgumentException("Invalid UNTIL value: " + until);
+            }
+            seconds += hour * 3600 + minute * 60 + second;
+        }
+        return seconds;
+    }
+
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid UNTIL value: " + s);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static short[] readShorts(ByteBuffer in) {
+        short[] values = new short[in.getShort() & 0xffff];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.getShort();
+        }
+        return values;
+    }
+
+    private static void writeShorts(ByteBuffer out, short[] values) {
+        out.putShort((short) values.length);
+        for (short value : values) {
+            out.putShort(value);
+        }
+    }
+
+    private int getSections() {
+        int sections = 0;
+        if (getUntilKind() != UNTIL_NONE) {
+            sections |= HAS_UNTIL;
+        }
+        if (mCount != 0) {
+            sections |= HAS_COUNT;
+        }
+        if (mHours != 0 || mMinutes != 0 || mSeconds != 0) {
+            sections |= HAS_TIME;
+        }
+        if (mMonthDays != 0) {
+            sections |= HAS_MONTH_DAYS;
+        }
+        if (mWeekNos != 0 || mWeekNosHigh != 0) {
+            sections |= HAS_WEEK_NOS;
+        }
+        if (mNthDays.length > 0) {
+            sections |= HAS_NTH_DAYS;
+        }
+        if (mYearDays.length > 0) {
+            sections |= HAS_YEAR_DAYS;
+        }
+        if (mSetPos.length > 0) {
+            sections |= HAS_SET_POS;
+        }
+        return sections;
+    }
+
+    /**
+     * @return The number of bytes {@link #writeTo(ByteBuffer)} writes.
+     */
+    public int getEncodedSize() {
+        int sections = getSections();
+        int size = 2 + 8;
+        size += (sections & HAS_UNTIL) != 0 ? 8 : 0;
+        size += (sections & HAS_COUNT) != 0 ? 4 : 0;
+        size += (sections & HAS_TIME) != 0 ? 4 + 8 + 8 : 0;
+        size += (sections & HAS_MONTH_DAYS) != 0 ? 8 : 0;
+        size += (sections & HAS_WEEK_NOS) != 0 ? 16 : 0;
+        size += (sections & HAS_NTH_DAYS) != 0 ? 2 + 2 * mNthDays.length : 0;
+        size += (sections & HAS_YEAR_DAYS) != 0 ? 2 + 2 * mYearDays.length : 0;
+        size += (sections & HAS_SET_POS) != 0 ? 2 + 2 * mSetPos.length : 0;
+        return size;
+    }
+
+    /**
+     * Writes the binary form at the position of {@code out}: a version byte, a byte telling which sections follow,
+     * the header long, then only the sections the rule uses.
+     *
+     * @throws java.nio.BufferOverflowException if there are less than {@link #getEncodedSize()} bytes remaining.
+     */
+    public void writeTo(ByteBuffer out) {
+        int sections = getSections();
+        out.put(VERSION);
+        out.put((byte) sections);
+        out.putLong(mHeader);
+        if ((sections & HAS_UNTIL) != 0) {
+            out.putLong(mUntil);
+        }
+        if ((sections & HAS_COUNT) != 0) {
+            out.putInt(mCount);
+        }
+        if ((sections & HAS_TIME) != 0) {
+            out.putInt(mHours);
+            out.putLong(mMinutes);
+            out.putLong(mSeconds);
+        }
+        if ((sections & HAS_MONTH_DAYS) != 0) {
+            out.putLong(mMonthDays);
+        }
+        if ((sections & HAS_WEEK_NOS) != 0) {
+            out.putLong(mWeekNos);
+            out.putLong(mWeekNosHigh);
+        }
+        if ((sections & HAS_NTH_DAYS) != 0) {
+            writeShorts(out, mNthDays);
+        }
+        if ((sections & HAS_YEAR_DAYS) != 0) {
+            writeShorts(out, mYearDays);
+        }
+        if ((sections & HAS_SET_POS) != 0) {
+            writeShorts(out, mSetPos);
+        }
+    }
+
+    /**
+     * Reads a rule written by {@link #writeTo(ByteBuffer)}, advancing the position of {@code in} past it.
+     *
+     * @throws IllegalArgumentException if the data was written by an unknown version of the format.
+     * @throws java.nio.BufferUnderflowException if the data is truncated.
+     */
+    public static PackedEventRecurrence readFrom(ByteBuffer in) {
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported version: " + version);
+        }
+        return new PackedEventRecurrence(in);
+    }
+
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(getEncodedSize());
+        writeTo(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Copies this rule into {@code er}, reusing its arrays when they are large enough.  The start date of {@code er}
+     * is left untouched.  List parts come out sorted.
+     */
+    public void copyTo(EventRecurrence er) {
+        er.freq = getFreq();
+        er.interval = getInterval();
+        er.wkst = EventRecurrence.timeDay2Day((int) (mHeader >>> WKST_SHIFT) & 7);
+        er.count = mCount;
+        er.until = getUntil();
+
+        int weekDays = getWeekDays();
+        er.bydayCount = Integer.bitCount(weekDays) + mNthDays.length;
+        er.byday = ensureCapacity(er.byday, er.bydayCount);
+        er.bydayNum = ensureCapacity(er.bydayNum, er.bydayCount);
+        int n = 0;
+        for (int weekDay = 0; weekDay < 7; weekDay++) {
+            if ((weekDays & (1 << weekDay)) != 0) {
+                er.byday[n] = EventRecurrence.timeDay2Day(weekDay);
+                er.bydayNum[n++] = 0;
+            }
+        }
+        for (short nthDay : mNthDays) {
+            er.byday[n] = EventRecurrence.timeDay2Day(nthDay & 7);
+            er.bydayNum[n++] = nthDay >> 3;
+        }
+
+        int months = getMonths();
+        er.bymonthCount = Integer.bitCount(months);
+        er.bymonth = ensureCapacity(er.bymonth, er.bymonthCount);
+        n = 0;
+        for (int month = 0; month < 12; month++) {
+            if ((months & (1 << month)) != 0) {
+                er.bymonth[n++] = month + 1;
+            }
+        }
+
+        er.bymonthdayCount = Long.bitCount(mMonthDays);
+        er.bymonthday = ensureCapacity(er.bymonthday, er.bymonthdayCount);
+        n = 0;
+        for (int bit = 61; bit >= 31; bit--) {
+            if ((mMonthDays & (1L << bit)) != 0) {
+                er.bymonthday[n++] = 30 - bit;
+            }
+        }
+        for (int bit = 0; bit < 31; bit++) {
+            if ((mMonthDays & (1L << bit)) != 0) {
+                er.bymonthday[n++] = bit + 1;
+            }
+        }
+
+        er.byweeknoCount = Long.bitCount(mWeekNos) + Long.bitCount(mWeekNosHigh);
+        er.byweekno = ensureCapacity(er.byweekno, er.byweeknoCount);
+        n = 0;
+        for (int bit = 105; bit >= 53; bit--) {
+            if (isWeekNoBitSet(bit)) {
+                er.byweekno[n++] = 52 - bit;
+            }
+        }
+        for (int bit = 0; bit < 53; bit++) {
+            if (isWeekNoBitSet(bit)) {
+                er.byweekno[n++] = bit + 1;
+            }
+        }
+
+        er.byhourCount = Integer.bitCount(mHours);
+        er.byhour = ensureCapacity(er.byhour, er.byhourCount);
+        n = 0;
+        for (int hour = 0; hour < 24; hour++) {
+            if ((mHours & (1 << hour)) != 0) {
+                er.byhour[n++] = hour;
+            }
+        }
+        er.byminuteCount = Long.bitCount(mMinutes);
+        er.byminute = toValues(mMinutes, er.byminute, er.byminuteCount);
+        er.bysecondCount = Long.bitCount(mSeconds);
+        er.bysecond = toValues(mSeconds, er.bysecond, er.bysecondCount);
+
+        er.byyeardayCount = mYearDays.length;
+        er.byyearday = toValues(mYearDays, er.byyearday);
+        er.bysetposCount = mSetPos.length;
+        er.bysetpos = toValues(mSetPos, er.bysetpos);
+    }
+
+    /**
+     * @return A new, mutable EventRecurrence holding this rule.
+     */
+    public EventRecurrence toEventRecurrence() {
+        EventRecurrence er = new EventRecurrence();
+        copyTo(er);
+        return er;
+    }
+
+    private boolean isWeekNoBitSet(int bit) {
+        return bit < 64 ? (mWeekNos & (1L << bit)) != 0 : (mWeekNosHigh & (1L << (bit - 64))) != 0;
+    }
+
+    private static int[] ensureCapacity(int[] array, int count) {
+        return array == null || array.length < count ? new int[count] : array;
+    }
+
+    private static int[] toValues(long bits, int[] array, int count) {
+        array = ensureCapacity(array, count);
+        int n = 0;
+        while (bits != 0) {
+            array[n++] = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+        }
+        return array;
+    }
+
+    private static int[] toValues(short[] values, int[] array) {
+        array = ensureCapacity(array, values.length);
+        for (int i = 0; i < values.length; i++) {
+            array[i] = values[i];
+        }
+        return array;
+    }
+
+    public int getFreq() {
+        return (int) (mHeader >>> FREQ_SHIFT) & 7;
+    }
+
+    /**
+     * @return The interval, or 0 when the rule repeats every period.
+     */
+    public int getInterval() {
+        return (int) (mHeader >>> INTERVAL_SHIFT) & MAX_INTERVAL;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return The plain BYDAY entries (without ordinal), as a mask of 1 << Time.SUNDAY..Time.SATURDAY bits.
+     */
+    public int getWeekDays() {
+        return (int) (mHeader >>> WEEKDAYS_SHIFT) & 0x7f;
+    }
+
+    /**
+     * @return BYMONTH as a mask of 1 << (month - 1) bits.
+     */
+    public int getMonths() {
+        return (int) (mHeader >>> MONTHS_SHIFT) & 0xfff;
+    }
+
+    /**
+     * @return BYMONTHDAY as a mask: bit d - 1 for day d, bit 30 + d for day -d.
+     */
+    public long getMonthDays() {
+        return mMonthDays;
+    }
+
+    private int getUntilKind() {
+        return (int) (mHeader >>> UNTIL_KIND_SHIFT) & 3;
+    }
+
+    /**
+     * @return UNTIL as seconds since the epoch, reading a local date-time as if it was UTC; or Long.MIN_VALUE when
+     * the rule has no UNTIL.
+     */
+    public long getUntilSeconds() {
+        return getUntilKind() == UNTIL_NONE ? Long.MIN_VALUE : mUntil;
+    }
+
+    /**
+     * @return UNTIL in its RFC 5545 form, or null.
+     */
+    public String getUntil() {
+        int kind = getUntilKind();
+        if (kind == UNTIL_NONE) {
+            return null;
+        }
+        int date = EpochDays.toPackedDate((int) EpochDays.floorDiv(mUntil, 86400L));
+        StringBuilder sb = new StringBuilder(16);
+        appendDigits(sb, EpochDays.getPackedYear(date), 4);
+        appendDigits(sb, EpochDays.getPackedMonth(date) + 1, 2);
+        appendDigits(sb, EpochDays.getPackedMonthDay(date), 2);
+        if (kind != UNTIL_DATE) {
+            int seconds = (int) (mUntil - EpochDays.floorDiv(mUntil, 86400L) * 86400L);
+            sb.append('T');
+            appendDigits(sb, seconds / 3600, 2);
+            appendDigits(sb, seconds / 60 % 60, 2);
+            appendDigits(sb, seconds % 60, 2);
+            if (kind == UNTIL_UTC) {
+                sb.append('Z');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendDigits(StringBuilder sb, int value, int digits) {
+        for (int divisor = digits == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            sb.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PackedEventRecurrence)) {
+            return false;
+        }
+        PackedEventRecurrence other = (PackedEventRecurrence) obj;
+        return mHeader == other.mHeader && mUntil == other.mUntil && mCount == other.mCount
+                && mMonthDays == other.mMonthDays && mHours == other.mHours && mMinutes == other.mMinutes
+                && mSeconds == other.mSeconds && mWeekNos == other.mWeekNos && mWeekNosHigh == other.mWeekNosHigh
+                && Arrays.equals(mNthDays, other.mNthDays) && Arrays.equals(mYearDays, other.mYearDays)
+                && Arrays.equals(mSetPos, other.mSetPos);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (mHeader ^ (mHeader >>> 32));
+        result = 31 * result + (int) (mUntil ^ (mUntil >>> 32));
+        result = 31 * result + mCount;
+        result = 31 * result + (int) (mMonthDays ^ (mMonthDays >>> 32));
+        result = 31 * result + mHours;
+        result = 31 * result + (int) (mMinutes ^ (mMinutes >>> 32));
+        result = 31 * result + (int) (mSeconds ^ (mSeconds >>> 32));
+        result = 31 * result + (int) (mWeekNos ^ (mWeekNos >>> 32) ^ mWeekNosHigh);
+        result = 31 * result + Arrays.hashCode(mNthDays);
+        result = 31 * result + Arrays.hashCode(mYearDays);
+        result = 31 * result + Arrays.hashCode(mSetPos);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toEventRecurrence().toString();
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeByteArray(toByteArray());
+    }
+
+    public static final Creator<PackedEventRecurrence> CREATOR = new Creator<PackedEventRecurrence>() {
+
+        public PackedEventRecurrence createFromParcel(Parcel source) {
+            return readFrom(ByteBuffer.wrap(source.createByteArray()));
+        }
+
+        public PackedEventRecurrence[] newArray(int size) {
+            return new PackedEventRecurrence[size];
+        }
+    };
+}
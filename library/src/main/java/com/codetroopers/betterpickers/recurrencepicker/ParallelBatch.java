@@ -0,0 +1,104 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the bulk operations of this package, e.g. {@link EventRecurrenceValidator} and {@link RecurrenceAgenda}, on one
+ * shared pool of daemon threads, one per core. <p> A batch is a range of indexes whose items can be processed
+ * independently: small batches run on the calling thread, larger ones are cut into chunks, the calling thread runs the
+ * first one, and {@link #run} returns once all of them are done.
+ */
+final class ParallelBatch {
+
+    /**
+     * Processes the items of [start, end).
+     */
+    interface Chunk {
+
+        void run(int start, int end);
+    }
+
+    /**
+     * Number of chunks per core, so that a core that drew expensive items can pick up more work.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static ExecutorService sExecutor;
+
+    private ParallelBatch() {
+    }
+
+    /**
+     * Runs {@code chunk} over [0, size), spreading the work across the available cores.
+     *
+     * @param minChunkSize Batches smaller than twice this run on the calling thread, and larger ones are never split
+     * into chunks smaller than this.
+     * @param executor Runs the chunks after the first one, usually {@link #getExecutor()}.
+     * @throws RuntimeException wrapping the exception a chunk on another thread threw.
+     */
+    static void run(int size, int minChunkSize, ExecutorService executor, final Chunk chunk)
+            throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (size < minChunkSize * 2 || threads < 2) {
+            chunk.run(0, size);
+            return;
+        }
+
+        int chunks = Math.min(threads * CHUNKS_PER_THREAD, size / minChunkSize);
+        int chunkSize = (size + chunks - 1) / chunks;
+        List<Future<?>> futures = new ArrayList<>(chunks);
+        try {
+            for (int start = chunkSize; start < size; start += chunkSize) {
+                final int from = start;
+                final int to = Math.min(start + chunkSize, size);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        chunk.run(from, to);
+                    }
+                }));
+            }
+            chunk.run(0, chunkSize);
+
+            // Future.get() also publishes what the other threads wrote.
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return The shared pool, which also runs {@link EventRecurrenceFormatter#formatAll} and the background work of
+     * the picker.  Its threads are daemons, so they never keep the process alive.
+     */
+    static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+                        // pools create their threads outside of their lock
+                        private final AtomicInteger mCount = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "Recurrence #" + mCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return sExecutor;
+    }
+}
@@ -0,0 +1,194 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Merges the occurrences of many recurring events inside a window into one stream sorted by time, e.g. to fill an
+ * agenda. <p> The events are set up in parallel: each gets a {@link RecurrenceExpander} positioned on its first
+ * occurrence in the window.  The stream then pulls from a min-heap of event indexes ordered by their next occurrence,
+ * and only advances the event it just returned, so at most one pending occurrence per event exists at a time and
+ * nothing past the window is computed. <p> Use it like a cursor:
+ * <pre>
+ * RecurrenceAgenda agenda = new RecurrenceAgenda(recurrences, windowStart, windowEnd);
+ * while (agenda.moveToNext()) {
+ *     show(agenda.getEventIndex(), agenda.getInstant());
+ * }
+ * </pre>
+ * Occurrences at the same instant come out by ascending event index.  Instances are not thread-safe.
+ */
+public class RecurrenceAgenda {
+
+    /**
+     * Batches smaller than this are set up on the calling thread, and larger ones are never split into chunks smaller
+     * than this.
+     */
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private final EventRecurrence[] mRecurrences;
+    private final RecurrenceExpander[] mExpanders;
+    private final long mWindowEnd;
+
+    /* pending occurrence of each event in the heap */
+    private final long[] mPending;
+    /* binary min-heap of event indexes, ordered by mPending then by index */
+    private final int[] mHeap;
+    private int mHeapSize;
+
+    private int mEventIndex = -1;
+    private long mInstant = RecurrenceExpander.NO_OCCURRENCE;
+
+    /**
+     * @param recurrences The rules of the events, with their start dates set.  Rules that can't be expanded (null, no
+     * start date, or not supported by {@link RecurrenceExpander}) produce no occurrences, see {@link
+     * #isExpanded(int)}.
+     * @param windowStart First instant of the window, inclusive.
+     * @param windowEnd Last instant of the window, exclusive.
+     */
+    public RecurrenceAgenda(EventRecurrence[] recurrences, long windowStart, long windowEnd)
+            throws InterruptedException {
+        this(recurrences, windowStart, windowEnd, ParallelBatch.getExecutor());
+    }
+
+    /**
+     * Same as {@link #RecurrenceAgenda(EventRecurrence[], long, long)}, setting up the events on the given executor.
+     * The calling thread sets up the first chunk itself.
+     */
+    public RecurrenceAgenda(EventRecurrence[] recurrences, final long windowStart, long windowEnd,
+            ExecutorService executor) throws InterruptedException {
+        mRecurrences = recurrences;
+        mExpanders = new RecurrenceExpander[recurrences.length];
+        mPending = new long[recurrences.length];
+        mHeap = new int[recurrences.length];
+        mWindowEnd = windowEnd;
+
+        ParallelBatch.run(recurrences.length, MIN_CHUNK_SIZE, executor, new ParallelBatch.Chunk() {
+            @Override
+            public void run(int start, int end) {
+                startRange(windowStart, start, end);
+            }
+        });
+
+        for (int i = 0; i < recurrences.length; i++) {
+            if (mPending[i] != RecurrenceExpander.NO_OCCURRENCE) {
+                mHeap[mHeapSize++] = i;
+            }
+        }
+        for (int i = (mHeapSize >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Creates the expanders of [start, end) and finds their first occurrence in the window.
+     */
+    private void startRange(long windowStart, int start, int end) {
+        for (int i = start; i < end; i++) {
+            EventRecurrence recurrence = mRecurrences[i];
+            mPending[i] = RecurrenceExpander.NO_OCCURRENCE;
+            if (recurrence == null || recurrence.startDate == null || !RecurrenceExpander.isSupported(recurrence)) {
+                continue;
+            }
+            RecurrenceExpander expander;
+            try {
+                expander = new RecurrenceExpander(recurrence);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            mExpanders[i] = expander;
+            long first = windowStart == Long.MIN_VALUE ? expander.getOccurrence(0) : expander.nextAfter(windowStart - 1);
+            if (first != RecurrenceExpander.NO_OCCURRENCE && first < mWindowEnd) {
+                mPending[i] = first;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next occurrence in the window.
+     *
+     * @return false when all occurrences were returned.
+     */
+    public boolean moveToNext() {
+        if (mHeapSize == 0) {
+            mEventIndex = -1;
+            mInstant = RecurrenceExpander.NO_OCCURRENCE;
+            return false;
+        }
+        int event = mHeap[0];
+        mEventIndex = event;
+        mInstant = mPending[event];
+
+        long next = mExpanders[event].nextAfter(mInstant);
+        if (next != RecurrenceExpander.NO_OCCURRENCE && next < mWindowEnd) {
+            mPending[event] = next;
+        } else {
+            mHeap[0] = mHeap[--mHeapSize];
+        }
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Copies up to {@code eventIndexes.length} next occurrences, e.g. to fill one page of an agenda at once.
+     *
+     * @return The number of occurrences copied, less than the array length only at the end of the window.
+     */
+    public int moveToNext(int[] eventIndexes, long[] instants) {
+        int count = Math.min(eventIndexes.length, instants.length);
+        for (int i = 0; i < count; i++) {
+            if (!moveToNext()) {
+                return i;
+            }
+            eventIndexes[i] = mEventIndex;
+            instants[i] = mInstant;
+        }
+        return count;
+    }
+
+    /**
+     * @return The index in the recurrences array of the current occurrence, or -1 before the first call to
+     * moveToNext() and at the end.
+     */
+    public int getEventIndex() {
+        return mEventIndex;
+    }
+
+    /**
+     * @return The current occurrence, or {@link RecurrenceExpander#NO_OCCURRENCE}.
+     */
+    public long getInstant() {
+        return mInstant;
+    }
+
+    /**
+     * @return false if the rule of the event could not be expanded and is left out of the agenda.
+     */
+    public boolean isExpanded(int eventIndex) {
+        return mExpanders[eventIndex] != null;
+    }
+
+    private void siftDown(int index) {
+        int size = mHeapSize;
+        int event = mHeap[index];
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isBefore(mHeap[child + 1], mHeap[child])) {
+                child++;
+            }
+            if (!isBefore(mHeap[child], event)) {
+                break;
+            }
+            mHeap[index] = mHeap[child];
+            index = child;
+        }
+        mHeap[index] = event;
+    }
+
+    private boolean isBefore(int event, int other) {
+        long instant = mPending[event];
+        long otherInstant = mPending[other];
+        return instant < otherInstant || (instant == otherInstant && event < other);
+    }
+}
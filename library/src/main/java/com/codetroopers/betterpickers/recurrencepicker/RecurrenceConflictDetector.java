@@ -0,0 +1,163 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import java.util.Arrays;
+
+/**
+ * Finds overlapping occurrences of recurring events, e.g. to flag double-bookings. <p> Occurrences are pulled in time
+ * order from a {@link RecurrenceAgenda} and swept from left to right: the occurrences still in progress are kept in a
+ * min-heap ordered by end time.  When an occurrence starts, the ones that ended are popped, and every one left in the
+ * heap overlaps it.  Finding k conflicts among n occurrences takes O((n + k) log n) time, and no occurrence is
+ * expanded before the sweep reaches it. <p> Two occurrences of the same event are not reported as a conflict.
+ * Instances are not thread-safe.
+ */
+public class RecurrenceConflictDetector {
+
+    public interface OnConflictListener {
+
+        /**
+         * Called for each pair of overlapping occurrences, ordered by the start of the second one.
+         *
+         * @param eventIndex Event of the occurrence that started first.
+         * @param otherEventIndex Event of the occurrence that overlaps it.
+         * @return false to stop looking for conflicts.
+         */
+        boolean onConflict(int eventIndex, long start, int otherEventIndex, long otherStart);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final EventRecurrence[] mRecurrences;
+    private final long[] mDurations;
+    private final long mMaxDuration;
+
+    /* min-heap of the occurrences in progress, ordered by end */
+    private long[] mEnds = new long[INITIAL_CAPACITY];
+    private long[] mStarts = new long[INITIAL_CAPACITY];
+    private int[] mEvents = new int[INITIAL_CAPACITY];
+    private int mSize;
+
+    /**
+     * @param recurrences The rules of the events, with their start dates set.  Rules that {@link RecurrenceAgenda}
+     * can't expand are ignored.
+     * @param durations The duration of the occurrences of each event, in milliseconds.
+     */
+    public RecurrenceConflictDetector(EventRecurrence[] recurrences, long[] durations) {
+        if (recurrences.length != durations.length) {
+            throw new IllegalArgumentException("Got " + recurrences.length + " recurrences but "
+                    + durations.length + " durations");
+        }
+        long maxDuration = 0;
+        for (long duration : durations) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("Negative duration: " + duration);
+            }
+            maxDuration = Math.max(maxDuration, duration);
+        }
+        mRecurrences = recurrences;
+        mDurations = durations;
+        mMaxDuration = maxDuration;
+    }
+
+    /**
+     * Reports the overlapping occurrences that are in progress during [windowStart, windowEnd).
+     *
+     * @return The number of conflicts reported to the listener.
+     */
+    public int findConflicts(long windowStart, long windowEnd, OnConflictListener listener)
+            throws InterruptedException {
+        // occurrences that started earlier may still be in progress at the start of the window
+        long sweepStart = windowStart - mMaxDuration > windowStart ? Long.MIN_VALUE : windowStart - mMaxDuration;
+        RecurrenceAgenda agenda = new RecurrenceAgenda(mRecurrences, sweepStart, windowEnd);
+
+        int conflicts = 0;
+        mSize = 0;
+        try {
+            while (agenda.moveToNext()) {
+                int event = agenda.getEventIndex();
+                long start = agenda.getInstant();
+                long end = start + mDurations[event];
+                if (end <= windowStart || end <= start) {
+                    continue;
+                }
+
+                while (mSize > 0 && mEnds[0] <= start) {
+                    pop();
+                }
+                for (int i = 0; i < mSize; i++) {
+                    if (mEvents[i] != event) {
+                        conflicts++;
+                        if (!listener.onConflict(mEvents[i], mStarts[i], event, start)) {
+                            return conflicts;
+                        }
+                    }
+                }
+                push(end, start, event);
+            }
+            return conflicts;
+        } finally {
+            mSize = 0;
+        }
+    }
+
+    /**
+     * Stops at the first conflict, e.g. to validate a rule while the user is editing it.
+     *
+     * @return true if any two occurrences overlap during [windowStart, windowEnd).
+     */
+    public boolean hasConflict(long windowStart, long windowEnd) throws InterruptedException {
+        return findConflicts(windowStart, windowEnd, new OnConflictListener() {
+            @Override
+            public boolean onConflict(int eventIndex, long start, int otherEventIndex, long otherStart) {
+                return false;
+            }
+        }) > 0;
+    }
+
+    private void push(long end, long start, int event) {
+        if (mSize == mEnds.length) {
+            int capacity = mSize * 2;
+            mEnds = Arrays.copyOf(mEnds, capacity);
+            mStarts = Arrays.copyOf(mStarts, capacity);
+            mEvents = Arrays.copyOf(mEvents, capacity);
+        }
+        int index = mSize++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (mEnds[parent] <= end) {
+                break;
+            }
+            set(index, parent);
+            index = parent;
+        }
+        mEnds[index] = end;
+        mStarts[index] = start;
+        mEvents[index] = event;
+    }
+
+    private void pop() {
+        int last = --mSize;
+        long end = mEnds[last];
+        int index = 0;
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= mSize) {
+                break;
+            }
+            if (child + 1 < mSize && mEnds[child + 1] < mEnds[child]) {
+                child++;
+            }
+            if (mEnds[child] >= end) {
+                break;
+            }
+            set(index, child);
+            index = child;
+        }
+        set(index, last);
+    }
+
+    private void set(int index, int from) {
+        mEnds[index] = mEnds[from];
+        mStarts[index] = mStarts[from];
+        mEvents[index] = mEvents[from];
+    }
+}
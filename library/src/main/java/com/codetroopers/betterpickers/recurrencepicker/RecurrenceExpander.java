@@ -0,0 +1,863 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import android.text.TextUtils;
+import android.text.format.Time;
+
+import com.codetroopers.betterpickers.EpochDays;
+
+
+/**
+ * Computes occurrences of a recurrence rule directly from its period arithmetic, instead of enumerating them from the
+ * start date. <p> The rule is cut into periods (a day, a week starting on WKST, a month or a year) and every
+ * INTERVAL-th period from the one holding the start date produces the days selected by the BYxxx parts.  Finding the
+ * period that holds an instant is a division, and counting the occurrences before it is a multiplication when every
+ * period produces the same number of days; otherwise it is a lookup in a prefix table over one 400 year Gregorian
+ * cycle, after which every calendar pattern repeats. <p> Occurrences are the instances of the rule at or after the
+ * start date, at its time of day in its time zone.  COUNT and UNTIL bound them; an UNTIL date without a time includes
+ * the whole day. <p> The days of a year are evaluated as a 366 bit mask (see {@link YearMask}): each BYxxx part is a
+ * mask of the days it allows, the parts are combined with AND, and BYSETPOS picks days by rank with Long.bitCount.
+ * <p> BYHOUR, BYMINUTE and BYSECOND give every selected day the same list of times of day, so occurrence n is time
+ * n % k of day n / k for k times a day.  HOURLY and MINUTELY rules whose interval divides a day are the DAILY rule
+ * with one time per interval.  Occurrences are computed as wall-clock times, and converted to instants with the
+ * {@link ZoneTransitions} table of the zone, so 09:00 stays 09:00 across DST changes without resolving the zone for
+ * each occurrence. <p> See {@link #isSupported(EventRecurrence)} for the supported rules.  Instances are not
+ * thread-safe.
+ */
+public final class RecurrenceExpander {
+
+    /**
+     * Returned when there is no matching occurrence.
+     */
+    public static final long NO_OCCURRENCE = Long.MIN_VALUE;
+
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int MONTHS_PER_CYCLE = 400 * 12;
+    private static final int YEARS_PER_CYCLE = 400;
+    /* more times of day than a MINUTELY rule has are not supported */
+    private static final int MAX_TIMES_PER_DAY = 24 * 60;
+    /* later instants are treated as this one, so that days and periods fit in an int */
+    private static final long MAX_INSTANT = EpochDays.of(100000, 0, 1) * DAY_IN_MILLIS;
+
+    final int mFreq;
+    final int mInterval;
+    final int mCount;
+    final long mUntil;
+    final ZoneTransitions mZone;
+    final long mStartInstant;
+    final int mStartDay;
+    final int mStartMonthDay;
+    final int mStartMonth;
+    final int mMillisOfDay;
+    /* times of day of the occurrences in milliseconds, ascending */
+    final int[] mTimes;
+    final int mWeekStart;
+
+    /* BYDAY entries without an ordinal, as a mask of Time.SUNDAY..Time.SATURDAY bits */
+    final int mWeekDayMask;
+    /* BYDAY entries with an ordinal */
+    final int[] mNthWeekDay;
+    final int[] mNthNum;
+    final int[] mMonthDays;
+    /* BYMONTH, as a mask of 0-based month bits, or 0 */
+    final int mMonthMask;
+    final int[] mYearDays;
+    final int[] mWeekNos;
+    final int[] mSetPos;
+
+    private final int mStartPeriod;
+    private final int mUniformCount;
+    private final int mSkippedInFirstPeriod;
+    private final int mCycleLength;
+    private int[] mCyclePrefix;
+
+    private final int[] mDays = new int[366];
+    private final long[] mMask = YearMask.create();
+    private final long[] mFilter = YearMask.create();
+
+    /**
+     * @param er A supported rule whose start date is set.
+     * @throws IllegalArgumentException if the start date is not set, or UNTIL can't be read.
+     * @throws UnsupportedOperationException if the rule is not supported, see {@link #isSupported(EventRecurrence)}.
+     */
+    public RecurrenceExpander(EventRecurrence er) {
+        Time start = er.startDate;
+        if (start == null) {
+            throw new IllegalArgumentException("The start date of the recurrence is not set");
+        }
+        if (!isSupported(er)) {
+            throw new UnsupportedOperationException("Can't expand " + er);
+        }
+
+        // HOURLY and MINUTELY rules are expanded as DAILY rules with several times a day
+        mFreq = Math.max(er.freq, EventRecurrence.DAILY);
+        mInterval = er.interval <= 1 || er.freq < EventRecurrence.DAILY ? 1 : er.interval;
+        mCount = er.count;
+        mZone = ZoneTransitions.get(start.allDay || start.timezone == null ? Time.TIMEZONE_UTC : start.timezone);
+        mWeekStart = EventRecurrence.day2TimeDay(er.wkst != 0 ? er.wkst : EventRecurrence.MO);
+
+        mStartDay = EpochDays.of(start.year, start.month, start.monthDay);
+        mStartMonth = start.month;
+        mStartMonthDay = start.monthDay;
+        mMillisOfDay = start.allDay ? 0 : ((start.hour * 60 + start.minute) * 60 + start.second) * 1000;
+        mTimes = start.allDay ? new int[]{0} : getTimesOfDay(er, start);
+        mStartInstant = toInstant(mStartDay, mMillisOfDay);
+        mUntil = TextUtils.isEmpty(er.until) ? Long.MAX_VALUE : parseUntil(er.until);
+
+        int weekDayMask = 0;
+        int nthCount = 0;
+        for (int i = 0; i < er.bydayCount; i++) {
+            if (er.bydayNum[i] == 0) {
+                weekDayMask |= 1 << EventRecurrence.day2TimeDay(er.byday[i]);
+            } else {
+                nthCount++;
+            }
+        }
+        mWeekDayMask = weekDayMask;
+        mNthWeekDay = new int[nthCount];
+        mNthNum = new int[nthCount];
+        for (int i = 0, n = 0; i < er.bydayCount; i++) {
+            if (er.bydayNum[i] != 0) {
+                mNthWeekDay[n] = EventRecurrence.day2TimeDay(er.byday[i]);
+                mNthNum[n++] = er.bydayNum[i];
+            }
+        }
+        mMonthDays = copyOf(er.bymonthday, er.bymonthdayCount);
+        mYearDays = copyOf(er.byyearday, er.byyeardayCount);
+        mWeekNos = copyOf(er.byweekno, er.byweeknoCount);
+        mSetPos = copyOf(er.bysetpos, er.bysetposCount);
+        int monthMask = 0;
+        for (int i = 0; i < er.bymonthCount; i++) {
+            monthMask |= 1 << (er.bymonth[i] - 1);
+        }
+        mMonthMask = monthMask;
+
+        switch (mFreq) {
+            case EventRecurrence.DAILY:
+                mCycleLength = 7 / gcd(mInterval, 7);
+                break;
+            case EventRecurrence.WEEKLY:
+                mCycleLength = 1;
+                break;
+            case EventRecurrence.MONTHLY:
+                mCycleLength = MONTHS_PER_CYCLE / gcd(mInterval, MONTHS_PER_CYCLE);
+                break;
+            default:
+                mCycleLength = YEARS_PER_CYCLE / gcd(mInterval, YEARS_PER_CYCLE);
+                break;
+        }
+        mStartPeriod = getPeriod(mStartDay);
+        mUniformCount = isUniform() ? fillPeriod(0) : -1;
+
+        // counted in occurrences: the days before the start date, and the times before the start on its day
+        int skipped = 0;
+        int days = fillPeriod(0);
+        for (int i = 0; i < days && mDays[i] <= mStartDay; i++) {
+            if (mDays[i] < mStartDay) {
+                skipped += mTimes.length;
+            } else {
+                for (int j = 0; j < mTimes.length && mTimes[j] < mMillisOfDay; j++) {
+                    skipped++;
+                }
+            }
+        }
+        mSkippedInFirstPeriod = skipped;
+    }
+
+    /**
+     * @return The times of day selected by BYHOUR, BYMINUTE and BYSECOND, or by the interval of an HOURLY or MINUTELY
+     * rule, at the hour, minute and second of the start date for the parts that are not set.
+     */
+    private static int[] getTimesOfDay(EventRecurrence er, Time start) {
+        int interval = er.interval <= 1 ? 1 : er.interval;
+        int hours = 0;
+        if (er.freq == EventRecurrence.HOURLY || er.freq == EventRecurrence.MINUTELY) {
+            int step = er.freq == EventRecurrence.HOURLY ? interval : 1;
+            for (int hour = start.hour % step; hour < 24; hour += step) {
+                hours |= 1 << hour;
+            }
+        } else {
+            hours = 1 << start.hour;
+        }
+        if (er.byhourCount > 0) {
+            int byHours = 0;
+            for (int i = 0; i < er.byhourCount; i++) {
+                byHours |= 1 << er.byhour[i];
+            }
+            // BYHOUR limits the hours of HOURLY and MINUTELY rules
+            hours = er.freq < EventRecurrence.DAILY ? hours & byHours : byHours;
+        }
+
+        long minutes = 0;
+        if (er.byminuteCount > 0) {
+            for (int i = 0; i < er.byminuteCount; i++) {
+                minutes |= 1L << er.byminute[i];
+            }
+        }
+        if (er.freq == EventRecurrence.MINUTELY) {
+            long everyInterval = 0;
+            for (int minute = start.minute % interval; minute < 60; minute += interval) {
+                everyInterval |= 1L << minute;
+            }
+            minutes = er.byminuteCount > 0 ? minutes & everyInterval : everyInterval;
+        } else if (er.byminuteCount == 0) {
+            minutes = 1L << start.minute;
+        }
+
+        long seconds = 0;
+        for (int i = 0; i < er.bysecondCount; i++) {
+            seconds |= 1L << er.bysecond[i];
+        }
+        if (seconds == 0) {
+            seconds = 1L << start.second;
+        }
+
+        int[] times = new int[Integer.bitCount(hours) * Long.bitCount(minutes) * Long.bitCount(seconds)];
+        int count = 0;
+        for (int hour = 0; hour < 24; hour++) {
+            if ((hours & (1 << hour)) == 0) {
+                continue;
+            }
+            for (int minute = 0; minute < 60; minute++) {
+                if ((minutes & (1L << minute)) == 0) {
+                    continue;
+                }
+                for (int second = 0; second < 60; second++) {
+                    if ((seconds & (1L << second)) != 0) {
+                        times[count++] = ((hour * 60 + minute) * 60 + second) * 1000;
+                    }
+                }
+            }
+        }
+        return times;
+    }
+
+    private static int[] copyOf(int[] values, int count) {
+        int[] copy = new int[count];
+        if (count > 0) {
+            System.arraycopy(values, 0, copy, 0, count);
+        }
+        return copy;
+    }
+
+    /**
+     * @return true if the rule can be expanded: a MINUTELY, HOURLY, DAILY or WEEKLY rule with at most a BYDAY part
+     * without ordinals, a MONTHLY rule with BYMONTH, BYMONTHDAY, BYDAY and BYSETPOS parts, or a YEARLY rule with any
+     * day part; each can have BYHOUR, BYMINUTE and BYSECOND parts, except with BYSETPOS or an all-day start date.  The
+     * interval of a MINUTELY rule must divide an hour, and the one of an HOURLY rule a day.  Ordinals of BYDAY are
+     * ignored when BYWEEKNO is set, and weeks of BYWEEKNO only include their days that are in the year.
+     */
+    public static boolean isSupported(EventRecurrence er) {
+        int interval = er.interval <= 1 ? 1 : er.interval;
+        int hours = er.byhourCount > 0 ? er.byhourCount : er.freq == EventRecurrence.MINUTELY ? 24
+                : er.freq == EventRecurrence.HOURLY ? 24 / interval : 1;
+        int minutes = er.byminuteCount > 0 ? er.byminuteCount : er.freq == EventRecurrence.MINUTELY ? 60 / interval : 1;
+        int seconds = er.bysecondCount > 0 ? er.bysecondCount : 1;
+        if (hours * minutes * seconds > 1) {
+            if (er.bysetposCount > 0 || (er.startDate != null && er.startDate.allDay)
+                    || hours * minutes * seconds > MAX_TIMES_PER_DAY) {
+                return false;
+            }
+            if (!isInRange(er.byhour, er.byhourCount, 23) || !isInRange(er.byminute, er.byminuteCount, 59)
+                    || !isInRange(er.bysecond, er.bysecondCount, 59)) {
+                return false;
+            }
+        }
+        switch (er.freq) {
+            case EventRecurrence.MINUTELY:
+            case EventRecurrence.HOURLY:
+                if (er.freq == EventRecurrence.MINUTELY ? 60 % interval != 0 : 24 % interval != 0) {
+                    return false;
+                }
+                // fall through
+            case EventRecurrence.DAILY:
+            case EventRecurrence.WEEKLY:
+                if (er.bymonthCount > 0 || er.bymonthdayCount > 0 || er.byyeardayCount > 0 || er.byweeknoCount > 0
+                        || er.bysetposCount > 0) {
+                    return false;
+                }
+                for (int i = 0; i < er.bydayCount; i++) {
+                    if (er.bydayNum[i] != 0) {
+                        return false;
+                    }
+                }
+                return true;
+            case EventRecurrence.MONTHLY:
+                return er.byyeardayCount == 0 && er.byweeknoCount == 0;
+            case EventRecurrence.YEARLY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isInRange(int[] values, int count, int max) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] < 0 || values[i] > max) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The first occurrence strictly after {@code instant}, or {@link #NO_OCCURRENCE}.
+     */
+    public long nextAfter(long instant) {
+        if (instant < mStartInstant) {
+            return getOccurrence(0);
+        }
+        if (instant >= MAX_INSTANT) {
+            return NO_OCCURRENCE;
+        }
+        return getOccurrence(countRawBefore(instant + 1));
+    }
+
+    /**
+     * @return The last occurrence strictly before {@code instant}, or {@link #NO_OCCURRENCE}.
+     */
+    public long previousBefore(long instant) {
+        long count = countBefore(instant);
+        return count > 0 ? getOccurrence(count - 1) : NO_OCCURRENCE;
+    }
+
+    /**
+     * @return The number of occurrences strictly before {@code instant}, taking COUNT and UNTIL into account.
+     */
+    public long countBefore(long instant) {
+        long count = countRawBefore(mUntil == Long.MAX_VALUE ? instant : Math.min(instant, mUntil + 1));
+        return mCount > 0 ? Math.min(count, mCount) : count;
+    }
+
+    /**
+     * @param index 0-based index of the occurrence, the start date being occurrence 0 when it matches the rule.
+     * @return The occurrence, or {@link #NO_OCCURRENCE} if the rule ends before it.
+     */
+    public long getOccurrence(long index) {
+        if (index < 0 || (mCount > 0 && index >= mCount)) {
+            return NO_OCCURRENCE;
+        }
+        long slot = index + mSkippedInFirstPeriod;
+        long n = slot / mTimes.length;
+        long period;
+        int indexInPeriod;
+        if (mUniformCount >= 0) {
+            if (mUniformCount == 0) {
+                return NO_OCCURRENCE;
+            }
+            period = n / mUniformCount;
+            indexInPeriod = (int) (n % mUniformCount);
+        } else {
+            int[] prefix = getCyclePrefix();
+            int perCycle = prefix[mCycleLength];
+            if (perCycle == 0) {
+                return NO_OCCURRENCE;
+            }
+            long remainder = n % perCycle;
+            int k = findPeriodInCycle(prefix, (int) remainder);
+            period = n / perCycle * mCycleLength + k;
+            indexInPeriod = (int) (remainder - prefix[k]);
+        }
+        if (period > Integer.MAX_VALUE / mInterval) {
+            return NO_OCCURRENCE;
+        }
+        fillPeriod((int) period);
+        long occurrence = toInstant(mDays[indexInPeriod], mTimes[(int) (slot % mTimes.length)]);
+        return occurrence <= mUntil ? occurrence : NO_OCCURRENCE;
+    }
+
+    /**
+     * Computes the end of a bounded rule, e.g. to show the date a COUNT rule ends on.  The date of the last occurrence
+     * of a COUNT rule comes from the same arithmetic as {@link #getOccurrence(long)}, so it costs the same for a COUNT
+     * of 1 or 1000.
+     *
+     * @return The last occurrence, or {@link #NO_OCCURRENCE} if the rule has no COUNT or UNTIL, or no occurrence.
+     */
+    public long getLastOccurrence() {
+        if (mCount > 0) {
+            long last = getOccurrence(mCount - 1);
+            if (last != NO_OCCURRENCE || mUntil == Long.MAX_VALUE) {
+                return last;
+            }
+        }
+        if (mUntil == Long.MAX_VALUE) {
+            return NO_OCCURRENCE;
+        }
+        return previousBefore(mUntil + 1);
+    }
+
+    /**
+     * Counts the occurrences at or after the start date and strictly before {@code instant}, ignoring COUNT and UNTIL.
+     */
+    long countRawBefore(long instant) {
+        if (instant <= mStartInstant) {
+            return 0;
+        }
+        if (instant > MAX_INSTANT) {
+            instant = MAX_INSTANT;
+        }
+        int relative = getPeriod(getLocalDay(instant)) - mStartPeriod;
+        int period = relative / mInterval;
+        int times = mTimes.length;
+        long count = countInPeriodsBefore(period) * times - mSkippedInFirstPeriod;
+        if (relative % mInterval != 0) {
+            return count + countInPeriod(period) * times;
+        }
+        int days = fillPeriod(period);
+        for (int i = 0; i < days; i++) {
+            if (toInstant(mDays[i], mTimes[times - 1]) < instant) {
+                count += times;
+                continue;
+            }
+            for (int j = 0; j < times && toInstant(mDays[i], mTimes[j]) < instant; j++) {
+                count++;
+            }
+            break;
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of days produced by periods [0, period).
+     */
+    private long countInPeriodsBefore(int period) {
+        if (mUniformCount >= 0) {
+            return (long) period * mUniformCount;
+        }
+        int[] prefix = getCyclePrefix();
+        return (long) (period / mCycleLength) * prefix[mCycleLength] + prefix[period % mCycleLength];
+    }
+
+    private int countInPeriod(int period) {
+        if (mUniformCount >= 0) {
+            return mUniformCount;
+        }
+        int[] prefix = getCyclePrefix();
+        int k = period % mCycleLength;
+        return prefix[k + 1] - prefix[k];
+    }
+
+    /**
+     * @return The largest k such that prefix[k] <= n.
+     */
+    private int findPeriodInCycle(int[] prefix, int n) {
+        int low = 0;
+        int high = mCycleLength;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (prefix[mid] <= n) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int[] getCyclePrefix() {
+        if (mCyclePrefix == null) {
+            int[] prefix = new int[mCycleLength + 1];
+            for (int k = 0; k < mCycleLength; k++) {
+                prefix[k + 1] = prefix[k] + fillPeriod(k);
+            }
+            mCyclePrefix = prefix;
+        }
+        return mCyclePrefix;
+    }
+
+    /**
+     * @return true if every period produces the same number of days.
+     */
+    private boolean isUniform() {
+        switch (mFreq) {
+            case EventRecurrence.DAILY:
+                return mWeekDayMask == 0;
+            case EventRecurrence.WEEKLY:
+                return true;
+            default:
+                if (mSetPos.length > 0 || mYearDays.length > 0 || mWeekNos.length > 0) {
+                    return false;
+                }
+                if (mWeekDayMask != 0 || (mNthNum.length > 0 && mMonthDays.length > 0)) {
+                    return false;
+                }
+                if (mFreq == EventRecurrence.MONTHLY && mMonthMask != 0) {
+                    return false;
+                }
+                if (mFreq == EventRecurrence.YEARLY && mMonthMask == 0 && mMonthDays.length > 0) {
+                    return false;
+                }
+                boolean yearlyNth = mFreq == EventRecurrence.YEARLY && mMonthMask == 0;
+                if (!hasOneSign(mNthNum, yearlyNth ? 52 : 4) || !hasOneSign(mMonthDays, 28)) {
+                    return false;
+                }
+                if (mMonthDays.length == 0 && mNthNum.length == 0) {
+                    // repeats on the day of the start date
+                    return mStartMonthDay <= 28;
+                }
+                return true;
+        }
+    }
+
+    /**
+     * @return true if all values have the same sign and fit in [-max, max], so that they select distinct days in every
+     * period.
+     */
+    private static boolean hasOneSign(int[] values, int max) {
+        boolean positive = false;
+        boolean negative = false;
+        for (int value : values) {
+            if (value > max || value < -max) {
+                return false;
+            }
+            positive |= value > 0;
+            negative |= value < 0;
+        }
+        return !(positive && negative);
+    }
+
+    /**
+     * @return The ordinal of the period holding a day: the day, the week, year * 12 + month or the year.
+     */
+    int getPeriod(int day) {
+        switch (mFreq) {
+            case EventRecurrence.DAILY:
+                return day;
+            case EventRecurrence.WEEKLY:
+                return EpochDays.floorDiv(day - getWeekAnchor(), 7);
+            case EventRecurrence.MONTHLY: {
+                int date = EpochDays.toPackedDate(day);
+                return EpochDays.getPackedYear(date) * 12 + EpochDays.getPackedMonth(date);
+            }
+            default:
+                return EpochDays.getPackedYear(EpochDays.toPackedDate(day));
+        }
+    }
+
+    /**
+     * @return An epoch day falling on the week start.
+     */
+    private int getWeekAnchor() {
+        return EpochDays.floorMod(mWeekStart - Time.THURSDAY, 7);
+    }
+
+    /**
+     * Fills mDays with the days of the given period, in ascending order and without duplicates.
+     *
+     * @param period Index of the period, 0 being the one holding the start date.
+     * @return The number of days.
+     */
+    int fillPeriod(int period) {
+        int ordinal = mStartPeriod + period * mInterval;
+        switch (mFreq) {
+            case EventRecurrence.DAILY:
+                if (mWeekDayMask != 0 && (mWeekDayMask & (1 << EpochDays.getWeekDay(ordinal))) == 0) {
+                    return 0;
+                }
+                mDays[0] = ordinal;
+                return 1;
+            case EventRecurrence.WEEKLY: {
+                int first = ordinal * 7 + getWeekAnchor();
+                int mask = mWeekDayMask != 0 ? mWeekDayMask : 1 << EpochDays.getWeekDay(mStartDay);
+                int count = 0;
+                for (int i = 0; i < 7; i++) {
+                    if ((mask & (1 << ((mWeekStart + i) % 7))) != 0) {
+                        mDays[count++] = first + i;
+                    }
+                }
+                return count;
+            }
+            case EventRecurrence.MONTHLY: {
+                int year = EpochDays.floorDiv(ordinal, 12);
+                int month = EpochDays.floorMod(ordinal, 12);
+                if (mMonthMask != 0 && (mMonthMask & (1 << month)) == 0) {
+                    return 0;
+                }
+                return fillMonth(year, month, 0);
+            }
+            default:
+                return fillYear(ordinal);
+        }
+    }
+
+    /**
+     * Fills mDays with the days of a year selected by the BYxxx parts, evaluated as year masks.
+     *
+     * @return The number of days.
+     */
+    private int fillYear(int year) {
+        int first = EpochDays.of(year, 0, 1);
+        int length = EpochDays.isLeapYear(year) ? 366 : 365;
+        int firstWeekDay = EpochDays.getWeekDay(first);
+        long[] mask = mMask;
+        long[] filter = mFilter;
+        YearMask.clear(mask);
+        YearMask.setRange(mask, 0, length);
+
+        if (mMonthMask != 0) {
+            YearMask.clear(filter);
+            for (int month = 0; month < 12; month++) {
+                if ((mMonthMask & (1 << month)) != 0) {
+                    int start = EpochDays.of(year, month, 1) - first;
+                    YearMask.setRange(filter, start, start + EpochDays.getDaysInMonth(year, month));
+                }
+            }
+            YearMask.and(mask, filter);
+        }
+
+        if (mWeekNos.length > 0) {
+            YearMask.clear(filter);
+            int firstWeek = getFirstWeekStart(firstWeekDay);
+            int weeks = (length + getFirstWeekStart((firstWeekDay + length) % 7) - firstWeek) / 7;
+            for (int value : mWeekNos) {
+                int week = value > 0 ? value : weeks + value + 1;
+                if (week >= 1 && week <= weeks) {
+                    int start = firstWeek + (week - 1) * 7;
+                    YearMask.setRange(filter, Math.max(start, 0), Math.min(start + 7, length));
+                }
+            }
+            YearMask.and(mask, filter);
+        }
+
+        if (mYearDays.length > 0) {
+            YearMask.clear(filter);
+            for (int value : mYearDays) {
+                int day = value > 0 ? value - 1 : length + value;
+                if (day >= 0 && day < length) {
+                    YearMask.set(filter, day);
+                }
+            }
+            YearMask.and(mask, filter);
+        }
+
+        if (mMonthDays.length > 0) {
+            YearMask.clear(filter);
+            for (int month = 0; month < 12; month++) {
+                int start = EpochDays.of(year, month, 1) - first;
+                int monthLength = EpochDays.getDaysInMonth(year, month);
+                for (int value : mMonthDays) {
+                    int monthDay = value > 0 ? value : monthLength + value + 1;
+                    if (monthDay >= 1 && monthDay <= monthLength) {
+                        YearMask.set(filter, start + monthDay - 1);
+                    }
+                }
+            }
+            YearMask.and(mask, filter);
+        }
+
+        boolean hasWeekDays = mWeekDayMask != 0 || mNthNum.length > 0;
+        if (hasWeekDays) {
+            YearMask.clear(filter);
+            if (mMonthMask != 0 && mWeekNos.length == 0) {
+                // ordinals count within each month
+                for (int month = 0; month < 12; month++) {
+                    if ((mMonthMask & (1 << month)) != 0) {
+                        int start = EpochDays.of(year, month, 1) - first;
+                        addWeekDays(filter, start, EpochDays.getDaysInMonth(year, month), (firstWeekDay + start) % 7,
+                                true);
+                    }
+                }
+            } else {
+                addWeekDays(filter, 0, length, firstWeekDay, mWeekNos.length == 0);
+            }
+            YearMask.and(mask, filter);
+        }
+
+        if (!hasWeekDays && mMonthDays.length == 0 && mYearDays.length == 0 && mWeekNos.length == 0) {
+            // repeats on the day of the start date, in each month of BYMONTH or in the month of the start date
+            YearMask.clear(filter);
+            for (int month = 0; month < 12; month++) {
+                boolean selected = mMonthMask != 0 ? (mMonthMask & (1 << month)) != 0 : month == mStartMonth;
+                if (selected && mStartMonthDay <= EpochDays.getDaysInMonth(year, month)) {
+                    YearMask.set(filter, EpochDays.of(year, month, mStartMonthDay) - first);
+                }
+            }
+            YearMask.and(mask, filter);
+        }
+
+        if (mSetPos.length > 0) {
+            YearMask.selectByRank(mask, mSetPos, filter);
+            YearMask.copy(filter, mask);
+        }
+        return YearMask.toDays(mask, first, mDays, 0);
+    }
+
+    /**
+     * @return The offset from January 1st of the first day of week 1, the first week starting on WKST with at least 4
+     * days in the year.  It is negative when week 1 starts in the previous year.
+     */
+    private int getFirstWeekStart(int firstWeekDay) {
+        int daysSinceWeekStart = (firstWeekDay - mWeekStart + 7) % 7;
+        return daysSinceWeekStart <= 3 ? -daysSinceWeekStart : 7 - daysSinceWeekStart;
+    }
+
+    /**
+     * Sets the days of a span (a month or a year) selected by BYDAY.
+     *
+     * @param start Offset of the span in the year.
+     * @param firstWeekDay Week day of the first day of the span.
+     * @param useOrdinals false to select every such week day regardless of the ordinal.
+     */
+    private void addWeekDays(long[] filter, int start, int length, int firstWeekDay, boolean useOrdinals) {
+        int end = start + length;
+        for (int weekDay = 0; weekDay < 7; weekDay++) {
+            if ((mWeekDayMask & (1 << weekDay)) != 0) {
+                YearMask.setWeekly(filter, start + (weekDay - firstWeekDay + 7) % 7, end);
+            }
+        }
+        int lastWeekDay = (firstWeekDay + length - 1) % 7;
+        for (int i = 0; i < mNthNum.length; i++) {
+            int weekDay = mNthWeekDay[i];
+            int n = mNthNum[i];
+            if (!useOrdinals) {
+                YearMask.setWeekly(filter, start + (weekDay - firstWeekDay + 7) % 7, end);
+            } else if (n > 0) {
+                int day = start + (weekDay - firstWeekDay + 7) % 7 + (n - 1) * 7;
+                if (day < end) {
+                    YearMask.set(filter, day);
+                }
+            } else {
+                int day = end - 1 - (lastWeekDay - weekDay + 7) % 7 + (n + 1) * 7;
+                if (day >= start) {
+                    YearMask.set(filter, day);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the day at the given offset in a span of days is selected by an ordinal BYDAY entry.
+     */
+    private boolean isNthWeekDay(int weekDay, int offset, int length) {
+        for (int i = 0; i < mNthNum.length; i++) {
+            if (mNthWeekDay[i] == weekDay) {
+                int n = mNthNum[i];
+                if (n > 0 ? offset / 7 == n - 1 : (length - 1 - offset) / 7 == -n - 1) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the days of a month selected by BYMONTHDAY and BYDAY (or the day of the start date) to mDays.
+     *
+     * @return The new number of days in mDays.
+     */
+    private int fillMonth(int year, int month, int count) {
+        int length = EpochDays.getDaysInMonth(year, month);
+        int first = EpochDays.of(year, month, 1);
+
+        long monthDays = 0;
+        boolean hasDays = mMonthDays.length > 0;
+        for (int value : mMonthDays) {
+            int monthDay = value > 0 ? value : length + value + 1;
+            if (monthDay >= 1 && monthDay <= length) {
+                monthDays |= 1L << monthDay;
+            }
+        }
+
+        long weekDays = 0;
+        boolean hasWeekDays = mWeekDayMask != 0 || mNthNum.length > 0;
+        if (hasWeekDays) {
+            int firstWeekDay = EpochDays.getWeekDay(first);
+            for (int monthDay = 1; monthDay <= length; monthDay++) {
+                int weekDay = (firstWeekDay + monthDay - 1) % 7;
+                if ((mWeekDayMask & (1 << weekDay)) != 0 || isNthWeekDay(weekDay, monthDay - 1, length)) {
+                    weekDays |= 1L << monthDay;
+                }
+            }
+        }
+
+        long selected;
+        if (hasDays && hasWeekDays) {
+            selected = monthDays & weekDays;
+        } else if (hasDays) {
+            selected = monthDays;
+        } else if (hasWeekDays) {
+            selected = weekDays;
+        } else {
+            selected = mStartMonthDay <= length ? 1L << mStartMonthDay : 0;
+        }
+        if (mSetPos.length > 0) {
+            selected = YearMask.selectByRank(selected, mSetPos);
+        }
+
+        while (selected != 0) {
+            int monthDay = Long.numberOfTrailingZeros(selected);
+            mDays[count++] = first + monthDay - 1;
+            selected &= selected - 1;
+        }
+        return count;
+    }
+
+    /**
+     * @return The local epoch day of an instant in the time zone of the rule.
+     */
+    int getLocalDay(long instant) {
+        return (int) EpochDays.floorDiv(mZone.toLocal(instant), DAY_IN_MILLIS);
+    }
+
+    /**
+     * @return The instant of the occurrence on a local epoch day, at a time of day in milliseconds.
+     */
+    long toInstant(int day, int millisOfDay) {
+        return mZone.toInstant(day * DAY_IN_MILLIS + millisOfDay);
+    }
+
+    /**
+     * Reads UNTIL, either a date (inclusive) or a date-time, in UTC when it ends with 'Z' and in the time zone of the
+     * start date otherwise.
+     */
+    private long parseUntil(String until) {
+        int length = until.length();
+        boolean utc = length > 0 && until.charAt(length - 1) == 'Z';
+        if (utc) {
+            length--;
+        }
+        if (length != 8 && !(length == 15 && until.charAt(8) == 'T')) {
+            throw new IllegalArgumentException("Invalid UNTIL value: " + until);
+        }
+        int year = parseDigits(until, 0, 4);
+        int month = parseDigits(until, 4, 6) - 1;
+        int monthDay = parseDigits(until, 6, 8);
+        if (year < 0 || month < 0 || month > 11 || monthDay < 1) {
+            throw new IllegalArgumentException("Invalid UNTIL value: " + until);
+        }
+        long localMillis = EpochDays.of(year, month, monthDay) * DAY_IN_MILLIS;
+        if (length == 8) {
+            // the whole day is included
+            localMillis += DAY_IN_MILLIS - 1;
+        } else {
+            int hour = parseDigits(until, 9, 11);
+            int minute = parseDigits(until, 11, 13);
+            int second = parseDigits(until, 13, 15);
+            if (hour < 0 || minute < 0 || second < 0) {
+                throw new IllegalArgumentException("Invalid UNTIL value: " + until);
+            }
+            localMillis += ((hour * 60 + minute) * 60 + second) * 1000L;
+        }
+        return utc ? localMillis : mZone.toInstant(localMillis);
+    }
+
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
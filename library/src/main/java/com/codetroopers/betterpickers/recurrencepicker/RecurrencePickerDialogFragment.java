@@ -22,6 +22,8 @@ import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.v4.app.DialogFragment;
@@ -40,6 +42,7 @@ import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.ViewGroup;
 import android.view.ViewGroup.LayoutParams;
+import android.view.ViewStub;
 import android.view.Window;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemSelectedListener;
@@ -60,10 +63,8 @@ import android.widget.ToggleButton;
 import com.codetroopers.betterpickers.R;
 import com.codetroopers.betterpickers.calendardatepicker.CalendarDatePickerDialogFragment;
 
-import java.text.DateFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 
 public class RecurrencePickerDialogFragment extends DialogFragment implements OnItemSelectedListener,
         OnCheckedChangeListener, OnClickListener,
@@ -82,6 +83,9 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
     private static final int COUNT_MAX = 730;
     private static final int COUNT_DEFAULT = 5;
 
+    // Delay after the last change before the occurrence preview is recomputed
+    private static final long PREVIEW_DELAY_MILLIS = 150;
+
     // Special cases in monthlyByNthDayOfWeek
     private static final int FIFTH_WEEK_IN_A_MONTH = 5;
     public static final int LAST_NTH_DAY_OF_WEEK = -1;
@@ -306,21 +310,12 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
     }
 
     private Resources mResources;
+    private RecurrenceSymbols mSymbols;
     private EventRecurrence mRecurrence = new EventRecurrence();
     private Time mTime = new Time(); // TODO timezone?
     private RecurrenceModel mModel = new RecurrenceModel();
     private Toast mToast;
 
-    private final int[] TIME_DAY_TO_CALENDAR_DAY = new int[]{
-            Calendar.SUNDAY,
-            Calendar.MONDAY,
-            Calendar.TUESDAY,
-            Calendar.WEDNESDAY,
-            Calendar.THURSDAY,
-            Calendar.FRIDAY,
-            Calendar.SATURDAY,
-    };
-
     // Call mStringBuilder.setLength(0) before formatting any string or else the
     // formatted text will accumulate.
     // private final StringBuilder mStringBuilder = new StringBuilder();
@@ -341,6 +336,10 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
     public static final String BUNDLE_TIME_ZONE = "bundle_event_time_zone";
     public static final String BUNDLE_RRULE = "bundle_event_rrule";
     public static final String BUNDLE_HIDE_SWITCH_BUTTON = "bundle_hide_switch_button";
+    /**
+     * Number of upcoming occurrences to show below the options while the rule is edited, 0 (the default) to hide them.
+     */
+    public static final String BUNDLE_PREVIEW_COUNT = "bundle_preview_count";
 
     private static final String BUNDLE_MODEL = "bundle_model";
     private static final String BUNDLE_END_COUNT_HAS_FOCUS = "bundle_end_count_has_focus";
@@ -355,6 +354,11 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
 
     private int mIntervalResId = -1;
 
+    /**
+     * The end, week and month panels are inflated from their ViewStub the first time they are shown, so the common
+     * case of a dialog opened without a rule only inflates the frequency and interval rows.
+     */
+    private LinearLayout mEndGroup;
     private Spinner mEndSpinner;
     private TextView mEndDateTextView;
     private EditText mEndCount;
@@ -370,15 +374,11 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
     /**
      * Hold toggle buttons in the order per user's first day of week preference
      */
+    private View mWeekPanel;
     private LinearLayout mWeekGroup;
     private LinearLayout mWeekGroup2;
     // Sun = 0
     private ToggleButton[] mWeekByDayButtons = new ToggleButton[7];
-    /**
-     * A double array of Strings to hold the 7x5 list of possible strings of the form: "on every [Nth] [DAY_OF_WEEK]",
-     * e.g. "on every second Monday", where [Nth] can be [first, second, third, fourth, last]
-     */
-    private String[][] mMonthRepeatByDayOfWeekStrs;
 
     private LinearLayout mMonthGroup;
     private RadioGroup mMonthRepeatByRadioGroup;
@@ -388,6 +388,32 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
 
     private Button mDoneButton;
 
+    private TextView mPreviewTextView;
+    private int mPreviewCount;
+    /**
+     * Incremented on every change of mModel: a preview computed for an older generation is dropped.
+     */
+    private int mPreviewGeneration;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mStartPreviewRunnable = new Runnable() {
+        @Override
+        public void run() {
+            startPreview();
+        }
+    };
+    // The date of the last event of the "Repeat for N events" end option, and the rule it was computed for
+    private String mEndCountDate;
+    private String mEndCountDateRule;
+    // The rule whose end count date is computed next, see getEndCountDateString()
+    private EventRecurrence mPendingEndCountRecurrence;
+    private String mPendingEndCountRule;
+    private final Runnable mStartEndCountDateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            startEndCountDate();
+        }
+    };
+
     private OnRecurrenceSetListener mRecurrenceSetListener;
 
     public RecurrencePickerDialogFragment() {
@@ -672,17 +698,11 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                 mModel = m;
             }
             endCountHasFocus = savedInstanceState.getBoolean(BUNDLE_END_COUNT_HAS_FOCUS);
+            setStartTime(getArguments());
         } else {
             Bundle bundle = getArguments();
+            setStartTime(bundle);
             if (bundle != null) {
-                mTime.set(bundle.getLong(BUNDLE_START_TIME_MILLIS));
-
-                String tz = bundle.getString(BUNDLE_TIME_ZONE);
-                if (!TextUtils.isEmpty(tz)) {
-                    mTime.timezone = tz;
-                }
-                mTime.normalize(false);
-
                 // Time days of week: Sun=0, Mon=1, etc
                 mModel.weeklyByDayOfWeek[mTime.weekDay] = true;
                 String rrule = bundle.getString(BUNDLE_RRULE);
@@ -697,12 +717,11 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                 }
 
                 mModel.forceHideSwitchButton = bundle.getBoolean(BUNDLE_HIDE_SWITCH_BUTTON, false);
-            } else {
-                mTime.setToNow();
             }
         }
 
         mResources = getResources();
+        mSymbols = RecurrenceSymbols.get(mResources);
         mView = inflater.inflate(R.layout.recurrencepicker, container, true);
 
         final Activity activity = getActivity();
@@ -739,27 +758,84 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                     mModel.interval = v;
                     updateIntervalText();
                     mInterval.requestLayout();
+                    schedulePreviewUpdate();
                 }
             }
         });
         mIntervalPreText = (TextView) mView.findViewById(R.id.intervalPreText);
         mIntervalPostText = (TextView) mView.findViewById(R.id.intervalPostText);
 
+        Bundle arguments = getArguments();
+        mPreviewCount = arguments != null ? arguments.getInt(BUNDLE_PREVIEW_COUNT, 0) : 0;
+        if (mPreviewCount > 0) {
+            mPreviewTextView = (TextView) mView.findViewById(R.id.occurrencePreview);
+        }
+
+        if (mModel.endDate == null) {
+            mModel.endDate = new Time(mTime);
+            switch (mModel.freq) {
+                case RecurrenceModel.FREQ_HOURLY:
+                case RecurrenceModel.FREQ_DAILY:
+                case RecurrenceModel.FREQ_WEEKLY:
+                    mModel.endDate.month += 1;
+                    break;
+                case RecurrenceModel.FREQ_MONTHLY:
+                    mModel.endDate.month += 3;
+                    break;
+                case RecurrenceModel.FREQ_YEARLY:
+                    mModel.endDate.year += 3;
+                    break;
+            }
+            mModel.endDate.normalize(false);
+        }
+
+        mDoneButton = (Button) mView.findViewById(R.id.done_button);
+        mDoneButton.setOnClickListener(this);
+
+        Button cancelButton = (Button) mView.findViewById(R.id.cancel_button);
+        //FIXME no text color for this one ?
+        cancelButton.setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                dismiss();
+            }
+        });
+
+        togglePickerOptions();
+        updateDialog();
+        if (endCountHasFocus && mEndCount != null) {
+            mEndCount.requestFocus();
+        }
+        return mView;
+    }
+
+    /**
+     * Inflates the end condition panel, the first time the rule is repeating.
+     */
+    private void ensureEndPanel() {
+        if (mEndGroup != null) {
+            return;
+        }
+        mEndGroup = (LinearLayout) ((ViewStub) mView.findViewById(R.id.endStub)).inflate();
+
         mEndNeverStr = mResources.getString(R.string.recurrence_end_continously);
         mEndDateLabel = mResources.getString(R.string.recurrence_end_date_label);
         mEndCountLabel = mResources.getString(R.string.recurrence_end_count_label);
 
+        mEndSpinnerArray.clear();
         mEndSpinnerArray.add(mEndNeverStr);
         mEndSpinnerArray.add(mEndDateLabel);
         mEndSpinnerArray.add(mEndCountLabel);
-        mEndSpinner = (Spinner) mView.findViewById(R.id.endSpinner);
+        mEndSpinner = (Spinner) mEndGroup.findViewById(R.id.endSpinner);
         mEndSpinner.setOnItemSelectedListener(this);
         mEndSpinnerAdapter = new EndSpinnerAdapter(getActivity(), mEndSpinnerArray,
                 R.layout.recurrencepicker_freq_item, R.layout.recurrencepicker_end_text);
         mEndSpinnerAdapter.setDropDownViewResource(R.layout.recurrencepicker_freq_item);
         mEndSpinner.setAdapter(mEndSpinnerAdapter);
+        // before the first layout, which reports the selection to onItemSelected()
+        mEndSpinner.setSelection(mModel.end);
 
-        mEndCount = (EditText) mView.findViewById(R.id.endCount);
+        mEndCount = (EditText) mEndGroup.findViewById(R.id.endCount);
         mEndCount.addTextChangedListener(new minMaxTextWatcher(1, COUNT_DEFAULT, COUNT_MAX) {
             @Override
             void onChange(int v) {
@@ -767,53 +843,31 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                     mModel.endCount = v;
                     updateEndCountText();
                     mEndCount.requestLayout();
+                    schedulePreviewUpdate();
                 }
             }
         });
-        mPostEndCount = (TextView) mView.findViewById(R.id.postEndCount);
+        mPostEndCount = (TextView) mEndGroup.findViewById(R.id.postEndCount);
 
-        mEndDateTextView = (TextView) mView.findViewById(R.id.endDate);
+        mEndDateTextView = (TextView) mEndGroup.findViewById(R.id.endDate);
         mEndDateTextView.setOnClickListener(this);
-        if (mModel.endDate == null) {
-            mModel.endDate = new Time(mTime);
-            switch (mModel.freq) {
-                case RecurrenceModel.FREQ_HOURLY:
-                case RecurrenceModel.FREQ_DAILY:
-                case RecurrenceModel.FREQ_WEEKLY:
-                    mModel.endDate.month += 1;
-                    break;
-                case RecurrenceModel.FREQ_MONTHLY:
-                    mModel.endDate.month += 3;
-                    break;
-                case RecurrenceModel.FREQ_YEARLY:
-                    mModel.endDate.year += 3;
-                    break;
-            }
-            mModel.endDate.normalize(false);
-        }
-
-        mWeekGroup = (LinearLayout) mView.findViewById(R.id.weekGroup);
-        mWeekGroup2 = (LinearLayout) mView.findViewById(R.id.weekGroup2);
-
-        // In Calendar.java day of week order e.g Sun = 1 ... Sat = 7
-        String[] dayOfWeekString = new DateFormatSymbols().getWeekdays();
+        setPanelsEnabled(mModel.recurrenceState == RecurrenceModel.STATE_RECURRENCE);
+    }
 
-        mMonthRepeatByDayOfWeekStrs = new String[7][];
-        // from Time.SUNDAY as 0 through Time.SATURDAY as 6
-        mMonthRepeatByDayOfWeekStrs[0] = mResources.getStringArray(R.array.repeat_by_nth_sun);
-        mMonthRepeatByDayOfWeekStrs[1] = mResources.getStringArray(R.array.repeat_by_nth_mon);
-        mMonthRepeatByDayOfWeekStrs[2] = mResources.getStringArray(R.array.repeat_by_nth_tues);
-        mMonthRepeatByDayOfWeekStrs[3] = mResources.getStringArray(R.array.repeat_by_nth_wed);
-        mMonthRepeatByDayOfWeekStrs[4] = mResources.getStringArray(R.array.repeat_by_nth_thurs);
-        mMonthRepeatByDayOfWeekStrs[5] = mResources.getStringArray(R.array.repeat_by_nth_fri);
-        mMonthRepeatByDayOfWeekStrs[6] = mResources.getStringArray(R.array.repeat_by_nth_sat);
+    /**
+     * Inflates the day of week buttons, the first time the frequency is weekly.
+     */
+    private void ensureWeekPanel() {
+        if (mWeekPanel != null) {
+            return;
+        }
+        mWeekPanel = ((ViewStub) mView.findViewById(R.id.weekStub)).inflate();
+        mWeekGroup = (LinearLayout) mWeekPanel.findViewById(R.id.weekGroup);
+        mWeekGroup2 = (LinearLayout) mWeekPanel.findViewById(R.id.weekGroup2);
 
         // In Time.java day of week order e.g. Sun = 0
         int idx = Utils.getFirstDayOfWeek(getActivity());
 
-        // In Calendar.java day of week order e.g Sun = 1 ... Sat = 7
-        dayOfWeekString = new DateFormatSymbols().getShortWeekdays();
-
         int numOfButtonsInRow1;
         int numOfButtonsInRow2;
 
@@ -862,8 +916,8 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
             }
 
             mWeekByDayButtons[idx] = (ToggleButton) mWeekGroup.getChildAt(i);
-            mWeekByDayButtons[idx].setTextOff(dayOfWeekString[TIME_DAY_TO_CALENDAR_DAY[idx]]);
-            mWeekByDayButtons[idx].setTextOn(dayOfWeekString[TIME_DAY_TO_CALENDAR_DAY[idx]]);
+            mWeekByDayButtons[idx].setTextOff(mSymbols.getWeekdayName(idx, DateUtils.LENGTH_MEDIUM));
+            mWeekByDayButtons[idx].setTextOn(mSymbols.getWeekdayName(idx, DateUtils.LENGTH_MEDIUM));
             mWeekByDayButtons[idx].setOnCheckedChangeListener(this);
 
             if (++idx >= 7) {
@@ -878,8 +932,8 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                 continue;
             }
             mWeekByDayButtons[idx] = (ToggleButton) mWeekGroup2.getChildAt(i);
-            mWeekByDayButtons[idx].setTextOff(dayOfWeekString[TIME_DAY_TO_CALENDAR_DAY[idx]]);
-            mWeekByDayButtons[idx].setTextOn(dayOfWeekString[TIME_DAY_TO_CALENDAR_DAY[idx]]);
+            mWeekByDayButtons[idx].setTextOff(mSymbols.getWeekdayName(idx, DateUtils.LENGTH_MEDIUM));
+            mWeekByDayButtons[idx].setTextOn(mSymbols.getWeekdayName(idx, DateUtils.LENGTH_MEDIUM));
             mWeekByDayButtons[idx].setOnCheckedChangeListener(this);
 
             if (++idx >= 7) {
@@ -887,68 +941,66 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
             }
         }
 
-        mMonthGroup = (LinearLayout) mView.findViewById(R.id.monthGroup);
-        mMonthRepeatByRadioGroup = (RadioGroup) mView.findViewById(R.id.monthGroup);
+        setPanelsEnabled(mModel.recurrenceState == RecurrenceModel.STATE_RECURRENCE);
+    }
+
+    /**
+     * Inflates the "repeat by" radio buttons, the first time the frequency is monthly.
+     */
+    private void ensureMonthPanel() {
+        if (mMonthGroup != null) {
+            return;
+        }
+        mMonthRepeatByRadioGroup = (RadioGroup) ((ViewStub) mView.findViewById(R.id.monthStub)).inflate();
+        mMonthGroup = mMonthRepeatByRadioGroup;
         mMonthRepeatByRadioGroup.setOnCheckedChangeListener(this);
-        mRepeatMonthlyByNthDayOfWeek = (RadioButton) mView
+        mRepeatMonthlyByNthDayOfWeek = (RadioButton) mMonthGroup
                 .findViewById(R.id.repeatMonthlyByNthDayOfTheWeek);
-        mRepeatMonthlyByNthDayOfMonth = (RadioButton) mView
+        mRepeatMonthlyByNthDayOfMonth = (RadioButton) mMonthGroup
                 .findViewById(R.id.repeatMonthlyByNthDayOfMonth);
+        // the label of the new button is set by the next updateDialog()
+        mMonthRepeatByDayOfWeekStr = null;
 
-        mDoneButton = (Button) mView.findViewById(R.id.done_button);
-        mDoneButton.setOnClickListener(this);
-
-        Button cancelButton = (Button) mView.findViewById(R.id.cancel_button);
-        //FIXME no text color for this one ?
-        cancelButton.setOnClickListener(new OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                dismiss();
-            }
-        });
-
-        togglePickerOptions();
-        updateDialog();
-        if (endCountHasFocus) {
-            mEndCount.requestFocus();
-        }
-        return mView;
+        setPanelsEnabled(mModel.recurrenceState == RecurrenceModel.STATE_RECURRENCE);
     }
 
     private void togglePickerOptions() {
-        if (mModel.recurrenceState == RecurrenceModel.STATE_NO_RECURRENCE) {
-            mFreqSpinner.setEnabled(false);
-            mEndSpinner.setEnabled(false);
-            mIntervalPreText.setEnabled(false);
-            mInterval.setEnabled(false);
-            mIntervalPostText.setEnabled(false);
-            mMonthRepeatByRadioGroup.setEnabled(false);
-            mEndCount.setEnabled(false);
-            mPostEndCount.setEnabled(false);
-            mEndDateTextView.setEnabled(false);
-            mRepeatMonthlyByNthDayOfWeek.setEnabled(false);
-            mRepeatMonthlyByNthDayOfMonth.setEnabled(false);
-            for (Button button : mWeekByDayButtons) {
-                button.setEnabled(false);
-            }
-        } else {
+        boolean enabled = mModel.recurrenceState == RecurrenceModel.STATE_RECURRENCE;
+        if (enabled) {
             mView.findViewById(R.id.options).setEnabled(true);
-            mFreqSpinner.setEnabled(true);
-            mEndSpinner.setEnabled(true);
-            mIntervalPreText.setEnabled(true);
-            mInterval.setEnabled(true);
-            mIntervalPostText.setEnabled(true);
-            mMonthRepeatByRadioGroup.setEnabled(true);
-            mEndCount.setEnabled(true);
-            mPostEndCount.setEnabled(true);
-            mEndDateTextView.setEnabled(true);
-            mRepeatMonthlyByNthDayOfWeek.setEnabled(true);
-            mRepeatMonthlyByNthDayOfMonth.setEnabled(true);
+            ensureEndPanel();
+        }
+        mFreqSpinner.setEnabled(enabled);
+        mIntervalPreText.setEnabled(enabled);
+        mInterval.setEnabled(enabled);
+        mIntervalPostText.setEnabled(enabled);
+        setPanelsEnabled(enabled);
+        updateDoneButtonState();
+        schedulePreviewUpdate();
+    }
+
+    /**
+     * Updates the panels inflated so far, the others are updated when inflated.  The end condition is hidden while
+     * the rule is not repeating.
+     */
+    private void setPanelsEnabled(boolean enabled) {
+        if (mEndGroup != null) {
+            mEndGroup.setVisibility(enabled ? View.VISIBLE : View.GONE);
+            mEndSpinner.setEnabled(enabled);
+            mEndCount.setEnabled(enabled);
+            mPostEndCount.setEnabled(enabled);
+            mEndDateTextView.setEnabled(enabled);
+        }
+        if (mMonthGroup != null) {
+            mMonthRepeatByRadioGroup.setEnabled(enabled);
+            mRepeatMonthlyByNthDayOfWeek.setEnabled(enabled);
+            mRepeatMonthlyByNthDayOfMonth.setEnabled(enabled);
+        }
+        if (mWeekPanel != null) {
             for (Button button : mWeekByDayButtons) {
-                button.setEnabled(true);
+                button.setEnabled(enabled);
             }
         }
-        updateDoneButtonState();
     }
 
     private void updateDoneButtonState() {
@@ -962,15 +1014,15 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
             return;
         }
 
-        if (mEndCount.getVisibility() == View.VISIBLE &&
+        if (mEndCount != null && mEndCount.getVisibility() == View.VISIBLE &&
                 mEndCount.getText().toString().length() == 0) {
             mDoneButton.setEnabled(false);
             return;
         }
 
         if (mModel.freq == RecurrenceModel.FREQ_WEEKLY) {
-            for (CompoundButton b : mWeekByDayButtons) {
-                if (b.isChecked()) {
+            for (boolean checked : mModel.weeklyByDayOfWeek) {
+                if (checked) {
                     mDoneButton.setEnabled(true);
                     return;
                 }
@@ -986,7 +1038,7 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
         outState.putParcelable(BUNDLE_MODEL, mModel);
-        if (mEndCount.hasFocus()) {
+        if (mEndCount != null && mEndCount.hasFocus()) {
             outState.putBoolean(BUNDLE_END_COUNT_HAS_FOCUS, true);
         }
     }
@@ -1001,9 +1053,17 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
         }
 
         mFreqSpinner.setSelection(mModel.freq);
-        mWeekGroup.setVisibility(mModel.freq == RecurrenceModel.FREQ_WEEKLY ? View.VISIBLE : View.GONE);
-        mWeekGroup2.setVisibility(mModel.freq == RecurrenceModel.FREQ_WEEKLY ? View.VISIBLE : View.GONE);
-        mMonthGroup.setVisibility(mModel.freq == RecurrenceModel.FREQ_MONTHLY ? View.VISIBLE : View.GONE);
+        if (mModel.freq == RecurrenceModel.FREQ_WEEKLY) {
+            ensureWeekPanel();
+        } else if (mModel.freq == RecurrenceModel.FREQ_MONTHLY) {
+            ensureMonthPanel();
+        }
+        if (mWeekPanel != null) {
+            mWeekPanel.setVisibility(mModel.freq == RecurrenceModel.FREQ_WEEKLY ? View.VISIBLE : View.GONE);
+        }
+        if (mMonthGroup != null) {
+            mMonthGroup.setVisibility(mModel.freq == RecurrenceModel.FREQ_MONTHLY ? View.VISIBLE : View.GONE);
+        }
 
         switch (mModel.freq) {
             case RecurrenceModel.FREQ_HOURLY:
@@ -1040,14 +1100,8 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                         mModel.monthlyByDayOfWeek = mTime.weekDay;
                     }
 
-                    String[] monthlyByNthDayOfWeekStrs =
-                            mMonthRepeatByDayOfWeekStrs[mModel.monthlyByDayOfWeek];
-
-                    // TODO(psliwowski): Find a better way handle -1 indexes
-                    int msgIndex = mModel.monthlyByNthDayOfWeek < 0 ? FIFTH_WEEK_IN_A_MONTH :
-                            mModel.monthlyByNthDayOfWeek;
-                    mMonthRepeatByDayOfWeekStr =
-                            monthlyByNthDayOfWeekStrs[msgIndex - 1];
+                    mMonthRepeatByDayOfWeekStr = mSymbols.getNthDayOfWeek(mModel.monthlyByDayOfWeek,
+                            mModel.monthlyByNthDayOfWeek);
                     mRepeatMonthlyByNthDayOfWeek.setText(mMonthRepeatByDayOfWeekStr);
                 }
                 break;
@@ -1059,22 +1113,26 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
         updateIntervalText();
         updateDoneButtonState();
 
-        mEndSpinner.setSelection(mModel.end);
-        if (mModel.end == RecurrenceModel.END_BY_DATE) {
-            final String dateStr = DateUtils.formatDateTime(getActivity(),
-                    mModel.endDate.toMillis(false), DateUtils.FORMAT_NUMERIC_DATE);
-            mEndDateTextView.setText(dateStr);
-        } else {
-            if (mModel.end == RecurrenceModel.END_BY_COUNT) {
-                // Checking before setting because this causes infinite
-                // recursion
-                // in afterTextWatcher
-                final String countStr = Integer.toString(mModel.endCount);
-                if (!countStr.equals(mEndCount.getText().toString())) {
-                    mEndCount.setText(countStr);
+        if (mEndGroup != null) {
+            mEndSpinner.setSelection(mModel.end);
+            if (mModel.end == RecurrenceModel.END_BY_DATE) {
+                final String dateStr = DateUtils.formatDateTime(getActivity(),
+                        mModel.endDate.toMillis(false), DateUtils.FORMAT_NUMERIC_DATE);
+                mEndDateTextView.setText(dateStr);
+            } else {
+                if (mModel.end == RecurrenceModel.END_BY_COUNT) {
+                    // Checking before setting because this causes infinite
+                    // recursion
+                    // in afterTextWatcher
+                    final String countStr = Integer.toString(mModel.endCount);
+                    if (!countStr.equals(mEndCount.getText().toString())) {
+                        mEndCount.setText(countStr);
+                    }
+                    updateEndCountText();
                 }
             }
         }
+        schedulePreviewUpdate();
     }
 
     /**
@@ -1110,7 +1168,7 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
         }
 
         final String INTERVAL_COUNT_MARKER = "%d";
-        String intervalString = mResources.getQuantityString(mIntervalResId, mModel.interval);
+        String intervalString = mSymbols.getQuantityString(mIntervalResId, mModel.interval);
         int markerStart = intervalString.indexOf(INTERVAL_COUNT_MARKER);
 
         if (markerStart != -1) {
@@ -1126,8 +1184,11 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
      * entered for N.
      */
     private void updateEndCountText() {
+        if (mPostEndCount == null) {
+            return;
+        }
         final String END_COUNT_MARKER = "%d";
-        String endString = mResources.getQuantityString(R.plurals.recurrence_end_count,
+        String endString = mSymbols.getQuantityString(R.plurals.recurrence_end_count,
                 mModel.endCount);
         int markerStart = endString.indexOf(END_COUNT_MARKER);
 
@@ -1136,10 +1197,196 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                 Log.e(TAG, "No text to put in to recurrence's end spinner.");
             } else {
                 int postTextStart = markerStart + END_COUNT_MARKER.length();
-                mPostEndCount.setText(endString.substring(postTextStart,
-                        endString.length()).trim());
+                String postText = endString.substring(postTextStart, endString.length()).trim();
+                String endDateStr = getEndCountDateString();
+                if (endDateStr != null) {
+                    postText += mResources.getString(R.string.endByDate, endDateStr);
+                }
+                mPostEndCount.setText(postText);
+            }
+        }
+    }
+
+    private void setStartTime(Bundle bundle) {
+        if (bundle != null) {
+            mTime.set(bundle.getLong(BUNDLE_START_TIME_MILLIS));
+
+            String tz = bundle.getString(BUNDLE_TIME_ZONE);
+            if (!TextUtils.isEmpty(tz)) {
+                mTime.timezone = tz;
+            }
+            mTime.normalize(false);
+        } else {
+            mTime.setToNow();
+        }
+    }
+
+    /**
+     * Recomputes the occurrence preview once mModel stops changing for {@link #PREVIEW_DELAY_MILLIS}.
+     */
+    private void schedulePreviewUpdate() {
+        if (mPreviewTextView == null) {
+            return;
+        }
+        mPreviewGeneration++;
+        mHandler.removeCallbacks(mStartPreviewRunnable);
+        mHandler.postDelayed(mStartPreviewRunnable, PREVIEW_DELAY_MILLIS);
+    }
+
+    /**
+     * Snapshots mModel and computes the upcoming occurrences in the background.  The result is only shown if mModel
+     * did not change in the meantime.
+     */
+    private void startPreview() {
+        final EventRecurrence recurrence = getPreviewRecurrence();
+        if (recurrence == null) {
+            showPreview(null);
+            return;
+        }
+        final int generation = mPreviewGeneration;
+        final int count = mPreviewCount;
+        final Context context = getActivity().getApplicationContext();
+        ParallelBatch.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final String preview = formatOccurrences(context, recurrence, count);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mPreviewGeneration) {
+                            showPreview(preview);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return A copy of the rule being edited with its start date, or null if there's nothing to preview.
+     */
+    private EventRecurrence getPreviewRecurrence() {
+        if (mModel.recurrenceState == RecurrenceModel.STATE_NO_RECURRENCE) {
+            return null;
+        }
+        EventRecurrence recurrence = new EventRecurrence();
+        recurrence.wkst = mRecurrence.wkst;
+        // copyModelToEventRecurrence() switches the end date to UTC, keep the model's one untouched
+        Time endDate = mModel.endDate;
+        if (endDate != null) {
+            mModel.endDate = new Time(endDate);
+        }
+        try {
+            copyModelToEventRecurrence(mModel, recurrence);
+        } catch (IllegalStateException e) {
+            return null;
+        } finally {
+            mModel.endDate = endDate;
+        }
+        if (recurrence.freq == EventRecurrence.WEEKLY && recurrence.bydayCount == 0) {
+            return null;
+        }
+        recurrence.setStartDate(new Time(mTime));
+        return RecurrenceExpander.isSupported(recurrence) ? recurrence : null;
+    }
+
+    /**
+     * @return The next {@code count} occurrences from now, as a comma separated list of dates.
+     */
+    private static String formatOccurrences(Context context, EventRecurrence recurrence, int count) {
+        RecurrenceExpander expander;
+        try {
+            expander = new RecurrenceExpander(recurrence);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int flags = DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_WEEKDAY | DateUtils.FORMAT_ABBREV_ALL;
+        if (recurrence.startDate.allDay) {
+            flags |= DateUtils.FORMAT_UTC;
+        }
+        StringBuilder sb = new StringBuilder();
+        long occurrence = expander.nextAfter(System.currentTimeMillis());
+        for (int i = 0; i < count && occurrence != RecurrenceExpander.NO_OCCURRENCE; i++) {
+            if (i > 0) {
+                sb.append(", ");
             }
+            sb.append(DateUtils.formatDateTime(context, occurrence, flags));
+            occurrence = expander.nextAfter(occurrence);
+        }
+        return sb.toString();
+    }
+
+    private void showPreview(String preview) {
+        if (mPreviewTextView == null) {
+            return;
+        }
+        if (TextUtils.isEmpty(preview)) {
+            mPreviewTextView.setVisibility(View.GONE);
+        } else {
+            mPreviewTextView.setText(preview);
+            mPreviewTextView.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /**
+     * @return The date of the last event of the "Repeat for N events" end option, or null when it can't be computed.
+     * The date of a new rule is computed in the background like the preview: null is returned meanwhile, and the text
+     * is updated again once it is known.
+     */
+    private String getEndCountDateString() {
+        EventRecurrence recurrence = null;
+        if (mModel.end == RecurrenceModel.END_BY_COUNT && mModel.endCount > 0) {
+            recurrence = getPreviewRecurrence();
+        }
+        if (recurrence == null) {
+            mHandler.removeCallbacks(mStartEndCountDateRunnable);
+            mPendingEndCountRecurrence = null;
+            mPendingEndCountRule = null;
+            return null;
+        }
+        // the start date is the same for the whole dialog, the rule is enough to tell dates apart
+        String rule = recurrence.toString();
+        if (rule.equals(mEndCountDateRule)) {
+            return mEndCountDate;
+        }
+        if (!rule.equals(mPendingEndCountRule)) {
+            mPendingEndCountRecurrence = recurrence;
+            mPendingEndCountRule = rule;
+            mHandler.removeCallbacks(mStartEndCountDateRunnable);
+            mHandler.postDelayed(mStartEndCountDateRunnable, PREVIEW_DELAY_MILLIS);
+        }
+        return null;
+    }
+
+    /**
+     * Computes the end count date of the pending rule in the background, and shows it if the rule is still the one
+     * being edited.
+     */
+    private void startEndCountDate() {
+        final EventRecurrence recurrence = mPendingEndCountRecurrence;
+        if (recurrence == null) {
+            return;
         }
+        final String rule = mPendingEndCountRule;
+        final Context context = getActivity().getApplicationContext();
+        ParallelBatch.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final String date = EventRecurrenceFormatter.getLastOccurrenceString(context, recurrence);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (recurrence == mPendingEndCountRecurrence) {
+                            mPendingEndCountRecurrence = null;
+                            mPendingEndCountRule = null;
+                            mEndCountDate = date;
+                            mEndCountDateRule = rule;
+                            updateEndCountText();
+                        }
+                    }
+                });
+            }
+        });
     }
 
     // Implements OnItemSelectedListener interface
@@ -1251,6 +1498,24 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mHandler.removeCallbacks(mStartPreviewRunnable);
+        mPreviewGeneration++;
+        mPreviewTextView = null;
+        mHandler.removeCallbacks(mStartEndCountDateRunnable);
+        mPendingEndCountRecurrence = null;
+        mPendingEndCountRule = null;
+        mEndGroup = null;
+        mEndSpinner = null;
+        mEndCount = null;
+        mPostEndCount = null;
+        mEndDateTextView = null;
+        mWeekPanel = null;
+        mMonthGroup = null;
+    }
+
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
@@ -1305,7 +1570,7 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                 // more form-like strings instead.
                 mUseFormStrings = true;
             } else {
-                String countEndStr = getResources().getQuantityString(
+                String countEndStr = mSymbols.getQuantityString(
                         R.plurals.recurrence_end_count, 1);
                 markerStart = countEndStr.indexOf(END_COUNT_MARKER);
                 if (markerStart <= 0) {
@@ -1353,7 +1618,7 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                     }
                     break;
                 case RecurrenceModel.END_BY_COUNT:
-                    String endString = mResources.getQuantityString(R.plurals.recurrence_end_count,
+                    String endString = mSymbols.getQuantityString(R.plurals.recurrence_end_count,
                             mModel.endCount);
                     markerStart = endString.indexOf(END_COUNT_MARKER);
 
@@ -1367,9 +1632,7 @@ public class RecurrencePickerDialogFragment extends DialogFragment implements On
                             // Use this flag so the onItemSelected knows whether to show it later.
                             mHidePostEndCount = true;
                         } else {
-                            int postTextStart = markerStart + END_COUNT_MARKER.length();
-                            mPostEndCount.setText(endString.substring(postTextStart,
-                                    endString.length()).trim());
+                            updateEndCountText();
                             // In case it's a recycled view that wasn't visible.
                             if (mModel.end == RecurrenceModel.END_BY_COUNT) {
                                 mPostEndCount.setVisibility(View.VISIBLE);
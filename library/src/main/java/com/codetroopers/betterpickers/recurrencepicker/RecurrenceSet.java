@@ -0,0 +1,234 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import java.util.Arrays;
+
+/**
+ * A recurrence set as defined by RFC 5545: the occurrences of a rule, plus the extra dates of RDATE, minus the
+ * exception dates of EXDATE. <p> RDATE and EXDATE are kept as sorted arrays of distinct instants.  Iterating with a
+ * {@link Cursor} merges the three sorted streams in one forward pass, so excluding k dates from n occurrences costs
+ * O(n + k) and no set of excluded dates is built.  Adding a date, e.g. when the user deletes a single occurrence, is a
+ * binary search and one array copy. <p> An EXDATE only excludes an occurrence at exactly the same instant; COUNT
+ * counts the occurrences of the rule before exclusion, as in RFC 5545.  Instances are not thread-safe, and must not
+ * be changed while a cursor is in use.
+ */
+public class RecurrenceSet {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final RecurrenceExpander mExpander;
+
+    private long[] mRDates = new long[0];
+    private int mRDateCount;
+    private long[] mExDates = new long[0];
+    private int mExDateCount;
+
+    /**
+     * @param rule The RRULE of the set with its start date set, or null for a set of RDATEs only.
+     * @throws IllegalArgumentException if the start date of the rule is not set.
+     * @throws UnsupportedOperationException if {@link RecurrenceExpander} does not support the rule.
+     */
+    public RecurrenceSet(EventRecurrence rule) {
+        mExpander = rule != null ? new RecurrenceExpander(rule) : null;
+    }
+
+    /**
+     * Replaces the RDATEs of the set.
+     *
+     * @param instants Any order, duplicates allowed.  The array is not kept.
+     */
+    public void setRDates(long[] instants, int count) {
+        mRDates = sortDistinct(instants, count);
+        mRDateCount = mRDates.length;
+    }
+
+    /**
+     * Replaces the EXDATEs of the set.
+     *
+     * @param instants Any order, duplicates allowed.  The array is not kept.
+     */
+    public void setExDates(long[] instants, int count) {
+        mExDates = sortDistinct(instants, count);
+        mExDateCount = mExDates.length;
+    }
+
+    /**
+     * @return false if the set already had this RDATE.
+     */
+    public boolean addRDate(long instant) {
+        int index = Arrays.binarySearch(mRDates, 0, mRDateCount, instant);
+        if (index >= 0) {
+            return false;
+        }
+        mRDates = insert(mRDates, mRDateCount++, -index - 1, instant);
+        return true;
+    }
+
+    /**
+     * Excludes one occurrence, e.g. when the user deletes it from a series.
+     *
+     * @return false if the set already had this EXDATE.
+     */
+    public boolean addExDate(long instant) {
+        int index = Arrays.binarySearch(mExDates, 0, mExDateCount, instant);
+        if (index >= 0) {
+            return false;
+        }
+        mExDates = insert(mExDates, mExDateCount++, -index - 1, instant);
+        return true;
+    }
+
+    public boolean removeRDate(long instant) {
+        int index = Arrays.binarySearch(mRDates, 0, mRDateCount, instant);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(mRDates, index + 1, mRDates, index, --mRDateCount - index);
+        return true;
+    }
+
+    public boolean removeExDate(long instant) {
+        int index = Arrays.binarySearch(mExDates, 0, mExDateCount, instant);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(mExDates, index + 1, mExDates, index, --mExDateCount - index);
+        return true;
+    }
+
+    public int getRDateCount() {
+        return mRDateCount;
+    }
+
+    public long getRDate(int index) {
+        return mRDates[index];
+    }
+
+    public int getExDateCount() {
+        return mExDateCount;
+    }
+
+    public long getExDate(int index) {
+        return mExDates[index];
+    }
+
+    /**
+     * @return The first occurrence of the set strictly after {@code instant}, or {@link
+     * RecurrenceExpander#NO_OCCURRENCE}.
+     */
+    public long nextAfter(long instant) {
+        Cursor cursor = iterate(instant == Long.MAX_VALUE ? instant : instant + 1);
+        return cursor.moveToNext() ? cursor.getInstant() : RecurrenceExpander.NO_OCCURRENCE;
+    }
+
+    /**
+     * Copies the occurrences of [windowStart, windowEnd) into {@code instants}, e.g. to fill one page of an agenda.
+     *
+     * @return The number of occurrences copied, at most {@code instants.length}.
+     */
+    public int getOccurrences(long windowStart, long windowEnd, long[] instants) {
+        Cursor cursor = iterate(windowStart);
+        int count = 0;
+        while (count < instants.length && cursor.moveToNext() && cursor.getInstant() < windowEnd) {
+            instants[count++] = cursor.getInstant();
+        }
+        return count;
+    }
+
+    /**
+     * @return A cursor on the occurrences at or after {@code from}, positioned before the first one.
+     */
+    public Cursor iterate(long from) {
+        return new Cursor(from);
+    }
+
+    /**
+     * Forward iteration over the occurrences of a set, by ascending instant and without duplicates.
+     */
+    public class Cursor {
+
+        private long mRuleIndex;
+        private long mRuleNext;
+        private int mRDateIndex;
+        private int mExDateIndex;
+        private long mInstant = RecurrenceExpander.NO_OCCURRENCE;
+
+        private Cursor(long from) {
+            if (mExpander != null) {
+                mRuleIndex = from == Long.MIN_VALUE ? 0 : mExpander.countBefore(from);
+                mRuleNext = mExpander.getOccurrence(mRuleIndex);
+            } else {
+                mRuleNext = RecurrenceExpander.NO_OCCURRENCE;
+            }
+            mRDateIndex = lowerBound(mRDates, mRDateCount, from);
+            mExDateIndex = lowerBound(mExDates, mExDateCount, from);
+        }
+
+        /**
+         * @return false when there are no more occurrences.
+         */
+        public boolean moveToNext() {
+            while (true) {
+                boolean hasRule = mRuleNext != RecurrenceExpander.NO_OCCURRENCE;
+                boolean hasRDate = mRDateIndex < mRDateCount;
+                if (!hasRule && !hasRDate) {
+                    mInstant = RecurrenceExpander.NO_OCCURRENCE;
+                    return false;
+                }
+                long next;
+                if (hasRule && (!hasRDate || mRuleNext <= mRDates[mRDateIndex])) {
+                    next = mRuleNext;
+                    mRuleNext = mExpander.getOccurrence(++mRuleIndex);
+                    if (hasRDate && mRDates[mRDateIndex] == next) {
+                        mRDateIndex++;
+                    }
+                } else {
+                    next = mRDates[mRDateIndex++];
+                }
+
+                while (mExDateIndex < mExDateCount && mExDates[mExDateIndex] < next) {
+                    mExDateIndex++;
+                }
+                if (mExDateIndex == mExDateCount || mExDates[mExDateIndex] != next) {
+                    mInstant = next;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return The current occurrence, or {@link RecurrenceExpander#NO_OCCURRENCE}.
+         */
+        public long getInstant() {
+            return mInstant;
+        }
+    }
+
+    /**
+     * @return The index of the first value at or after {@code instant}.
+     */
+    private static int lowerBound(long[] values, int count, long instant) {
+        int index = Arrays.binarySearch(values, 0, count, instant);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static long[] insert(long[] values, int count, int index, long value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, Math.max(INITIAL_CAPACITY, count * 2));
+        }
+        System.arraycopy(values, index, values, index + 1, count - index);
+        values[index] = value;
+        return values;
+    }
+
+    private static long[] sortDistinct(long[] values, int count) {
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct == count ? sorted : Arrays.copyOf(sorted, distinct);
+    }
+}
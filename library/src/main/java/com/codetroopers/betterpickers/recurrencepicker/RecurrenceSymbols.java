@@ -0,0 +1,178 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import android.content.res.Resources;
+import android.text.format.DateUtils;
+
+import com.codetroopers.betterpickers.R;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * The words recurrences are described with in one locale: weekday names, "on every [Nth] [DAY_OF_WEEK]" phrases and
+ * the plural templates of the recurrence strings. <p> Built once per locale and shared by {@link
+ * EventRecurrenceFormatter} and {@link RecurrencePickerDialogFragment}, so formatting rules or opening the picker
+ * again reads arrays instead of resolving resources.  Plural templates are read from the resources the first time a
+ * quantity is used, then kept; quantities above {@link #MAX_CACHED_QUANTITY} are always read from the resources.
+ * Instances are thread-safe.
+ */
+public final class RecurrenceSymbols {
+
+    /**
+     * Highest quantity whose plural templates are kept, above the largest count of the picker.
+     */
+    static final int MAX_CACHED_QUANTITY = 999;
+
+    private static final int[] NTH_DAY_OF_WEEK_IDS = {
+            R.array.repeat_by_nth_sun,
+            R.array.repeat_by_nth_mon,
+            R.array.repeat_by_nth_tues,
+            R.array.repeat_by_nth_wed,
+            R.array.repeat_by_nth_thurs,
+            R.array.repeat_by_nth_fri,
+            R.array.repeat_by_nth_sat
+    };
+
+    private static final int[] PLURAL_IDS = {
+            R.plurals.hourly,
+            R.plurals.daily,
+            R.plurals.weekly,
+            R.plurals.monthly,
+            R.plurals.yearly_plain,
+            R.plurals.endByCount,
+            R.plurals.recurrence_interval_hourly,
+            R.plurals.recurrence_interval_daily,
+            R.plurals.recurrence_interval_weekly,
+            R.plurals.recurrence_interval_monthly,
+            R.plurals.recurrence_interval_yearly,
+            R.plurals.recurrence_end_count
+    };
+
+    private static RecurrenceSymbols sSymbols;
+
+    private final Resources mResources;
+    private final Locale mLocale;
+    // [Time.SUNDAY .. Time.SATURDAY]
+    private final String[] mShortWeekdays = new String[7];
+    private final String[] mMediumWeekdays = new String[7];
+    private final String[] mLongWeekdays = new String[7];
+    // [Time.SUNDAY .. Time.SATURDAY][first, second, third, fourth, last]
+    private final String[][] mNthDayOfWeek = new String[7][];
+    private final String mEveryWeekday;
+    /*
+     * Filled on use.  A template read twice by racing threads is the same String, and Strings are safely published
+     * through a race, so no lock is needed.
+     */
+    private final String[][] mPluralTemplates = new String[PLURAL_IDS.length][];
+
+    private RecurrenceSymbols(Resources r, Locale locale) {
+        mResources = r;
+        mLocale = locale;
+        // Not DateUtils.getDayOfWeekString(), which follows Locale.getDefault() instead of the resources
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+        String[] shortWeekdays = symbols.getShortWeekdays();
+        String[] longWeekdays = symbols.getWeekdays();
+        for (int day = 0; day < 7; day++) {
+            int calendarDay = Calendar.SUNDAY + day;
+            mShortWeekdays[day] = shortWeekdays[calendarDay];
+            // DateUtils gives the short names for LENGTH_MEDIUM too
+            mMediumWeekdays[day] = shortWeekdays[calendarDay];
+            mLongWeekdays[day] = longWeekdays[calendarDay];
+            mNthDayOfWeek[day] = r.getStringArray(NTH_DAY_OF_WEEK_IDS[day]);
+        }
+        mEveryWeekday = r.getString(R.string.every_weekday);
+    }
+
+    /**
+     * @return The symbols of the locale of {@code r}, rebuilt when the locale changed since the last call.
+     */
+    public static synchronized RecurrenceSymbols get(Resources r) {
+        Locale locale = r.getConfiguration().locale;
+        if (sSymbols == null || !sSymbols.mLocale.equals(locale)) {
+            sSymbols = new RecurrenceSymbols(r, locale);
+        }
+        return sSymbols;
+    }
+
+    public Locale getLocale() {
+        return mLocale;
+    }
+
+    /**
+     * @param weekday Time.SUNDAY (0) to Time.SATURDAY (6).
+     * @param length {@link DateUtils#LENGTH_SHORT}, {@link DateUtils#LENGTH_MEDIUM} or {@link DateUtils#LENGTH_LONG}.
+     */
+    public String getWeekdayName(int weekday, int length) {
+        switch (length) {
+            case DateUtils.LENGTH_SHORT:
+                return mShortWeekdays[weekday];
+            case DateUtils.LENGTH_MEDIUM:
+                return mMediumWeekdays[weekday];
+            case DateUtils.LENGTH_LONG:
+                return mLongWeekdays[weekday];
+            default:
+                throw new IllegalArgumentException("Unsupported length: " + length);
+        }
+    }
+
+    /**
+     * @param weekday Time.SUNDAY (0) to Time.SATURDAY (6).
+     * @param nth 1 to 5, or -1 for the last one of the month, which is also how the fifth one reads.
+     * @return e.g. "on every second Monday", or null for other ordinals, e.g. 0 for every Monday of the month.
+     */
+    public String getNthDayOfWeek(int weekday, int nth) {
+        if (nth == -1 || nth == 5) {
+            return mNthDayOfWeek[weekday][4];
+        }
+        if (nth < 1 || nth > 5) {
+            return null;
+        }
+        return mNthDayOfWeek[weekday][nth - 1];
+    }
+
+    public String getEveryWeekday() {
+        return mEveryWeekday;
+    }
+
+    /**
+     * Same as {@link Resources#getQuantityString(int, int)}, for the plurals of the recurrence strings.
+     *
+     * @throws IllegalArgumentException for other plurals.
+     */
+    public String getQuantityString(int id, int quantity) {
+        int plural = indexOf(id);
+        if (quantity < 0 || quantity > MAX_CACHED_QUANTITY) {
+            return mResources.getQuantityString(id, quantity);
+        }
+        String[] templates = mPluralTemplates[plural];
+        if (templates == null) {
+            templates = new String[MAX_CACHED_QUANTITY + 1];
+            mPluralTemplates[plural] = templates;
+        }
+        String template = templates[quantity];
+        if (template == null) {
+            template = mResources.getQuantityString(id, quantity);
+            templates[quantity] = template;
+        }
+        return template;
+    }
+
+    /**
+     * Same as {@link Resources#getQuantityString(int, int, Object...)}, for the plurals of the recurrence strings.
+     *
+     * @throws IllegalArgumentException for other plurals.
+     */
+    public String getQuantityString(int id, int quantity, Object... formatArgs) {
+        return String.format(mLocale, getQuantityString(id, quantity), formatArgs);
+    }
+
+    private static int indexOf(int id) {
+        for (int i = 0; i < PLURAL_IDS.length; i++) {
+            if (PLURAL_IDS[i] == id) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a recurrence plural: " + id);
+    }
+}
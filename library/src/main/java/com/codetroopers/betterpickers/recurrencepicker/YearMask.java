@@ -0,0 +1,146 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+/**
+ * Bit set operations on the days of a year: bit i of a mask is set when day i of the year (0 for January 1st) is
+ * selected.  Used by {@link RecurrenceExpander} to evaluate the BYxxx parts of a yearly rule as a few word operations
+ * instead of testing every day.
+ */
+final class YearMask {
+
+    /**
+     * Number of longs in a mask, enough for 366 days.
+     */
+    static final int WORDS = 6;
+
+    private YearMask() {
+    }
+
+    static long[] create() {
+        return new long[WORDS];
+    }
+
+    static void clear(long[] mask) {
+        for (int i = 0; i < WORDS; i++) {
+            mask[i] = 0;
+        }
+    }
+
+    static void set(long[] mask, int day) {
+        mask[day >>> 6] |= 1L << day;
+    }
+
+    /**
+     * Sets the days [from, to).
+     */
+    static void setRange(long[] mask, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstBits = -1L << from;
+        long lastBits = -1L >>> -to;
+        if (firstWord == lastWord) {
+            mask[firstWord] |= firstBits & lastBits;
+            return;
+        }
+        mask[firstWord] |= firstBits;
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            mask[i] = -1L;
+        }
+        mask[lastWord] |= lastBits;
+    }
+
+    /**
+     * Sets every 7th day from {@code from}, up to {@code to} exclusive.
+     */
+    static void setWeekly(long[] mask, int from, int to) {
+        for (int day = from; day < to; day += 7) {
+            mask[day >>> 6] |= 1L << day;
+        }
+    }
+
+    static void and(long[] mask, long[] other) {
+        for (int i = 0; i < WORDS; i++) {
+            mask[i] &= other[i];
+        }
+    }
+
+    static void copy(long[] from, long[] to) {
+        System.arraycopy(from, 0, to, 0, WORDS);
+    }
+
+    static int count(long[] mask) {
+        int count = 0;
+        for (int i = 0; i < WORDS; i++) {
+            count += Long.bitCount(mask[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Applies BYSETPOS: keeps the days of {@code mask} whose rank is listed in {@code positions}, 1 being the first
+     * day and -1 the last one.
+     *
+     * @param out Receives the selected days.
+     */
+    static void selectByRank(long[] mask, int[] positions, long[] out) {
+        clear(out);
+        int total = count(mask);
+        for (int position : positions) {
+            int rank = position > 0 ? position - 1 : total + position;
+            if (rank < 0 || rank >= total) {
+                continue;
+            }
+            int word = 0;
+            int bits;
+            while (rank >= (bits = Long.bitCount(mask[word]))) {
+                rank -= bits;
+                word++;
+            }
+            out[word] |= Long.lowestOneBit(selectInWord(mask[word], rank));
+        }
+    }
+
+    /**
+     * Same as {@link #selectByRank(long[], int[], long[])} for a mask of at most 64 days.
+     */
+    static long selectByRank(long mask, int[] positions) {
+        int total = Long.bitCount(mask);
+        long selected = 0;
+        for (int position : positions) {
+            int rank = position > 0 ? position - 1 : total + position;
+            if (rank >= 0 && rank < total) {
+                selected |= Long.lowestOneBit(selectInWord(mask, rank));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return {@code bits} without its {@code rank} lowest set bits.
+     */
+    private static long selectInWord(long bits, int rank) {
+        for (int i = 0; i < rank; i++) {
+            bits &= bits - 1;
+        }
+        return bits;
+    }
+
+    /**
+     * Appends the epoch days of the days set in a mask, in ascending order.
+     *
+     * @param firstDay The epoch day of January 1st.
+     * @return The new number of days.
+     */
+    static int toDays(long[] mask, int firstDay, int[] days, int count) {
+        for (int i = 0; i < WORDS; i++) {
+            long bits = mask[i];
+            while (bits != 0) {
+                days[count++] = firstDay + (i << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return count;
+    }
+}
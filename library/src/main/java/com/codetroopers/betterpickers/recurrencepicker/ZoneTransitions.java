@@ -0,0 +1,184 @@
+package com.codetroopers.betterpickers.recurrencepicker;
+
+import com.codetroopers.betterpickers.EpochDays;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TimeZone;
+
+/**
+ * Precomputed UTC offset changes of a time zone, to convert between instants and wall-clock times with a binary search
+ * instead of resolving the zone for each value. <p> The table covers the years 1900 to 2100; outside of it, the
+ * TimeZone is asked directly.  Wall-clock times are read as in RFC 5545: a time repeated when the clocks go back is
+ * the first of the two instants, and a time skipped when the clocks go forward is read with the offset from before
+ * the gap, which moves it forward by the length of the gap. <p> Instances are immutable and shared through {@link
+ * #get(TimeZone)}.
+ */
+public final class ZoneTransitions {
+
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long FIRST_INSTANT = EpochDays.of(1900, 0, 1) * DAY_IN_MILLIS;
+    private static final long LAST_INSTANT = EpochDays.of(2100, 0, 1) * DAY_IN_MILLIS;
+    private static final long SAMPLE_INTERVAL = 7 * DAY_IN_MILLIS;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final HashMap<String, ZoneTransitions> sCache = new HashMap<>();
+
+    private final TimeZone mZone;
+    /* instants at which the offset changes */
+    private final long[] mTransitions;
+    /* wall-clock times from which the offset after each change applies */
+    private final long[] mLocalTransitions;
+    /* mOffsets[i] is the offset before mTransitions[i], the last one the offset after the last change */
+    private final int[] mOffsets;
+
+    /**
+     * Finds the changes of the offset of {@code zone} by sampling it once a week, then looking for the exact
+     * millisecond of each change with a bisection.  This assumes a zone never changes twice within a week.
+     */
+    private ZoneTransitions(TimeZone zone) {
+        mZone = (TimeZone) zone.clone();
+
+        long[] transitions = new long[32];
+        int[] offsets = new int[33];
+        int count = 0;
+        int offset = zone.getOffset(FIRST_INSTANT);
+        offsets[0] = offset;
+        // UTC, the zone of all-day events, has nothing to sample
+        boolean fixed = zone.hasSameRules(UTC) && offset == 0;
+        for (long sample = FIRST_INSTANT + SAMPLE_INTERVAL; !fixed && sample < LAST_INSTANT + SAMPLE_INTERVAL;
+                sample += SAMPLE_INTERVAL) {
+            int next = zone.getOffset(sample);
+            if (next == offset) {
+                continue;
+            }
+            long low = sample - SAMPLE_INTERVAL;
+            long high = sample;
+            while (high - low > 1) {
+                long mid = low + (high - low) / 2;
+                if (zone.getOffset(mid) == offset) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            if (count == transitions.length) {
+                transitions = Arrays.copyOf(transitions, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            }
+            transitions[count++] = high;
+            offsets[count] = next;
+            offset = next;
+        }
+
+        mTransitions = Arrays.copyOf(transitions, count);
+        mOffsets = Arrays.copyOf(offsets, count + 1);
+        mLocalTransitions = new long[count];
+        for (int i = 0; i < count; i++) {
+            mLocalTransitions[i] = mTransitions[i] + Math.max(mOffsets[i], mOffsets[i + 1]);
+        }
+    }
+
+    /**
+     * @return The shared table of the zone, built on first use.
+     */
+    public static ZoneTransitions get(TimeZone zone) {
+        String id = zone.getID();
+        synchronized (sCache) {
+            ZoneTransitions transitions = sCache.get(id);
+            if (transitions != null && transitions.mZone.hasSameRules(zone)) {
+                return transitions;
+            }
+        }
+        // built outside of the lock, so that a new zone doesn't block the lookups of the others
+        ZoneTransitions transitions = new ZoneTransitions(zone);
+        synchronized (sCache) {
+            if (!sCache.containsKey(id)) {
+                sCache.put(id, transitions);
+            }
+        }
+        return transitions;
+    }
+
+    /**
+     * @return The shared table of the zone with this id, built on first use.  Unknown ids get the table of GMT, like
+     * {@link TimeZone#getTimeZone(String)}.
+     */
+    public static ZoneTransitions get(String id) {
+        synchronized (sCache) {
+            ZoneTransitions transitions = sCache.get(id);
+            if (transitions != null) {
+                return transitions;
+            }
+        }
+        return get(TimeZone.getTimeZone(id));
+    }
+
+    /**
+     * @return A copy of the zone of this table.
+     */
+    public TimeZone getTimeZone() {
+        return (TimeZone) mZone.clone();
+    }
+
+    /**
+     * @return The offset from UTC at {@code instant}, in milliseconds.
+     */
+    public int getOffset(long instant) {
+        if (instant < FIRST_INSTANT || instant >= LAST_INSTANT) {
+            return mZone.getOffset(instant);
+        }
+        return mOffsets[upperBound(mTransitions, instant)];
+    }
+
+    /**
+     * @return The wall-clock time at {@code instant}, as milliseconds from 1970-01-01T00:00 local time.
+     */
+    public long toLocal(long instant) {
+        return instant + getOffset(instant);
+    }
+
+    /**
+     * @param localMillis A wall-clock time, as milliseconds from 1970-01-01T00:00 local time.
+     * @return The instant the clocks show this time, resolving gaps and overlaps as RFC 5545 does.
+     */
+    public long toInstant(long localMillis) {
+        if (localMillis < FIRST_INSTANT + DAY_IN_MILLIS || localMillis >= LAST_INSTANT - DAY_IN_MILLIS) {
+            return toInstantSlow(localMillis);
+        }
+        return localMillis - mOffsets[upperBound(mLocalTransitions, localMillis)];
+    }
+
+    /**
+     * Same rules as {@link #toInstant(long)}, from the offsets a day before and after: zones never change twice in
+     * that time.
+     */
+    private long toInstantSlow(long localMillis) {
+        long guess = localMillis - mZone.getRawOffset();
+        int before = mZone.getOffset(guess - DAY_IN_MILLIS);
+        int after = mZone.getOffset(guess + DAY_IN_MILLIS);
+        boolean beforeValid = mZone.getOffset(localMillis - before) == before;
+        boolean afterValid = mZone.getOffset(localMillis - after) == after;
+        if (beforeValid && afterValid) {
+            return localMillis - Math.max(before, after);
+        }
+        return afterValid ? localMillis - after : localMillis - before;
+    }
+
+    /**
+     * @return The number of values at or before {@code key}.
+     */
+    private static int upperBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
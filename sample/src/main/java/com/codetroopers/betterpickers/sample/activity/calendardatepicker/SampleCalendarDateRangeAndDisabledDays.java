@@ -1,13 +1,12 @@
 package com.codetroopers.betterpickers.sample.activity.calendardatepicker;
 
 import android.os.Bundle;
-import android.util.SparseArray;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 
-import com.codetroopers.betterpickers.Utils;
 import com.codetroopers.betterpickers.calendardatepicker.CalendarDatePickerDialogFragment;
+import com.codetroopers.betterpickers.calendardatepicker.DisabledDaySet;
 import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter;
 import com.codetroopers.betterpickers.sample.R;
 import com.codetroopers.betterpickers.sample.activity.BaseSampleActivity;
@@ -41,23 +40,9 @@ public class SampleCalendarDateRangeAndDisabledDays extends BaseSampleActivity
                 MonthAdapter.CalendarDay minDate = new MonthAdapter.CalendarDay(now.getYear(), now.getMonthOfYear() - 2, now.getDayOfMonth());
                 MonthAdapter.CalendarDay maxDate = new MonthAdapter.CalendarDay(now.getYear(), now.getMonthOfYear(), now.getDayOfMonth());
 
-                // Initialize disabled days list
-                // Disabled days are located at a formatted location in the format "yyyyMMdd"
-                SparseArray<MonthAdapter.CalendarDay> disabledDays = new SparseArray<>();
-                Calendar startCal = Calendar.getInstance();
-                startCal.setTimeInMillis(minDate.getDateInMillis());
-                Calendar endCal = Calendar.getInstance();
-                endCal.setTimeInMillis(maxDate.getDateInMillis());
-                // Add all weekend days within range to disabled days
-                while (startCal.before(endCal)) {
-                    if (startCal.get(Calendar.DAY_OF_WEEK) == Calendar.SATURDAY
-                            || startCal.get(Calendar.DAY_OF_WEEK) == Calendar.SUNDAY) {
-                        int key = Utils.formatDisabledDayForKey(startCal.get(Calendar.YEAR),
-                                startCal.get(Calendar.MONTH), startCal.get(Calendar.DAY_OF_MONTH));
-                        disabledDays.put(key, new MonthAdapter.CalendarDay(startCal));
-                    }
-                    startCal.add(Calendar.DATE, 1);
-                }
+                // Disable every weekend day
+                DisabledDaySet disabledDays = new DisabledDaySet()
+                        .addWeekDays(Calendar.SATURDAY, Calendar.SUNDAY);
 
                 CalendarDatePickerDialogFragment cdp = new CalendarDatePickerDialogFragment()
                         .setDateRange(minDate, maxDate)
@@ -0,0 +1,65 @@
+package com.codetroopers.betterpickers.sample.activity.calendardatepicker;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+
+import com.codetroopers.betterpickers.calendardatepicker.CalendarDatePickerDialogFragment;
+import com.codetroopers.betterpickers.calendardatepicker.DateRange;
+import com.codetroopers.betterpickers.calendardatepicker.MonthAdapter.CalendarDay;
+import com.codetroopers.betterpickers.sample.R;
+import com.codetroopers.betterpickers.sample.activity.BaseSampleActivity;
+
+import org.joda.time.DateTime;
+
+
+public class SampleCalendarDateRangeSelection extends BaseSampleActivity
+        implements CalendarDatePickerDialogFragment.OnDateRangeSetListener {
+
+    private static final String FRAG_TAG_DATE_PICKER = "fragment_date_picker_name";
+
+    private TextView mResultTextView;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.text_and_button);
+
+        mResultTextView = (TextView) findViewById(R.id.text);
+        Button button = (Button) findViewById(R.id.button);
+
+        mResultTextView.setText(R.string.no_value);
+        button.setText(R.string.calendar_date_picker_set);
+        button.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                DateTime tomorrow = DateTime.now().plusDays(1);
+                DateTime inAWeek = tomorrow.plusDays(7);
+                CalendarDatePickerDialogFragment cdp = new CalendarDatePickerDialogFragment()
+                        .setOnDateRangeSetListener(SampleCalendarDateRangeSelection.this)
+                        .setDateRange(new CalendarDay(DateTime.now().getMillis()), null)
+                        .setPreselectedRange(new CalendarDay(tomorrow.getMillis()), new CalendarDay(inAWeek.getMillis()));
+                cdp.show(getSupportFragmentManager(), FRAG_TAG_DATE_PICKER);
+            }
+        });
+    }
+
+    @Override
+    public void onDateRangeSet(CalendarDatePickerDialogFragment dialog, DateRange range) {
+        mResultTextView.setText(getString(R.string.calendar_date_picker_result_range,
+                new DateTime(range.getStart().getDateInMillis()).toLocalDate(),
+                new DateTime(range.getEnd().getDateInMillis()).toLocalDate(), range.getDayCount()));
+    }
+
+    @Override
+    public void onResume() {
+        // Example of reattaching to the fragment
+        super.onResume();
+        CalendarDatePickerDialogFragment calendarDatePickerDialogFragment = (CalendarDatePickerDialogFragment) getSupportFragmentManager()
+                .findFragmentByTag(FRAG_TAG_DATE_PICKER);
+        if (calendarDatePickerDialogFragment != null) {
+            calendarDatePickerDialogFragment.setOnDateRangeSetListener(this);
+        }
+    }
+}
@@ -45,6 +45,7 @@ public class SampleRecurrenceBasicUsage extends BaseSampleActivity
                 time.setToNow();
                 bundle.putLong(RecurrencePickerDialogFragment.BUNDLE_START_TIME_MILLIS, time.toMillis(false));
                 bundle.putString(RecurrencePickerDialogFragment.BUNDLE_TIME_ZONE, time.timezone);
+                bundle.putInt(RecurrencePickerDialogFragment.BUNDLE_PREVIEW_COUNT, 5);
 
                 // may be more efficient to serialize and pass in EventRecurrence
                 bundle.putString(RecurrencePickerDialogFragment.BUNDLE_RRULE, mRrule);